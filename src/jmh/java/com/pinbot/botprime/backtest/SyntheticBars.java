@@ -0,0 +1,69 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.model.CandleColumns;
+import com.pinbot.botprime.service.IndicatorUtils;
+
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * Синтетические данные для бенчмарков: случайное блуждание BTC-подобной цены на 30m.
+ * Детерминировано по seed, чтобы прогоны были сравнимы между коммитами.
+ */
+public final class SyntheticBars {
+
+    private static final long T0 = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+    private static final long STEP_MS = 30 * 60 * 1000L;
+
+    private SyntheticBars() {
+        // utility class
+    }
+
+    /** Сырые 30m-свечи (как из CandleStreamDao). */
+    public static CandleColumns candles(long seed, int n) {
+        Random rnd = new Random(seed);
+        CandleColumns out = new CandleColumns(n);
+        double price = 42_000.0;
+        for (int i = 0; i < n; i++) {
+            double open = price;
+            double close = Math.max(1.0, round2(open + rnd.nextGaussian() * 150));
+            double high = round2(Math.max(open, close) + rnd.nextDouble() * 80);
+            double low = Math.max(0.01, round2(Math.min(open, close) - rnd.nextDouble() * 80));
+            double volume = round2(200 + rnd.nextDouble() * 2_800);
+            out.add(T0 + i * STEP_MS, open, high, low, close, volume, round2(volume * close));
+            price = close;
+        }
+        return out;
+    }
+
+    /** Бары с индикаторами (как из IndicatorDao) поверх candles(seed, n). */
+    public static BarSeries series(long seed, int n) {
+        CandleColumns c = candles(seed, n);
+        double[] closes = c.closes();
+        double[] ema11  = IndicatorUtils.ema(closes, 11);
+        double[] ema30  = IndicatorUtils.ema(closes, 30);
+        double[] ema110 = IndicatorUtils.ema(closes, 110);
+        double[] ema200 = IndicatorUtils.ema(closes, 200);
+        double[] tema9  = IndicatorUtils.tema(c.hl2s(), 9);
+        double[] rsi    = IndicatorUtils.rsi(closes, 14);
+        double[] smaRsi = IndicatorUtils.sma(rsi, 20);
+
+        Random rnd = new Random(seed ^ 0x5DEECE66DL);
+        BarSeries.Builder b = BarSeries.builder(n);
+        for (int i = 0; i < n; i++) {
+            b.add(c.time(i), units(c.open(i)), units(c.high(i)), units(c.low(i)), units(c.close(i)),
+                    ema11[i], ema30[i], ema110[i], ema200[i],
+                    tema9[i], rsi[i], smaRsi[i],
+                    rnd.nextInt(12) == 0);
+        }
+        return b.build();
+    }
+
+    private static double round2(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+
+    private static long units(double price) {
+        return Math.round(price * BarSeries.PRICE_UNIT);
+    }
+}
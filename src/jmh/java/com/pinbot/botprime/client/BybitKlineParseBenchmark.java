@@ -0,0 +1,73 @@
+package com.pinbot.botprime.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pinbot.botprime.dto.CandleDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор ответа /v5/market/kline в CandleDto: потоковый KlineDecoder (путь BybitClient.getCandles/getKlines)
+ * против прежнего String → Map → BigDecimal. Сеть не участвует.
+ * Payload'ы в src/jmh/resources/bybit (формат Bybit v5, 200 и 1000 строк).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BybitKlineParseBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+
+    @Param({"kline_BTCUSDT_30_200.json", "kline_BTCUSDT_30_1000.json"})
+    String payload;
+
+    ObjectMapper mapper;
+    byte[] body;
+    String json;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = new ObjectMapper();
+        try (InputStream in = getClass().getResourceAsStream("/bybit/" + payload)) {
+            if (in == null) throw new IllegalStateException("payload not found: " + payload);
+            body = in.readAllBytes();
+            json = new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public List<CandleDto> klineDecoder() {
+        return KlineDecoder.decode(body);
+    }
+
+    /** Прежний путь: тело как String, Jackson → Map, BigDecimal на каждое поле. */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<CandleDto> mapAndBigDecimal() throws IOException {
+        Map<String, Object> raw = mapper.readValue(json, MAP);
+        List<List<String>> rows = (List<List<String>>) ((Map<?, ?>) raw.get("result")).get("list");
+        List<CandleDto> out = new ArrayList<>(rows.size());
+        for (List<String> r : rows) {
+            out.add(new CandleDto(
+                    Long.parseLong(r.get(0)),
+                    new BigDecimal(r.get(1)).doubleValue(),
+                    new BigDecimal(r.get(2)).doubleValue(),
+                    new BigDecimal(r.get(3)).doubleValue(),
+                    new BigDecimal(r.get(4)).doubleValue(),
+                    new BigDecimal(r.get(5)).doubleValue(),
+                    new BigDecimal(r.get(6)).doubleValue()));
+        }
+        return out;
+    }
+}
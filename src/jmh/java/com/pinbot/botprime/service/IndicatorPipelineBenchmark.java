@@ -0,0 +1,70 @@
+package com.pinbot.botprime.service;
+
+import com.pinbot.botprime.backtest.SyntheticBars;
+import com.pinbot.botprime.model.CandleColumns;
+import com.pinbot.botprime.persistence.IndicatorValueEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Этапы IndicatorComputeService.computeAndStore без БД: 2h-агрегация и импульсные флаги.
+ * Длина ряда: -p bars=... (по умолчанию 17 520 ≈ год 30m и 100 000).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndicatorPipelineBenchmark {
+
+    @Param({"17520", "100000"})
+    int bars;
+
+    CandleColumns candles;
+    List<IndicatorValueEntity> rows;
+
+    @Setup
+    public void setUp() {
+        candles = SyntheticBars.candles(42, bars);
+        rows = new ArrayList<>(bars);
+        for (int i = 0; i < bars; i++) {
+            rows.add(IndicatorValueEntity.builder()
+                    .symbol("BTCUSDT")
+                    .timeframe("30")
+                    .open_time(Instant.ofEpochMilli(candles.time(i)))
+                    .build());
+        }
+    }
+
+    // Object, а не Bars2h: record package-private, а jmh_generated лежит в подпакете
+    @Benchmark
+    public Object aggregateTo2h() {
+        return IndicatorComputeService.aggregateTo2h(candles);
+    }
+
+    @Benchmark
+    public List<IndicatorValueEntity> applyImpulseFlags() {
+        IndicatorComputeService.applyImpulseFlags(rows, candles);
+        return rows;
+    }
+
+    /** Все индикаторы computeAndStore на 30m + 2h, без сборки сущностей. */
+    @Benchmark
+    public double[] allIndicators() {
+        double[] closes = candles.closes();
+        IndicatorUtils.ema(closes, 11);
+        IndicatorUtils.ema(closes, 30);
+        IndicatorUtils.ema(closes, 110);
+        IndicatorUtils.ema(closes, 200);
+        double[] tema9 = IndicatorUtils.tema(candles.hl2s(), 9);
+        IndicatorUtils.sma(tema9, 10, tema9);
+
+        IndicatorComputeService.Bars2h h2 = IndicatorComputeService.aggregateTo2h(candles);
+        return IndicatorUtils.sma(IndicatorUtils.rsi(h2.closes(), 14), 20);
+    }
+}
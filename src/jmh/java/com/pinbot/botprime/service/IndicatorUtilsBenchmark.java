@@ -0,0 +1,85 @@
+package com.pinbot.botprime.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * List<Double> против double[] для ema/sma/tema/rsi.
+ * Запуск: ./gradlew jmh -PjmhInclude=IndicatorUtilsBenchmark
+ *
+ * *Array — аллоцирующие перегрузки, *ArrayInto — запись в заранее выделенный буфер.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class IndicatorUtilsBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    List<Double> list;
+    double[] array;
+    double[] out;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42);
+        array = new double[size];
+        list = new ArrayList<>(size);
+        double price = 30_000.0;
+        for (int i = 0; i < size; i++) {
+            price = Math.max(1.0, price + rnd.nextGaussian() * 50.0);
+            array[i] = price;
+            list.add(price);
+        }
+        out = new double[size];
+    }
+
+    /* ---------- EMA ---------- */
+    @Benchmark public List<Double> emaList()       { return IndicatorUtils.ema(list, 200); }
+    @Benchmark public double[]     emaArray()      { return IndicatorUtils.ema(array, 200); }
+    @Benchmark public double[]     emaArrayInto()  { return IndicatorUtils.ema(array, 200, out); }
+
+    /* ---------- SMA ---------- */
+    @Benchmark public List<Double> smaList()       { return IndicatorUtils.sma(list, 20); }
+    @Benchmark public double[]     smaArray()      { return IndicatorUtils.sma(array, 20); }
+    @Benchmark public double[]     smaArrayInto()  { return IndicatorUtils.sma(array, 20, out); }
+
+    /* ---------- TEMA ---------- */
+    @Benchmark public List<Double> temaList()      { return IndicatorUtils.tema(list, 9); }
+    @Benchmark public double[]     temaArray()     { return IndicatorUtils.tema(array, 9); }
+    @Benchmark public double[]     temaArrayInto() { return IndicatorUtils.tema(array, 9, out); }
+
+    /* ---------- RSI ---------- */
+    @Benchmark public List<Double> rsiList()       { return IndicatorUtils.rsi(list, 14); }
+    @Benchmark public double[]     rsiArray()      { return IndicatorUtils.rsi(array, 14); }
+    @Benchmark public double[]     rsiArrayInto()  { return IndicatorUtils.rsi(array, 14, out); }
+
+    /* ---------- полный набор computeAndStore (30m) ---------- */
+    @Benchmark
+    public void fullSetList(Blackhole bh) {
+        bh.consume(IndicatorUtils.ema(list, 11));
+        bh.consume(IndicatorUtils.ema(list, 30));
+        bh.consume(IndicatorUtils.ema(list, 110));
+        bh.consume(IndicatorUtils.ema(list, 200));
+        bh.consume(IndicatorUtils.sma(IndicatorUtils.tema(list, 9), 10));
+    }
+
+    @Benchmark
+    public void fullSetArray(Blackhole bh) {
+        bh.consume(IndicatorUtils.ema(array, 11));
+        bh.consume(IndicatorUtils.ema(array, 30));
+        bh.consume(IndicatorUtils.ema(array, 110));
+        bh.consume(IndicatorUtils.ema(array, 200));
+        double[] tema = IndicatorUtils.tema(array, 9);
+        bh.consume(IndicatorUtils.sma(tema, 10, tema));
+    }
+}
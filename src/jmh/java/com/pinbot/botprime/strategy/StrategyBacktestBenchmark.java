@@ -0,0 +1,67 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.BarSeries;
+import com.pinbot.botprime.backtest.IndicatorDao.Bar;
+import com.pinbot.botprime.backtest.SyntheticBars;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бэктесты стратегий на синтетике. Бары материализуются в setUp (как List<Bar> из IndicatorDao),
+ * поэтому меряется только сама стратегия.
+ * Длина ряда: -p bars=...
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StrategyBacktestBenchmark {
+
+    @Param({"17520", "100000"})
+    int bars;
+
+    BarSeries series;
+    List<Bar> barList;
+
+    @Setup
+    public void setUp() {
+        series = SyntheticBars.series(42, bars);
+        barList = new ArrayList<>(series.asBars());
+    }
+
+    @Benchmark
+    public Object mainPro() {
+        return new MainProStrategy().backtest(barList);
+    }
+
+    /** Fixed-point движок на тех же данных — для сравнения с mainPro. */
+    @Benchmark
+    public Object mainProSimulator() {
+        return MainProSimulator.run(series);
+    }
+
+    @Benchmark
+    public Object main() {
+        return new MainStrategy().backtest(barList);
+    }
+
+    @Benchmark
+    public Object mainSimulator() {
+        return MainSimulator.run(series);
+    }
+
+    @Benchmark
+    public Object first() {
+        return new FirstStrategy().backtest(barList);
+    }
+
+    @Benchmark
+    public Object firstSimulator() {
+        return FirstSimulator.run(series);
+    }
+}
@@ -0,0 +1,169 @@
+package com.pinbot.botprime.archive;
+
+import com.pinbot.botprime.model.CandleColumns;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Формат файла архива свечей одной пары (symbol, timeframe).
+ *
+ *  - заголовок 64 байта: magic "PBCANDLE", version, recordSize, count, firstTime, lastTime, резерв;
+ *  - дальше count записей по 56 байт, строго по возрастанию open_time:
+ *    open_time (long, epoch ms), open, high, low, close, volume, quote_volume (double).
+ *
+ * Записи фиксированной ширины и отсортированы, поэтому отдельный индекс не нужен: смещение бара i —
+ * HEADER_BYTES + i * RECORD_BYTES, поиск по времени — бинарный по колонке open_time (MappedCandles.indexOf).
+ *
+ * Файл только дописывается: сначала записи в хвост, потом count в заголовке — это и есть «коммит».
+ * Если процесс упал посередине, недописанный хвост за count просто игнорируется и перезаписывается.
+ * Полная пересборка (после бэкафилла, который идёт назад во времени) — во временный файл и атомарный rename:
+ * уже открытые MappedCandles продолжают читать старую версию.
+ */
+public final class CandleArchive {
+
+    static final long MAGIC = 0x454C444E41434250L; // "PBCANDLE" little-endian
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 8 * 7;
+
+    static final int OFF_COUNT = 16;
+    static final int OFF_FIRST = 24;
+    static final int OFF_LAST = 32;
+
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private CandleArchive() {
+        // utility class
+    }
+
+    /** Перезаписывает архив целиком содержимым columns (по возрастанию времени). */
+    public static void write(Path file, CandleColumns columns) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeRecords(ch, columns, 0, HEADER_BYTES);
+            ch.write(header(columns.size(),
+                    columns.isEmpty() ? 0 : columns.time(0),
+                    columns.isEmpty() ? 0 : columns.time(columns.size() - 1)), 0);
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Дописывает бары новее последнего в архиве. Бар с тем же open_time, что последний, перезаписывает его
+     * (переотданная биржей свеча); более старые пропускаются — их приносит только пересборка.
+     * Файла нет — создаётся. Возвращает число записанных баров.
+     */
+    public static int append(Path file, CandleColumns columns) throws IOException {
+        if (!Files.exists(file)) {
+            write(file, columns);
+            return columns.size();
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer h = readHeader(ch, file);
+            long count = h.getLong(OFF_COUNT);
+            long first = h.getLong(OFF_FIRST);
+            long last = h.getLong(OFF_LAST);
+
+            int from = 0;
+            while (from < columns.size() && count > 0 && columns.time(from) < last) from++;
+            if (from == columns.size()) return 0;
+
+            long slot = count;
+            if (count > 0 && columns.time(from) == last) slot--; // переписываем последний бар
+
+            int written = writeRecords(ch, columns, from, HEADER_BYTES + slot * RECORD_BYTES);
+            ch.force(false);
+
+            long newCount = slot + written;
+            ch.write(header(newCount, count == 0 ? columns.time(from) : first, columns.time(columns.size() - 1)), 0);
+            ch.force(false);
+            return written;
+        }
+    }
+
+    /** Число баров и границы из заголовка — без отображения записей. */
+    public record Header(long count, long firstTime, long lastTime) { }
+
+    public static Header header(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer h = readHeader(ch, file);
+            return new Header(h.getLong(OFF_COUNT), h.getLong(OFF_FIRST), h.getLong(OFF_LAST));
+        }
+    }
+
+    /** Отображает архив в память только для чтения (снимок на момент вызова). */
+    public static MappedCandles open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer h = readHeader(ch, file);
+            long count = h.getLong(OFF_COUNT);
+            long bytes = HEADER_BYTES + count * RECORD_BYTES;
+            if (ch.size() < bytes) {
+                throw new IOException("Truncated candle archive " + file + ": " + ch.size() + " < " + bytes);
+            }
+            if (count > Integer.MAX_VALUE / RECORD_BYTES) {
+                throw new IOException("Candle archive too large to map: " + file + " (" + count + " bars)");
+            }
+            // MappedByteBuffer живёт и после закрытия канала
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            map.order(ORDER);
+            return new MappedCandles(map, (int) count);
+        }
+    }
+
+    private static int writeRecords(FileChannel ch, CandleColumns c, int from, long position) throws IOException {
+        final int chunk = 4096;
+        ByteBuffer buf = ByteBuffer.allocate(chunk * RECORD_BYTES).order(ORDER);
+        long pos = position;
+        for (int i = from; i < c.size(); i++) {
+            buf.putLong(c.time(i))
+               .putDouble(c.open(i)).putDouble(c.high(i)).putDouble(c.low(i)).putDouble(c.close(i))
+               .putDouble(c.volume(i)).putDouble(c.quoteVolume(i));
+            if (!buf.hasRemaining()) pos += flush(ch, buf, pos);
+        }
+        flush(ch, buf, pos);
+        return c.size() - from;
+    }
+
+    private static int flush(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        buf.flip();
+        int n = buf.remaining();
+        long p = pos;
+        while (buf.hasRemaining()) p += ch.write(buf, p);
+        buf.clear();
+        return n;
+    }
+
+    private static ByteBuffer header(long count, long firstTime, long lastTime) {
+        ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        h.putLong(0, MAGIC)
+         .putInt(8, VERSION)
+         .putInt(12, RECORD_BYTES)
+         .putLong(OFF_COUNT, count)
+         .putLong(OFF_FIRST, firstTime)
+         .putLong(OFF_LAST, lastTime);
+        return h;
+    }
+
+    private static ByteBuffer readHeader(FileChannel ch, Path file) throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        while (h.hasRemaining()) {
+            if (ch.read(h, h.position()) < 0) throw new IOException("Truncated candle archive header: " + file);
+        }
+        if (h.getLong(0) != MAGIC || h.getInt(8) != VERSION || h.getInt(12) != RECORD_BYTES) {
+            throw new IOException("Not a candle archive (or unsupported version): " + file);
+        }
+        return h;
+    }
+}
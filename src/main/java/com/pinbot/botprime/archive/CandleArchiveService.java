@@ -0,0 +1,141 @@
+package com.pinbot.botprime.archive;
+
+import com.pinbot.botprime.dto.CandleDto;
+import com.pinbot.botprime.model.CandleColumns;
+import com.pinbot.botprime.repository.CandleStreamDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.pinbot.botprime.model.CandleColumns.numeric8;
+
+/**
+ * Файловый архив истории btc_30m_history: по файлу на (symbol, timeframe) в bot.archive.dir.
+ *
+ * Источник правды — БД; архив — её копия для быстрых полных проходов (пересчёт индикаторов):
+ *  - ingest-путь (refresh, WS) дописывает новые закрытые бары — appendIngested; если ingest принёс бар
+ *    внутри уже заархивированного диапазона, которого в архиве нет (дозаполнили дыру), архив удаляется;
+ *  - перед чтением границы из заголовка архива сверяются с MIN/MAX open_time в БД (два шага по индексу,
+ *    без COUNT по всей истории); не совпали (бэкафилл назад, откат, сбой) — вызывающий читает БД
+ *    и пересобирает архив через write.
+ * Ошибки ввода-вывода только логируются: без архива всё работает через БД, как раньше.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CandleArchiveService {
+
+    private final CandleStreamDao candleStream;
+
+    @Value("${bot.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bot.archive.dir:data/candles}")
+    private String dir;
+
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path path(String symbol, String timeframe) {
+        return Path.of(dir).resolve(symbol.toUpperCase() + "_" + timeframe + ".candles");
+    }
+
+    /** Только что сохранённые в БД свечи → хвост архива (значения округлены как NUMERIC(18,8)). */
+    public void appendIngested(String symbol, String timeframe, List<CandleDto> candles) {
+        if (!enabled || candles == null || candles.isEmpty()) return;
+
+        List<CandleDto> sorted = candles.stream().sorted(Comparator.comparingLong(CandleDto::getStartMs)).toList();
+        CandleColumns cols = new CandleColumns(sorted.size());
+        for (CandleDto c : sorted) {
+            cols.add(c.getStartMs(), numeric8(c.getOpen()), numeric8(c.getHigh()), numeric8(c.getLow()),
+                    numeric8(c.getClose()), numeric8(c.getVolume()), numeric8(c.getQuoteVolume()));
+        }
+
+        synchronized (lock(symbol, timeframe)) {
+            Path file = path(symbol, timeframe);
+            try {
+                if (fillsGap(file, cols)) {
+                    Files.deleteIfExists(file);
+                    log.info("ARCHIVE: {} {} got a bar inside archived range, dropped for rebuild", symbol, timeframe);
+                    return;
+                }
+                int n = CandleArchive.append(file, cols);
+                log.debug("ARCHIVE: appended {} bars to {} {}", n, symbol, timeframe);
+            } catch (IOException e) {
+                log.warn("ARCHIVE: append failed for {} {}: {}", symbol, timeframe, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Есть ли среди баров старше последнего в архиве такой, которого в архиве нет.
+     * Переотданные биржей уже известные бары (refresh каждый раз тянет последние limit) — не дыра.
+     */
+    private static boolean fillsGap(Path file, CandleColumns cols) throws IOException {
+        if (!Files.exists(file)) return false;
+        CandleArchive.Header h = CandleArchive.header(file);
+        if (h.count() == 0 || cols.time(0) >= h.lastTime()) return false;
+
+        MappedCandles archived = CandleArchive.open(file);
+        for (int i = 0; i < cols.size() && cols.time(i) < h.lastTime(); i++) {
+            long t = cols.time(i);
+            if (t < h.firstTime()) continue; // раньше начала архива — это бэкафилл, его ловит сверка границ
+            int at = archived.indexOf(t);
+            if (at == archived.size() || archived.time(at) != t) return true;
+        }
+        return false;
+    }
+
+    /** Перезаписывает архив уже прочитанной из БД историей. */
+    public void write(String symbol, String timeframe, CandleColumns history) {
+        if (!enabled) return;
+        synchronized (lock(symbol, timeframe)) {
+            try {
+                CandleArchive.write(path(symbol, timeframe), history);
+                log.info("ARCHIVE: rebuilt {} {} ({} bars)", symbol, timeframe, history.size());
+            } catch (IOException e) {
+                log.warn("ARCHIVE: rebuild failed for {} {}: {}", symbol, timeframe, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Вся история пары из архива, если его границы совпадают с БД, иначе null.
+     * Сверяется только заголовок; записи отображаются и копируются в колонки, когда архив актуален.
+     */
+    public CandleColumns loadIfCurrent(String symbol, String timeframe) {
+        if (!enabled) return null;
+        Path file = path(symbol, timeframe);
+        if (!Files.exists(file)) return null;
+
+        try {
+            CandleArchive.Header h = CandleArchive.header(file);
+            CandleStreamDao.Extent db = candleStream.extent(symbol, timeframe);
+            if (h.firstTime() != db.firstMs() || h.lastTime() != db.lastMs()) {
+                log.info("ARCHIVE: {} {} is stale ({} bars up to {} vs DB up to {})",
+                        symbol, timeframe, h.count(), h.lastTime(), db.lastMs());
+                return null;
+            }
+            return CandleArchive.open(file).toColumns();
+        } catch (IOException e) {
+            log.warn("ARCHIVE: cannot read {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    private Object lock(String symbol, String timeframe) {
+        return locks.computeIfAbsent(symbol.toUpperCase() + "|" + timeframe, k -> new Object());
+    }
+}
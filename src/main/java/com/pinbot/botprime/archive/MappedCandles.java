@@ -0,0 +1,75 @@
+package com.pinbot.botprime.archive;
+
+import com.pinbot.botprime.model.CandleColumns;
+
+import java.nio.MappedByteBuffer;
+
+import static com.pinbot.botprime.archive.CandleArchive.HEADER_BYTES;
+import static com.pinbot.botprime.archive.CandleArchive.RECORD_BYTES;
+
+/**
+ * Архив свечей, отображённый в память (read-only снимок из CandleArchive.open).
+ *
+ * Значения читаются абсолютными get прямо из страниц файла — без копирования в кучу и без JDBC/NUMERIC.
+ * Неизменяем и безопасен для чтения из нескольких потоков (только абсолютные чтения).
+ */
+public final class MappedCandles {
+
+    private final MappedByteBuffer map;
+    private final int size;
+
+    MappedCandles(MappedByteBuffer map, int size) {
+        this.map = map;
+        this.size = size;
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public long time(int i)          { return map.getLong(offset(i)); }
+    public double open(int i)        { return map.getDouble(offset(i) + 8); }
+    public double high(int i)        { return map.getDouble(offset(i) + 16); }
+    public double low(int i)         { return map.getDouble(offset(i) + 24); }
+    public double close(int i)       { return map.getDouble(offset(i) + 32); }
+    public double volume(int i)      { return map.getDouble(offset(i) + 40); }
+    public double quoteVolume(int i) { return map.getDouble(offset(i) + 48); }
+
+    public long firstTime() { return size == 0 ? 0 : time(0); }
+
+    public long lastTime() { return size == 0 ? 0 : time(size - 1); }
+
+    /** Индекс первого бара с open_time >= timeMs (size(), если таких нет). */
+    public int indexOf(long timeMs) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time(mid) < timeMs) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Бары [fromMs, toMs) в колонки примитивов — вход для пересчёта индикаторов. */
+    public CandleColumns toColumns(long fromMs, long toMs) {
+        int from = indexOf(fromMs);
+        int to = indexOf(toMs);
+        CandleColumns out = new CandleColumns(to - from);
+        for (int i = from; i < to; i++) {
+            int o = offset(i);
+            out.add(map.getLong(o),
+                    map.getDouble(o + 8), map.getDouble(o + 16), map.getDouble(o + 24), map.getDouble(o + 32),
+                    map.getDouble(o + 40), map.getDouble(o + 48));
+        }
+        return out;
+    }
+
+    /** Весь архив в колонки. */
+    public CandleColumns toColumns() {
+        return toColumns(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static int offset(int i) {
+        return HEADER_BYTES + i * RECORD_BYTES;
+    }
+}
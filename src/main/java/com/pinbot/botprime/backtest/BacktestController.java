@@ -12,15 +12,15 @@ import org.springframework.web.bind.annotation.RestController;
 public class BacktestController {
 
 
-    private final BacktesterService svc;
+    private final BacktestJobService jobs;
 
 
-    public BacktestController(BacktesterService svc) { this.svc = svc; }
+    public BacktestController(BacktestJobService jobs) { this.jobs = jobs; }
 
 
+    /** Синхронно, но через очередь задач: параллельно с задачей FIRST не запускается (409). */
     @PostMapping("/run")
     public ResponseEntity<String> run() {
-        String msg = svc.run();
-        return ResponseEntity.ok(msg);
+        return BacktestJobController.runAndWait(jobs, jobs::submitFirst);
     }
 }
\ No newline at end of file
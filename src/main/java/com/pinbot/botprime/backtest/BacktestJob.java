@@ -0,0 +1,101 @@
+package com.pinbot.botprime.backtest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Асинхронный прогон бэктеста (BacktestJobService).
+ *
+ * Прогресс пишет поток прогона, читают HTTP-потоки — поля volatile, без блокировок.
+ * Сделки доступны после DONE: тот же список, что записан в таблицы стратегии.
+ */
+public class BacktestJob implements BacktestProgress {
+
+    public enum Kind { FIRST, MAIN, MAINPRO, PORTFOLIO }
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    /** Снимок для JSON-ответа. */
+    public record View(String id, Kind kind, Status status, String phase,
+                       int barsProcessed, int barsTotal, int trades,
+                       String message, String error,
+                       Instant submittedAt, Instant startedAt, Instant finishedAt) { }
+
+    private final String id;
+    private final Kind kind;
+    private final Instant submittedAt = Instant.now();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile String phase;
+    private volatile int barsProcessed;
+    private volatile int barsTotal;
+    private volatile int trades;
+    private volatile String message;
+    private volatile String error;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile List<?> result = List.of();
+    /** Завершается вместе с задачей: итог прогона или его исключение (для синхронных эндпоинтов). */
+    private final CompletableFuture<BacktestRun> completion = new CompletableFuture<>();
+
+    BacktestJob(String id, Kind kind) {
+        this.id = id;
+        this.kind = kind;
+    }
+
+    public String id() { return id; }
+
+    public Kind kind() { return kind; }
+
+    public Status status() { return status; }
+
+    public boolean isActive() { return status == Status.QUEUED || status == Status.RUNNING; }
+
+    /** Сделки прогона; пусто, пока задача не DONE. */
+    public List<?> result() { return result; }
+
+    CompletableFuture<BacktestRun> completion() { return completion; }
+
+    public View view() {
+        return new View(id, kind, status, phase, barsProcessed, barsTotal, trades,
+                message, error, submittedAt, startedAt, finishedAt);
+    }
+
+    /* ---------- BacktestProgress ---------- */
+
+    @Override
+    public void phase(String phase) { this.phase = phase; }
+
+    @Override
+    public void bars(int processed, int total) {
+        this.barsTotal = total;
+        this.barsProcessed = processed;
+    }
+
+    @Override
+    public void trades(int soFar) { this.trades = soFar; }
+
+    /* ---------- переходы (только BacktestJobService) ---------- */
+
+    void started() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void finished(BacktestRun run) {
+        result = run.trades();
+        trades = run.trades().size();
+        message = run.message();
+        finishedAt = Instant.now();
+        status = Status.DONE;
+        completion.complete(run);
+    }
+
+    void failed(Throwable e) {
+        error = e.toString();
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+        completion.completeExceptionally(e);
+    }
+}
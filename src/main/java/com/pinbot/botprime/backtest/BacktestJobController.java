@@ -0,0 +1,161 @@
+package com.pinbot.botprime.backtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Асинхронные бэктесты.
+ *
+ * POST /backtest/jobs/{first|main|mainpro}        → 202 {id, status, ...}
+ *      (mainpro принимает те же symbol/timeframe/from/to/intrabar, что и /backtest/mainpro/run)
+ * GET  /backtest/jobs                             → все задачи
+ * GET  /backtest/jobs/{id}                        → прогресс: фаза, бары, сделки
+ * GET  /backtest/jobs/{id}/trades                 → сделки готовой задачи, NDJSON (строка JSON на сделку)
+ *      (у задач PORTFOLIO, их ставит POST /backtest/portfolio, это точки кривой equity)
+ *
+ * 409 — задача этой стратегии уже идёт (или сделки запрошены до DONE), 429 — очередь пула полна.
+ */
+@RestController
+@RequestMapping("/backtest/jobs")
+public class BacktestJobController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final BacktestJobService jobs;
+    private final ObjectMapper mapper;
+    private final String defaultSymbol;
+    private final String defaultTimeframe;
+
+    public BacktestJobController(BacktestJobService jobs,
+                                 ObjectMapper mapper,
+                                 @Value("${bot.compute.symbol:BTCUSDT}") String defaultSymbol,
+                                 @Value("${bot.compute.timeframe.30m:30}") String defaultTimeframe) {
+        this.jobs = jobs;
+        this.mapper = mapper;
+        this.defaultSymbol = defaultSymbol;
+        this.defaultTimeframe = defaultTimeframe;
+    }
+
+    @PostMapping("/first")
+    public ResponseEntity<?> first() {
+        return accepted(jobs::submitFirst);
+    }
+
+    @PostMapping("/main")
+    public ResponseEntity<?> main() {
+        return accepted(jobs::submitMain);
+    }
+
+    @PostMapping("/mainpro")
+    public ResponseEntity<?> mainPro(
+            @RequestParam(required = false) String symbol,
+            @RequestParam(required = false) String timeframe,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "false") boolean intrabar
+    ) {
+        if (symbol == null && timeframe == null && from == null && to == null && !intrabar) {
+            return accepted(() -> jobs.submitMainPro(null, null, null, null, false));
+        }
+        String sym = symbol == null ? defaultSymbol : symbol.toUpperCase();
+        String tf = timeframe == null ? defaultTimeframe : timeframe;
+        return accepted(() -> jobs.submitMainPro(sym, tf, from, to, intrabar));
+    }
+
+    @GetMapping
+    public List<BacktestJob.View> list() {
+        return jobs.list().stream().map(BacktestJob::view).toList();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<BacktestJob.View> get(@PathVariable String id) {
+        BacktestJob job = jobs.get(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job.view());
+    }
+
+    /** Тип ответа — именно StreamingResponseBody: по нему Spring выбирает потоковую запись. */
+    @GetMapping("/{id}/trades")
+    public ResponseEntity<StreamingResponseBody> trades(@PathVariable String id) throws JsonProcessingException {
+        BacktestJob job = jobs.get(id);
+        if (job == null) return ResponseEntity.notFound().build();
+        if (job.status() != BacktestJob.Status.DONE) {
+            byte[] error = mapper.writeValueAsBytes(Map.of("error", "Задача ещё не завершена", "status", job.status()));
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write(error));
+        }
+
+        List<?> trades = job.result();
+        StreamingResponseBody body = out -> {
+            for (Object t : trades) {
+                out.write(mapper.writeValueAsBytes(t));
+                out.write('\n');
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Синхронный прогон через очередь задач: те же 409/429, что и у POST /backtest/jobs/*,
+     * иначе ждём итог и отдаём его строку (text/plain).
+     */
+    static ResponseEntity<String> runAndWait(BacktestJobService jobs, Supplier<BacktestJob> submit) {
+        BacktestJob job;
+        try {
+            job = submit.get();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).contentType(MediaType.TEXT_PLAIN)
+                    .body("Очередь бэктестов заполнена, повторите позже");
+        }
+        return ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).body(jobs.await(job).message());
+    }
+
+    /**
+     * Синхронный прогон с JSON-отчётом (BacktestRun.report()); отказ очереди — 409/429 с {error}, как у POST /backtest/jobs/*.
+     */
+    static ResponseEntity<?> runAndWaitReport(BacktestJobService jobs, Supplier<BacktestJob> submit) {
+        BacktestJob job;
+        try {
+            job = submit.get();
+        } catch (IllegalStateException | RejectedExecutionException e) {
+            return rejected(e);
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(jobs.await(job).report());
+    }
+
+    private static ResponseEntity<?> accepted(Supplier<BacktestJob> submit) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(submit.get().view());
+        } catch (IllegalStateException | RejectedExecutionException e) {
+            return rejected(e);
+        }
+    }
+
+    private static ResponseEntity<Map<String, String>> rejected(RuntimeException e) {
+        if (e instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("error", "Очередь бэктестов заполнена, повторите позже"));
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,181 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.strategy.MainProParams;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Очередь асинхронных бэктестов: задача получает id сразу, прогон идёт на ограниченном пуле.
+ *
+ * Пул — bot.backtest.jobs.max-concurrent потоков и очередь на bot.backtest.jobs.queue-capacity задач;
+ * сверх этого submit бросает RejectedExecutionException. Одновременно допускается одна активная задача
+ * на стратегию: прогоны одной стратегии чистят и пишут одни и те же таблицы. Синхронные эндпоинты
+ * (/backtest/run, /backtest/main/run, /backtest/mainpro/run, /backtest/portfolio) идут через ту же очередь
+ * и ждут итог (await), поэтому правило действует и для них. Портфель таблиц не пишет, но одна активная
+ * задача PORTFOLIO не даёт параллельным запросам делить ядра и память под серии всех символов.
+ * Завершённые задачи (с их сделками) хранятся в памяти, последние bot.backtest.jobs.retain штук.
+ */
+@Slf4j
+@Service
+public class BacktestJobService {
+
+    private final BacktesterService firstService;
+    private final MainBacktesterService mainService;
+    private final MainProBacktesterService mainProService;
+    private final PortfolioBacktestService portfolioService;
+    private final int retain;
+    private final ThreadPoolExecutor executor;
+
+    /** Все задачи в порядке подачи; доступ под synchronized (jobs). */
+    private final Map<String, BacktestJob> jobs = new LinkedHashMap<>();
+
+    public BacktestJobService(BacktesterService firstService,
+                              MainBacktesterService mainService,
+                              MainProBacktesterService mainProService,
+                              PortfolioBacktestService portfolioService,
+                              @Value("${bot.backtest.jobs.max-concurrent:2}") int maxConcurrent,
+                              @Value("${bot.backtest.jobs.queue-capacity:8}") int queueCapacity,
+                              @Value("${bot.backtest.jobs.retain:20}") int retain) {
+        this.firstService = firstService;
+        this.mainService = mainService;
+        this.mainProService = mainProService;
+        this.portfolioService = portfolioService;
+        this.retain = Math.max(1, retain);
+
+        int threads = Math.max(1, maxConcurrent);
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "backtest-job-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public BacktestJob submitFirst() {
+        return submit(BacktestJob.Kind.FIRST, firstService::run);
+    }
+
+    public BacktestJob submitMain() {
+        return submit(BacktestJob.Kind.MAIN, mainService::run);
+    }
+
+    /**
+     * symbol == null — вся история из кэша серии, иначе окно [from, to) пары (symbol, timeframe);
+     * intrabar — неоднозначные бары по 1m-свечам (только для окна пары).
+     */
+    public BacktestJob submitMainPro(String symbol, String timeframe, Instant from, Instant to, boolean intrabar) {
+        return submit(BacktestJob.Kind.MAINPRO, symbol == null
+                ? mainProService::run
+                : p -> mainProService.run(symbol, timeframe, from, to, intrabar, p));
+    }
+
+    /** Портфель MainPro; отчёт — BacktestRun.report(), «сделки» задачи — точки кривой equity. */
+    public BacktestJob submitPortfolio(List<String> symbols, String timeframe, Instant from, Instant to,
+                                       MainProParams params, int maxOpenPairs) {
+        return submit(BacktestJob.Kind.PORTFOLIO, p -> {
+            PortfolioBacktestService.Result r = portfolioService.run(symbols, timeframe, from, to, params, maxOpenPairs, p);
+            String message = String.format("[PORTFOLIO] %d символов, %d сделок, net %s",
+                    symbols.size(), r.portfolio().trades(), r.portfolio().netPnl().toPlainString());
+            return new BacktestRun(message, r.equity(), r);
+        });
+    }
+
+    /**
+     * Ждёт завершения задачи и отдаёт итог; ошибка прогона пробрасывается как есть
+     * (IllegalArgumentException от параметров остаётся 400).
+     */
+    public BacktestRun await(BacktestJob job) {
+        try {
+            return job.completion().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание задачи " + job.id() + " прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw new IllegalStateException("Задача " + job.id() + " завершилась ошибкой", e.getCause());
+        }
+    }
+
+    public BacktestJob get(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    public List<BacktestJob> list() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    private BacktestJob submit(BacktestJob.Kind kind, Function<BacktestProgress, BacktestRun> body) {
+        BacktestJob job = new BacktestJob(UUID.randomUUID().toString(), kind);
+        synchronized (jobs) {
+            for (BacktestJob j : jobs.values()) {
+                if (j.kind() == kind && j.isActive()) {
+                    throw new IllegalStateException("Задача " + kind + " уже выполняется: " + j.id());
+                }
+            }
+            executor.execute(() -> execute(job, body)); // RejectedExecutionException — очередь полна
+            jobs.put(job.id(), job);
+            evictFinished();
+        }
+        log.info("[JOB] {} {} submitted", kind, job.id());
+        return job;
+    }
+
+    private void execute(BacktestJob job, Function<BacktestProgress, BacktestRun> body) {
+        job.started();
+        long t0 = System.nanoTime();
+        try {
+            job.finished(body.apply(job));
+            log.info("[JOB] {} {} done in {} ms: {}", job.kind(), job.id(),
+                    (System.nanoTime() - t0) / 1_000_000, job.view().message());
+        } catch (Throwable e) {
+            job.failed(e); // и для Error: иначе синхронный вызывающий ждал бы вечно
+            log.error("[JOB] {} {} failed", job.kind(), job.id(), e);
+            if (e instanceof Error err) throw err;
+        }
+    }
+
+    /** Оставляет не больше retain завершённых задач (самые старые уходят первыми). */
+    private void evictFinished() {
+        long finished = jobs.values().stream().filter(j -> !j.isActive()).count();
+        for (Iterator<BacktestJob> it = jobs.values().iterator(); it.hasNext() && finished > retain; ) {
+            if (!it.next().isActive()) {
+                it.remove();
+                finished--;
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        synchronized (jobs) {
+            // задачи из очереди уже не запустятся — отпускаем тех, кто их ждёт
+            for (BacktestJob j : jobs.values()) {
+                if (j.status() == BacktestJob.Status.QUEUED) j.failed(new CancellationException("shutdown"));
+            }
+        }
+    }
+}
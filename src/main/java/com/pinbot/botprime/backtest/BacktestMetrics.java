@@ -0,0 +1,60 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.strategy.SimTradeLog;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Сводные метрики прогона по журналу симулятора.
+ *
+ * Equity считается по закрытиям сделок в порядке журнала (PnL уже с комиссиями).
+ * profitFactor = сумма прибыльных / |сумма убыточных|; null, если убыточных сделок не было.
+ */
+public record BacktestMetrics(
+        int trades,
+        BigDecimal netPnl,
+        BigDecimal finalEquity,
+        BigDecimal maxDrawdown,
+        BigDecimal maxDrawdownPct,
+        BigDecimal profitFactor
+) {
+
+    public static BacktestMetrics of(SimTradeLog log, long initialCents) {
+        long[] pnl = new long[log.size()];
+        for (int i = 0; i < pnl.length; i++) pnl[i] = log.pnlCents(i);
+        return of(pnl, pnl.length, initialCents);
+    }
+
+    /** То же по первым n значениям PnL в центах (склейка нескольких журналов, walk-forward). */
+    public static BacktestMetrics of(long[] pnlCents, int n, long initialCents) {
+        long equity = initialCents;
+        long peak = initialCents;
+        long maxDd = 0;
+        double maxDdPct = 0.0;
+        long grossProfit = 0, grossLoss = 0;
+
+        for (int i = 0; i < n; i++) {
+            long pnl = pnlCents[i];
+            if (pnl > 0) grossProfit += pnl; else grossLoss -= pnl;
+
+            equity += pnl;
+            if (equity > peak) peak = equity;
+            long dd = peak - equity;
+            if (dd > maxDd) maxDd = dd;
+            if (peak > 0) maxDdPct = Math.max(maxDdPct, (double) dd / peak);
+        }
+
+        BigDecimal pf = grossLoss == 0 ? null
+                : BigDecimal.valueOf(grossProfit).divide(BigDecimal.valueOf(grossLoss), 4, RoundingMode.HALF_UP);
+
+        return new BacktestMetrics(
+                n,
+                BigDecimal.valueOf(equity - initialCents, 2),
+                BigDecimal.valueOf(equity, 2),
+                BigDecimal.valueOf(maxDd, 2),
+                BigDecimal.valueOf(maxDdPct * 100).setScale(2, RoundingMode.HALF_UP),
+                pf
+        );
+    }
+}
@@ -0,0 +1,67 @@
+package com.pinbot.botprime.backtest;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Общий пул для CPU-прогонов бэктестов (перебор параметров, walk-forward, Monte Carlo).
+ *
+ * Один ForkJoinPool на приложение, bot.backtest.max-parallelism потоков (0 — по числу ядер). Запрошенный
+ * parallelism только ограничивает число одновременных задач запроса и не больше размера пула, поэтому
+ * параллельные запросы делят ядра, а не плодят пулы.
+ */
+@Component
+public class BacktestPool {
+
+    private final ForkJoinPool pool;
+
+    public BacktestPool(@Value("${bot.backtest.max-parallelism:0}") int maxParallelism) {
+        int threads = maxParallelism > 0 ? maxParallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("backtest-pool-" + seq.incrementAndGet());
+            return t;
+        }, null, false);
+    }
+
+    /** Потоков на запрос: parallelism <= 0 → весь пул, иначе не больше размера пула. */
+    public int threads(int parallelism) {
+        int max = pool.getParallelism();
+        return parallelism > 0 ? Math.min(parallelism, max) : max;
+    }
+
+    /**
+     * body(i) для каждого i из [0, n), не более чем в threads(parallelism) потоков; индексы раздаются
+     * по одному, так что неравные по времени прогоны не простаивают. threads = 1 — в вызывающем потоке.
+     *
+     * @return сколько потоков использовано
+     */
+    public int forEach(int n, int parallelism, IntConsumer body) {
+        int threads = Math.min(threads(parallelism), Math.max(1, n));
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < n; i = next.getAndIncrement()) body.accept(i);
+        };
+        if (threads == 1) {
+            worker.run();
+            return 1;
+        }
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[threads];
+        for (int t = 0; t < threads; t++) tasks[t] = pool.submit(worker);
+        for (ForkJoinTask<?> task : tasks) task.join();
+        return threads;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,17 @@
+package com.pinbot.botprime.backtest;
+
+/**
+ * Наблюдатель за прогоном бэктеста: фаза, пройденные бары, число сделок.
+ * Вызывается из потока прогона; синхронный HTTP-путь передаёт NONE.
+ */
+public interface BacktestProgress {
+
+    BacktestProgress NONE = new BacktestProgress() { };
+
+    /** LOADING → SIMULATING → SAVING. */
+    default void phase(String phase) { }
+
+    default void bars(int processed, int total) { }
+
+    default void trades(int soFar) { }
+}
@@ -0,0 +1,164 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.trade.BacktestPnl;
+import com.pinbot.botprime.trade.BacktestTrade;
+import com.pinbot.botprime.trade.MainBacktestPnl;
+import com.pinbot.botprime.trade.MainBacktestTrade;
+import com.pinbot.botprime.trade.MainProBacktestPnl;
+import com.pinbot.botprime.trade.MainProBacktestTrade;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Запись результатов бэктеста пачками мимо JPA.
+ *
+ * id сделок берутся заранее одним запросом nextval(...) FROM generate_series — строки PnL связываются
+ * с ними на клиенте, без save() и возврата IDENTITY по одной строке. Дальше сделки и PnL вставляются
+ * через INSERT ... SELECT FROM unnest(массивов) по CHUNK строк (как IndicatorValueRepositoryImpl).
+ */
+@Repository
+@RequiredArgsConstructor
+public class BacktestResultWriter {
+
+    private static final int CHUNK = 5_000;
+
+    private final JdbcTemplate jdbc;
+
+    /** n id из BIGSERIAL-последовательности таблицы (последовательность пережила переименование в V15). */
+    public long[] nextIds(String table, int n) {
+        if (n == 0) return new long[0];
+        return jdbc.queryForList(
+                "SELECT nextval(pg_get_serial_sequence(?, 'id')) FROM generate_series(1, ?)",
+                Long.class, "public." + table, n)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    public void insertFirst(List<BacktestTrade> trades, List<BacktestPnl> pnl) {
+        insert("btc_30m_backtest_trades", trades,
+                col("id", "int8", BacktestTrade::getId),
+                col("entry_time", "timestamp", t -> ts(t.getEntryTime())),
+                col("side", "varchar", BacktestTrade::getSide),
+                col("entry_price", "numeric", BacktestTrade::getEntryPrice),
+                col("stop_price", "numeric", BacktestTrade::getStopPrice),
+                col("qty_btc", "numeric", BacktestTrade::getQtyBtc),
+                col("exit_time", "timestamp", t -> ts(t.getExitTime())),
+                col("exit_price", "numeric", BacktestTrade::getExitPrice));
+        insert("btc_30m_backtest_pnl", pnl,
+                col("trade_id", "int8", BacktestPnl::getTradeId),
+                col("entry_time", "timestamp", p -> ts(p.getEntryTime())),
+                col("exit_time", "timestamp", p -> ts(p.getExitTime())),
+                col("side", "varchar", BacktestPnl::getSide),
+                col("entry_price", "numeric", BacktestPnl::getEntryPrice),
+                col("exit_price", "numeric", BacktestPnl::getExitPrice),
+                col("qty_btc", "numeric", BacktestPnl::getQtyBtc),
+                col("fee_total", "numeric", BacktestPnl::getFeeTotal),
+                col("gross", "numeric", BacktestPnl::getGross),
+                col("net", "numeric", BacktestPnl::getNet));
+    }
+
+    public void insertMain(List<MainBacktestTrade> trades, List<MainBacktestPnl> pnl) {
+        insert("btc_30m_main_backtest_trades", trades,
+                col("id", "int8", MainBacktestTrade::getId),
+                col("entry_time", "timestamp", t -> ts(t.getEntryTime())),
+                col("side", "varchar", MainBacktestTrade::getSide),
+                col("entry_price", "numeric", MainBacktestTrade::getEntryPrice),
+                col("stop_price", "numeric", MainBacktestTrade::getStopPrice),
+                col("qty_btc", "numeric", MainBacktestTrade::getQtyBtc),
+                col("tp1_price", "numeric", MainBacktestTrade::getTp1Price),
+                col("exit_time", "timestamp", t -> ts(t.getExitTime())),
+                col("exit_price", "numeric", MainBacktestTrade::getExitPrice),
+                col("tp2_price", "numeric", MainBacktestTrade::getTp2Price),
+                col("reason", "varchar", MainBacktestTrade::getReason),
+                col("stop_source", "varchar", MainBacktestTrade::getStopSource),
+                col("impulse", "boolean", MainBacktestTrade::getImpulse));
+        insert("btc_30m_main_backtest_pnl", pnl,
+                col("trade_id", "int8", MainBacktestPnl::getTradeId),
+                col("entry_time", "timestamp", p -> ts(p.getEntryTime())),
+                col("exit_time", "timestamp", p -> ts(p.getExitTime())),
+                col("side", "varchar", MainBacktestPnl::getSide),
+                col("entry_price", "numeric", MainBacktestPnl::getEntryPrice),
+                col("stop_price", "numeric", MainBacktestPnl::getStopPrice),
+                col("qty_btc", "numeric", MainBacktestPnl::getQtyBtc),
+                col("tp1_price", "numeric", MainBacktestPnl::getTp1Price),
+                col("tp2_price", "numeric", MainBacktestPnl::getTp2Price),
+                col("pnl_tp1", "numeric", MainBacktestPnl::getPnlTp1),
+                col("pnl_tp2", "numeric", MainBacktestPnl::getPnlTp2),
+                col("fee_total", "numeric", MainBacktestPnl::getFeeTotal),
+                col("net_total", "numeric", MainBacktestPnl::getNetTotal),
+                col("reason", "varchar", MainBacktestPnl::getReason));
+    }
+
+    public void insertMainPro(List<MainProBacktestTrade> trades, List<MainProBacktestPnl> pnl) {
+        insert("btc_30m_mainpro_backtest_trades", trades,
+                col("id", "int8", MainProBacktestTrade::getId),
+                col("pair_id", "int8", MainProBacktestTrade::getPairId),
+                col("role", "varchar", MainProBacktestTrade::getRole),
+                col("side", "varchar", MainProBacktestTrade::getSide),
+                col("entry_time", "timestamp", t -> ts(t.getEntryTime())),
+                col("entry_price", "numeric", MainProBacktestTrade::getEntryPrice),
+                col("stop_price", "numeric", MainProBacktestTrade::getStopPrice),
+                col("qty_btc", "numeric", MainProBacktestTrade::getQtyBtc),
+                col("exit_time", "timestamp", t -> ts(t.getExitTime())),
+                col("exit_price", "numeric", MainProBacktestTrade::getExitPrice),
+                col("reason", "varchar", MainProBacktestTrade::getReason));
+        insert("btc_30m_mainpro_backtest_pnl", pnl,
+                col("trade_id", "int8", MainProBacktestPnl::getTradeId),
+                col("pair_id", "int8", MainProBacktestPnl::getPairId),
+                col("role", "varchar", MainProBacktestPnl::getRole),
+                col("side", "varchar", MainProBacktestPnl::getSide),
+                col("entry_time", "timestamp", p -> ts(p.getEntryTime())),
+                col("exit_time", "timestamp", p -> ts(p.getExitTime())),
+                col("entry_price", "numeric", MainProBacktestPnl::getEntryPrice),
+                col("stop_price", "numeric", MainProBacktestPnl::getStopPrice),
+                col("qty_btc", "numeric", MainProBacktestPnl::getQtyBtc),
+                col("pnl_gross", "numeric", MainProBacktestPnl::getPnlGross),
+                col("fee_total", "numeric", MainProBacktestPnl::getFeeTotal),
+                col("pnl_net", "numeric", MainProBacktestPnl::getPnlNet),
+                col("reason", "varchar", MainProBacktestPnl::getReason));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private record Col<T>(String name, String pgType, Function<T, Object> getter) { }
+
+    private static <T> Col<T> col(String name, String pgType, Function<T, Object> getter) {
+        return new Col<>(name, pgType, getter);
+    }
+
+    @SafeVarargs
+    private <T> void insert(String table, List<T> rows, Col<T>... cols) {
+        if (rows.isEmpty()) return;
+
+        String sql = "INSERT INTO public." + table
+                + " (" + Arrays.stream(cols).map(Col::name).collect(Collectors.joining(", ")) + ")"
+                + " SELECT * FROM unnest("
+                + Arrays.stream(cols).map(c -> "?::" + c.pgType() + "[]").collect(Collectors.joining(", "))
+                + ")";
+
+        for (int off = 0; off < rows.size(); off += CHUNK) {
+            List<T> part = rows.subList(off, Math.min(off + CHUNK, rows.size()));
+            jdbc.update(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                for (int c = 0; c < cols.length; c++) {
+                    Object[] values = new Object[part.size()];
+                    for (int i = 0; i < values.length; i++) values[i] = cols[c].getter().apply(part.get(i));
+                    ps.setArray(c + 1, con.createArrayOf(cols[c].pgType(), values));
+                }
+                return ps;
+            });
+        }
+    }
+
+    private static Timestamp ts(Instant t) {
+        return t == null ? null : Timestamp.from(t);
+    }
+}
@@ -0,0 +1,14 @@
+package com.pinbot.botprime.backtest;
+
+import java.util.List;
+
+/**
+ * Итог прогона: строка для синхронного ответа и сохранённые сделки (для NDJSON-выдачи задачи).
+ * report — отчёт для синхронного JSON-ответа (портфель); у прогонов, пишущих таблицы, null.
+ */
+public record BacktestRun(String message, List<?> trades, Object report) {
+
+    public BacktestRun(String message, List<?> trades) {
+        this(message, trades, null);
+    }
+}
@@ -1,6 +1,6 @@
 package com.pinbot.botprime.backtest;
 
-import com.pinbot.botprime.strategy.FirstStrategy;
+import com.pinbot.botprime.strategy.FirstSimulator;
 import com.pinbot.botprime.trade.BacktestPnl;
 import com.pinbot.botprime.trade.BacktestPnlRepository;
 import com.pinbot.botprime.trade.BacktestTrade;
@@ -12,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -20,43 +21,59 @@ public class BacktesterService {
 
     private static final Logger log = LoggerFactory.getLogger(BacktesterService.class);
 
-    private final IndicatorDao indicatorDao;
+    private final BarSeriesCache barCache;
     private final BacktestTradeRepository tradeRepo;
     private final BacktestPnlRepository pnlRepo;
-    private final FirstStrategy strategy;
+    private final BacktestResultWriter writer;
 
-    public BacktesterService(IndicatorDao indicatorDao,
+    public BacktesterService(BarSeriesCache barCache,
                              BacktestTradeRepository tradeRepo,
                              BacktestPnlRepository pnlRepo,
-                             FirstStrategy strategy) {
-        this.indicatorDao = indicatorDao;
+                             BacktestResultWriter writer) {
+        this.barCache = barCache;
         this.tradeRepo = tradeRepo;
         this.pnlRepo = pnlRepo;
-        this.strategy = strategy;
+        this.writer = writer;
     }
 
     @Transactional
     public String run() {
+        return run(BacktestProgress.NONE).message();
+    }
+
+    @Transactional
+    public BacktestRun run(BacktestProgress progress) {
+        progress.phase("LOADING");
 
         log.info("BACKTEST START");
 
         pnlRepo.deleteAllInBatch();
         tradeRepo.deleteAllInBatch();
 
-        var bars = indicatorDao.fetchAllBarsAsc();
+        BarSeries bars = barCache.get();
+        progress.bars(0, bars.size());
 
         log.info("Backtest bars loaded: {}", bars.size());
 
         if (bars.isEmpty()) {
             log.info("Данных нет. Сделок не создано.");
-            return "Обсчитано 0 сделок. Добавлены в таблицу btc_30m_backtest_trades.";
+            return new BacktestRun("Обсчитано 0 сделок. Добавлены в таблицу btc_30m_backtest_trades.", List.of());
         }
 
-        List<BacktestTrade> trades = strategy.backtest(bars);
+        progress.phase("SIMULATING");
+        // fixed-point симулятор; сделки совпадают с FirstStrategy.backtest (см. FirstSimulatorParityTest)
+        List<BacktestTrade> trades = FirstSimulator.run(bars);
+        progress.bars(bars.size(), bars.size());
+        progress.trades(trades.size());
+        progress.phase("SAVING");
 
         log.info("Trades produced by strategy: {}", trades.size());
 
-        List<BacktestTrade> saved = tradeRepo.saveAll(trades);
+        // id берём заранее — PnL связывается с trade на клиенте, всё пишется пачками в конце
+        long[] ids = writer.nextIds("btc_30m_backtest_trades", trades.size());
+        for (int i = 0; i < trades.size(); i++) trades.get(i).setId(ids[i]);
+        List<BacktestTrade> saved = trades;
+        List<BacktestPnl> pnls = new ArrayList<>(saved.size());
 
         final BigDecimal feePerSide = new BigDecimal("0.00055");
 
@@ -95,8 +112,9 @@ public class BacktesterService {
             p.setGross(gross);
             p.setNet(net);
 
-            pnlRepo.save(p);
+            pnls.add(p);
         }
+        writer.insertFirst(saved, pnls);
 
         int n = saved.size();
 
@@ -116,7 +134,7 @@ public class BacktesterService {
                     t.getExitPrice());
         }
 
-        return String.format("Обсчитано %d сделок. Добавлены в таблицу btc_30m_backtest_trades.", n);
+        return new BacktestRun(String.format("Обсчитано %d сделок. Добавлены в таблицу btc_30m_backtest_trades.", n), saved);
     }
 
     private static BigDecimal scale2(BigDecimal v) {
@@ -0,0 +1,69 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.backtest.IndicatorDao.Bar;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Примитивный доступ к барам по индексу — то, что нужно MainProSimulator.
+ *
+ * BarSeries — вся история (бэктест), RollingBarSeries — хвост последних баров, дописываемый по одному (live).
+ * Индексы абсолютные: 0 — первый бар, size() - 1 — последний.
+ */
+public interface BarColumns {
+
+    int size();
+
+    long openTimeMs(int i);
+
+    /** Цены в единицах 1e-8. */
+    long openUnits(int i);
+    long highUnits(int i);
+    long lowUnits(int i);
+    long closeUnits(int i);
+
+    double ema11(int i);
+    double ema30(int i);
+    double ema110(int i);
+    double ema200(int i);
+    double tema9(int i);
+    double rsi2h(int i);
+    double smaRsi2h(int i);
+    boolean isImpulse(int i);
+
+    /** Bar для индекса i (значения идентичны тем, что отдавал JDBC). */
+    default Bar bar(int i) {
+        return new Bar(
+                Instant.ofEpochMilli(openTimeMs(i)),
+                BigDecimal.valueOf(openUnits(i), BarSeries.PRICE_SCALE),
+                BigDecimal.valueOf(highUnits(i), BarSeries.PRICE_SCALE),
+                BigDecimal.valueOf(lowUnits(i), BarSeries.PRICE_SCALE),
+                BigDecimal.valueOf(closeUnits(i), BarSeries.PRICE_SCALE),
+                BigDecimal.valueOf(ema11(i)),
+                BigDecimal.valueOf(ema30(i)),
+                BigDecimal.valueOf(ema110(i)),
+                BigDecimal.valueOf(ema200(i)),
+                BigDecimal.valueOf(tema9(i)),
+                BigDecimal.valueOf(rsi2h(i)),
+                BigDecimal.valueOf(smaRsi2h(i)),
+                isImpulse(i)
+        );
+    }
+
+    /** Read-only view List<Bar>; Bar собирается на лету при get(i). */
+    default List<Bar> asBars() {
+        BarColumns self = this;
+        final class View extends AbstractList<Bar> implements RandomAccess {
+            @Override public Bar get(int index) {
+                if (index < 0 || index >= self.size()) throw new IndexOutOfBoundsException(index);
+                return self.bar(index);
+            }
+            @Override public int size() { return self.size(); }
+        }
+        return new View();
+    }
+}
@@ -0,0 +1,206 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.backtest.IndicatorDao.Bar;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Колоночное хранилище баров для бэктестов.
+ *
+ * Вместо List<Bar> с двенадцатью BigDecimal на бар держим примитивные массивы:
+ *  - open_time      — long[] (epoch ms);
+ *  - open/high/low/close — long[] в фиксированной точке 1e-8 (ровно NUMERIC(18,8) из БД);
+ *  - индикаторы     — double[] (в БД они double precision);
+ *  - is_impulse     — boolean[].
+ *
+ * Серия неизменяема после build() и безопасно шарится между стратегиями и потоками.
+ * Для кода, который работает с Bar, есть view {@link #asBars()}: Bar собирается на лету при get(i)
+ * и не удерживается, поэтому память остаётся O(N примитивов), а не O(N объектов).
+ */
+public final class BarSeries implements BarColumns {
+
+    /** Масштаб цен OHLC: 8 знаков после запятой, как в NUMERIC(18,8). */
+    public static final int PRICE_SCALE = 8;
+    public static final long PRICE_UNIT = 100_000_000L;
+
+    private final int size;
+    private final long[] openTime;
+    private final long[] open;
+    private final long[] high;
+    private final long[] low;
+    private final long[] close;
+    private final double[] ema11;
+    private final double[] ema30;
+    private final double[] ema110;
+    private final double[] ema200;
+    private final double[] tema9;
+    private final double[] rsi2h;
+    private final double[] smaRsi2h;
+    private final boolean[] impulse;
+
+    private BarSeries(Builder b) {
+        this.size     = b.size;
+        this.openTime = Arrays.copyOf(b.openTime, b.size);
+        this.open     = Arrays.copyOf(b.open, b.size);
+        this.high     = Arrays.copyOf(b.high, b.size);
+        this.low      = Arrays.copyOf(b.low, b.size);
+        this.close    = Arrays.copyOf(b.close, b.size);
+        this.ema11    = Arrays.copyOf(b.ema11, b.size);
+        this.ema30    = Arrays.copyOf(b.ema30, b.size);
+        this.ema110   = Arrays.copyOf(b.ema110, b.size);
+        this.ema200   = Arrays.copyOf(b.ema200, b.size);
+        this.tema9    = Arrays.copyOf(b.tema9, b.size);
+        this.rsi2h    = Arrays.copyOf(b.rsi2h, b.size);
+        this.smaRsi2h = Arrays.copyOf(b.smaRsi2h, b.size);
+        this.impulse  = Arrays.copyOf(b.impulse, b.size);
+    }
+
+    public static Builder builder() { return new Builder(1024); }
+
+    public static Builder builder(int expectedSize) { return new Builder(expectedSize); }
+
+    /** Серия из готового списка баров (тесты, бенчмарки, старый код). */
+    public static BarSeries of(List<Bar> bars) {
+        Builder b = new Builder(Math.max(16, bars.size()));
+        for (Bar bar : bars) b.add(bar);
+        return b.build();
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    /** Индекс первого бара с open_time >= timeMs (size(), если таких нет); серия отсортирована по времени. */
+    public int indexAtOrAfter(long timeMs) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (openTime[mid] < timeMs) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /* ---------- примитивный доступ ---------- */
+
+    public long openTimeMs(int i) { return openTime[i]; }
+
+    /** Цены в единицах 1e-8. */
+    public long openUnits(int i)  { return open[i]; }
+    public long highUnits(int i)  { return high[i]; }
+    public long lowUnits(int i)   { return low[i]; }
+    public long closeUnits(int i) { return close[i]; }
+
+    public double ema11(int i)    { return ema11[i]; }
+    public double ema30(int i)    { return ema30[i]; }
+    public double ema110(int i)   { return ema110[i]; }
+    public double ema200(int i)   { return ema200[i]; }
+    public double tema9(int i)    { return tema9[i]; }
+    public double rsi2h(int i)    { return rsi2h[i]; }
+    public double smaRsi2h(int i) { return smaRsi2h[i]; }
+    public boolean isImpulse(int i) { return impulse[i]; }
+
+    /* ---------- Bar-совместимость ---------- */
+
+    /** Собирает Bar для индекса i (значения идентичны тем, что отдавал JDBC). */
+    public Bar bar(int i) {
+        return new Bar(
+                Instant.ofEpochMilli(openTime[i]),
+                BigDecimal.valueOf(open[i], PRICE_SCALE),
+                BigDecimal.valueOf(high[i], PRICE_SCALE),
+                BigDecimal.valueOf(low[i], PRICE_SCALE),
+                BigDecimal.valueOf(close[i], PRICE_SCALE),
+                BigDecimal.valueOf(ema11[i]),
+                BigDecimal.valueOf(ema30[i]),
+                BigDecimal.valueOf(ema110[i]),
+                BigDecimal.valueOf(ema200[i]),
+                BigDecimal.valueOf(tema9[i]),
+                BigDecimal.valueOf(rsi2h[i]),
+                BigDecimal.valueOf(smaRsi2h[i]),
+                impulse[i]
+        );
+    }
+
+    /** Read-only view List<Bar> поверх колонок. */
+    public List<Bar> asBars() { return new BarView(this); }
+
+    private static final class BarView extends AbstractList<Bar> implements RandomAccess {
+        private final BarSeries s;
+        BarView(BarSeries s) { this.s = s; }
+        @Override public Bar get(int index) {
+            if (index < 0 || index >= s.size) throw new IndexOutOfBoundsException(index);
+            return s.bar(index);
+        }
+        @Override public int size() { return s.size; }
+    }
+
+    /* ---------- Builder ---------- */
+
+    public static final class Builder {
+        private int size;
+        private long[] openTime;
+        private long[] open, high, low, close;
+        private double[] ema11, ema30, ema110, ema200, tema9, rsi2h, smaRsi2h;
+        private boolean[] impulse;
+
+        private Builder(int capacity) {
+            int c = Math.max(16, capacity);
+            openTime = new long[c];
+            open = new long[c]; high = new long[c]; low = new long[c]; close = new long[c];
+            ema11 = new double[c]; ema30 = new double[c]; ema110 = new double[c]; ema200 = new double[c];
+            tema9 = new double[c]; rsi2h = new double[c]; smaRsi2h = new double[c];
+            impulse = new boolean[c];
+        }
+
+        public Builder add(long openTimeMs,
+                           long openU, long highU, long lowU, long closeU,
+                           double e11, double e30, double e110, double e200,
+                           double t9, double rsi, double smaRsi,
+                           boolean isImpulse) {
+            if (size == openTime.length) grow();
+            int i = size++;
+            openTime[i] = openTimeMs;
+            open[i] = openU; high[i] = highU; low[i] = lowU; close[i] = closeU;
+            ema11[i] = e11; ema30[i] = e30; ema110[i] = e110; ema200[i] = e200;
+            tema9[i] = t9; rsi2h[i] = rsi; smaRsi2h[i] = smaRsi;
+            impulse[i] = isImpulse;
+            return this;
+        }
+
+        public Builder add(Bar b) {
+            return add(b.openTime().toEpochMilli(),
+                    toUnits(b.open()), toUnits(b.high()), toUnits(b.low()), toUnits(b.close()),
+                    b.ema11().doubleValue(), b.ema30().doubleValue(),
+                    b.ema110().doubleValue(), b.ema200().doubleValue(),
+                    b.tema9().doubleValue(), b.rsi2h().doubleValue(), b.smaRsi2h().doubleValue(),
+                    b.isImpulse());
+        }
+
+        public int size() { return size; }
+
+        public BarSeries build() { return new BarSeries(this); }
+
+        private void grow() {
+            int c = openTime.length + (openTime.length >> 1);
+            openTime = Arrays.copyOf(openTime, c);
+            open = Arrays.copyOf(open, c); high = Arrays.copyOf(high, c);
+            low = Arrays.copyOf(low, c); close = Arrays.copyOf(close, c);
+            ema11 = Arrays.copyOf(ema11, c); ema30 = Arrays.copyOf(ema30, c);
+            ema110 = Arrays.copyOf(ema110, c); ema200 = Arrays.copyOf(ema200, c);
+            tema9 = Arrays.copyOf(tema9, c); rsi2h = Arrays.copyOf(rsi2h, c);
+            smaRsi2h = Arrays.copyOf(smaRsi2h, c);
+            impulse = Arrays.copyOf(impulse, c);
+        }
+    }
+
+    /** BigDecimal → единицы 1e-8 (точно для NUMERIC(18,8)). */
+    public static long toUnits(BigDecimal v) {
+        return v.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,99 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.service.IndicatorsUpdatedEvent;
+import com.pinbot.botprime.service.RecentBarsCache;
+import com.pinbot.botprime.service.RecentBarsCache.IndicatorBar;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Одна общая серия баров на все бэктесты (FirstStrategy, MainStrategy, MainProStrategy) —
+ * вся история пары bot.compute.symbol / bot.compute.timeframe.30m.
+ *
+ * Серия грузится из БД один раз и дальше отдаётся всем вызывающим (она неизменяема).
+ * После пересчёта индикаторов (IndicatorsUpdatedEvent) серия помечается устаревшей с момента fromMs:
+ * при следующем запросе префикс до fromMs берётся из старой серии, хвост — из горячего окна (RecentBarsCache).
+ * Окно не покрывает fromMs (полный пересчёт, рестарт) — полная перезагрузка из БД, как раньше.
+ */
+@Slf4j
+@Component
+public class BarSeriesCache {
+
+    private final IndicatorDao dao;
+    private final RecentBarsCache recentBars;
+    private final String symbol;
+    private final String timeframe;
+
+    private volatile BarSeries series;
+    /** Самый ранний open_time, перезаписанный после загрузки series; Long.MAX_VALUE — серия актуальна. */
+    private volatile long staleFrom = Long.MAX_VALUE;
+
+    public BarSeriesCache(IndicatorDao dao,
+                          RecentBarsCache recentBars,
+                          @Value("${bot.compute.symbol:BTCUSDT}") String symbol,
+                          @Value("${bot.compute.timeframe.30m:30}") String timeframe) {
+        this.dao = dao;
+        this.recentBars = recentBars;
+        this.symbol = symbol;
+        this.timeframe = timeframe;
+    }
+
+    public BarSeries get() {
+        BarSeries s = series;
+        if (s != null && staleFrom == Long.MAX_VALUE) return s;
+        synchronized (this) {
+            if (series != null && staleFrom != Long.MAX_VALUE) {
+                series = spliceRecent(series, staleFrom);
+                staleFrom = Long.MAX_VALUE;
+            }
+            if (series == null) {
+                long t0 = System.nanoTime();
+                series = dao.fetchSeries(symbol, timeframe, null, null);
+                log.info("BARS: loaded {} {} {} bars in {} ms", symbol, timeframe, series.size(), (System.nanoTime() - t0) / 1_000_000);
+            }
+            return series;
+        }
+    }
+
+    public synchronized void invalidate() {
+        series = null;
+        staleFrom = Long.MAX_VALUE;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onIndicatorsUpdated(IndicatorsUpdatedEvent e) {
+        if (series == null) return;
+        if (!symbol.equalsIgnoreCase(e.symbol()) || !timeframe.equals(e.timeframe())) {
+            invalidate();
+            return;
+        }
+        staleFrom = Math.min(staleFrom, e.fromMs());
+    }
+
+    /** Старые бары до fromMs + строки окна с fromMs; null, если окно этот участок не покрывает. */
+    private BarSeries spliceRecent(BarSeries old, long fromMs) {
+        List<IndicatorBar> tail = recentBars.indicatorsFrom(symbol, timeframe, fromMs);
+        if (tail == null) return null;
+
+        int keep = 0;
+        while (keep < old.size() && old.openTimeMs(keep) < fromMs) keep++;
+
+        BarSeries.Builder b = BarSeries.builder(keep + tail.size());
+        for (int i = 0; i < keep; i++) {
+            b.add(old.openTimeMs(i), old.openUnits(i), old.highUnits(i), old.lowUnits(i), old.closeUnits(i),
+                    old.ema11(i), old.ema30(i), old.ema110(i), old.ema200(i),
+                    old.tema9(i), old.rsi2h(i), old.smaRsi2h(i), old.isImpulse(i));
+        }
+        for (IndicatorBar r : tail) {
+            b.add(r.openTime(), r.openU(), r.highU(), r.lowU(), r.closeU(),
+                    r.ema11(), r.ema30(), r.ema110(), r.ema200(),
+                    r.tema9(), r.rsi2h(), r.smaRsi2h(), r.impulse());
+        }
+        log.info("BARS: refreshed {} recent bars from hot window (kept {})", tail.size(), keep);
+        return b.build();
+    }
+}
@@ -1,49 +1,102 @@
 package com.pinbot.botprime.backtest;
 
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
-import java.sql.ResultSet;
+import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 @Repository
 public class IndicatorDao {
-    private final JdbcTemplate jdbc;
+    private static final int FETCH_SIZE = 5_000;
 
-    public IndicatorDao(JdbcTemplate jdbc) { this.jdbc = jdbc; }
+    /** Разгон перед from: самый длинный период индикаторов (EMA200) — столько баров до начала окна. */
+    public static final int WARMUP_BARS = 200;
 
-    /** Загружаем все бары по времени (30m), включая ema200 и флаг is_impulse. */
-    public List<Bar> fetchAllBarsAsc() {
-        final String sql = """
+    private static final String SERIES_COLUMNS = """
             SELECT
-              open_time, open, high, low, close,
+              open_time,
+              (open  * 100000000)::bigint AS open_u,
+              (high  * 100000000)::bigint AS high_u,
+              (low   * 100000000)::bigint AS low_u,
+              (close * 100000000)::bigint AS close_u,
               ema11, ema30, ema110, ema200,
               tema9, rsi2h, sma_rsi2h,
               is_impulse
             FROM public.btc_30m_indicators
-            ORDER BY open_time ASC
-        """;
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    public IndicatorDao(JdbcTemplate jdbc) { this.jdbc = jdbc; }
+
+    /**
+     * Бары пары (symbol, timeframe) в [from, to) плюс WARMUP_BARS баров перед from, по возрастанию.
+     * from/to = null — без ограничения с этой стороны. Диапазон уходит в WHERE и идёт по индексу
+     * (symbol, timeframe, open_time); разгон отсчитывается в барах, поэтому дыры в истории ему не мешают.
+     * Цены переводим в единицы 1e-8 на стороне БД (NUMERIC → BIGINT, без потерь).
+     * Вся история пары (from = to = null) — серия сразу нужного размера по COUNT пары.
+     */
+    public BarSeries fetchSeries(String symbol, String timeframe, Instant from, Instant to) {
+        StringBuilder sql = new StringBuilder(SERIES_COLUMNS).append(" WHERE symbol = ? AND timeframe = ?");
+        List<Object> args = new ArrayList<>(List.of(symbol, timeframe));
+        if (from != null) {
+            // open_time WARMUP_BARS-го бара перед from; если истории меньше — с самого начала
+            sql.append("""
+                     AND open_time >= COALESCE((
+                           SELECT MIN(w.open_time) FROM (
+                             SELECT open_time FROM public.btc_30m_indicators
+                              WHERE symbol = ? AND timeframe = ? AND open_time < ?
+                              ORDER BY open_time DESC
+                              LIMIT ?) w), ?)
+                    """);
+            args.addAll(List.of(symbol, timeframe, Timestamp.from(from), WARMUP_BARS, Timestamp.from(from)));
+        }
+        if (to != null) {
+            sql.append(" AND open_time < ?");
+            args.add(Timestamp.from(to));
+        }
+        sql.append(" ORDER BY open_time ASC");
 
-        RowMapper<Bar> rm = (ResultSet rs, int rowNum) -> new Bar(
-                rs.getTimestamp("open_time").toInstant(),
-                rs.getBigDecimal("open"),
-                rs.getBigDecimal("high"),
-                rs.getBigDecimal("low"),
-                rs.getBigDecimal("close"),
-                rs.getBigDecimal("ema11"),
-                rs.getBigDecimal("ema30"),
-                rs.getBigDecimal("ema110"),
-                rs.getBigDecimal("ema200"),
-                rs.getBigDecimal("tema9"),
-                rs.getBigDecimal("rsi2h"),
-                rs.getBigDecimal("sma_rsi2h"),
-                rs.getBoolean("is_impulse")
+        BarSeries.Builder b = from == null && to == null
+                ? BarSeries.builder(countRows(symbol, timeframe))
+                : BarSeries.builder();
+        jdbc.query(con -> {
+            var ps = con.prepareStatement(sql.toString());
+            ps.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) ps.setObject(i + 1, args.get(i));
+            return ps;
+        }, addTo(b));
+        return b.build();
+    }
+
+    private static RowCallbackHandler addTo(BarSeries.Builder b) {
+        return rs -> b.add(
+                rs.getTimestamp(1).toInstant().toEpochMilli(),
+                rs.getLong(2),
+                rs.getLong(3),
+                rs.getLong(4),
+                rs.getLong(5),
+                rs.getDouble(6),
+                rs.getDouble(7),
+                rs.getDouble(8),
+                rs.getDouble(9),
+                rs.getDouble(10),
+                rs.getDouble(11),
+                rs.getDouble(12),
+                rs.getBoolean(13)
         );
+    }
 
-        return jdbc.query(sql, rm);
+    private int countRows(String symbol, String timeframe) {
+        Integer n = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM public.btc_30m_indicators WHERE symbol = ? AND timeframe = ?",
+                Integer.class, symbol, timeframe);
+        return n == null ? 0 : n;
     }
 
     /** Бар для бэктеста: теперь содержит ema200 и флаг импульсной свечи. */
@@ -1,6 +1,7 @@
 package com.pinbot.botprime.backtest;
 
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -9,14 +10,15 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/backtest/main")
 public class MainBacktestController {
 
-    private final MainBacktesterService service;
+    private final BacktestJobService jobs;
 
-    public MainBacktestController(MainBacktesterService service) {
-        this.service = service;
+    public MainBacktestController(BacktestJobService jobs) {
+        this.jobs = jobs;
     }
 
+    /** Синхронно, но через очередь задач: параллельно с задачей MAIN не запускается (409). */
     @PostMapping(value = "/run", produces = MediaType.TEXT_PLAIN_VALUE)
-    public String run() {
-        return service.run();
+    public ResponseEntity<String> run() {
+        return BacktestJobController.runAndWait(jobs, jobs::submitMain);
     }
 }
@@ -1,6 +1,6 @@
 package com.pinbot.botprime.backtest;
 
-import com.pinbot.botprime.strategy.MainStrategy;
+import com.pinbot.botprime.strategy.MainSimulator;
 import com.pinbot.botprime.trade.MainBacktestTrade;
 import com.pinbot.botprime.trade.MainBacktestTradeRepository;
 import com.pinbot.botprime.trade.MainBacktestPnl;
@@ -12,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -19,33 +20,51 @@ import java.util.List;
 public class MainBacktesterService {
     private static final Logger log = LoggerFactory.getLogger(MainBacktesterService.class);
 
-    private final IndicatorDao indicatorDao;
+    private final BarSeriesCache barCache;
     private final MainBacktestTradeRepository tradeRepo;
     private final MainBacktestPnlRepository pnlRepo;
-    private final MainStrategy strategy = new MainStrategy();
+    private final BacktestResultWriter writer;
 
-    public MainBacktesterService(IndicatorDao indicatorDao,
+    public MainBacktesterService(BarSeriesCache barCache,
                                  MainBacktestTradeRepository tradeRepo,
-                                 MainBacktestPnlRepository pnlRepo) {
-        this.indicatorDao = indicatorDao;
+                                 MainBacktestPnlRepository pnlRepo,
+                                 BacktestResultWriter writer) {
+        this.barCache = barCache;
         this.tradeRepo = tradeRepo;
         this.pnlRepo = pnlRepo;
+        this.writer = writer;
     }
 
     @Transactional
     public String run() {
+        return run(BacktestProgress.NONE).message();
+    }
+
+    @Transactional
+    public BacktestRun run(BacktestProgress progress) {
+        progress.phase("LOADING");
         // Чистим только таблицы основной стратегии
         pnlRepo.deleteAllInBatch();
         tradeRepo.deleteAllInBatch();
 
-        var bars = indicatorDao.fetchAllBarsAsc();
+        BarSeries bars = barCache.get();
+        progress.bars(0, bars.size());
         if (bars.isEmpty()) {
             log.info("Данных нет. Сделок не создано.");
-            return "Обсчитано 0 сделок. Добавлены в таблицу btc_30m_main_backtest_trades.";
+            return new BacktestRun("Обсчитано 0 сделок. Добавлены в таблицу btc_30m_main_backtest_trades.", List.of());
         }
 
-        List<MainBacktestTrade> trades = strategy.backtest(bars);
-        List<MainBacktestTrade> saved = tradeRepo.saveAll(trades);
+        progress.phase("SIMULATING");
+        // fixed-point симулятор; сделки совпадают с MainStrategy.backtest (см. MainSimulatorParityTest)
+        List<MainBacktestTrade> trades = MainSimulator.run(bars);
+        progress.bars(bars.size(), bars.size());
+        progress.trades(trades.size());
+        progress.phase("SAVING");
+        // id берём заранее — PnL связывается с trade на клиенте, всё пишется пачками в конце
+        long[] ids = writer.nextIds("btc_30m_main_backtest_trades", trades.size());
+        for (int i = 0; i < trades.size(); i++) trades.get(i).setId(ids[i]);
+        List<MainBacktestTrade> saved = trades;
+        List<MainBacktestPnl> pnls = new ArrayList<>(saved.size());
 
         final BigDecimal feePerSide = new BigDecimal("0.00055");
 
@@ -97,8 +116,9 @@ public class MainBacktesterService {
             p.setNetTotal(net);
             p.setReason(reason);
 
-            pnlRepo.save(p);
+            pnls.add(p);
         }
+        writer.insertMain(saved, pnls);
 
         int n = saved.size();
         log.info("[MAIN] Обсчитано {} сделок. Добавлены в таблицу btc_30m_main_backtest_trades.", n);
@@ -110,7 +130,7 @@ public class MainBacktesterService {
                     t.getEntryPrice(), t.getStopPrice(), t.getQtyBtc(),
                     t.getTp1Price(), t.getExitTime(), t.getExitPrice(), t.getReason());
         }
-        return String.format("[MAIN] Обсчитано %d сделок. Добавлены в таблицу btc_30m_main_backtest_trades.", n);
+        return new BacktestRun(String.format("[MAIN] Обсчитано %d сделок. Добавлены в таблицу btc_30m_main_backtest_trades.", n), saved);
     }
 
     private static boolean isLong(MainBacktestTrade t) { return "LONG".equals(t.getSide()); }
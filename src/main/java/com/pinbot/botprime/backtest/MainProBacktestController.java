@@ -1,22 +1,105 @@
 package com.pinbot.botprime.backtest;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Instant;
+import java.util.List;
+
 @RestController
 @RequestMapping("/backtest/mainpro")
 public class MainProBacktestController {
 
-    private final MainProBacktesterService service;
+    private final BacktestJobService jobs;
+    private final MainProSweepService sweepService;
+    private final MainProWalkForwardService walkForwardService;
+
+    private final String defaultSymbol;
+    private final String defaultTimeframe;
+    private final int maxSets;
 
-    public MainProBacktestController(MainProBacktesterService service) {
-        this.service = service;
+    public MainProBacktestController(BacktestJobService jobs,
+                                     MainProSweepService sweepService,
+                                     MainProWalkForwardService walkForwardService,
+                                     @Value("${bot.compute.symbol:BTCUSDT}") String defaultSymbol,
+                                     @Value("${bot.compute.timeframe.30m:30}") String defaultTimeframe,
+                                     @Value("${bot.backtest.sweep.max-sets:10000}") int maxSets) {
+        this.jobs = jobs;
+        this.sweepService = sweepService;
+        this.walkForwardService = walkForwardService;
+        this.defaultSymbol = defaultSymbol;
+        this.defaultTimeframe = defaultTimeframe;
+        this.maxSets = maxSets;
     }
 
+    /**
+     * Без параметров — вся история из кэша серии.
+     * POST /backtest/mainpro/run?symbol=BTCUSDT&timeframe=30&from=2025-01-01T00:00:00Z&to=2025-04-01T00:00:00Z
+     * — только окно [from, to) (from/to можно опустить), чтение из БД по индексу с разгоном.
+     * intrabar=true — бары, задевшие и MAIN SL, и HEDGE SL, разрешаются по 1m-свечам пары ({symbol}_1_candles).
+     * Прогон идёт через очередь задач (BacktestJobService): пока активна задача MAINPRO — 409.
+     */
     @PostMapping(value = "/run", produces = MediaType.TEXT_PLAIN_VALUE)
-    public String run() {
-        return service.run();
+    public ResponseEntity<String> run(
+            @RequestParam(required = false) String symbol,
+            @RequestParam(required = false) String timeframe,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "false") boolean intrabar
+    ) {
+        if (symbol == null && timeframe == null && from == null && to == null && !intrabar) {
+            return BacktestJobController.runAndWait(jobs, () -> jobs.submitMainPro(null, null, null, null, false));
+        }
+        String sym = symbol == null ? defaultSymbol : symbol.toUpperCase();
+        String tf = timeframe == null ? defaultTimeframe : timeframe;
+        return BacktestJobController.runAndWait(jobs, () -> jobs.submitMainPro(sym, tf, from, to, intrabar));
+    }
+
+    /**
+     * Перебор параметров: тело — сетка значений по осям (MainProParamGrid).
+     *
+     * POST /backtest/mainpro/sweep?sample=200&seed=1&parallelism=8&top=20
+     * sample — случайная выборка из сетки (без него — вся сетка); и сетка без sample, и sample
+     * ограничены bot.backtest.sweep.max-sets (иначе 400). parallelism (0 — весь пул) урезается
+     * до bot.backtest.max-parallelism: прогоны идут в общем BacktestPool.
+     */
+    @PostMapping(value = "/sweep", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<MainProSweepService.SweepResult> sweep(
+            @RequestBody MainProParamGrid grid,
+            @RequestParam(required = false) Integer sample,
+            @RequestParam(defaultValue = "1") long seed,
+            @RequestParam(defaultValue = "0") int parallelism,
+            @RequestParam(defaultValue = "50") int top
+    ) {
+        var sets = grid.select(sample, seed, maxSets);
+        var ranked = sweepService.sweep(sets, parallelism);
+        return ranked.subList(0, Math.min(Math.max(top, 0), ranked.size()));
+    }
+
+    /**
+     * Walk-forward: на каждом in-sample окне перебирается сетка (тело — как у /sweep),
+     * победитель прогоняется на следующем out-of-sample; в ответе окна и склеенная кривая equity.
+     *
+     * POST /backtest/mainpro/walk-forward?inSample=8760&outOfSample=1440&step=1440&sample=200&seed=1&parallelism=8
+     * inSample / outOfSample / step — в барах; step по умолчанию = outOfSample; parallelism — как у /sweep.
+     */
+    @PostMapping(value = "/walk-forward", produces = MediaType.APPLICATION_JSON_VALUE)
+    public MainProWalkForwardService.Result walkForward(
+            @RequestBody MainProParamGrid grid,
+            @RequestParam int inSample,
+            @RequestParam int outOfSample,
+            @RequestParam(defaultValue = "0") int step,
+            @RequestParam(required = false) Integer sample,
+            @RequestParam(defaultValue = "1") long seed,
+            @RequestParam(defaultValue = "0") int parallelism
+    ) {
+        var sets = grid.select(sample, seed, maxSets);
+        return walkForwardService.run(sets, inSample, outOfSample, step, parallelism);
     }
 }
@@ -1,6 +1,9 @@
 package com.pinbot.botprime.backtest;
 
+import com.pinbot.botprime.strategy.IntrabarResolver;
+import com.pinbot.botprime.strategy.MainProSimulator;
 import com.pinbot.botprime.strategy.MainProStrategy;
+import com.pinbot.botprime.strategy.SimTradeLog;
 import com.pinbot.botprime.trade.MainProBacktestPnl;
 import com.pinbot.botprime.trade.MainProBacktestPnlRepository;
 import com.pinbot.botprime.trade.MainProBacktestTrade;
@@ -12,7 +15,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Comparator;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -23,37 +27,99 @@ public class MainProBacktesterService {
     // Комиссия: 0.055% на вход и 0.055% на выход (taker + taker)
     private static final BigDecimal FEE_PER_SIDE = new BigDecimal("0.00055");
 
+    private static final int PROGRESS_EVERY = 4096;
+
+    private final BarSeriesCache barCache;
     private final IndicatorDao indicatorDao;
     private final MainProBacktestTradeRepository tradeRepo;
     private final MainProBacktestPnlRepository pnlRepo;
+    private final BacktestResultWriter writer;
+    private final MinuteFillResolver minuteFills;
 
-    public MainProBacktesterService(IndicatorDao indicatorDao,
+    public MainProBacktesterService(BarSeriesCache barCache,
+                                    IndicatorDao indicatorDao,
                                     MainProBacktestTradeRepository tradeRepo,
-                                    MainProBacktestPnlRepository pnlRepo) {
+                                    MainProBacktestPnlRepository pnlRepo,
+                                    BacktestResultWriter writer,
+                                    MinuteFillResolver minuteFills) {
+        this.barCache = barCache;
         this.indicatorDao = indicatorDao;
         this.tradeRepo = tradeRepo;
         this.pnlRepo = pnlRepo;
+        this.writer = writer;
+        this.minuteFills = minuteFills;
     }
 
+    /** Вся история из общего кэша серии. */
     @Transactional
     public String run() {
+        return run(BacktestProgress.NONE).message();
+    }
+
+    @Transactional
+    public BacktestRun run(BacktestProgress progress) {
+        progress.phase("LOADING");
+        return runOn(barCache.get(), null, IntrabarResolver.PRIORITY, progress);
+    }
+
+    /**
+     * Только окно [from, to) пары (symbol, timeframe): из БД читается окно плюс разгон
+     * IndicatorDao.WARMUP_BARS баров. Разгонные бары видны только как история индикаторов:
+     * симулятор стартует без позиций с первого бара from (см. MainProSimulator.run(bars, params, from, to)).
+     */
+    @Transactional
+    public String run(String symbol, String timeframe, Instant from, Instant to) {
+        return run(symbol, timeframe, from, to, BacktestProgress.NONE).message();
+    }
+
+    @Transactional
+    public BacktestRun run(String symbol, String timeframe, Instant from, Instant to, BacktestProgress progress) {
+        return run(symbol, timeframe, from, to, false, progress);
+    }
+
+    /**
+     * @param intrabar бары, задевшие и MAIN SL, и HEDGE SL, разрешать по 1m-свечам symbol (MinuteFillResolver),
+     *                 а не приоритетом MAIN SL
+     */
+    @Transactional
+    public String run(String symbol, String timeframe, Instant from, Instant to, boolean intrabar) {
+        return run(symbol, timeframe, from, to, intrabar, BacktestProgress.NONE).message();
+    }
+
+    @Transactional
+    public BacktestRun run(String symbol, String timeframe, Instant from, Instant to, boolean intrabar,
+                           BacktestProgress progress) {
+        progress.phase("LOADING");
+        long t0 = System.nanoTime();
+        BarSeries bars = indicatorDao.fetchSeries(symbol, timeframe, from, to);
+        log.info("[MAINPRO] {} {} [{}, {}): {} bars (with warm-up) in {} ms",
+                symbol, timeframe, from, to, bars.size(), (System.nanoTime() - t0) / 1_000_000);
+        return runOn(bars, from, intrabar ? minuteFills.forSymbol(symbol) : IntrabarResolver.PRIORITY, progress);
+    }
+
+    private BacktestRun runOn(BarSeries bars, Instant from, IntrabarResolver intrabar, BacktestProgress progress) {
         // чистим только таблицы MainPRO
         pnlRepo.deleteAllInBatch();
         tradeRepo.deleteAllInBatch();
 
-        var bars = indicatorDao.fetchAllBarsAsc();
         if (bars.isEmpty()) {
             log.info("[MAINPRO] Данных нет.");
-            return "[MAINPRO] Обсчитано 0 сделок.";
+            return new BacktestRun("[MAINPRO] Обсчитано 0 сделок.", List.of());
         }
 
-        MainProStrategy strat = new MainProStrategy();
-        List<MainProStrategy.TradeRow> rows = strat.backtest(bars);
-
-        // Сохраняем trades + PnL
-        int n = 0;
-        for (MainProStrategy.TradeRow r : rows) {
+        // fixed-point симулятор; сделки совпадают с MainProStrategy.backtest (см. MainProSimulatorParityTest)
+        progress.phase("SIMULATING");
+        int fromIdx = from == null ? 0 : bars.indexAtOrAfter(from.toEpochMilli());
+        List<MainProStrategy.TradeRow> rows = simulate(bars, fromIdx, intrabar, progress).toTradeRows();
+
+        // trades + PnL считаем в памяти, id берём заранее — PnL связывается с trade на клиенте
+        long[] ids = writer.nextIds("btc_30m_mainpro_backtest_trades", rows.size());
+        List<MainProBacktestTrade> trades = new ArrayList<>(rows.size());
+        List<MainProBacktestPnl> pnls = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            MainProStrategy.TradeRow r = rows.get(i);
             MainProBacktestTrade t = new MainProBacktestTrade();
+            t.setId(ids[i]);
             t.setPairId(r.pairId);
             t.setRole(r.role);
             t.setSide(r.side);
@@ -64,9 +130,7 @@ public class MainProBacktesterService {
             t.setExitTime(r.exitTime);
             t.setExitPrice(r.exitPrice);
             t.setReason(r.reason);
-
-            t = tradeRepo.save(t);
-            n++;
+            trades.add(t);
 
             // PnL по каждой строке
             MainProBacktestPnl p = new MainProBacktestPnl();
@@ -94,22 +158,50 @@ public class MainProBacktesterService {
             p.setFeeTotal(feeTotal);
             p.setPnlNet(net);
             p.setReason(t.getReason());
-
-            pnlRepo.save(p);
+            pnls.add(p);
         }
+        progress.phase("SAVING");
+        writer.insertMainPro(trades, pnls);
+        int n = trades.size();
 
         log.info("[MAINPRO] Обсчитано {} сделок. Добавлены в btc_30m_mainpro_backtest_trades.", n);
 
-        // последние 3 строки для быстрого контроля
-        tradeRepo.findAll().stream()
-                .sorted(Comparator.comparingLong(MainProBacktestTrade::getId))
-                .skip(Math.max(0, n - 3))
+        // последние 3 строки для быстрого контроля (из памяти, без перечитывания таблицы)
+        trades.subList(Math.max(0, n - 3), n)
                 .forEach(t -> log.info("[MAINPRO] pair={} {} {} entry={} stop={} qty={} -> exit={} {} ({})",
                         t.getPairId(), t.getRole(), t.getSide(),
                         t.getEntryPrice(), t.getStopPrice(), t.getQtyBtc(),
                         t.getExitPrice(), t.getExitTime(), t.getReason()));
 
-        return String.format("[MAINPRO] Обсчитано %d сделок. Добавлены в таблицу btc_30m_mainpro_backtest_trades.", n);
+        return new BacktestRun(
+                String.format("[MAINPRO] Обсчитано %d сделок. Добавлены в таблицу btc_30m_mainpro_backtest_trades.", n),
+                trades);
+    }
+
+    /**
+     * То же, что MainProSimulator.run(bars, DEFAULTS, from, bars.size(), intrabar), с отчётом о прогрессе
+     * каждые PROGRESS_EVERY баров.
+     */
+    static SimTradeLog simulate(BarSeries bars, int from, IntrabarResolver intrabar, BacktestProgress progress) {
+        MainProSimulator sim = new MainProSimulator(bars).intrabar(intrabar);
+        int total = bars.size() - from;
+        if (total >= 10) {
+            for (int i = from; i < bars.size(); i++) {
+                sim.step(i);
+                int done = i + 1 - from;
+                if (done % PROGRESS_EVERY == 0) {
+                    progress.bars(done, total);
+                    progress.trades(sim.trades().size());
+                }
+            }
+        }
+        progress.bars(total, total);
+        progress.trades(sim.trades().size());
+        if (sim.ambiguousBars() > 0) {
+            log.info("[MAINPRO] Баров с MAIN SL и HEDGE SL: {}, из них HEDGE SL первым: {}",
+                    sim.ambiguousBars(), sim.hedgeFirstBars());
+        }
+        return sim.trades();
     }
 
     private static boolean isLong(MainProBacktestTrade t) { return "LONG".equals(t.getSide()); }
@@ -0,0 +1,122 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.strategy.MainProParams;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Сетка параметров MainPro для перебора (тело запроса /backtest/mainpro/sweep).
+ *
+ * Каждое поле — список значений по оси; пустая/отсутствующая ось = значение из MainProParams.DEFAULTS.
+ * all() — полное декартово произведение, sample() — случайная выборка из него без повторов.
+ * Наборы материализуются целиком, поэтому запросы идут через select(...) с потолком bot.backtest.sweep.max-sets.
+ */
+public class MainProParamGrid {
+
+    public List<BigDecimal> riskPctPerPair;
+    public List<BigDecimal> riskPctPerPairLow;
+    public List<Integer>    lossStreakRiskDown;
+    public List<BigDecimal> hedgeRatio;
+    public List<Integer>    dailyStopLimit;
+    public List<BigDecimal> feeMakerInMain;
+    public List<BigDecimal> feeTakerOutMain;
+    public List<BigDecimal> feeTakerInHedge;
+    public List<BigDecimal> feeTakerOutHedge;
+
+    private static final int AXES = 9;
+
+    /** Число наборов в полной сетке (при переполнении — Long.MAX_VALUE). */
+    public long size() {
+        long n = 1;
+        for (List<?> axis : axes()) {
+            if (n > Long.MAX_VALUE / axis.size()) return Long.MAX_VALUE;
+            n *= axis.size();
+        }
+        return n;
+    }
+
+    /**
+     * Наборы для прогона: sample > 0 — случайная выборка, иначе вся сетка.
+     * Больше maxSets наборов — IllegalArgumentException (400), а не OOM на материализации.
+     */
+    public List<MainProParams> select(Integer sample, long seed, int maxSets) {
+        if (sample != null && sample > 0) {
+            if (sample > maxSets) {
+                throw new IllegalArgumentException("sample " + sample + " > max " + maxSets + " parameter sets");
+            }
+            return sample(sample, seed);
+        }
+        long n = size();
+        if (n > maxSets) {
+            throw new IllegalArgumentException("grid has " + n + " parameter sets > max " + maxSets
+                    + "; pass sample=<n> or narrow the axes");
+        }
+        return all();
+    }
+
+    public List<MainProParams> all() {
+        long n = size();
+        if (n > Integer.MAX_VALUE) throw new IllegalArgumentException("grid too large: " + n);
+        List<MainProParams> out = new ArrayList<>((int) n);
+        for (long k = 0; k < n; k++) out.add(at(k));
+        return out;
+    }
+
+    /** До n случайных различных наборов из сетки (если сетка меньше n — вся сетка). */
+    public List<MainProParams> sample(int n, long seed) {
+        long total = size();
+        if (total <= n) return all();
+        SplittableRandom rnd = new SplittableRandom(seed);
+        Set<Long> picked = new LinkedHashSet<>();
+        while (picked.size() < n) picked.add(rnd.nextLong(total));
+        List<MainProParams> out = new ArrayList<>(n);
+        for (long k : picked) out.add(at(k));
+        return out;
+    }
+
+    /** k-й набор сетки (смешанная система счисления по осям). */
+    private MainProParams at(long k) {
+        List<List<?>> ax = axes();
+        Object[] v = new Object[AXES];
+        for (int a = AXES - 1; a >= 0; a--) {
+            List<?> axis = ax.get(a);
+            v[a] = axis.get((int) (k % axis.size()));
+            k /= axis.size();
+        }
+        return MainProParams.builder()
+                .riskPctPerPair((BigDecimal) v[0])
+                .riskPctPerPairLow((BigDecimal) v[1])
+                .lossStreakRiskDown((Integer) v[2])
+                .hedgeRatio((BigDecimal) v[3])
+                .dailyStopLimit((Integer) v[4])
+                .feeMakerInMain((BigDecimal) v[5])
+                .feeTakerOutMain((BigDecimal) v[6])
+                .feeTakerInHedge((BigDecimal) v[7])
+                .feeTakerOutHedge((BigDecimal) v[8])
+                .build();
+    }
+
+    private List<List<?>> axes() {
+        MainProParams d = MainProParams.DEFAULTS;
+        return List.of(
+                orDefault(riskPctPerPair, d.riskPctPerPair()),
+                orDefault(riskPctPerPairLow, d.riskPctPerPairLow()),
+                orDefault(lossStreakRiskDown, d.lossStreakRiskDown()),
+                orDefault(hedgeRatio, d.hedgeRatio()),
+                orDefault(dailyStopLimit, d.dailyStopLimit()),
+                orDefault(feeMakerInMain, d.feeMakerInMain()),
+                orDefault(feeTakerOutMain, d.feeTakerOutMain()),
+                orDefault(feeTakerInHedge, d.feeTakerInHedge()),
+                orDefault(feeTakerOutHedge, d.feeTakerOutHedge())
+        );
+    }
+
+    private static <T> List<T> orDefault(List<T> axis, T def) {
+        return (axis == null || axis.isEmpty()) ? List.of(def) : axis;
+    }
+}
@@ -0,0 +1,75 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.strategy.FixedPoint;
+import com.pinbot.botprime.strategy.MainProParams;
+import com.pinbot.botprime.strategy.MainProSimulator;
+import com.pinbot.botprime.strategy.SimTradeLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Параллельный перебор параметров MainPro.
+ *
+ * Все наборы гоняются fixed-point симулятором по одной общей BarSeries (она неизменяема, копий нет).
+ * Каждый прогон независим (своё состояние и журнал), поэтому задачи раскладываются по общему BacktestPool
+ * без синхронизации и масштабируются по ядрам.
+ */
+@Slf4j
+@Service
+public class MainProSweepService {
+
+    /** Результат одного набора параметров; rank — место по netPnl (1 = лучший). */
+    public record SweepResult(int rank, MainProParams params, BacktestMetrics metrics) {}
+
+    static final Comparator<SweepResult> BY_NET_PNL_DESC =
+            Comparator.comparing((SweepResult r) -> r.metrics().netPnl()).reversed()
+                    .thenComparing(r -> r.metrics().maxDrawdown());
+
+    private final BarSeriesCache barCache;
+    private final BacktestPool pool;
+
+    public MainProSweepService(BarSeriesCache barCache, BacktestPool pool) {
+        this.barCache = barCache;
+        this.pool = pool;
+    }
+
+    /** Перебор по общей серии из кэша. parallelism <= 0 → весь пул, больше пула — урезается до него. */
+    public List<SweepResult> sweep(List<MainProParams> sets, int parallelism) {
+        return sweep(barCache.get(), sets, parallelism);
+    }
+
+    public List<SweepResult> sweep(BarSeries bars, List<MainProParams> sets, int parallelism) {
+        if (sets.isEmpty()) return List.of();
+        long t0 = System.nanoTime();
+        SweepResult[] unranked = new SweepResult[sets.size()];
+        int threads = pool.forEach(sets.size(), parallelism, i -> unranked[i] = evaluate(bars, sets.get(i)));
+
+        List<SweepResult> sorted = new ArrayList<>(Arrays.asList(unranked));
+        sorted.sort(BY_NET_PNL_DESC);
+        List<SweepResult> ranked = new ArrayList<>(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            SweepResult r = sorted.get(i);
+            ranked.add(new SweepResult(i + 1, r.params(), r.metrics()));
+        }
+
+        log.info("[SWEEP] {} наборов x {} баров за {} ms (потоков: {})",
+                sets.size(), bars.size(), (System.nanoTime() - t0) / 1_000_000, threads);
+        return ranked;
+    }
+
+    static SweepResult evaluate(BarSeries bars, MainProParams p) {
+        return evaluate(bars, 0, bars.size(), p);
+    }
+
+    /** Прогон только баров [from, to) общей серии (см. MainProSimulator.run(bars, params, from, to)). */
+    static SweepResult evaluate(BarSeries bars, int from, int to, MainProParams p) {
+        SimTradeLog trades = MainProSimulator.run(bars, p, from, to);
+        long initialCents = Math.max(0L, FixedPoint.toCents(p.initialDeposit()));
+        return new SweepResult(0, p, BacktestMetrics.of(trades, initialCents));
+    }
+}
@@ -0,0 +1,151 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.backtest.MainProSweepService.SweepResult;
+import com.pinbot.botprime.strategy.FixedPoint;
+import com.pinbot.botprime.strategy.MainProParams;
+import com.pinbot.botprime.strategy.MainProSimulator;
+import com.pinbot.botprime.strategy.SimTradeLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Walk-forward оптимизация MainPro.
+ *
+ * Серия режется на скользящие окна: in-sample [s, s + inSample) и следующий за ним out-of-sample
+ * [s + inSample, s + inSample + outOfSample), сдвиг — step баров (не меньше outOfSample). На каждом in-sample перебираются все наборы
+ * (лучший — как в MainProSweepService: netPnl, затем просадка), победитель прогоняется на своём out-of-sample.
+ *
+ * Окна не копируют серию: все прогоны идут по одной общей BarSeries, каждый по своему диапазону индексов
+ * (MainProSimulator.run(bars, params, from, to)). In-sample — все пары (окно, набор) разом в общем BacktestPool;
+ * out-of-sample — по порядку, каждое окно стартует с equity, накопленной предыдущими (склейка кривой);
+ * если equity дошла до нуля, прогон останавливается и в ответе только пройденные окна.
+ */
+@Slf4j
+@Service
+public class MainProWalkForwardService {
+
+    /** Окно; границы — open_time первого и последнего бара диапазона (включительно). */
+    public record Window(int index,
+                         Instant inSampleFrom, Instant inSampleTo,
+                         Instant outOfSampleFrom, Instant outOfSampleTo,
+                         MainProParams best,
+                         BacktestMetrics inSample,
+                         BacktestMetrics outOfSample) {}
+
+    /** Точка склеенной кривой out-of-sample: equity после закрытия сделки. */
+    public record EquityPoint(Instant time, BigDecimal equity) {}
+
+    public record Result(List<Window> windows, BacktestMetrics outOfSample, List<EquityPoint> equity) {}
+
+    private final BarSeriesCache barCache;
+    private final BacktestPool pool;
+    /** Потолок in-sample прогонов (окна × наборы): их результаты держатся в памяти до выбора победителей. */
+    private final int maxRuns;
+
+    public MainProWalkForwardService(BarSeriesCache barCache, BacktestPool pool,
+                                     @Value("${bot.backtest.walk-forward.max-runs:200000}") int maxRuns) {
+        this.barCache = barCache;
+        this.pool = pool;
+        this.maxRuns = maxRuns;
+    }
+
+    /** По общей серии из кэша. step <= 0 → outOfSample; parallelism <= 0 → весь пул (см. BacktestPool). */
+    public Result run(List<MainProParams> sets, int inSample, int outOfSample, int step, int parallelism) {
+        return run(barCache.get(), sets, inSample, outOfSample, step, parallelism);
+    }
+
+    public Result run(BarSeries bars, List<MainProParams> sets,
+                      int inSample, int outOfSample, int step, int parallelism) {
+        if (sets.isEmpty()) throw new IllegalArgumentException("empty parameter grid");
+        if (inSample < 10 || outOfSample < 10) {
+            throw new IllegalArgumentException("inSample and outOfSample must be >= 10 bars");
+        }
+        int stride = step > 0 ? step : outOfSample;
+        if (stride < outOfSample) {
+            // out-of-sample участки перекрылись бы, и склеенная кривая посчитала бы сделки дважды
+            throw new IllegalArgumentException("step must be >= outOfSample");
+        }
+
+        List<Integer> startList = new ArrayList<>();
+        for (int s = 0; (long) s + inSample + outOfSample <= bars.size(); s += stride) startList.add(s);
+        if (startList.isEmpty()) {
+            throw new IllegalArgumentException("series too short: " + bars.size() + " bars < "
+                    + (inSample + outOfSample));
+        }
+        int[] starts = startList.stream().mapToInt(Integer::intValue).toArray();
+        int windows = starts.length, m = sets.size();
+        long runsTotal = (long) windows * m;
+        if (runsTotal > maxRuns) {
+            throw new IllegalArgumentException(windows + " windows x " + m + " parameter sets = " + runsTotal
+                    + " runs > max " + maxRuns + "; increase step or reduce the grid");
+        }
+        int runs = (int) runsTotal;
+
+        long t0 = System.nanoTime();
+
+        // 1) in-sample: windows × m независимых прогонов по общей серии
+        SweepResult[] inSampleRuns = new SweepResult[runs];
+        int threads = pool.forEach(runs, parallelism, j -> {
+            int s = starts[j / m];
+            inSampleRuns[j] = MainProSweepService.evaluate(bars, s, s + inSample, sets.get(j % m));
+        });
+
+        SweepResult[] best = new SweepResult[windows];
+        for (int w = 0; w < windows; w++) {
+            best[w] = Arrays.stream(inSampleRuns, w * m, (w + 1) * m)
+                    .min(MainProSweepService.BY_NET_PNL_DESC)
+                    .orElseThrow();
+        }
+        long t1 = System.nanoTime();
+
+        // 2) out-of-sample: победитель окна на следующем участке, equity переносится из окна в окно
+        long initialCents = Math.max(0L, FixedPoint.toCents(best[0].params().initialDeposit()));
+        long equityCents = initialCents;
+        long[] pnl = new long[256];
+        int trades = 0;
+        List<EquityPoint> curve = new ArrayList<>();
+        curve.add(new EquityPoint(Instant.ofEpochMilli(bars.openTimeMs(starts[0] + inSample)),
+                BigDecimal.valueOf(equityCents, 2)));
+        List<Window> out = new ArrayList<>(windows);
+
+        for (int w = 0; w < windows; w++) {
+            if (equityCents <= 0) {
+                // счёт обнулён: дальше торговать нечем, оставшиеся окна в ответ не попадают
+                log.info("[WF] equity {} после окна {} — остальные {} окон пропущены",
+                        BigDecimal.valueOf(equityCents, 2), w - 1, windows - w);
+                break;
+            }
+            int isFrom = starts[w], oosFrom = isFrom + inSample, oosTo = oosFrom + outOfSample;
+            MainProParams carried = best[w].params().toBuilder()
+                    .initialDeposit(BigDecimal.valueOf(equityCents, 2))
+                    .build();
+            SimTradeLog trail = MainProSimulator.run(bars, carried, oosFrom, oosTo);
+            BacktestMetrics oosMetrics = BacktestMetrics.of(trail, equityCents);
+
+            for (int i = 0; i < trail.size(); i++) {
+                if (trades == pnl.length) pnl = Arrays.copyOf(pnl, trades * 2);
+                pnl[trades++] = trail.pnlCents(i);
+                equityCents += trail.pnlCents(i);
+                curve.add(new EquityPoint(Instant.ofEpochMilli(trail.exitTimeMs(i)), BigDecimal.valueOf(equityCents, 2)));
+            }
+
+            out.add(new Window(w,
+                    Instant.ofEpochMilli(bars.openTimeMs(isFrom)), Instant.ofEpochMilli(bars.openTimeMs(oosFrom - 1)),
+                    Instant.ofEpochMilli(bars.openTimeMs(oosFrom)), Instant.ofEpochMilli(bars.openTimeMs(oosTo - 1)),
+                    best[w].params(), best[w].metrics(), oosMetrics));
+        }
+
+        log.info("[WF] {} окон x {} наборов (IS {} / OOS {} / шаг {} баров): IS {} ms, OOS {} ms (потоков: {})",
+                windows, m, inSample, outOfSample, stride,
+                (t1 - t0) / 1_000_000, (System.nanoTime() - t1) / 1_000_000, threads);
+
+        return new Result(out, BacktestMetrics.of(pnl, trades, initialCents), curve);
+    }
+}
@@ -0,0 +1,75 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.candles.CandleTableName;
+import com.pinbot.botprime.dto.BybitInterval;
+import com.pinbot.botprime.strategy.IntrabarResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Порядок стопов внутри неоднозначного бара по 1m-свечам пары (динамическая таблица {symbol}_1_candles,
+ * её наполняет CandleSyncService с интервалом BybitInterval._1).
+ *
+ * Минутки читаются только для баров, которые задели оба уровня (их единицы процентов от всех),
+ * одним запросом по первичному ключу open_time на бар. Первая минутка, задевшая ровно один уровень,
+ * решает порядок; задела оба или минуток нет — UNKNOWN (приоритет MAIN SL, как без резолвера).
+ */
+@Slf4j
+@Repository
+public class MinuteFillResolver {
+
+    private static final long MINUTE_MS = 60_000L;
+
+    private final JdbcTemplate jdbc;
+
+    public MinuteFillResolver(JdbcTemplate jdbc) { this.jdbc = jdbc; }
+
+    /** Резолвер по минуткам symbol; таблицы нет — PRIORITY. */
+    public IntrabarResolver forSymbol(String symbol) {
+        String table = CandleTableName.of(symbol, BybitInterval._1);
+        Boolean exists = jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, "public." + table);
+        if (!Boolean.TRUE.equals(exists)) {
+            log.warn("[INTRABAR] нет таблицы {}: неоднозначные бары — по приоритету MAIN SL", table);
+            return IntrabarResolver.PRIORITY;
+        }
+
+        String sql = """
+                SELECT (high * 100000000)::bigint AS high_u,
+                       (low  * 100000000)::bigint AS low_u
+                  FROM "%s"
+                 WHERE open_time >= ? AND open_time < ?
+                 ORDER BY open_time ASC
+                """.formatted(table);
+
+        return (barOpenMs, barMs, mainLong, mainStopUnits, hedgeSlUnits) -> jdbc.query(sql, rs -> {
+            int cap = (int) Math.max(1, barMs / MINUTE_MS);
+            long[] high = new long[cap], low = new long[cap];
+            int n = 0;
+            while (n < cap && rs.next()) {
+                high[n] = rs.getLong(1);
+                low[n] = rs.getLong(2);
+                n++;
+            }
+            return firstHit(high, low, n, mainLong, mainStopUnits, hedgeSlUnits);
+        }, Timestamp.from(Instant.ofEpochMilli(barOpenMs)), Timestamp.from(Instant.ofEpochMilli(barOpenMs + barMs)));
+    }
+
+    /**
+     * Порядок уровней по минуткам бара [0, n) в порядке open_time, цены в единицах 1e-8.
+     * Решает первая минутка, задевшая хотя бы один уровень: ровно один — он и первый, оба — UNKNOWN.
+     */
+    static int firstHit(long[] high, long[] low, int n, boolean mainLong, long mainStopUnits, long hedgeSlUnits) {
+        for (int i = 0; i < n; i++) {
+            boolean mainHit  = mainLong ? low[i] <= mainStopUnits : high[i] >= mainStopUnits;
+            boolean hedgeHit = mainLong ? high[i] >= hedgeSlUnits : low[i] <= hedgeSlUnits;
+            if (mainHit && hedgeHit) return IntrabarResolver.UNKNOWN;
+            if (mainHit)  return IntrabarResolver.MAIN_SL_FIRST;
+            if (hedgeHit) return IntrabarResolver.HEDGE_SL_FIRST;
+        }
+        return IntrabarResolver.UNKNOWN;
+    }
+}
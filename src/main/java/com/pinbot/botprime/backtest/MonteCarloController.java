@@ -0,0 +1,46 @@
+package com.pinbot.botprime.backtest;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+
+@RestController
+@RequestMapping("/backtest/monte-carlo")
+public class MonteCarloController {
+
+    private final MonteCarloService service;
+
+    public MonteCarloController(MonteCarloService service) {
+        this.service = service;
+    }
+
+    /**
+     * Monte Carlo по последнему сохранённому бэктесту.
+     *
+     * POST /backtest/monte-carlo?source=mainpro&mode=bootstrap&paths=100000&trades=0&ruinPct=50&seed=1&parallelism=0
+     * source — mainpro | main; mode — bootstrap | shuffle; trades — длина пути для bootstrap (0 — как в выборке);
+     * initialEquity — стартовый капитал (по умолчанию депозит MainPro).
+     * paths — не больше bot.backtest.monte-carlo.max-paths, parallelism — не больше bot.backtest.max-parallelism
+     * (иначе 400).
+     */
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public MonteCarloService.Report run(
+            @RequestParam(defaultValue = "mainpro") String source,
+            @RequestParam(defaultValue = "bootstrap") String mode,
+            @RequestParam(defaultValue = "100000") int paths,
+            @RequestParam(defaultValue = "0") int trades,
+            @RequestParam(required = false) BigDecimal initialEquity,
+            @RequestParam(defaultValue = "50") double ruinPct,
+            @RequestParam(defaultValue = "1") long seed,
+            @RequestParam(defaultValue = "0") int parallelism
+    ) {
+        return service.run(
+                MonteCarloService.Source.valueOf(source.toUpperCase()),
+                MonteCarloService.Mode.valueOf(mode.toUpperCase()),
+                paths, trades, initialEquity, ruinPct, seed, parallelism);
+    }
+}
@@ -0,0 +1,214 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.strategy.MainProParams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Monte Carlo по сделкам сохранённого бэктеста: распределение просадок и вероятность разорения.
+ *
+ * Источник — таблицы PnL (btc_30m_mainpro_backtest_pnl / btc_30m_main_backtest_pnl) в порядке закрытия.
+ * Шаг пути зависит от того, как стратегия считает объём:
+ *  - MainPro реинвестирует (риск на ПАРУ — доля текущего equity), поэтому шаг — доходность пары
+ *    r = pnl пары / equity перед ней, а путь — equity *= (1 + r). Equity перед парой восстанавливается
+ *    от депозита, с которым сохранённый прогон торговал (MainProParams.DEFAULTS — их использует
+ *    MainProBacktesterService), а не от initialEquity: тот — только старт каждого пути;
+ *  - Main рискует фиксированной суммой, поэтому шаг — сам PnL сделки, путь — equity += pnl.
+ * Режимы: BOOTSTRAP — выборка с возвращением, SHUFFLE — перестановка исходных сделок.
+ *
+ * Пути независимы: они делятся на блоки по потокам общего BacktestPool, у каждого блока свой SplittableRandom
+ * (split от корневого seed — результат воспроизводим) и свой буфер; на путь ничего не аллоцируется.
+ */
+@Slf4j
+@Service
+public class MonteCarloService {
+
+    public enum Source { MAINPRO, MAIN }
+
+    public enum Mode { BOOTSTRAP, SHUFFLE }
+
+    public record Percentiles(BigDecimal p1, BigDecimal p5, BigDecimal p25, BigDecimal p50,
+                              BigDecimal p75, BigDecimal p95, BigDecimal p99) {}
+
+    /**
+     * maxDrawdownPct — от пика, в процентах; ruinProbability — доля путей, где equity хоть раз опустилась
+     * до ruinLevel (initialEquity * (1 - ruinPct / 100)).
+     */
+    public record Report(Source source, Mode mode, int paths, int tradesPerPath, int sampleSize,
+                         BigDecimal initialEquity, BigDecimal ruinLevel, BigDecimal ruinProbability,
+                         Percentiles maxDrawdownPct, Percentiles finalEquity, Percentiles minEquity) {}
+
+    private static final int PATHS_PER_BLOCK = 1024;
+
+    private final JdbcTemplate jdbc;
+    private final BacktestPool pool;
+    /** Потолок путей на запрос: по три double[paths] на результат плюс копия на перцентили. */
+    private final int maxPaths;
+
+    public MonteCarloService(JdbcTemplate jdbc, BacktestPool pool,
+                             @Value("${bot.backtest.monte-carlo.max-paths:1000000}") int maxPaths) {
+        this.jdbc = jdbc;
+        this.pool = pool;
+        this.maxPaths = maxPaths;
+    }
+
+    /**
+     * @param tradesPerPath длина пути для BOOTSTRAP (<= 0 — как в выборке); SHUFFLE всегда берёт всю выборку
+     * @param initialEquity стартовый капитал пути; null — депозит MainPro по умолчанию
+     *                      (для Main это только база для просадки в % и уровня разорения);
+     *                      на доходности пар MainPro не влияет
+     * @param parallelism   потоков общего пула (<= 0 — весь пул); paths больше bot.backtest.monte-carlo.max-paths
+     *                      и parallelism больше пула (bot.backtest.max-parallelism) — IllegalArgumentException
+     */
+    public Report run(Source source, Mode mode, int paths, int tradesPerPath, BigDecimal initialEquity,
+                      double ruinPct, long seed, int parallelism) {
+        if (paths <= 0) throw new IllegalArgumentException("paths must be > 0");
+        if (paths > maxPaths) throw new IllegalArgumentException("paths " + paths + " > max " + maxPaths);
+        int maxThreads = pool.threads(0);
+        if (parallelism > maxThreads) {
+            throw new IllegalArgumentException("parallelism " + parallelism + " > max " + maxThreads);
+        }
+        if (ruinPct <= 0 || ruinPct > 100) throw new IllegalArgumentException("ruinPct must be in (0, 100]");
+        double initial = (initialEquity != null ? initialEquity : MainProParams.DEFAULTS.initialDeposit()).doubleValue();
+        if (initial <= 0) throw new IllegalArgumentException("initialEquity must be > 0");
+
+        boolean compounding = source == Source.MAINPRO;
+        double[] steps = compounding
+                ? pairReturns(mainProPairPnl(), MainProParams.DEFAULTS.initialDeposit().doubleValue())
+                : mainPnl();
+        if (steps.length == 0) throw new IllegalArgumentException("no trades in " + source + " backtest tables");
+
+        int length = mode == Mode.SHUFFLE || tradesPerPath <= 0 ? steps.length : tradesPerPath;
+        double ruinLevel = initial * (1 - ruinPct / 100.0);
+
+        long t0 = System.nanoTime();
+        Paths out = simulate(steps, compounding, initial, mode, paths, length, ruinLevel, seed, pool, parallelism);
+        log.info("[MC] {} {}: {} путей x {} сделок за {} ms (потоков: {})",
+                source, mode, paths, length, (System.nanoTime() - t0) / 1_000_000, pool.threads(parallelism));
+
+        return new Report(source, mode, paths, length, steps.length,
+                money(initial), money(ruinLevel),
+                BigDecimal.valueOf((double) out.ruined / paths).setScale(4, RoundingMode.HALF_UP),
+                percentiles(out.maxDdPct), percentiles(out.finalEquity), percentiles(out.minEquity));
+    }
+
+    /* ---------- движок ---------- */
+
+    /** Результаты по путям (индекс = номер пути). */
+    record Paths(double[] maxDdPct, double[] finalEquity, double[] minEquity, long ruined) {}
+
+    static Paths simulate(double[] steps, boolean compounding, double initial, Mode mode,
+                          int paths, int length, double ruinLevel, long seed, BacktestPool pool, int parallelism) {
+        double[] maxDd = new double[paths];
+        double[] finalEq = new double[paths];
+        double[] minEq = new double[paths];
+
+        int blocks = (paths + PATHS_PER_BLOCK - 1) / PATHS_PER_BLOCK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] rnd = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) rnd[b] = root.split();
+
+        long[] ruinedPerBlock = new long[blocks];
+        pool.forEach(blocks, parallelism, b -> ruinedPerBlock[b] = runBlock(steps, compounding, initial, mode, length,
+                ruinLevel, rnd[b], b * PATHS_PER_BLOCK, Math.min(paths, (b + 1) * PATHS_PER_BLOCK),
+                maxDd, finalEq, minEq));
+        long ruined = Arrays.stream(ruinedPerBlock).sum();
+        return new Paths(maxDd, finalEq, minEq, ruined);
+    }
+
+    /** Пути [from, to) одного блока; возвращает число разорившихся путей. */
+    private static long runBlock(double[] steps, boolean compounding, double initial, Mode mode, int length,
+                                 double ruinLevel, SplittableRandom rnd, int from, int to,
+                                 double[] maxDd, double[] finalEq, double[] minEq) {
+        int n = steps.length;
+        double[] deck = mode == Mode.SHUFFLE ? steps.clone() : null;
+        long ruined = 0;
+
+        for (int p = from; p < to; p++) {
+            if (deck != null) {
+                // Фишер–Йетс поверх прошлой перестановки — снова равномерная перестановка
+                for (int i = n - 1; i > 0; i--) {
+                    int j = rnd.nextInt(i + 1);
+                    double tmp = deck[i]; deck[i] = deck[j]; deck[j] = tmp;
+                }
+            }
+
+            double equity = initial, peak = initial, low = initial, dd = 0;
+            boolean ruinedPath = false;
+            for (int k = 0; k < length; k++) {
+                double x = deck != null ? deck[k] : steps[rnd.nextInt(n)];
+                equity = compounding ? Math.max(0.0, equity * (1 + x)) : equity + x;
+                if (equity > peak) peak = equity;
+                if (equity < low) low = equity;
+                if (peak > 0) dd = Math.max(dd, (peak - equity) / peak);
+                if (equity <= ruinLevel) ruinedPath = true;
+            }
+            maxDd[p] = dd * 100;
+            finalEq[p] = equity;
+            minEq[p] = low;
+            if (ruinedPath) ruined++;
+        }
+        return ruined;
+    }
+
+    /* ---------- выборка ---------- */
+
+    /** PnL пар MainPro (MAIN + HEDGE) в порядке закрытия пар. */
+    private double[] mainProPairPnl() {
+        return jdbc.query("""
+                SELECT SUM(pnl_net) AS pnl
+                  FROM public.btc_30m_mainpro_backtest_pnl
+                 GROUP BY pair_id
+                 ORDER BY MAX(exit_time), pair_id
+                """, (rs, i) -> rs.getDouble("pnl")).stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Доходности пар: PnL пары к equity перед ней.
+     * Equity восстанавливается от deposit — депозита, с которым прогон записал эти PnL.
+     */
+    static double[] pairReturns(double[] pairPnl, double deposit) {
+        double[] out = new double[pairPnl.length];
+        double equity = deposit;
+        int n = 0;
+        for (double pnl : pairPnl) {
+            if (equity <= 0) break; // дальше стратегия уже не торговала бы
+            out[n++] = pnl / equity;
+            equity += pnl;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private double[] mainPnl() {
+        return jdbc.query("""
+                SELECT net_total
+                  FROM public.btc_30m_main_backtest_pnl
+                 ORDER BY exit_time, trade_id
+                """, (rs, i) -> rs.getDouble("net_total")).stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /* ---------- helpers ---------- */
+
+    /** Ближайший ранг по отсортированной копии. */
+    static Percentiles percentiles(double[] values) {
+        double[] v = values.clone();
+        Arrays.parallelSort(v);
+        return new Percentiles(pct(v, 1), pct(v, 5), pct(v, 25), pct(v, 50), pct(v, 75), pct(v, 95), pct(v, 99));
+    }
+
+    private static BigDecimal pct(double[] sorted, int p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return money(sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))]);
+    }
+
+    private static BigDecimal money(double v) {
+        return BigDecimal.valueOf(v).setScale(2, RoundingMode.HALF_UP);
+    }
+}
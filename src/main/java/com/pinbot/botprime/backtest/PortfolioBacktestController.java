@@ -0,0 +1,66 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.persistence.TrackedSymbolEntity;
+import com.pinbot.botprime.repository.TrackedSymbolRepository;
+import com.pinbot.botprime.strategy.MainProParams;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/backtest/portfolio")
+public class PortfolioBacktestController {
+
+    private final BacktestJobService jobs;
+    private final TrackedSymbolRepository trackedSymbols;
+    private final String defaultTimeframe;
+
+    public PortfolioBacktestController(BacktestJobService jobs,
+                                       TrackedSymbolRepository trackedSymbols,
+                                       @Value("${bot.compute.timeframe.30m:30}") String defaultTimeframe) {
+        this.jobs = jobs;
+        this.trackedSymbols = trackedSymbols;
+        this.defaultTimeframe = defaultTimeframe;
+    }
+
+    /**
+     * MainPro по нескольким символам на одном счёте.
+     *
+     * POST /backtest/portfolio?symbols=BTCUSDT,ETHUSDT&timeframe=30&from=2024-01-01T00:00:00Z&maxOpenPairs=3
+     * symbols — по умолчанию все tracked_symbol с этим таймфреймом; maxOpenPairs = 0 — без лимита;
+     * initialDeposit — по умолчанию депозит MainPro.
+     * Прогон идёт через очередь задач (BacktestJobService): ответ — PortfolioBacktestService.Result,
+     * пока активна задача PORTFOLIO — 409, очередь полна — 429.
+     */
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> run(
+            @RequestParam(required = false) List<String> symbols,
+            @RequestParam(required = false) String timeframe,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "0") int maxOpenPairs,
+            @RequestParam(required = false) BigDecimal initialDeposit
+    ) {
+        String tf = timeframe == null ? defaultTimeframe : timeframe;
+        List<String> syms = (symbols == null || symbols.isEmpty())
+                ? trackedSymbols.findAll().stream()
+                        .filter(s -> tf.equals(s.getTimeframe()))
+                        .map(TrackedSymbolEntity::getSymbol)
+                        .distinct()
+                        .toList()
+                : symbols.stream().map(String::toUpperCase).distinct().toList();
+
+        MainProParams params = initialDeposit == null ? MainProParams.DEFAULTS
+                : MainProParams.builder().initialDeposit(initialDeposit).build();
+        return BacktestJobController.runAndWaitReport(jobs,
+                () -> jobs.submitPortfolio(syms, tf, from, to, params, maxOpenPairs));
+    }
+}
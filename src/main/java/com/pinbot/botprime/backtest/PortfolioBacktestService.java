@@ -0,0 +1,151 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.strategy.FixedPoint;
+import com.pinbot.botprime.strategy.MainProParams;
+import com.pinbot.botprime.strategy.MainProSimulator;
+import com.pinbot.botprime.strategy.SimAccount;
+import com.pinbot.botprime.strategy.SimTradeLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Портфельный бэктест MainPro: N символов на одном счёте.
+ *
+ * На символ — своя BarSeries (примитивные колонки из IndicatorDao.fetchSeries, с разгоном перед from)
+ * и свой MainProSimulator, но SimAccount общий: объём каждой пары считается от общего equity,
+ * а maxOpenPairs ограничивает число одновременно открытых пар по всему портфелю.
+ *
+ * Потоки баров сливаются k-way merge по open_time (PriorityQueue курсоров, при равном времени — по порядку
+ * символов в запросе), поэтому симуляторы видят PnL друг друга ровно в хронологическом порядке.
+ * Кривая equity — точка на каждую закрытую сделку любого символа.
+ * Запускается через очередь задач (BacktestJobService.submitPortfolio), прогресс — по барам всех символов.
+ */
+@Slf4j
+@Service
+public class PortfolioBacktestService {
+
+    /** Вклад символа в общий счёт (просадка отдельно не считается: капитал у символов общий). */
+    public record SymbolResult(String symbol, int bars, int trades, BigDecimal netPnl, BigDecimal profitFactor) {}
+
+    public record EquityPoint(Instant time, String symbol, BigDecimal equity) {}
+
+    public record Result(List<SymbolResult> symbols, BacktestMetrics portfolio, List<EquityPoint> equity) {}
+
+    /** Позиция слияния: следующий бар символа sym. */
+    private static final class Cursor {
+        final int sym;
+        int i;
+        long time;
+
+        Cursor(int sym) { this.sym = sym; }
+    }
+
+    private static final int PROGRESS_EVERY = 4096;
+
+    private final IndicatorDao indicatorDao;
+
+    public PortfolioBacktestService(IndicatorDao indicatorDao) {
+        this.indicatorDao = indicatorDao;
+    }
+
+    public Result run(List<String> symbols, String timeframe, Instant from, Instant to,
+                      MainProParams params, int maxOpenPairs, BacktestProgress progress) {
+        if (symbols.isEmpty()) throw new IllegalArgumentException("no symbols");
+
+        progress.phase("LOADING");
+        long t0 = System.nanoTime();
+        BarSeries[] series = new BarSeries[symbols.size()];
+        for (int k = 0; k < series.length; k++) {
+            series[k] = indicatorDao.fetchSeries(symbols.get(k), timeframe, from, to);
+        }
+        long t1 = System.nanoTime();
+
+        progress.phase("SIMULATING");
+        Result result = run(symbols, series, from, params, maxOpenPairs, progress);
+        log.info("[PORTFOLIO] {} символов: загрузка {} ms, прогон {} ms, сделок {}",
+                symbols.size(), (t1 - t0) / 1_000_000, (System.nanoTime() - t1) / 1_000_000,
+                result.portfolio().trades());
+        return result;
+    }
+
+    /** Прогон по готовым сериям; бары до from — только разгон индикаторов, сделки с них не начинаются. */
+    public Result run(List<String> symbols, BarSeries[] series, Instant from, MainProParams params, int maxOpenPairs,
+                      BacktestProgress progress) {
+        int n = series.length;
+        long initialCents = Math.max(0L, FixedPoint.toCents(params.initialDeposit()));
+        SimAccount account = new SimAccount(initialCents, maxOpenPairs);
+
+        MainProSimulator[] sims = new MainProSimulator[n];
+        SimTradeLog[] logs = new SimTradeLog[n];
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, n), (a, b) ->
+                a.time != b.time ? Long.compare(a.time, b.time) : Integer.compare(a.sym, b.sym));
+
+        int total = 0;
+        for (int k = 0; k < n; k++) {
+            logs[k] = new SimTradeLog();
+            sims[k] = new MainProSimulator(series[k], params, logs[k], account);
+            // как MainProSimulator.run: на коротких сериях не торгуем
+            if (series[k].size() < 10) continue;
+            Cursor c = new Cursor(k);
+            c.i = from == null ? 0 : series[k].indexAtOrAfter(from.toEpochMilli());
+            if (c.i < series[k].size()) {
+                c.time = series[k].openTimeMs(c.i);
+                queue.add(c);
+                total += series[k].size() - c.i;
+            }
+        }
+
+        long[] pnl = new long[256];
+        int trades = 0;
+        int done = 0;
+        List<EquityPoint> curve = new ArrayList<>();
+
+        while (!queue.isEmpty()) {
+            Cursor c = queue.poll();
+            SimTradeLog tl = logs[c.sym];
+            int before = tl.size();
+            sims[c.sym].step(c.i);
+
+            // закрытые на этом шаге сделки → общая последовательность PnL и кривая
+            long equity = account.equityCents() - sumPnl(tl, before);
+            for (int j = before; j < tl.size(); j++) {
+                if (trades == pnl.length) pnl = Arrays.copyOf(pnl, trades * 2);
+                pnl[trades++] = tl.pnlCents(j);
+                equity += tl.pnlCents(j);
+                curve.add(new EquityPoint(Instant.ofEpochMilli(tl.exitTimeMs(j)), symbols.get(c.sym),
+                        BigDecimal.valueOf(equity, 2)));
+            }
+
+            if (++c.i < series[c.sym].size()) {
+                c.time = series[c.sym].openTimeMs(c.i);
+                queue.add(c); // тот же объект курсора — без аллокаций на бар
+            }
+            if (++done % PROGRESS_EVERY == 0) {
+                progress.bars(done, total);
+                progress.trades(trades);
+            }
+        }
+        progress.bars(total, total);
+        progress.trades(trades);
+
+        List<SymbolResult> perSymbol = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            BacktestMetrics m = BacktestMetrics.of(logs[k], 0L);
+            perSymbol.add(new SymbolResult(symbols.get(k), series[k].size(), m.trades(), m.netPnl(), m.profitFactor()));
+        }
+        return new Result(perSymbol, BacktestMetrics.of(pnl, trades, initialCents), curve);
+    }
+
+    private static long sumPnl(SimTradeLog tl, int from) {
+        long s = 0;
+        for (int j = from; j < tl.size(); j++) s += tl.pnlCents(j);
+        return s;
+    }
+}
@@ -0,0 +1,85 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.backtest.IndicatorDao.Bar;
+
+/**
+ * Последние capacity баров в кольцевых примитивных массивах, дописываются по одному (live-путь стратегии).
+ *
+ * Индексы абсолютные, как в BarSeries: size() растёт с каждым append, а читать можно только
+ * [size() - capacity, size()) — более старые бары вытеснены (IndexOutOfBoundsException).
+ * Не потокобезопасна: пишет и читает один владелец (MainProRuntime).
+ */
+public final class RollingBarSeries implements BarColumns {
+
+    private final int capacity;
+    private int size;
+    private final long[] openTime;
+    private final long[] open, high, low, close;
+    private final double[] ema11, ema30, ema110, ema200, tema9, rsi2h, smaRsi2h;
+    private final boolean[] impulse;
+
+    public RollingBarSeries(int capacity) {
+        int c = Math.max(16, capacity);
+        this.capacity = c;
+        openTime = new long[c];
+        open = new long[c]; high = new long[c]; low = new long[c]; close = new long[c];
+        ema11 = new double[c]; ema30 = new double[c]; ema110 = new double[c]; ema200 = new double[c];
+        tema9 = new double[c]; rsi2h = new double[c]; smaRsi2h = new double[c];
+        impulse = new boolean[c];
+    }
+
+    /** Следующий бар; open_time должен быть строго больше предыдущего. */
+    public void append(long openTimeMs,
+                       long openU, long highU, long lowU, long closeU,
+                       double e11, double e30, double e110, double e200,
+                       double t9, double rsi, double smaRsi,
+                       boolean isImpulse) {
+        if (size > 0 && openTimeMs <= openTime[slot(size - 1)]) {
+            throw new IllegalArgumentException("bar " + openTimeMs + " is not after " + openTime[slot(size - 1)]);
+        }
+        int p = size % capacity;
+        openTime[p] = openTimeMs;
+        open[p] = openU; high[p] = highU; low[p] = lowU; close[p] = closeU;
+        ema11[p] = e11; ema30[p] = e30; ema110[p] = e110; ema200[p] = e200;
+        tema9[p] = t9; rsi2h[p] = rsi; smaRsi2h[p] = smaRsi;
+        impulse[p] = isImpulse;
+        size++;
+    }
+
+    public void append(Bar b) {
+        append(b.openTime().toEpochMilli(),
+                BarSeries.toUnits(b.open()), BarSeries.toUnits(b.high()),
+                BarSeries.toUnits(b.low()), BarSeries.toUnits(b.close()),
+                b.ema11().doubleValue(), b.ema30().doubleValue(),
+                b.ema110().doubleValue(), b.ema200().doubleValue(),
+                b.tema9().doubleValue(), b.rsi2h().doubleValue(), b.smaRsi2h().doubleValue(),
+                b.isImpulse());
+    }
+
+    public int capacity() { return capacity; }
+
+    @Override public int size() { return size; }
+
+    @Override public long openTimeMs(int i) { return openTime[slot(i)]; }
+
+    @Override public long openUnits(int i)  { return open[slot(i)]; }
+    @Override public long highUnits(int i)  { return high[slot(i)]; }
+    @Override public long lowUnits(int i)   { return low[slot(i)]; }
+    @Override public long closeUnits(int i) { return close[slot(i)]; }
+
+    @Override public double ema11(int i)    { return ema11[slot(i)]; }
+    @Override public double ema30(int i)    { return ema30[slot(i)]; }
+    @Override public double ema110(int i)   { return ema110[slot(i)]; }
+    @Override public double ema200(int i)   { return ema200[slot(i)]; }
+    @Override public double tema9(int i)    { return tema9[slot(i)]; }
+    @Override public double rsi2h(int i)    { return rsi2h[slot(i)]; }
+    @Override public double smaRsi2h(int i) { return smaRsi2h[slot(i)]; }
+    @Override public boolean isImpulse(int i) { return impulse[slot(i)]; }
+
+    private int slot(int i) {
+        if (i < 0 || i >= size || i < size - capacity) {
+            throw new IndexOutOfBoundsException("bar " + i + " not in [" + Math.max(0, size - capacity) + ", " + size + ")");
+        }
+        return i % capacity;
+    }
+}
@@ -1,6 +1,6 @@
 package com.pinbot.botprime.bootstrap;
 
-import com.pinbot.botprime.backtest.IndicatorDao;
+import com.pinbot.botprime.backtest.BarSeriesCache;
 import com.pinbot.botprime.strategy.FirstStrategy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,7 +12,7 @@ import org.springframework.context.annotation.Configuration;
 @RequiredArgsConstructor
 @Slf4j
 public class FirstStrategyRunner {
-    private final IndicatorDao dao;
+    private final BarSeriesCache barCache;
     private final FirstStrategy strategy;
 
     @Value("${firststrategy.bootstrap.enabled:false}")
@@ -25,7 +25,7 @@ public class FirstStrategyRunner {
                 log.info("FirstStrategyRunner: disabled");
                 return;
             }
-            var bars = dao.fetchAllBarsAsc();
+            var bars = barCache.get().asBars();
             int updated = strategy.backtest(bars).size();
             log.info("FirstStrategyRunner finished: {} bars processed", bars.size());
         };
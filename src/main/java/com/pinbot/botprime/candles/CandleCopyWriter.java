@@ -0,0 +1,79 @@
+package com.pinbot.botprime.candles;
+
+import com.pinbot.botprime.dto.CandleDto;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Свечи → бинарный формат PostgreSQL COPY (PGCOPY) для staging-таблицы DynamicCandleStorage:
+ * (seq int8, open_time timestamp, open, high, low, close, volume, quote_volume float8).
+ *
+ * Пишет кусками в переиспользуемый буфер: sink получает (buf, len) и сразу отдаёт их в CopyIn,
+ * так что весь бэкфилл в памяти не собирается.
+ */
+final class CandleCopyWriter {
+
+    interface Sink {
+        void write(byte[] buf, int len) throws Exception;
+    }
+
+    static final int FIELDS = 8;
+    /** int16 число полей + 8 × (int32 длина + 8 байт значения). */
+    static final int ROW_BYTES = 2 + FIELDS * (4 + 8);
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    /** timestamp в PG — микросекунды от 2000-01-01 00:00:00. */
+    private static final long PG_EPOCH_SECONDS = LocalDateTime.of(2000, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+    private CandleCopyWriter() {
+        // utility class
+    }
+
+    static void write(List<CandleDto> candles, int chunkRows, Sink sink) throws Exception {
+        ByteBuffer buf = ByteBuffer.allocate(Math.max(SIGNATURE.length + 8, chunkRows * ROW_BYTES + 2));
+
+        buf.put(SIGNATURE).putInt(0).putInt(0); // flags, длина расширения заголовка
+
+        long seq = 0;
+        for (CandleDto c : candles) {
+            if (buf.remaining() < ROW_BYTES + 2) {
+                sink.write(buf.array(), buf.position());
+                buf.clear();
+            }
+            buf.putShort((short) FIELDS);
+            putLong(buf, seq++);
+            putLong(buf, pgTimestamp(c.getStartMs()));
+            putDouble(buf, c.getOpen());
+            putDouble(buf, c.getHigh());
+            putDouble(buf, c.getLow());
+            putDouble(buf, c.getClose());
+            putDouble(buf, c.getVolume());
+            putDouble(buf, c.getQuoteVolume());
+        }
+        buf.putShort((short) -1); // trailer
+        sink.write(buf.array(), buf.position());
+    }
+
+    /**
+     * Та же «настенная» дата, что уходит в колонку timestamp через Timestamp.from(..) в timestamp[]
+     * unnest-пути, — иначе при TZ JVM ≠ UTC два пути писали бы разные open_time.
+     */
+    static long pgTimestamp(long epochMs) {
+        LocalDateTime local = Timestamp.from(Instant.ofEpochMilli(epochMs)).toLocalDateTime();
+        long seconds = local.toEpochSecond(ZoneOffset.UTC) - PG_EPOCH_SECONDS;
+        return seconds * 1_000_000L + local.getNano() / 1_000;
+    }
+
+    private static void putLong(ByteBuffer buf, long v) {
+        buf.putInt(8).putLong(v);
+    }
+
+    private static void putDouble(ByteBuffer buf, double v) {
+        buf.putInt(8).putDouble(v);
+    }
+}
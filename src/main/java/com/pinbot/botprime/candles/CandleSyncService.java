@@ -7,16 +7,22 @@ import com.pinbot.botprime.persistence.TrackedSymbolEntity;
 import com.pinbot.botprime.repository.TrackedSymbolRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 @Slf4j
 @Service
@@ -29,30 +35,102 @@ public class CandleSyncService {
     private final DynamicCandleTableManager tableManager;
     private final DynamicCandleStorage storage;
     private final BybitClient bybit;
-
-    @Transactional
-    public RefreshSummary refreshAll(Integer limit) {
+    private final PlatformTransactionManager txManager;
+
+    /** Сколько символов refreshAll обновляет одновременно; держать ниже размера пула соединений. */
+    @Value("${bot.candles.refresh.max-in-flight:8}")
+    private int refreshMaxInFlight;
+
+    /** Размер пула Hikari: больше символов одновременно — транзакции ждут соединение. */
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int dbPoolSize;
+
+    /**
+     * Обновление всех tracked-символов параллельно: по виртуальному потоку на символ,
+     * одновременно в работе не больше maxInFlight (запрос к Bybit + upsert).
+     * У каждого символа своя транзакция — сбой одного не откатывает остальные.
+     * details идут в порядке trackedRepo.findAll(), как при последовательном обходе.
+     *
+     * maxInFlight = null → bot.candles.refresh.max-in-flight; 1 → последовательно.
+     * Больше bot.candles.refresh.max-in-flight и размера пула соединений не поднимается.
+     */
+    public RefreshSummary refreshAll(Integer limit, Integer maxInFlight) {
         int l = (limit == null || limit <= 0) ? DEFAULT_LIMIT : limit;
+        int inFlight = clampInFlight(maxInFlight);
         List<TrackedSymbolEntity> list = trackedRepo.findAll();
 
-        RefreshSummary summary = new RefreshSummary();
-        summary.total = list.size();
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        long started = System.nanoTime();
 
-        for (TrackedSymbolEntity ts : list) {
-            BybitInterval interval = BybitInterval.fromApiValue(ts.getTimeframe());
+        List<RefreshItem> items = forEachTracked(list, inFlight, (symbol, interval) -> {
             try {
-                int upserted = refreshOneInternal(ts.getSymbol(), interval, l);
-                summary.success++;
-                summary.details.add(RefreshItem.success(ts.getSymbol(), interval, upserted));
+                Integer upserted = tx.execute(status -> refreshOneInternal(symbol, interval, l));
+                return RefreshItem.success(symbol, interval, upserted == null ? 0 : upserted);
             } catch (Exception e) {
-                summary.failed++;
-                summary.details.add(RefreshItem.fail(ts.getSymbol(), interval, e.getMessage()));
-                log.error("REFRESH failed for {} {}: {}", ts.getSymbol(), ts.getTimeframe(), e.getMessage(), e);
+                log.error("REFRESH failed for {} {}: {}", symbol, interval.apiValue(), e.getMessage(), e);
+                return RefreshItem.fail(symbol, interval, e.getMessage());
             }
+        }, (symbol, interval) -> RefreshItem.fail(symbol, interval, "interrupted"));
+
+        RefreshSummary summary = new RefreshSummary();
+        summary.total = list.size();
+        for (RefreshItem item : items) {
+            if (item.error == null) summary.success++;
+            else summary.failed++;
+            summary.details.add(item);
         }
+
+        log.info("REFRESH all: {} ok / {} failed of {} (max in flight {}) in {} ms",
+                summary.success, summary.failed, summary.total, inFlight,
+                (System.nanoTime() - started) / 1_000_000);
         return summary;
     }
 
+    public RefreshSummary refreshAll(Integer limit) {
+        return refreshAll(limit, null);
+    }
+
+    /** Запрошенное maxInFlight, урезанное до bot.candles.refresh.max-in-flight и размера пула соединений. */
+    int clampInFlight(Integer requested) {
+        int max = Math.max(1, Math.min(refreshMaxInFlight, dbPoolSize));
+        return (requested == null || requested <= 0) ? max : Math.min(requested, max);
+    }
+
+    /**
+     * Запускает task для каждого tracked-символа на своём виртуальном потоке, не больше inFlight одновременно.
+     * Результаты — в порядке list. task сам ловит ошибки и управляет транзакцией;
+     * onInterrupt — результат для символа, до которого не дошла очередь из-за прерывания.
+     */
+    private <T> List<T> forEachTracked(List<TrackedSymbolEntity> list, int inFlight,
+                                       BiFunction<String, BybitInterval, T> task,
+                                       BiFunction<String, BybitInterval, T> onInterrupt) {
+        Semaphore permits = new Semaphore(Math.max(1, inFlight));
+        List<Future<T>> futures = new ArrayList<>(list.size());
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (TrackedSymbolEntity ts : list) {
+                String symbol = ts.getSymbol();
+                BybitInterval interval = BybitInterval.fromApiValue(ts.getTimeframe());
+                futures.add(pool.submit(() -> {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return onInterrupt.apply(symbol, interval);
+                    }
+                    try {
+                        return task.apply(symbol, interval);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        } // close() дожидается всех задач
+
+        List<T> out = new ArrayList<>(futures.size());
+        for (Future<T> f : futures) out.add(f.resultNow());
+        return out;
+    }
+
     @Transactional
     public RefreshItem refreshOne(String symbol, BybitInterval interval, Integer limit) {
         int l = (limit == null || limit <= 0) ? DEFAULT_LIMIT : limit;
@@ -71,27 +149,35 @@ public class CandleSyncService {
         return storage.upsertBatch(table, candles);
     }
 
-    @Transactional
+    /**
+     * Бэкафилл всех tracked-символов. Символы идут параллельно (как refreshAll), страницы всех символов
+     * перемежаются через общий BybitRateLimiter — темп задаёт бюджет запросов биржи, а не пауза.
+     * sleepMs > 0 — дополнительная пауза между страницами одного символа (по умолчанию 0).
+     */
     public BackfillSummary backfillAll(Integer years, Integer batch, Integer sleepMs) {
         int y = (years == null || years <= 0) ? 2 : years;
         int b = (batch == null || batch <= 0) ? DEFAULT_LIMIT : batch;
-        int s = (sleepMs == null || sleepMs < 0) ? 300 : sleepMs;
+        int s = (sleepMs == null || sleepMs < 0) ? 0 : sleepMs;
 
         List<TrackedSymbolEntity> list = trackedRepo.findAll();
-        BackfillSummary summary = new BackfillSummary();
-        summary.total = list.size();
+        TransactionTemplate tx = new TransactionTemplate(txManager);
 
-        for (TrackedSymbolEntity ts : list) {
-            BybitInterval interval = BybitInterval.fromApiValue(ts.getTimeframe());
+        List<BackfillItem> items = forEachTracked(list, clampInFlight(null), (symbol, interval) -> {
             try {
-                long loaded = backfillOneInternal(ts.getSymbol(), interval, y, b, s);
-                summary.success++;
-                summary.details.add(BackfillItem.success(ts.getSymbol(), interval, loaded));
+                Long loaded = tx.execute(status -> backfillOneInternal(symbol, interval, y, b, s));
+                return BackfillItem.success(symbol, interval, loaded == null ? 0 : loaded);
             } catch (Exception e) {
-                summary.failed++;
-                summary.details.add(BackfillItem.fail(ts.getSymbol(), interval, e.getMessage()));
-                log.error("BACKFILL failed for {} {}: {}", ts.getSymbol(), ts.getTimeframe(), e.getMessage(), e);
+                log.error("BACKFILL failed for {} {}: {}", symbol, interval.apiValue(), e.getMessage(), e);
+                return BackfillItem.fail(symbol, interval, e.getMessage());
             }
+        }, (symbol, interval) -> BackfillItem.fail(symbol, interval, "interrupted"));
+
+        BackfillSummary summary = new BackfillSummary();
+        summary.total = list.size();
+        for (BackfillItem item : items) {
+            if (item.error == null) summary.success++;
+            else summary.failed++;
+            summary.details.add(item);
         }
         return summary;
     }
@@ -100,7 +186,7 @@ public class CandleSyncService {
     public BackfillItem backfillOne(String symbol, BybitInterval interval, Integer years, Integer batch, Integer sleepMs) {
         int y = (years == null || years <= 0) ? 2 : years;
         int b = (batch == null || batch <= 0) ? DEFAULT_LIMIT : batch;
-        int s = (sleepMs == null || sleepMs < 0) ? 300 : sleepMs;
+        int s = (sleepMs == null || sleepMs < 0) ? 0 : sleepMs;
 
         ensureTracked(symbol, interval);
         long loaded = backfillOneInternal(symbol, interval, y, b, s);
@@ -117,61 +203,42 @@ public class CandleSyncService {
                 .toInstant()
                 .toEpochMilli();
 
+        // Страницы копятся в памяти и пишутся пачкой от copyThreshold строк — тогда storage идёт через COPY.
+        // Граница следующей страницы — самая старая свеча из уже скачанных, а не MIN(open_time) из таблицы.
+        int flushRows = storage.copyThreshold();
+        List<CandleDto> pending = new ArrayList<>(flushRows + batch);
         long totalLoaded = 0;
-        while (true) {
-            Instant oldest = storage.findMinOpenTime(table);
-            long endExclusive = (oldest == null)
-                    ? Instant.now().toEpochMilli()
-                    : oldest.toEpochMilli();
 
-            if (endExclusive <= cutoff) {
-                break;
-            }
+        Instant oldestStored = storage.findMinOpenTime(table);
+        long endExclusive = (oldestStored == null)
+                ? Instant.now().toEpochMilli()
+                : oldestStored.toEpochMilli();
 
+        while (endExclusive > cutoff) {
             long intervalMs = intervalMillisApprox(interval);
             long startInclusive = endExclusive - (long) batch * intervalMs;
             if (startInclusive < cutoff) {
                 startInclusive = cutoff;
             }
 
-            Map<String, String> params = Map.of(
-                    "category", "linear",
-                    "symbol", symbol,
-                    "interval", interval.apiValue(),
-                    "limit", String.valueOf(batch),
-                    "start", String.valueOf(startInclusive),
-                    "end", String.valueOf(endExclusive - 1)
-            );
+            List<CandleDto> candles = bybit.getKlines(symbol, interval.apiValue(), batch,
+                    startInclusive, endExclusive - 1);
 
-            Map<String, Object> raw = bybit.publicGet("/v5/market/kline", params);
-            @SuppressWarnings("unchecked")
-            List<List<String>> rows = (List<List<String>>) ((Map<?, ?>) raw.get("result")).get("list");
-
-            if (rows == null || rows.isEmpty()) {
+            if (candles == null || candles.isEmpty()) {
                 break;
             }
 
-            List<CandleDto> candles = new ArrayList<>(rows.size());
-            for (List<String> r : rows) {
-                candles.add(new CandleDto(
-                        Long.parseLong(r.get(0)),
-                        new BigDecimal(r.get(1)).doubleValue(),
-                        new BigDecimal(r.get(2)).doubleValue(),
-                        new BigDecimal(r.get(3)).doubleValue(),
-                        new BigDecimal(r.get(4)).doubleValue(),
-                        new BigDecimal(r.get(5)).doubleValue(),
-                        new BigDecimal(r.get(6)).doubleValue()
-                ));
+            pending.addAll(candles);
+            if (pending.size() >= flushRows) {
+                totalLoaded += storage.upsertBatch(table, pending);
+                pending.clear();
             }
 
-            int upserted = storage.upsertBatch(table, candles);
-            totalLoaded += upserted;
-
-            // Stop if reached cutoff
-            Instant newOldest = storage.findMinOpenTime(table);
-            if (newOldest != null && newOldest.toEpochMilli() <= cutoff) {
-                break;
+            long pageOldest = candles.stream().mapToLong(CandleDto::getStartMs).min().getAsLong();
+            if (pageOldest >= endExclusive) {
+                break; // биржа не отдала ничего старше — дальше истории нет
             }
+            endExclusive = pageOldest;
 
             if (sleepMs > 0) {
                 try {
@@ -183,6 +250,10 @@ public class CandleSyncService {
             }
         }
 
+        if (!pending.isEmpty()) {
+            totalLoaded += storage.upsertBatch(table, pending);
+        }
+
         return totalLoaded;
     }
 
@@ -0,0 +1,7 @@
+package com.pinbot.botprime.candles;
+
+import com.pinbot.botprime.dto.BybitInterval;
+import com.pinbot.botprime.dto.CandleDto;
+
+/** С биржи пришла закрытая свеча (WebSocket kline, confirm=true); receivedMs — когда кадр получен из сокета. */
+public record ClosedCandleEvent(String symbol, BybitInterval interval, CandleDto candle, long receivedMs) {}
@@ -0,0 +1,58 @@
+package com.pinbot.botprime.candles;
+
+import com.pinbot.botprime.archive.CandleArchiveService;
+import com.pinbot.botprime.repository.CandleRepository;
+import com.pinbot.botprime.service.IndicatorComputeService;
+import com.pinbot.botprime.service.RecentBarsCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Закрытая свеча из WebSocket → таблица свечей пары и индикаторы.
+ *
+ * 1) upsert одной строки в {symbol}_{tf}_candles (как refresh, только без REST; таблицу заранее
+ *    создаёт KlineStreamSubscriber при подписке);
+ * 2) для пары, по которой считаются индикаторы (bot.compute.symbol / bot.compute.timeframe.30m), —
+ *    запись в btc_30m_history и инкрементальный пересчёт только нового бара.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClosedCandleListener {
+
+    private final DynamicCandleStorage storage;
+    private final CandleRepository candleRepository;
+    private final IndicatorComputeService indicatorComputeService;
+    private final CandleArchiveService archive;
+    private final RecentBarsCache recentBars;
+
+    @Value("${bot.compute.symbol:BTCUSDT}")
+    private String computeSymbol;
+
+    @Value("${bot.compute.timeframe.30m:30}")
+    private String computeTimeframe;
+
+    @EventListener
+    public void onClosedCandle(ClosedCandleEvent e) {
+        String table = CandleTableName.of(e.symbol(), e.interval());
+        storage.upsertBatch(table, List.of(e.candle()));
+
+        String tf = e.interval().apiValue();
+        if (computeSymbol.equalsIgnoreCase(e.symbol()) && computeTimeframe.equals(tf)) {
+            candleRepository.upsertCandles(computeSymbol, tf, List.of(e.candle()));
+            archive.appendIngested(computeSymbol, tf, List.of(e.candle()));
+            recentBars.putCandles(computeSymbol, tf, List.of(e.candle()));
+            indicatorComputeService.computeIncremental(computeSymbol, tf);
+        }
+
+        log.info("WS: closed candle {} {} @ {} stored ({} ms after receipt)",
+                e.symbol(), tf, Instant.ofEpochMilli(e.candle().getStartMs()),
+                System.currentTimeMillis() - e.receivedMs());
+    }
+}
@@ -2,11 +2,16 @@ package com.pinbot.botprime.candles;
 
 import com.pinbot.botprime.dto.CandleDto;
 import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.List;
@@ -15,8 +20,44 @@ import java.util.List;
 @RequiredArgsConstructor
 public class DynamicCandleStorage {
 
+    /** Сколько строк COPY копит в буфере перед отправкой на сервер. */
+    private static final int COPY_CHUNK_ROWS = 4096;
+
+    /**
+     * Временная staging-таблица живёт в сессии соединения пула, поэтому CREATE ... IF NOT EXISTS + TRUNCATE.
+     * seq — порядок во входном списке: при дублях open_time побеждает последняя строка, как в unnest-пути.
+     */
+    private static final String CREATE_STAGE = """
+            CREATE TEMP TABLE IF NOT EXISTS candle_copy_stage (
+                seq bigint, open_time timestamp,
+                open float8, high float8, low float8, close float8, volume float8, quote_volume float8
+            )""";
+
+    /** Строк на один INSERT ... FROM unnest(...), как в IndicatorValueRepositoryImpl. */
+    private static final int UNNEST_CHUNK = 2000;
+
+    private static final String ON_CONFLICT_UPDATE = """
+            ON CONFLICT (open_time) DO UPDATE SET
+                close_time = EXCLUDED.close_time,
+                open = EXCLUDED.open,
+                high = EXCLUDED.high,
+                low = EXCLUDED.low,
+                close = EXCLUDED.close,
+                volume = EXCLUDED.volume,
+                quote_volume = EXCLUDED.quote_volume
+            """;
+
     private final JdbcTemplate jdbc;
 
+    /** Начиная с этого размера upsertBatch грузит через COPY вместо INSERT ... FROM unnest. */
+    @Value("${bot.candles.copy-threshold:5000}")
+    private int copyThreshold;
+
+    /** Размер пачки, с которого upsertBatch переключается на COPY (бэкфилл копит страницы до него). */
+    public int copyThreshold() {
+        return copyThreshold;
+    }
+
     public Instant findMaxOpenTime(String tableName) {
         String sql = "SELECT MAX(open_time) FROM " + quoteIdent(tableName);
         Timestamp ts = jdbc.queryForObject(sql, Timestamp.class);
@@ -33,48 +74,104 @@ public class DynamicCandleStorage {
         if (candles == null || candles.isEmpty()) {
             return 0;
         }
+        if (candles.size() >= copyThreshold) {
+            return upsertViaCopy(tableName, candles);
+        }
 
         String sql = ("""
                 INSERT INTO %s (
                     open_time, close_time, open, high, low, close, volume, quote_volume
-                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?)
-                ON CONFLICT (open_time) DO UPDATE SET
-                    close_time = EXCLUDED.close_time,
-                    open = EXCLUDED.open,
-                    high = EXCLUDED.high,
-                    low = EXCLUDED.low,
-                    close = EXCLUDED.close,
-                    volume = EXCLUDED.volume,
-                    quote_volume = EXCLUDED.quote_volume
-                """).formatted(quoteIdent(tableName));
-
-        // ВАЖНО: эта перегрузка возвращает int[][]
-        int[][] updated = jdbc.batchUpdate(sql, candles, 500, (PreparedStatement ps, CandleDto c) -> {
-            Instant t = Instant.ofEpochMilli(c.getStartMs());
-            Timestamp ts = Timestamp.from(t);
-
-            ps.setTimestamp(1, ts);
-            ps.setTimestamp(2, ts); // close_time: сохраняем текущее поведение проекта
-
-            ps.setBigDecimal(3, BigDecimal.valueOf(c.getOpen()));
-            ps.setBigDecimal(4, BigDecimal.valueOf(c.getHigh()));
-            ps.setBigDecimal(5, BigDecimal.valueOf(c.getLow()));
-            ps.setBigDecimal(6, BigDecimal.valueOf(c.getClose()));
-            ps.setBigDecimal(7, BigDecimal.valueOf(c.getVolume()));
-            ps.setBigDecimal(8, BigDecimal.valueOf(c.getQuoteVolume()));
-        });
+                )
+                SELECT DISTINCT ON (t.open_time)
+                    t.open_time, t.open_time AS close_time,
+                    open::text::numeric, high::text::numeric, low::text::numeric, close::text::numeric,
+                    volume::text::numeric, quote_volume::text::numeric
+                FROM unnest(?::timestamp[], ?::float8[], ?::float8[], ?::float8[], ?::float8[], ?::float8[], ?::float8[])
+                    WITH ORDINALITY AS t(open_time, open, high, low, close, volume, quote_volume, seq)
+                ORDER BY t.open_time, t.seq DESC
+                """ + ON_CONFLICT_UPDATE).formatted(quoteIdent(tableName));
 
         int sum = 0;
-        for (int[] batch : updated) {
-            for (int x : batch) {
-                // JDBC returns either 0/1 or SUCCESS_NO_INFO (-2)
-                if (x > 0) sum += x;
-                else if (x == PreparedStatement.SUCCESS_NO_INFO) sum += 1;
-            }
+        for (int off = 0; off < candles.size(); off += UNNEST_CHUNK) {
+            List<CandleDto> part = candles.subList(off, Math.min(off + UNNEST_CHUNK, candles.size()));
+            sum += jdbc.update(con -> {
+                int n = part.size();
+                Timestamp[] openTime = new Timestamp[n];
+                double[] open = new double[n], high = new double[n], low = new double[n], close = new double[n];
+                double[] volume = new double[n], quoteVolume = new double[n];
+                for (int i = 0; i < n; i++) {
+                    CandleDto c = part.get(i);
+                    openTime[i] = Timestamp.from(Instant.ofEpochMilli(c.getStartMs()));
+                    open[i] = c.getOpen();
+                    high[i] = c.getHigh();
+                    low[i] = c.getLow();
+                    close[i] = c.getClose();
+                    volume[i] = c.getVolume();
+                    quoteVolume[i] = c.getQuoteVolume();
+                }
+
+                // PGConnection.createArrayOf принимает double[] как есть — без Double/BigDecimal на значение
+                PGConnection pg = con.unwrap(PGConnection.class);
+                PreparedStatement ps = con.prepareStatement(sql);
+                ps.setArray(1, con.createArrayOf("timestamp", openTime));
+                ps.setArray(2, pg.createArrayOf("float8", open));
+                ps.setArray(3, pg.createArrayOf("float8", high));
+                ps.setArray(4, pg.createArrayOf("float8", low));
+                ps.setArray(5, pg.createArrayOf("float8", close));
+                ps.setArray(6, pg.createArrayOf("float8", volume));
+                ps.setArray(7, pg.createArrayOf("float8", quoteVolume));
+                return ps;
+            });
         }
         return sum;
     }
 
+    /**
+     * Бинарный COPY в staging-таблицу и один INSERT ... SELECT ... ON CONFLICT в таблицу пары.
+     * Возвращает число вставленных/обновлённых строк — то же, что у unnest-пути.
+     *
+     * float8 → numeric через ::text: PG (extra_float_digits > 0) печатает кратчайшее точное представление,
+     * как Double.toString (прежний BigDecimal.valueOf), поэтому в NUMERIC попадают те же значения, что и в unnest-пути.
+     */
+    int upsertViaCopy(String tableName, List<CandleDto> candles) {
+        String merge = ("""
+                INSERT INTO %s (
+                    open_time, close_time, open, high, low, close, volume, quote_volume
+                )
+                SELECT DISTINCT ON (t.open_time)
+                    t.open_time, t.open_time AS close_time,
+                    open::text::numeric, high::text::numeric, low::text::numeric, close::text::numeric,
+                    volume::text::numeric, quote_volume::text::numeric
+                FROM candle_copy_stage t
+                ORDER BY t.open_time, t.seq DESC
+                """ + ON_CONFLICT_UPDATE).formatted(quoteIdent(tableName));
+
+        Integer upserted = jdbc.execute((ConnectionCallback<Integer>) con -> {
+            try (Statement st = con.createStatement()) {
+                st.execute(CREATE_STAGE);
+                st.execute("TRUNCATE candle_copy_stage");
+            }
+
+            CopyIn copy = con.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY candle_copy_stage (seq, open_time, open, high, low, close, volume, quote_volume) "
+                            + "FROM STDIN (FORMAT binary)");
+            try {
+                CandleCopyWriter.write(candles, COPY_CHUNK_ROWS, (buf, len) -> copy.writeToCopy(buf, 0, len));
+                copy.endCopy();
+            } catch (Exception e) {
+                if (copy.isActive()) copy.cancelCopy();
+                throw e instanceof SQLException se ? se : new SQLException("COPY into candle_copy_stage failed", e);
+            }
+
+            try (Statement st = con.createStatement()) {
+                int n = st.executeUpdate(merge);
+                st.execute("TRUNCATE candle_copy_stage");
+                return n;
+            }
+        });
+        return upserted == null ? 0 : upserted;
+    }
+
     private String quoteIdent(String ident) {
         return '"' + ident + '"';
     }
@@ -0,0 +1,101 @@
+package com.pinbot.botprime.candles;
+
+import com.pinbot.botprime.client.BybitKlineStream;
+import com.pinbot.botprime.client.ClosedKline;
+import com.pinbot.botprime.config.BybitProperties;
+import com.pinbot.botprime.dto.BybitInterval;
+import com.pinbot.botprime.persistence.TrackedSymbolEntity;
+import com.pinbot.botprime.repository.TrackedSymbolRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Подписка на kline-топики всех tracked_symbol через публичный WebSocket Bybit.
+ * Каждая закрытая свеча публикуется как ClosedCandleEvent (см. ClosedCandleListener) —
+ * без ожидания cron и без перекачки 1000 баров по REST.
+ *
+ * Обработка идёт по одной свече за раз вне event-loop (boundedElastic), порядок сохраняется.
+ * При обрыве — переподключение с backoff; список символов перечитывается при каждом подключении,
+ * и тогда же (а не на каждую свечу) создаются недостающие таблицы {symbol}_{tf}_candles.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bot.ws.kline.enabled", havingValue = "true", matchIfMissing = false)
+@RequiredArgsConstructor
+public class KlineStreamSubscriber {
+
+    private static final Duration PING_INTERVAL = Duration.ofSeconds(20);
+    private static final Duration RECONNECT_MIN = Duration.ofSeconds(1);
+    private static final Duration RECONNECT_MAX = Duration.ofSeconds(30);
+
+    private final TrackedSymbolRepository trackedRepo;
+    private final DynamicCandleTableManager tableManager;
+    private final BybitProperties props;
+    private final ApplicationEventPublisher events;
+
+    private volatile Disposable subscription;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        BybitKlineStream stream = new BybitKlineStream(
+                new ReactorNettyWebSocketClient(), URI.create(props.getWsPublicUrl()), PING_INTERVAL);
+
+        subscription = Mono.fromCallable(this::topics)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(topics -> {
+                    log.info("WS: subscribing to {} kline topics at {}", topics.size(), props.getWsPublicUrl());
+                    return stream.stream(topics);
+                })
+                .repeatWhen(completed -> completed.delayElements(RECONNECT_MIN)) // сервер закрыл соединение
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, RECONNECT_MIN)
+                        .maxBackoff(RECONNECT_MAX)
+                        .transientErrors(true) // backoff сбрасывается после первой же свечи
+                        .doBeforeRetry(s -> log.warn("WS: connection failed, reconnecting: {}", s.failure().toString())))
+                .timestamp() // момент получения — от него ClosedCandleListener считает задержку
+                .concatMap(t -> Mono.fromRunnable(() -> publish(t.getT2(), t.getT1()))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable s = subscription;
+        if (s != null) s.dispose();
+    }
+
+    private List<String> topics() {
+        List<TrackedSymbolEntity> tracked = trackedRepo.findAll();
+        for (TrackedSymbolEntity ts : tracked) {
+            tableManager.createTable(ts.getSymbol(), BybitInterval.fromApiValue(ts.getTimeframe()));
+        }
+        return tracked.stream()
+                .map(ts -> BybitKlineStream.topic(ts.getSymbol(), ts.getTimeframe()))
+                .distinct()
+                .toList();
+    }
+
+    private void publish(ClosedKline k, long receivedMs) {
+        try {
+            events.publishEvent(new ClosedCandleEvent(
+                    k.symbol(), BybitInterval.fromApiValue(k.interval()), k.candle(), receivedMs));
+        } catch (Exception e) {
+            // одна битая свеча не должна рвать поток
+            log.error("WS: failed to handle closed candle {} {}: {}", k.symbol(), k.interval(), e.getMessage(), e);
+        }
+    }
+}
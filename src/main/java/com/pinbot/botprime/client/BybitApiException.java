@@ -0,0 +1,19 @@
+package com.pinbot.botprime.client;
+
+/** Bybit ответил retCode != 0. */
+public class BybitApiException extends IllegalStateException {
+
+    /** retCode Bybit «Too many visits» — превышен лимит запросов. */
+    public static final int RATE_LIMIT = 10006;
+
+    private final int retCode;
+
+    public BybitApiException(int retCode, String retMsg) {
+        super("Bybit retCode " + retCode + ": " + retMsg);
+        this.retCode = retCode;
+    }
+
+    public int retCode() { return retCode; }
+
+    public boolean isRateLimit() { return retCode == RATE_LIMIT; }
+}
@@ -16,14 +16,18 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
-import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 @Component
 @RequiredArgsConstructor
@@ -32,8 +36,14 @@ public class BybitClient {
 
     private static final String HMAC_ALGO = "HmacSHA256";
 
-    private final BybitProperties props;
-    private final ObjectMapper    mapper;
+    private static final int RATE_LIMIT_RETRIES  = 3;
+    private static final long RATE_LIMIT_PAUSE_MS = 1_000L;
+
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+
+    private final BybitProperties  props;
+    private final ObjectMapper     mapper;
+    private final BybitRateLimiter limiter;
 
     private WebClient webClient;
     private Mac       mac;
@@ -51,96 +61,156 @@ public class BybitClient {
                 HMAC_ALGO));
     }
 
+    /* ——— РЕАКТИВНЫЙ API ——— */
+    /*
+     * Ничего не блокирует: запросы идут на event-loop WebClient, ожидание слота BybitRateLimiter —
+     * через Mono.delay. Каждая подписка — новый запрос (свежие timestamp и подпись).
+     */
+
     /** Публичный GET без подписи */
-    public Map<String, Object> publicGet(String path, Map<String, String> params) {
+    public Mono<Map<String, Object>> publicGetAsync(String path, Map<String, String> params) {
         MultiValueMap<String, String> query = new LinkedMultiValueMap<>();
         query.setAll(params);
-        return get(path, query, new TypeReference<Map<String, Object>>() {});
+        return getAsync(path, query, MAP);
     }
 
     /** Размещение Market-ордера */
-    public Map<String, Object> placeMarketOrder(String symbol, String side, String qty) {
+    public Mono<Map<String, Object>> placeMarketOrderAsync(String symbol, String side, String qty) {
         MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
         body.add("category",  "linear");
         body.add("symbol",    symbol);
         body.add("side",      side);
         body.add("orderType", "Market");
         body.add("qty",       qty);
-        return post("/v5/order/create", body, new TypeReference<Map<String, Object>>() {});
+        return postAsync("/v5/order/create", body, MAP);
+    }
+
+    /** Сырые данные свечей */
+    public Mono<Map<String, Object>> getCandlesRawAsync(String symbol, String interval, int limit) {
+        return getAsync("/v5/market/kline", klineQuery(symbol, interval, limit, null, null), MAP);
+    }
+
+    /**
+     * Свечи /v5/market/kline как есть (от новой к старой), разбор потоковым KlineDecoder.
+     * start/end (мс, включительно) — необязательные границы окна, как в бэкафилле.
+     */
+    public Mono<List<CandleDto>> getKlinesAsync(String symbol, String interval, int limit, Long start, Long end) {
+        return getAsync("/v5/market/kline", klineQuery(symbol, interval, limit, start, end), KlineDecoder::decode);
+    }
+
+    /** Закрытые свечи (без самой свежей), от новой к старой — как отдаёт Bybit. */
+    public Flux<CandleDto> getCandlesAsync(String symbol, String interval, int limit) {
+        return getKlinesAsync(symbol, interval, limit, null, null)
+                // Исключаем самую свежую (ещё не закрытую) свечу: Bybit отдаёт от новой к старой
+                .flatMapIterable(rows -> rows.subList(Math.min(1, rows.size()), rows.size()));
+    }
+
+    /* ——— БЛОКИРУЮЩИЕ АДАПТЕРЫ (для синхронных сервисов) ——— */
+
+    /** Публичный GET без подписи */
+    public Map<String, Object> publicGet(String path, Map<String, String> params) {
+        return publicGetAsync(path, params).block();
+    }
+
+    /** Размещение Market-ордера */
+    public Map<String, Object> placeMarketOrder(String symbol, String side, String qty) {
+        return placeMarketOrderAsync(symbol, side, qty).block();
     }
 
     /** Сырые данные свечей */
     public Map<String, Object> getCandlesRaw(String symbol, String interval, int limit) {
+        return getCandlesRawAsync(symbol, interval, limit).block();
+    }
+
+    /** Страница свечей в окне [start, end] (мс), от новой к старой. */
+    public List<CandleDto> getKlines(String symbol, String interval, int limit, Long start, Long end) {
+        return getKlinesAsync(symbol, interval, limit, start, end).block();
+    }
+
+    /** Преобразование в DTO */
+    public List<CandleDto> getCandles(String symbol, String interval, int limit) {
+        return getCandlesAsync(symbol, interval, limit).collectList().block();
+    }
+
+    private static MultiValueMap<String, String> klineQuery(String symbol, String interval, int limit,
+                                                            Long start, Long end) {
         MultiValueMap<String, String> q = new LinkedMultiValueMap<>();
         q.add("category", "linear");
         q.add("symbol",   symbol);
         q.add("interval", interval);
         q.add("limit",    String.valueOf(limit));
-        return get("/v5/market/kline", q, new TypeReference<Map<String, Object>>() {});
-    }
-
-    /** Преобразование в DTO */
-    @SuppressWarnings("unchecked")
-    public List<CandleDto> getCandles(String symbol, String interval, int limit) {
-        // Получаем «сырые» данные
-        Map<String, Object> raw = getCandlesRaw(symbol, interval, limit);
-        List<List<String>> rows =
-                (List<List<String>>) ((Map<?, ?>) raw.get("result")).get("list");
-
-        // Исключаем самую свежую (ещё не закрытую) свечу: Bybit отдаёт от новой к старой
-        return rows.stream()
-                .skip(1)
-                .map(r -> new CandleDto(
-                        // 0: start time in ms
-                        Long.parseLong(r.get(0)),
-                        // 1–6: open, high, low, close, volume, quoteVolume
-                        new BigDecimal(r.get(1)).doubleValue(),
-                        new BigDecimal(r.get(2)).doubleValue(),
-                        new BigDecimal(r.get(3)).doubleValue(),
-                        new BigDecimal(r.get(4)).doubleValue(),
-                        new BigDecimal(r.get(5)).doubleValue(),
-                        new BigDecimal(r.get(6)).doubleValue()
-                ))
-                .toList();
+        if (start != null) q.add("start", String.valueOf(start));
+        if (end != null)   q.add("end",   String.valueOf(end));
+        return q;
     }
 
     /* ——— НИЗКОУРОВНЕВЫЕ МЕТОДЫ ——— */
 
-    private <T> T get(String path,
-                      MultiValueMap<String, String> query,
-                      TypeReference<T> type) {
-        long ts = Instant.now().toEpochMilli();
-        String sign = sign(ts + props.getApiKey());
-
-        return webClient.get()
-                .uri(u -> u.path(path).queryParams(query).build())
-                .headers(h -> authHeaders(h, ts, sign))
-                .retrieve()
-                .bodyToMono(String.class)
-                .map(json -> read(json, type))
-                .block();
-    }
-
-    private <T> T post(String path,
-                       MultiValueMap<String, String> body,
-                       TypeReference<T> type) {
-        long ts = Instant.now().toEpochMilli();
-        String payload;
-        try {
-            payload = mapper.writeValueAsString(body.toSingleValueMap());
-        } catch (JsonProcessingException e) {
-            throw new IllegalStateException("Unable to build payload", e);
-        }
-        String sign = sign(ts + props.getApiKey() + payload);
+    /**
+     * Публичный GET через общий BybitRateLimiter: запрос уходит только в свой слот бюджета.
+     * Тело читается байтами и сразу отдаётся decoder'у (без промежуточной String).
+     * Если биржа всё же ответила 10006 — тормозим всех и повторяем (новая подпись на каждую попытку).
+     */
+    private <T> Mono<T> getAsync(String path,
+                                 MultiValueMap<String, String> query,
+                                 Function<byte[], T> decoder) {
+        return Mono.defer(() -> {
+                    long waitNanos = limiter.reserve();
+                    Mono<byte[]> request = Mono.defer(() -> {
+                        long ts = Instant.now().toEpochMilli();
+                        String sign = sign(ts + props.getApiKey());
+                        return webClient.get()
+                                .uri(u -> u.path(path).queryParams(query).build())
+                                .headers(h -> authHeaders(h, ts, sign))
+                                .retrieve()
+                                .bodyToMono(byte[].class);
+                    });
+                    return waitNanos > 0
+                            ? Mono.delay(Duration.ofNanos(waitNanos)).then(request)
+                            : request;
+                })
+                .map(decoder)
+                .retryWhen(Retry.max(RATE_LIMIT_RETRIES)
+                        .filter(e -> e instanceof BybitApiException b && b.isRateLimit())
+                        .doBeforeRetry(s -> limiter.penalize(RATE_LIMIT_PAUSE_MS))
+                        .onRetryExhaustedThrow((spec, s) -> s.failure()));
+    }
+
+    private <T> Mono<T> getAsync(String path,
+                                 MultiValueMap<String, String> query,
+                                 TypeReference<T> type) {
+        return getAsync(path, query, body -> {
+            T value = read(body, type);
+            // остальные retCode отдаём вызывающему как есть (в Map), 10006 — на повтор
+            if (value instanceof Map<?, ?> m && m.get("retCode") instanceof Number rc
+                    && rc.intValue() == BybitApiException.RATE_LIMIT) {
+                throw new BybitApiException(rc.intValue(), String.valueOf(m.get("retMsg")));
+            }
+            return value;
+        });
+    }
 
-        return webClient.post()
-                .uri(path)
-                .headers(h -> authHeaders(h, ts, sign))
-                .body(BodyInserters.fromValue(payload))
-                .retrieve()
-                .bodyToMono(String.class)
-                .map(json -> read(json, type))
-                .block();
+    private <T> Mono<T> postAsync(String path,
+                                  MultiValueMap<String, String> body,
+                                  TypeReference<T> type) {
+        return Mono.defer(() -> {
+            long ts = Instant.now().toEpochMilli();
+            String payload;
+            try {
+                payload = mapper.writeValueAsString(body.toSingleValueMap());
+            } catch (JsonProcessingException e) {
+                return Mono.error(new IllegalStateException("Unable to build payload", e));
+            }
+            String sign = sign(ts + props.getApiKey() + payload);
+
+            return webClient.post()
+                    .uri(path)
+                    .headers(h -> authHeaders(h, ts, sign))
+                    .body(BodyInserters.fromValue(payload))
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .map(json -> read(json, type));
+        });
     }
 
     /** HMAC-SHA256 подпись */
@@ -171,4 +241,12 @@ public class BybitClient {
             throw new IllegalStateException("Bad JSON: " + json, e);
         }
     }
+
+    private <T> T read(byte[] body, TypeReference<T> type) {
+        try {
+            return mapper.readValue(body, type);
+        } catch (Exception e) {
+            throw new IllegalStateException("Bad JSON: " + new String(body, StandardCharsets.UTF_8), e);
+        }
+    }
 }
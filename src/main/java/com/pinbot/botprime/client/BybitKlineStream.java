@@ -0,0 +1,76 @@
+package com.pinbot.botprime.client;
+
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.WebSocketClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Одно WS-соединение к публичному потоку Bybit v5 с подпиской на kline-топики.
+ *
+ * stream() отдаёт только закрытые свечи (confirm=true) и завершается, когда соединение закрыто;
+ * переподключение — забота вызывающего (retry/repeat). Каждая подписка на Flux — новое соединение.
+ * Без Spring-контекста, поэтому проверяется против локального WS-стаба.
+ */
+public class BybitKlineStream {
+
+    /** Bybit принимает до 10 топиков в одном subscribe. */
+    static final int TOPICS_PER_SUBSCRIBE = 10;
+    static final String PING = "{\"op\":\"ping\"}";
+
+    private final WebSocketClient client;
+    private final URI uri;
+    private final Duration pingInterval;
+
+    public BybitKlineStream(WebSocketClient client, URI uri, Duration pingInterval) {
+        this.client = client;
+        this.uri = uri;
+        this.pingInterval = pingInterval;
+    }
+
+    /** Топик Bybit для пары и интервала (API value: "30", "D", ...). */
+    public static String topic(String symbol, String interval) {
+        return "kline." + interval + "." + symbol;
+    }
+
+    public Flux<ClosedKline> stream(List<String> topics) {
+        return Flux.create(sink -> {
+            var connection = client.execute(uri, session -> {
+                        Mono<Void> input = session.receive()
+                                .doOnNext(msg -> KlineDecoder.decodeStream(msg.getPayload().asInputStream())
+                                        .forEach(sink::next))
+                                .then();
+                        Mono<Void> output = session.send(outbound(session, topics));
+                        // соединение живо, пока идёт приём; ошибка отправки (обрыв) тоже его завершает
+                        return Mono.firstWithSignal(input, output);
+                    })
+                    .subscribe(v -> { }, sink::error, sink::complete);
+            sink.onDispose(connection);
+        });
+    }
+
+    private Flux<WebSocketMessage> outbound(WebSocketSession session, List<String> topics) {
+        return Flux.concat(
+                        Flux.fromIterable(subscribeFrames(topics)),
+                        Flux.interval(pingInterval).map(i -> PING))
+                .map(session::textMessage);
+    }
+
+    static List<String> subscribeFrames(List<String> topics) {
+        List<String> frames = new ArrayList<>();
+        for (int from = 0; from < topics.size(); from += TOPICS_PER_SUBSCRIBE) {
+            List<String> chunk = topics.subList(from, Math.min(topics.size(), from + TOPICS_PER_SUBSCRIBE));
+            frames.add(chunk.stream()
+                    .map(t -> "\"" + t + "\"")
+                    .collect(Collectors.joining(",", "{\"op\":\"subscribe\",\"args\":[", "]}")));
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,69 @@
+package com.pinbot.botprime.client;
+
+import com.pinbot.botprime.config.BybitProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Общий token bucket для публичных запросов к Bybit (один на процесс = один IP).
+ *
+ * Пополняется со скоростью bybit.public-requests-per-second до bybit.public-burst.
+ * reserve() забирает токен сразу, уходя в долг, и возвращает, сколько ждать до «своего» слота —
+ * поэтому параллельные бэкафиллы встают в очередь по времени и вместе выбирают весь бюджет, не превышая его.
+ */
+@Slf4j
+@Component
+public class BybitRateLimiter {
+
+    private final double permitsPerNano;
+    private final double burst;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long refilledAt;
+
+    public BybitRateLimiter(BybitProperties props) {
+        this(props.getPublicRequestsPerSecond(), props.getPublicBurst());
+    }
+
+    BybitRateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    /** nanoClock — источник System.nanoTime() (в тестах — ручные часы). */
+    BybitRateLimiter(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    /** Берёт один токен; возвращает, сколько наносекунд подождать перед запросом (0 — можно сразу). */
+    public synchronized long reserve() {
+        refill(nanoClock.getAsLong());
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerNano);
+    }
+
+    /**
+     * Биржа ответила «слишком много запросов»: обнуляем bucket и сдвигаем следующий слот на pauseMs,
+     * чтобы все потоки разом притормозили.
+     */
+    public synchronized void penalize(long pauseMs) {
+        refill(nanoClock.getAsLong());
+        tokens = Math.min(tokens, 0) - pauseMs * TimeUnit.MILLISECONDS.toNanos(1) * permitsPerNano;
+        log.warn("BYBIT: rate limit hit, pausing public requests for {} ms", pauseMs);
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,6 @@
+package com.pinbot.botprime.client;
+
+import com.pinbot.botprime.dto.CandleDto;
+
+/** Закрытая (confirm=true) свеча из WebSocket-топика kline.{interval}.{symbol}. */
+public record ClosedKline(String symbol, String interval, CandleDto candle) {}
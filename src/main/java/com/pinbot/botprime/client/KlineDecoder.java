@@ -0,0 +1,207 @@
+package com.pinbot.botprime.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.NumberInput;
+import com.pinbot.botprime.dto.CandleDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Потоковый разбор ответа /v5/market/kline прямо из байтов тела в CandleDto.
+ *
+ * Без промежуточных String/Map/List и BigDecimal: числа читаются из буфера токена парсера
+ * (те же корректно округлённые double, что new BigDecimal(s).doubleValue()).
+ * Порядок строк — как отдаёт Bybit (от новой к старой). retCode != 0 → BybitApiException.
+ *
+ * decodeStream — то же для сообщений WebSocket-топика kline.{interval}.{symbol}: отдаёт только закрытые свечи.
+ */
+public final class KlineDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private KlineDecoder() {
+        // utility class
+    }
+
+    public static List<CandleDto> decode(byte[] body) {
+        try (JsonParser p = JSON.createParser(body)) {
+            return decode(p);
+        } catch (IOException e) {
+            throw new IllegalStateException("Bad kline JSON", e);
+        }
+    }
+
+    /**
+     * Сообщение публичного WS: {"topic":"kline.30.BTCUSDT","data":[{"start":..,"open":"..",..,"confirm":true}],..}.
+     * Служебные сообщения (ack подписки, pong) и незакрытые свечи дают пустой список.
+     */
+    public static List<ClosedKline> decodeStream(InputStream message) {
+        try (JsonParser p = JSON.createParser(message)) {
+            return decodeStream(p);
+        } catch (IOException e) {
+            throw new IllegalStateException("Bad kline stream message", e);
+        }
+    }
+
+    static List<ClosedKline> decodeStream(JsonParser p) throws IOException {
+        expect(p.nextToken(), JsonToken.START_OBJECT);
+
+        String topic = null;
+        List<CandleDto> closed = Collections.emptyList();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "topic" -> topic = p.getValueAsString();
+                case "data"  -> closed = readStreamData(p);
+                default      -> p.skipChildren();
+            }
+        }
+
+        // kline.{interval}.{symbol}
+        if (topic == null || closed.isEmpty() || !topic.startsWith("kline.")) return Collections.emptyList();
+        int dot = topic.indexOf('.', "kline.".length());
+        if (dot < 0) return Collections.emptyList();
+        String interval = topic.substring("kline.".length(), dot);
+        String symbol = topic.substring(dot + 1);
+
+        List<ClosedKline> out = new ArrayList<>(closed.size());
+        for (CandleDto c : closed) out.add(new ClosedKline(symbol, interval, c));
+        return out;
+    }
+
+    private static List<CandleDto> readStreamData(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return Collections.emptyList();
+        }
+        List<CandleDto> closed = new ArrayList<>(1);
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            long start = 0;
+            double open = 0, high = 0, low = 0, close = 0, volume = 0, turnover = 0;
+            boolean confirm = false;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken t = p.nextToken();
+                switch (field) {
+                    case "start"    -> start = t == JsonToken.VALUE_STRING
+                            ? parseLong(p.getTextCharacters(), p.getTextOffset(), p.getTextLength())
+                            : p.getLongValue();
+                    case "open"     -> open = currentDouble(p);
+                    case "high"     -> high = currentDouble(p);
+                    case "low"      -> low = currentDouble(p);
+                    case "close"    -> close = currentDouble(p);
+                    case "volume"   -> volume = currentDouble(p);
+                    case "turnover" -> turnover = currentDouble(p);
+                    case "confirm"  -> confirm = t == JsonToken.VALUE_TRUE;
+                    default         -> p.skipChildren();
+                }
+            }
+            if (confirm) closed.add(new CandleDto(start, open, high, low, close, volume, turnover));
+        }
+        return closed;
+    }
+
+    static List<CandleDto> decode(JsonParser p) throws IOException {
+        expect(p.nextToken(), JsonToken.START_OBJECT);
+
+        int retCode = 0;
+        String retMsg = null;
+        List<CandleDto> rows = Collections.emptyList();
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "retCode" -> retCode = p.getValueAsInt();
+                case "retMsg"  -> retMsg = p.getValueAsString();
+                case "result"  -> rows = readResult(p);
+                default        -> p.skipChildren();
+            }
+        }
+
+        if (retCode != 0) throw new BybitApiException(retCode, retMsg);
+        return rows;
+    }
+
+    private static List<CandleDto> readResult(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return Collections.emptyList();
+        }
+        List<CandleDto> rows = Collections.emptyList();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if ("list".equals(field)) rows = readList(p);
+            else p.skipChildren();
+        }
+        return rows;
+    }
+
+    /** [[startMs, open, high, low, close, volume, quoteVolume], ...] — все значения строками. */
+    private static List<CandleDto> readList(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return Collections.emptyList();
+        }
+        List<CandleDto> rows = new ArrayList<>(1000);
+        while (p.nextToken() == JsonToken.START_ARRAY) {
+            long startMs = nextLong(p);
+            double open  = nextDouble(p);
+            double high  = nextDouble(p);
+            double low   = nextDouble(p);
+            double close = nextDouble(p);
+            double volume      = nextDouble(p);
+            double quoteVolume = nextDouble(p);
+            // лишние поля, если Bybit их добавит
+            while (p.nextToken() != JsonToken.END_ARRAY) p.skipChildren();
+
+            rows.add(new CandleDto(startMs, open, high, low, close, volume, quoteVolume));
+        }
+        return rows;
+    }
+
+    private static long nextLong(JsonParser p) throws IOException {
+        JsonToken t = p.nextToken();
+        if (t == JsonToken.VALUE_NUMBER_INT) return p.getLongValue();
+        expect(t, JsonToken.VALUE_STRING);
+        return parseLong(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+    }
+
+    private static double nextDouble(JsonParser p) throws IOException {
+        p.nextToken();
+        return currentDouble(p);
+    }
+
+    private static double currentDouble(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NUMBER_FLOAT || t == JsonToken.VALUE_NUMBER_INT) return p.getDoubleValue();
+        expect(t, JsonToken.VALUE_STRING);
+        return NumberInput.parseDouble(p.getTextCharacters(), p.getTextOffset(), p.getTextLength(), true);
+    }
+
+    /** Целое без знака (время в мс), без создания String. */
+    private static long parseLong(char[] buf, int off, int len) {
+        if (len == 0 || len > 18) throw new NumberFormatException(new String(buf, off, len));
+        long v = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            int d = buf[i] - '0';
+            if (d < 0 || d > 9) throw new NumberFormatException(new String(buf, off, len));
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new IllegalStateException("Bad kline JSON: expected " + expected + " but got " + actual);
+        }
+    }
+}
@@ -25,10 +25,24 @@ public class BybitProperties {
     /** Базовый URL (по умолчанию — prod REST-endpoint). */
     private String baseUrl = "https://api.bybit.com";
 
+    /** Публичный WebSocket (linear) для потока свечей. */
+    private String wsPublicUrl = "wss://stream.bybit.com/v5/public/linear";
+
     /**
      * Max-время (мс) между подписью и приёмом запроса на стороне Bybit.
      * По докам default = 5000 ms.
      */
     @Positive
     private long recvWindow = 5_000L;
+
+    /**
+     * Бюджет публичных GET (свечи, бэкафилл) в запросах/сек — скорость пополнения token bucket.
+     * Лимит Bybit — 600 запросов за 5 с на IP; burst + 5 * rate должно укладываться в 600.
+     */
+    @Positive
+    private double publicRequestsPerSecond = 100;
+
+    /** Ёмкость bucket: сколько запросов можно отправить подряд после простоя. */
+    @Positive
+    private int publicBurst = 50;
 }
@@ -15,11 +15,17 @@ public class CandleSyncController {
     /**
      * Обновить свечи по ВСЕМ tracked-symbol'ам (догрузка + обновление последних свечей за счёт UPSERT).
      *
-     * POST /api/candles/refresh/all?limit=1000
+     * Символы обновляются параллельно, не больше maxInFlight одновременно
+     * (по умолчанию и не больше bot.candles.refresh.max-in-flight и размера пула соединений; 1 — последовательно).
+     *
+     * POST /api/candles/refresh/all?limit=1000&maxInFlight=8
      */
     @PostMapping("/refresh/all")
-    public CandleSyncService.RefreshSummary refreshAll(@RequestParam(required = false) Integer limit) {
-        return service.refreshAll(limit);
+    public CandleSyncService.RefreshSummary refreshAll(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer maxInFlight
+    ) {
+        return service.refreshAll(limit, maxInFlight);
     }
 
     /**
@@ -38,8 +44,9 @@ public class CandleSyncController {
 
     /**
      * Бэкафилл по ВСЕМ tracked-symbol'ам на N лет назад.
+     * Символы грузятся параллельно, темп — общий лимит запросов Bybit; sleepMs — доп. пауза (по умолчанию 0).
      *
-     * POST /api/candles/backfill/all?years=2&batch=1000&sleepMs=300
+     * POST /api/candles/backfill/all?years=2&batch=1000
      */
     @PostMapping("/backfill/all")
     public CandleSyncService.BackfillSummary backfillAll(
@@ -53,7 +60,7 @@ public class CandleSyncController {
     /**
      * Бэкафилл для одной монеты, только если она есть в tracked list.
      *
-     * POST /api/candles/backfill?symbol=ETHUSDT&timeframe=_30&years=2&batch=1000&sleepMs=300
+     * POST /api/candles/backfill?symbol=ETHUSDT&timeframe=_30&years=2&batch=1000
      */
     @PostMapping("/backfill")
     public CandleSyncService.BackfillItem backfillOne(
@@ -0,0 +1,73 @@
+package com.pinbot.botprime.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Свечи одной пары (symbol, timeframe) колонками примитивов, по возрастанию времени.
+ *
+ * Заполняется построчно из JDBC-курсора (append) и дальше только читается.
+ * Используется вместо List<CandleEntity>/List<Candle>, чтобы пересчёт индикаторов по всей истории
+ * держал в памяти 7 примитивов на бар, а не несколько объектов.
+ */
+public final class CandleColumns {
+
+    private int size;
+    private long[] time;
+    private double[] open, high, low, close, volume, quoteVolume;
+
+    public CandleColumns(int expectedSize) {
+        int c = Math.max(16, expectedSize);
+        time = new long[c];
+        open = new double[c]; high = new double[c]; low = new double[c]; close = new double[c];
+        volume = new double[c]; quoteVolume = new double[c];
+    }
+
+    public void add(long openTimeMs, double o, double h, double l, double c, double v, double q) {
+        if (size == time.length) grow();
+        int i = size++;
+        time[i] = openTimeMs;
+        open[i] = o; high[i] = h; low[i] = l; close[i] = c;
+        volume[i] = v; quoteVolume[i] = q;
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public long time(int i)          { return time[i]; }
+    public double open(int i)        { return open[i]; }
+    public double high(int i)        { return high[i]; }
+    public double low(int i)         { return low[i]; }
+    public double close(int i)       { return close[i]; }
+    public double volume(int i)      { return volume[i]; }
+    public double quoteVolume(int i) { return quoteVolume[i]; }
+
+    /** (high + low) / 2, как Candle.getHL2(). */
+    public double hl2(int i) { return (high[i] + low[i]) / 2.0; }
+
+    /** Копия колонки close длиной size(). */
+    public double[] closes() { return Arrays.copyOf(close, size); }
+
+    /** Колонка hl2 длиной size(). */
+    public double[] hl2s() {
+        double[] out = new double[size];
+        for (int i = 0; i < size; i++) out[i] = hl2(i);
+        return out;
+    }
+
+    /** То же значение, что вернёт rs.getDouble() после записи double в NUMERIC(18,8). */
+    public static double numeric8(double v) {
+        BigDecimal d = BigDecimal.valueOf(v);
+        return d.scale() > 8 ? d.setScale(8, RoundingMode.HALF_UP).doubleValue() : v;
+    }
+
+    private void grow() {
+        int c = time.length + (time.length >> 1);
+        time = Arrays.copyOf(time, c);
+        open = Arrays.copyOf(open, c); high = Arrays.copyOf(high, c);
+        low = Arrays.copyOf(low, c); close = Arrays.copyOf(close, c);
+        volume = Arrays.copyOf(volume, c); quoteVolume = Arrays.copyOf(quoteVolume, c);
+    }
+}
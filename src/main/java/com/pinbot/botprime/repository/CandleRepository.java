@@ -9,7 +9,7 @@ import org.springframework.data.repository.query.Param;
 import java.time.Instant;
 import java.util.List;
 
-public interface CandleRepository extends JpaRepository<CandleEntity, CandlePk> {
+public interface CandleRepository extends JpaRepository<CandleEntity, CandlePk>, CandleRepositoryCustom {
 
     @Query("""
            SELECT MAX(c.id.openTime)
@@ -29,6 +29,18 @@ public interface CandleRepository extends JpaRepository<CandleEntity, CandlePk>
     Instant findMinOpenTime(@Param("symbol") String symbol,
                             @Param("timeframe") String timeframe);
 
+    /** Число свечей пары с open_time <= upTo: отпечаток уже обсчитанного участка истории. */
+    @Query("""
+           SELECT COUNT(c)
+             FROM CandleEntity c
+            WHERE c.id.symbol = :symbol
+              AND c.id.timeframe = :timeframe
+              AND c.id.openTime <= :upTo
+           """)
+    long countUpTo(@Param("symbol") String symbol,
+                   @Param("timeframe") String timeframe,
+                   @Param("upTo") Instant upTo);
+
     @Query("""
            SELECT c
              FROM CandleEntity c
@@ -0,0 +1,9 @@
+package com.pinbot.botprime.repository;
+
+import com.pinbot.botprime.dto.CandleDto;
+import java.util.List;
+
+public interface CandleRepositoryCustom {
+    /** Upsert в btc_30m_history без JPA (merge/select-before-insert). Возвращает число вставленных/обновлённых строк. */
+    int upsertCandles(String symbol, String timeframe, List<CandleDto> candles);
+}
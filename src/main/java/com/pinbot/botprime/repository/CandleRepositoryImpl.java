@@ -0,0 +1,86 @@
+package com.pinbot.botprime.repository;
+
+import com.pinbot.botprime.dto.CandleDto;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CandleRepositoryImpl implements CandleRepositoryCustom {
+
+    private final JdbcTemplate jdbc;
+
+    // Тот же set-based путь, что и у DynamicCandleStorage: одна пачка → один INSERT ... FROM unnest.
+    // ::text::numeric даёт то же значение, что BigDecimal.valueOf(double) в CandleMapper.
+    private static final String UPSERT_SQL = """
+        INSERT INTO btc_30m_history
+          (symbol, timeframe, open_time, close_time,
+           open, high, low, close, volume, quote_volume)
+        SELECT DISTINCT ON (t.open_time)
+               ?::text, ?::text, t.open_time, t.open_time AS close_time,
+               open::text::numeric, high::text::numeric, low::text::numeric, close::text::numeric,
+               volume::text::numeric, quote_volume::text::numeric
+        FROM unnest(?::timestamp[], ?::float8[], ?::float8[], ?::float8[], ?::float8[], ?::float8[], ?::float8[])
+          WITH ORDINALITY AS t(open_time, open, high, low, close, volume, quote_volume, seq)
+        ORDER BY t.open_time, t.seq DESC
+        ON CONFLICT (symbol, timeframe, open_time) DO UPDATE
+        SET close_time   = EXCLUDED.close_time,
+            open         = EXCLUDED.open,
+            high         = EXCLUDED.high,
+            low          = EXCLUDED.low,
+            close        = EXCLUDED.close,
+            volume       = EXCLUDED.volume,
+            quote_volume = EXCLUDED.quote_volume
+        """;
+
+    @Override
+    @Transactional
+    public int upsertCandles(String symbol, String timeframe, List<CandleDto> candles) {
+        if (candles == null || candles.isEmpty()) return 0;
+
+        final int CHUNK = 2000;
+        int sum = 0;
+        for (int off = 0; off < candles.size(); off += CHUNK) {
+            List<CandleDto> part = candles.subList(off, Math.min(off + CHUNK, candles.size()));
+
+            sum += jdbc.update(con -> {
+                int n = part.size();
+                Timestamp[] openTime = new Timestamp[n];
+                double[] open = new double[n], high = new double[n], low = new double[n], close = new double[n];
+                double[] volume = new double[n], quoteVolume = new double[n];
+                for (int i = 0; i < n; i++) {
+                    CandleDto c = part.get(i);
+                    openTime[i] = Timestamp.from(Instant.ofEpochMilli(c.getStartMs()));
+                    open[i] = c.getOpen();
+                    high[i] = c.getHigh();
+                    low[i] = c.getLow();
+                    close[i] = c.getClose();
+                    volume[i] = c.getVolume();
+                    quoteVolume[i] = c.getQuoteVolume();
+                }
+
+                PGConnection pg = con.unwrap(PGConnection.class);
+                PreparedStatement ps = con.prepareStatement(UPSERT_SQL);
+                ps.setString(1, symbol);
+                ps.setString(2, timeframe);
+                ps.setArray(3, con.createArrayOf("timestamp", openTime));
+                ps.setArray(4, pg.createArrayOf("float8", open));
+                ps.setArray(5, pg.createArrayOf("float8", high));
+                ps.setArray(6, pg.createArrayOf("float8", low));
+                ps.setArray(7, pg.createArrayOf("float8", close));
+                ps.setArray(8, pg.createArrayOf("float8", volume));
+                ps.setArray(9, pg.createArrayOf("float8", quoteVolume));
+                return ps;
+            });
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,92 @@
+package com.pinbot.botprime.repository;
+
+import com.pinbot.botprime.model.CandleColumns;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Потоковое чтение btc_30m_history мимо JPA.
+ *
+ * Forward-only курсор с fetchSize: PostgreSQL-драйвер отдаёт строки порциями (нужна открытая транзакция,
+ * иначе при autocommit он выкачает весь результат сразу). Строки сразу раскладываются в CandleColumns —
+ * ни CandleEntity в persistence context, ни промежуточных списков.
+ */
+@Repository
+public class CandleStreamDao {
+
+    private static final int FETCH_SIZE = 5_000;
+
+    private static final String SELECT_COLUMNS = """
+        SELECT open_time, open, high, low, close, volume, quote_volume
+          FROM public.btc_30m_history
+         WHERE symbol = ? AND timeframe = ?
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    public CandleStreamDao(JdbcTemplate jdbc) { this.jdbc = jdbc; }
+
+    /** Вся история пары по возрастанию open_time. */
+    public CandleColumns loadAsc(String symbol, String timeframe) {
+        Integer n = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM public.btc_30m_history WHERE symbol = ? AND timeframe = ?",
+                Integer.class, symbol, timeframe);
+        return stream(SELECT_COLUMNS + " ORDER BY open_time ASC", n == null ? 0 : n,
+                symbol, timeframe, null);
+    }
+
+    /**
+     * Границы истории пары — дешёвая проверка актуальности копий (архив свечей).
+     * MIN и MAX отдельными подзапросами: каждый — один шаг по индексу (symbol, timeframe, open_time),
+     * без прохода по всем строкам, как было бы с COUNT(*).
+     */
+    public Extent extent(String symbol, String timeframe) {
+        return jdbc.queryForObject("""
+                SELECT (SELECT MIN(open_time) FROM public.btc_30m_history WHERE symbol = ? AND timeframe = ?),
+                       (SELECT MAX(open_time) FROM public.btc_30m_history WHERE symbol = ? AND timeframe = ?)
+                """, (rs, i) -> {
+            Timestamp first = rs.getTimestamp(1);
+            Timestamp last = rs.getTimestamp(2);
+            return new Extent(
+                    first == null ? 0 : first.toInstant().toEpochMilli(),
+                    last == null ? 0 : last.toInstant().toEpochMilli());
+        }, symbol, timeframe, symbol, timeframe);
+    }
+
+    public record Extent(long firstMs, long lastMs) { }
+
+    /** Свечи строго после after (по возрастанию open_time). */
+    public CandleColumns loadAfterAsc(String symbol, String timeframe, Instant after) {
+        return stream(SELECT_COLUMNS + "   AND open_time > ?\n ORDER BY open_time ASC", 16,
+                symbol, timeframe, after);
+    }
+
+    private CandleColumns stream(String sql, int expectedSize, String symbol, String timeframe, Instant after) {
+        CandleColumns out = new CandleColumns(expectedSize);
+        RowCallbackHandler rch = rs -> out.add(
+                rs.getTimestamp(1).toInstant().toEpochMilli(),
+                rs.getDouble(2),
+                rs.getDouble(3),
+                rs.getDouble(4),
+                rs.getDouble(5),
+                rs.getDouble(6),
+                rs.getDouble(7)
+        );
+
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setString(1, symbol);
+            ps.setString(2, timeframe);
+            if (after != null) ps.setTimestamp(3, Timestamp.from(after));
+            return ps;
+        }, rch);
+        return out;
+    }
+}
@@ -39,9 +39,9 @@ public class IndicatorScheduler {
         log.info("▶️ CRON: computeIndicators30m() — ждём 1.5 сек, чтобы получить закрытую свечу");
         sleepBeforeFetch();
 
-        // Загружаем свежие свечи и считаем индикаторы
+        // Загружаем свежие свечи и досчитываем индикаторы только по новым барам
         candleUpdateService.updateCandles(symbol, tf30m, limit);
-        indicatorComputeService.computeAndLog(symbol, tf30m);
+        indicatorComputeService.computeIncremental(symbol, tf30m);
     }
 
     /**
@@ -57,7 +57,7 @@ public class IndicatorScheduler {
         candleUpdateService.updateCandles(symbol, tf30m, limit);
 
         // Считаем индикаторы по 2h таймфрейму
-        indicatorComputeService.computeAndLog(symbol, tf2h);
+        indicatorComputeService.computeIncremental(symbol, tf2h);
     }
 
     /**
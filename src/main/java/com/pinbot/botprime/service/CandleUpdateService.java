@@ -1,22 +1,18 @@
 package com.pinbot.botprime.service;
 
+import com.pinbot.botprime.archive.CandleArchiveService;
 import com.pinbot.botprime.client.BybitClient;
 import com.pinbot.botprime.dto.CandleDto;
-import com.pinbot.botprime.mapper.CandleMapper;
-import com.pinbot.botprime.persistence.CandleEntity;
 import com.pinbot.botprime.repository.CandleRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -25,11 +21,12 @@ public class CandleUpdateService {
 
     private final CandleRepository candleRepository;
     private final BybitClient bybitClient;
-    private final CandleMapper candleMapper;
+    private final CandleArchiveService archive;
+    private final RecentBarsCache recentBars;
 
     /**
-     * Догружает исторические свечи за последние ТРИ года пачками по 1000,
-     * делая паузу 500 мс между запросами.
+     * Догружает исторические свечи за последние ТРИ года пачками по 1000;
+     * темп запросов задаёт BybitRateLimiter внутри BybitClient.
      * (Метод оставлен для совместимости, теперь грузит 2 года.)
      */
     @Transactional
@@ -51,6 +48,10 @@ public class CandleUpdateService {
                 .toInstant()
                 .toEpochMilli();
 
+        // итог в лог — по нему сравнивается время бэкфилла (upsertCandles против прежнего saveAll)
+        final long started = System.nanoTime();
+        long total = 0;
+
         while (true) {
             // самая старая свеча в БД
             Instant oldestInDb = candleRepository.findMinOpenTime(symbol, timeframe);
@@ -67,56 +68,26 @@ public class CandleUpdateService {
                     Instant.ofEpochMilli(endExclusive),
                     years);
 
-            Map<String, String> params = Map.of(
-                    "category", "linear",
-                    "symbol", symbol,
-                    "interval", timeframe,
-                    "limit", String.valueOf(BATCH),
-                    "start", String.valueOf(startInclusive),
-                    "end", String.valueOf(endExclusive - 1) // inclusive
-            );
-
-            Map<String, Object> raw = bybitClient.publicGet("/v5/market/kline", params);
-            @SuppressWarnings("unchecked")
-            List<List<String>> rows = (List<List<String>>) ((Map<?, ?>) raw.get("result")).get("list");
-            if (rows == null || rows.isEmpty()) {
+            List<CandleDto> dtos = bybitClient.getKlines(symbol, timeframe, BATCH,
+                    startInclusive, endExclusive - 1); // end inclusive
+            if (dtos == null || dtos.isEmpty()) {
                 log.info("No more data, backfill finished");
                 break;
             }
 
-            List<CandleDto> dtos = rows.stream()
-                    .map(r -> new CandleDto(
-                            Long.parseLong(r.get(0)),
-                            new BigDecimal(r.get(1)).doubleValue(),
-                            new BigDecimal(r.get(2)).doubleValue(),
-                            new BigDecimal(r.get(3)).doubleValue(),
-                            new BigDecimal(r.get(4)).doubleValue(),
-                            new BigDecimal(r.get(5)).doubleValue(),
-                            new BigDecimal(r.get(6)).doubleValue()
-                    ))
-                    .toList();
-
-            List<CandleEntity> toSave = dtos.stream()
-                    .map(d -> candleMapper.toEntity(symbol, timeframe, d))
-                    .collect(Collectors.toList());
-
-            candleRepository.saveAll(toSave);
-            log.info("Saved {} candles", toSave.size());
+            int saved = candleRepository.upsertCandles(symbol, timeframe, dtos);
+            total += saved;
+            log.info("Saved {} candles", saved);
 
             // Достигли отсечки N лет назад — заканчиваем
             if (startInclusive <= CUTOFF) {
                 log.info("Reached {} years ago, backfill complete", years);
                 break;
             }
-
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.warn("Backfill sleep interrupted");
-                break;
-            }
         }
+
+        log.info("Backfill {} {} ({}y): {} candles upserted in {} ms",
+                symbol, timeframe, years, total, (System.nanoTime() - started) / 1_000_000);
     }
 
     /**
@@ -128,13 +99,14 @@ public class CandleUpdateService {
             Instant last = candleRepository.findMaxOpenTime(symbol, timeframe);
             List<CandleDto> dtos = bybitClient.getCandles(symbol, timeframe, limit);
 
-            List<CandleEntity> toSave = dtos.stream()
-                    .map(dto -> candleMapper.toEntity(symbol, timeframe, dto))
-                    .filter(e -> last == null || e.getId().getOpenTime().isAfter(last))
-                    .collect(Collectors.toList());
+            List<CandleDto> toSave = dtos.stream()
+                    .filter(dto -> last == null || dto.getStartMs() > last.toEpochMilli())
+                    .toList();
 
             if (!toSave.isEmpty()) {
-                candleRepository.saveAll(toSave);
+                candleRepository.upsertCandles(symbol, timeframe, toSave);
+                archive.appendIngested(symbol, timeframe, toSave);
+                recentBars.putCandles(symbol, timeframe, toSave);
                 log.info("BYBIT: ✅ Загружено и сохранено {} новых свечей для {} {}",
                         toSave.size(), symbol, timeframe);
             } else {
@@ -1,19 +1,23 @@
 package com.pinbot.botprime.service;
 
-import com.pinbot.botprime.model.Candle;
+import com.pinbot.botprime.archive.CandleArchiveService;
+import com.pinbot.botprime.model.CandleColumns;
 import com.pinbot.botprime.persistence.IndicatorValueEntity;
 import com.pinbot.botprime.repository.CandleRepository;
+import com.pinbot.botprime.repository.CandleStreamDao;
 import com.pinbot.botprime.repository.IndicatorValueRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.pinbot.botprime.service.IndicatorUtils.*;
 
@@ -23,102 +27,172 @@ import static com.pinbot.botprime.service.IndicatorUtils.*;
 public class IndicatorComputeService {
 
     private final CandleRepository candleRepository;
+    private final CandleStreamDao candleStream;
+    private final CandleArchiveService archive;
+    private final RecentBarsCache recentBars;
     private final IndicatorValueRepository indicatorRepo;
+    private final ApplicationEventPublisher events;
 
-    @Transactional
+    private final PlatformTransactionManager txManager;
+
+    /** Бегущее состояние по (symbol, timeframe) для инкрементального пересчёта; объект на ключ не меняется. */
+    private final Map<String, IndicatorState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Монитор пары: один объект на ключ на всё время жизни сервиса.
+     * Под ним идёт вся транзакция пересчёта вместе с коммитом, так что два тика одной пары
+     * (планировщик и WebSocket) не читают и не пишут состояние/строки вперемешку.
+     */
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Инкрементальный пересчёт: продвигаем состояние только на новые закрытые бары
+     * и пишем только изменившиеся строки (новые + строки открытой 2h-группы).
+     * Тик стоит O(новых баров), а не O(истории).
+     *
+     * Состояние живёт в памяти: после рестарта, при первом вызове или если в уже обсчитанном участке
+     * истории изменилось число свечей (бэкафилл в начало или в дыру посередине) — одноразовый полный
+     * проход тем же движком. Отпечаток участка — COUNT свечей с open_time <= lastTime против state.bars().
+     * Если транзакция не закоммитилась, состояние сбрасывается, следующий тик пересоберёт его.
+     */
+    public void computeIncremental(String symbol, String timeframe) {
+        String key = key(symbol, timeframe);
+        synchronized (lock(key)) {
+            IndicatorState state = states.computeIfAbsent(key, k -> new IndicatorState(symbol, timeframe));
+            try {
+                new TransactionTemplate(txManager).executeWithoutResult(status -> advanceAndStore(state));
+            } catch (RuntimeException e) {
+                state.reset();
+                throw e;
+            }
+        }
+    }
+
+    private void advanceAndStore(IndicatorState state) {
+        String symbol = state.symbol, timeframe = state.timeframe;
+        CandleColumns fresh;
+        boolean rebuild = state.bars() == 0
+                || candleRepository.countUpTo(symbol, timeframe, Instant.ofEpochMilli(state.lastTime())) != state.bars();
+
+        if (rebuild) {
+            if (state.bars() > 0) {
+                log.info("INDICATORS: history changed for {} {}, rebuilding state", symbol, timeframe);
+                state.reset();
+            }
+            fresh = loadHistory(symbol, timeframe);
+            recentBars.seedCandles(symbol, timeframe, fresh);
+        } else {
+            // новые бары обычно уже в горячем окне (их туда положил ingest)
+            fresh = recentBars.candlesAfter(symbol, timeframe, state.lastTime());
+            if (fresh == null) {
+                fresh = candleStream.loadAfterAsc(symbol, timeframe, Instant.ofEpochMilli(state.lastTime()));
+                recentBars.seedCandles(symbol, timeframe, fresh);
+            }
+        }
+
+        if (fresh.isEmpty()) {
+            log.info("INDICATORS: no new candles for {} {}", symbol, timeframe);
+            return;
+        }
+
+        List<IndicatorValueEntity> changed = state.advance(fresh);
+
+        indicatorRepo.upsertBatchArrays(changed);
+        recentBars.putIndicators(symbol, timeframe, changed);
+        long fromMs = changed.stream().mapToLong(r -> r.getOpen_time().toEpochMilli()).min().orElse(state.lastTime());
+        events.publishEvent(new IndicatorsUpdatedEvent(symbol, timeframe, changed.size(), fromMs));
+
+        log.info("INDICATORS: incremental {} {}: +{} bars, upserted {} rows (state: {} bars)",
+                symbol, timeframe, fresh.size(), changed.size(), state.bars());
+    }
+
+    /**
+     * Полный пересчёт по всей истории (bootstrap / ручной запуск).
+     * Бегущее состояние сбрасывается — следующий инкрементальный тик соберёт его заново.
+     * Под тем же монитором пары, что и computeIncremental.
+     *
+     * Свечи читаются из файлового архива (если он совпадает с БД) или потоковым курсором
+     * прямо в колонки примитивов (CandleStreamDao), без CandleEntity в persistence context.
+     */
     public void computeAndStore(String symbol, String timeframe) {
+        String key = key(symbol, timeframe);
+        synchronized (lock(key)) {
+            IndicatorState state = states.get(key);
+            if (state != null) state.reset();
+            new TransactionTemplate(txManager).executeWithoutResult(status -> recomputeAndStore(symbol, timeframe));
+        }
+    }
+
+    private void recomputeAndStore(String symbol, String timeframe) {
         log.info("INDICATORS: start compute symbol={} tf={}", symbol, timeframe);
 
-        List<Candle> candles = loadCandles(symbol, timeframe);
+        CandleColumns candles = loadHistory(symbol, timeframe);
+        recentBars.seedCandles(symbol, timeframe, candles);
         if (candles.isEmpty()) {
             log.warn("INDICATORS: no candles found for {} {}", symbol, timeframe);
             return;
         }
 
-        // 1. 30-минутные индикаторы
-        List<Double> closes = candles.stream().map(Candle::getClose).toList();
-        List<Double> hl2    = candles.stream().map(Candle::getHL2).toList();
+        List<IndicatorValueEntity> rows = computeRows(symbol, timeframe, candles);
+
+        // 6. Upsert
+        indicatorRepo.upsertBatchArrays(rows);
+        recentBars.seedIndicators(symbol, timeframe, rows);
+        events.publishEvent(new IndicatorsUpdatedEvent(symbol, timeframe, rows.size(), candles.time(0)));
+
+        log.info("INDICATORS: upserted {} rows for {} {}", rows.size(), symbol, timeframe);
+    }
 
-        List<Double> ema11  = ema(closes, 11);
-        List<Double> ema30  = ema(closes, 30);
-        List<Double> ema110 = ema(closes, 110);
-        List<Double> ema200 = ema(closes, 200);
-        List<Double> tema9  = sma(tema(hl2, 9), 10);
+    /** Строки индикаторов по всей истории пары за один проход массивами (эталон для IndicatorState). */
+    static List<IndicatorValueEntity> computeRows(String symbol, String timeframe, CandleColumns candles) {
+        final int n = candles.size();
+
+        // 1. 30-минутные индикаторы
+        double[] closes = candles.closes();
+        double[] ema11  = ema(closes, 11);
+        double[] ema30  = ema(closes, 30);
+        double[] ema110 = ema(closes, 110);
+        double[] ema200 = ema(closes, 200);
+        double[] tema9  = tema(candles.hl2s(), 9);
+        sma(tema9, 10, tema9);
 
         // 2. 2-часовые индикаторы
-        List<Candle> candles2h = aggregateTo2h(candles);
-        List<Double> closes2h  = candles2h.stream().map(Candle::getClose).toList();
-        List<Double> rsi2h     = rsi(closes2h, 14);
-        List<Double> smaRsi2h  = sma(rsi2h, 20);
-
-        // 3. Сопоставление 30-м свечей с 2-часовыми
-        Map<Long, Double> rsiMap = new HashMap<>();
-        Map<Long, Double> smaMap = new HashMap<>();
-        for (int i = 0; i < candles2h.size(); i++) {
-            long groupTime = floorTo2h(candles2h.get(i).getTime());
-            rsiMap.put(groupTime, safe(rsi2h.get(i)));
-            smaMap.put(groupTime, safe(smaRsi2h.get(i)));
-        }
+        Bars2h candles2h = aggregateTo2h(candles);
+        double[] rsi2h    = rsi(candles2h.closes, 14);
+        double[] smaRsi2h = sma(rsi2h, 20);
 
-        // 4. Сбор IndicatorValueEntity (без импульса на этом этапе)
-        List<IndicatorValueEntity> rows = new ArrayList<>();
-        for (int i = 0; i < candles.size(); i++) {
-            Candle c = candles.get(i);
-            long groupTime = floorTo2h(c.getTime());
-            double rsiVal = rsiMap.getOrDefault(groupTime, -1.0);
-            double smaVal = smaMap.getOrDefault(groupTime, -1.0);
+        // 3+4. Сбор IndicatorValueEntity; 2h-значение берём по индексу группы бара (-1, если группа неполная)
+        List<IndicatorValueEntity> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int g = candles2h.groupOfBar[i];
+            double rsiVal = g >= 0 ? rsi2h[g] : -1.0;
+            double smaVal = g >= 0 ? smaRsi2h[g] : -1.0;
 
             rows.add(IndicatorValueEntity.builder()
                     .symbol(symbol)
                     .timeframe(timeframe)
-                    .open_time(Instant.ofEpochMilli(c.getTime()))
+                    .open_time(Instant.ofEpochMilli(candles.time(i)))
                     // OHLCV — BigDecimal
-                    .open(BigDecimal.valueOf(c.getOpen()))
-                    .high(BigDecimal.valueOf(c.getHigh()))
-                    .low(BigDecimal.valueOf(c.getLow()))
-                    .close(BigDecimal.valueOf(c.getClose()))
-                    .volume(BigDecimal.valueOf(c.getVolume()))
-                    .quoteVolume(BigDecimal.valueOf(c.getQuoteVolume()))
+                    .open(BigDecimal.valueOf(candles.open(i)))
+                    .high(BigDecimal.valueOf(candles.high(i)))
+                    .low(BigDecimal.valueOf(candles.low(i)))
+                    .close(BigDecimal.valueOf(candles.close(i)))
+                    .volume(BigDecimal.valueOf(candles.volume(i)))
+                    .quoteVolume(BigDecimal.valueOf(candles.quoteVolume(i)))
                     // Индикаторы — Double
-                    .ema11(safeD(ema11.get(i)))
-                    .ema30(safeD(ema30.get(i)))
-                    .ema110(safeD(ema110.get(i)))
-                    .ema200(safeD(ema200.get(i)))
-                    .tema9(safeD(tema9.get(i)))
-                    .rsi2h(safeD(rsiVal))
-                    .smaRsi2h(safeD(smaVal))
+                    .ema11(ema11[i])
+                    .ema30(ema30[i])
+                    .ema110(ema110[i])
+                    .ema200(ema200[i])
+                    .tema9(tema9[i])
+                    .rsi2h(rsiVal)
+                    .smaRsi2h(smaVal)
                     .build());
         }
 
         // 5. Рассчитываем и проставляем импульсные свечи (is_impulse) по ТЗ
         applyImpulseFlags(rows, candles);
-
-        // 6. Upsert
-        // (ниже сбор коллекций оставлен для совместимости, если внутри repo используется)
-        List<String> symbols      = rows.stream().map(IndicatorValueEntity::getSymbol).toList();
-        List<String> timeframes   = rows.stream().map(IndicatorValueEntity::getTimeframe).toList();
-        List<Instant> openTimes   = rows.stream().map(IndicatorValueEntity::getOpen_time).toList();
-        List<BigDecimal> opens    = rows.stream().map(IndicatorValueEntity::getOpen).toList();
-        List<BigDecimal> highs    = rows.stream().map(IndicatorValueEntity::getHigh).toList();
-        List<BigDecimal> lows     = rows.stream().map(IndicatorValueEntity::getLow).toList();
-        List<BigDecimal> closeValues = rows.stream().map(IndicatorValueEntity::getClose).toList();
-        List<BigDecimal> volumes  = rows.stream().map(IndicatorValueEntity::getVolume).toList();
-        List<BigDecimal> quoteVol = rows.stream().map(IndicatorValueEntity::getQuoteVolume).toList();
-        List<Double> ema11s       = rows.stream().map(IndicatorValueEntity::getEma11).toList();
-        List<Double> ema30s       = rows.stream().map(IndicatorValueEntity::getEma30).toList();
-        List<Double> ema110s      = rows.stream().map(IndicatorValueEntity::getEma110).toList();
-        List<Double> ema200s      = rows.stream().map(IndicatorValueEntity::getEma200).toList();
-        List<Double> tema9s       = rows.stream().map(IndicatorValueEntity::getTema9).toList();
-        List<Double> rsi2hs       = rows.stream().map(IndicatorValueEntity::getRsi2h).toList();
-        List<Double> smaRsi2hs    = rows.stream().map(IndicatorValueEntity::getSmaRsi2h).toList();
-
-        indicatorRepo.upsertBatchArrays(rows);
-
-        log.info("INDICATORS: upserted {} rows for {} {}", rows.size(), symbol, timeframe);
-    }
-
-    private static Double safeD(Double v) {
-        return v == null ? -1d : v;
+        return rows;
     }
 
     // для совместимости
@@ -128,6 +202,24 @@ public class IndicatorComputeService {
 
     /* ---------- helpers ---------- */
 
+    private static String key(String symbol, String timeframe) {
+        return symbol + "|" + timeframe;
+    }
+
+    private Object lock(String key) {
+        return locks.computeIfAbsent(key, k -> new Object());
+    }
+
+    /** Вся история пары: архив, если он актуален, иначе БД (и архив пересобирается из прочитанного). */
+    private CandleColumns loadHistory(String symbol, String timeframe) {
+        CandleColumns archived = archive.loadIfCurrent(symbol, timeframe);
+        if (archived != null) return archived;
+
+        CandleColumns fromDb = candleStream.loadAsc(symbol, timeframe);
+        if (!fromDb.isEmpty()) archive.write(symbol, timeframe, fromDb);
+        return fromDb;
+    }
+
     /**
      * По ТЗ: импульсная свеча определяется как
      * p_t = |close - open| / open
@@ -135,7 +227,7 @@ public class IndicatorComputeService {
      * для первых 5 баров — false. Цвет бара не важен.
      * Счёт ведётся по закрытию бара.
      */
-    private void applyImpulseFlags(List<IndicatorValueEntity> rows, List<Candle> candles) {
+    static void applyImpulseFlags(List<IndicatorValueEntity> rows, CandleColumns candles) {
         final BigDecimal MULT = new BigDecimal("3.0");
         final int WINDOW = 5;
         final int SCALE = 6; // внутренняя точность вычислений (в БД сохраняем boolean)
@@ -145,10 +237,8 @@ public class IndicatorComputeService {
 
         int impulses = 0;
         for (int i = 0; i < candles.size(); i++) {
-            Candle c = candles.get(i);
-
-            BigDecimal open  = BigDecimal.valueOf(c.getOpen());
-            BigDecimal close = BigDecimal.valueOf(c.getClose());
+            BigDecimal open  = BigDecimal.valueOf(candles.open(i));
+            BigDecimal close = BigDecimal.valueOf(candles.close(i));
 
             boolean isImpulse = false;
             if (open.signum() > 0) {
@@ -177,49 +267,39 @@ public class IndicatorComputeService {
         log.info("INDICATORS: impulse flags computed: {} true / {} total", impulses, rows.size());
     }
 
-    private List<Candle> loadCandles(String symbol, String timeframe) {
-        return candleRepository.findAllOrdered(symbol, timeframe).stream()
-                .map(e -> new Candle(
-                        e.getId().getOpenTime().toEpochMilli(),
-                        e.getOpen().doubleValue(),
-                        e.getHigh().doubleValue(),
-                        e.getLow().doubleValue(),
-                        e.getClose().doubleValue(),
-                        e.getVolume().doubleValue(),
-                        e.getQuoteVolume().doubleValue()))
-                .collect(Collectors.toList());
-    }
-
-    private List<Candle> aggregateTo2h(List<Candle> candles30) {
-        Map<Long, List<Candle>> grouped = new TreeMap<>();
-        for (Candle c : candles30) {
-            long groupTime = floorTo2h(c.getTime());
-            grouped.computeIfAbsent(groupTime, k -> new ArrayList<>()).add(c);
-        }
-
-        List<Candle> result = new ArrayList<>();
-        for (Map.Entry<Long, List<Candle>> entry : grouped.entrySet()) {
-            List<Candle> group = entry.getValue();
-            if (group.size() < 4) continue;
-            group.sort(Comparator.comparingLong(Candle::getTime));
-
-            double open  = group.get(0).getOpen();
-            double close = group.get(group.size() - 1).getClose();
-            double high  = group.stream().mapToDouble(Candle::getHigh).max().orElse(0);
-            double low   = group.stream().mapToDouble(Candle::getLow).min().orElse(0);
-            double vol   = group.stream().mapToDouble(Candle::getVolume).sum();
-            double quote = group.stream().mapToDouble(Candle::getQuoteVolume).sum();
-
-            result.add(new Candle(entry.getKey(), open, high, low, close, vol, quote));
+    /**
+     * 2h-бары из 30m: группы по floorTo2h, группа из < 4 баров пропускается.
+     * closes — close последнего бара каждой полной группы; groupOfBar[i] — индекс группы бара i или -1.
+     */
+    record Bars2h(long[] times, double[] closes, int[] groupOfBar) {}
+
+    static Bars2h aggregateTo2h(CandleColumns candles30) {
+        final int n = candles30.size();
+        long[] times = new long[n / 4 + 1];
+        double[] closes = new double[n / 4 + 1];
+        int[] groupOfBar = new int[n];
+        int groups = 0;
+
+        // свечи отсортированы по времени → группа = непрерывный отрезок
+        int from = 0;
+        while (from < n) {
+            long groupTime = floorTo2h(candles30.time(from));
+            int to = from;
+            while (to + 1 < n && floorTo2h(candles30.time(to + 1)) == groupTime) to++;
+
+            int idx = -1;
+            if (to - from + 1 >= 4) {
+                idx = groups++;
+                times[idx] = groupTime;
+                closes[idx] = candles30.close(to);
+            }
+            Arrays.fill(groupOfBar, from, to + 1, idx);
+            from = to + 1;
         }
-        return result;
+        return new Bars2h(Arrays.copyOf(times, groups), Arrays.copyOf(closes, groups), groupOfBar);
     }
 
-    private long floorTo2h(long timestamp) {
+    private static long floorTo2h(long timestamp) {
         return timestamp - (timestamp % (2 * 60 * 60 * 1000L));
     }
-
-    private static double safe(Double v) {
-        return v == null ? -1 : v;
-    }
 }
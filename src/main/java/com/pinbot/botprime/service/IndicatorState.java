@@ -0,0 +1,317 @@
+package com.pinbot.botprime.service;
+
+import com.pinbot.botprime.model.CandleColumns;
+import com.pinbot.botprime.persistence.IndicatorValueEntity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Бегущее состояние индикаторов для одной пары (symbol, timeframe).
+ *
+ * Повторяет полный пересчёт IndicatorComputeService.computeAndStore бар за баром с теми же формулами
+ * и тем же порядком операций, поэтому значения совпадают до бита:
+ *  - EMA11/30/110/200 и TEMA9 (три EMA + SMA10) на 30m;
+ *  - RSI(14) Уайлдера и его SMA(20) по 2h-группам (группа из < 4 баров пропускается);
+ *  - флаг импульса (окно 5, множитель 3.0, BigDecimal scale 6).
+ *
+ * 2h-группа, в которую ещё могут прийти бары, считается «открытой»: её RSI посчитан на копии состояния,
+ * а в общее состояние она попадает только когда начинается следующая группа. Поэтому строки открытой
+ * группы при следующем тике переписываются (их rsi2h/sma_rsi2h могли измениться).
+ *
+ * Не потокобезопасно — вызывающий держит монитор пары (IndicatorComputeService.lock).
+ */
+final class IndicatorState {
+
+    private static final long TWO_HOURS_MS = 2 * 60 * 60 * 1000L;
+    private static final int MIN_BARS_IN_2H = 4;
+
+    final String symbol;
+    final String timeframe;
+
+    private long firstTime;
+    private long lastTime;
+    private long bars;
+
+    /* 30m */
+    private Ema ema11, ema30, ema110, ema200;
+    private Ema tema1, tema2, tema3;
+    private Sma temaSma;
+    private Impulse impulse;
+
+    /* 2h: зафиксированное состояние по закрытым группам */
+    private Rsi rsi2h;
+    private Sma smaRsi2h;
+
+    /* 2h: открытая группа */
+    private long groupTime;
+    private double groupClose;
+    private final List<IndicatorValueEntity> groupRows = new ArrayList<>(MIN_BARS_IN_2H);
+
+    IndicatorState(String symbol, String timeframe) {
+        this.symbol = symbol;
+        this.timeframe = timeframe;
+        reset();
+    }
+
+    /**
+     * Возврат в начальное состояние (bars() == 0) на месте: объект остаётся тем же,
+     * поэтому ссылки на него из карты состояний и у вызывающих не устаревают.
+     */
+    void reset() {
+        firstTime = Long.MIN_VALUE;
+        lastTime  = Long.MIN_VALUE;
+        bars = 0;
+
+        ema11  = new Ema(11);
+        ema30  = new Ema(30);
+        ema110 = new Ema(110);
+        ema200 = new Ema(200);
+        tema1  = new Ema(9);
+        tema2  = new Ema(9);
+        tema3  = new Ema(9);
+        temaSma = new Sma(10);
+        impulse = new Impulse();
+
+        rsi2h = new Rsi(14);
+        smaRsi2h = new Sma(20);
+
+        groupTime = Long.MIN_VALUE;
+        groupClose = 0;
+        groupRows.clear();
+    }
+
+    /** open_time первого учтённого бара (epoch ms) или Long.MIN_VALUE, если баров ещё не было. */
+    long firstTime() { return firstTime; }
+
+    /** open_time последнего учтённого бара (epoch ms) или Long.MIN_VALUE. */
+    long lastTime() { return lastTime; }
+
+    long bars() { return bars; }
+
+    /**
+     * Продвигает состояние на новые бары (по возрастанию open_time, строго после lastTime()).
+     * Возвращает строки, которые нужно записать: новые + ранее записанные строки открытой 2h-группы,
+     * если в неё добавились бары.
+     */
+    List<IndicatorValueEntity> advance(CandleColumns candles) {
+        int n = candles.size();
+        List<IndicatorValueEntity> out = new ArrayList<>(n + MIN_BARS_IN_2H);
+        if (n == 0) return out;
+
+        if (floorTo2h(candles.time(0)) == groupTime) {
+            out.addAll(groupRows); // их rsi2h/sma_rsi2h будут пересчитаны ниже
+        }
+        for (int i = 0; i < n; i++) {
+            long t = candles.time(i);
+            if (t <= lastTime) {
+                throw new IllegalArgumentException("candle " + Instant.ofEpochMilli(t)
+                        + " is not after " + Instant.ofEpochMilli(lastTime));
+            }
+            out.add(step(t, candles.open(i), candles.high(i), candles.low(i), candles.close(i),
+                    candles.volume(i), candles.quoteVolume(i)));
+        }
+        return out;
+    }
+
+    private IndicatorValueEntity step(long time, double open, double high, double low, double close,
+                                      double volume, double quoteVolume) {
+        if (bars == 0) firstTime = time;
+        lastTime = time;
+        bars++;
+
+        double v1 = tema1.next((high + low) / 2.0);
+        double v2 = tema2.next(v1);
+        double v3 = tema3.next(v2);
+        double tema9 = temaSma.next(3 * v1 - 3 * v2 + v3);
+
+        IndicatorValueEntity row = IndicatorValueEntity.builder()
+                .symbol(symbol)
+                .timeframe(timeframe)
+                .open_time(Instant.ofEpochMilli(time))
+                .open(BigDecimal.valueOf(open))
+                .high(BigDecimal.valueOf(high))
+                .low(BigDecimal.valueOf(low))
+                .close(BigDecimal.valueOf(close))
+                .volume(BigDecimal.valueOf(volume))
+                .quoteVolume(BigDecimal.valueOf(quoteVolume))
+                .ema11(ema11.next(close))
+                .ema30(ema30.next(close))
+                .ema110(ema110.next(close))
+                .ema200(ema200.next(close))
+                .tema9(tema9)
+                .rsi2h(-1.0)
+                .smaRsi2h(-1.0)
+                .build();
+        row.setImpulse(impulse.next(open, close));
+
+        // 2h: новая группа → закрываем предыдущую
+        long g = floorTo2h(time);
+        if (g != groupTime) {
+            if (groupRows.size() >= MIN_BARS_IN_2H) {
+                smaRsi2h.next(rsi2h.next(groupClose));
+            }
+            groupTime = g;
+            groupRows.clear();
+        }
+        groupRows.add(row);
+        groupClose = close;
+
+        // значение открытой группы — на копии состояния
+        if (groupRows.size() >= MIN_BARS_IN_2H) {
+            double r = rsi2h.copy().next(groupClose);
+            double s = smaRsi2h.copy().next(r);
+            for (IndicatorValueEntity gr : groupRows) {
+                gr.setRsi2h(r);
+                gr.setSmaRsi2h(s);
+            }
+        }
+        return row;
+    }
+
+    private static long floorTo2h(long timestamp) {
+        return timestamp - (timestamp % TWO_HOURS_MS);
+    }
+
+    /* ===================== бегущие индикаторы ===================== */
+
+    /** EMA как IndicatorUtils.ema: -1 до period-1, затем SMA-затравка и рекурсия. */
+    private static final class Ema {
+        private final int period;
+        private final double alpha;
+        private int n;
+        private double sum;
+        private double prev;
+
+        Ema(int period) {
+            this.period = period;
+            this.alpha = 2.0 / (period + 1.0);
+        }
+
+        double next(double x) {
+            n++;
+            if (n < period) {
+                sum += x;
+                return -1.0;
+            }
+            if (n == period) {
+                sum += x;
+                prev = sum / period;
+                return prev;
+            }
+            prev = alpha * x + (1 - alpha) * prev;
+            return prev;
+        }
+    }
+
+    /** SMA как IndicatorUtils.sma: бегущая сумма, -1 до заполнения окна. */
+    private static final class Sma {
+        private final double[] window;
+        private int n;
+        private double sum;
+
+        Sma(int period) { this.window = new double[period]; }
+
+        private Sma(Sma o) {
+            this.window = o.window.clone();
+            this.n = o.n;
+            this.sum = o.sum;
+        }
+
+        Sma copy() { return new Sma(this); }
+
+        double next(double x) {
+            int period = window.length;
+            int slot = n % period;
+            sum += x;
+            if (n >= period) sum -= window[slot];
+            window[slot] = x;
+            n++;
+            return n >= period ? sum / period : -1.0;
+        }
+    }
+
+    /** RSI Уайлдера как IndicatorUtils.rsi. */
+    private static final class Rsi {
+        private final int period;
+        private int i;
+        private double prevClose = -1;
+        private double avgGain, avgLoss;
+
+        Rsi(int period) { this.period = period; }
+
+        private Rsi(Rsi o) {
+            this.period = o.period;
+            this.i = o.i;
+            this.prevClose = o.prevClose;
+            this.avgGain = o.avgGain;
+            this.avgLoss = o.avgLoss;
+        }
+
+        Rsi copy() { return new Rsi(this); }
+
+        double next(double close) {
+            int idx = i++;
+            if (prevClose < 0) {
+                prevClose = close;
+                return -1.0;
+            }
+
+            double change = close - prevClose;
+            double gain = Math.max(0, change);
+            double loss = Math.max(0, -change);
+
+            double out;
+            if (idx < period) {
+                avgGain += gain;
+                avgLoss += loss;
+                out = -1.0;
+            } else if (idx == period) {
+                avgGain /= period;
+                avgLoss /= period;
+                double rs = avgLoss == 0 ? 100 : avgGain / avgLoss;
+                out = 100 - (100 / (1 + rs));
+            } else {
+                avgGain = (avgGain * (period - 1) + gain) / period;
+                avgLoss = (avgLoss * (period - 1) + loss) / period;
+                double rs = avgLoss == 0 ? 100 : avgGain / avgLoss;
+                out = 100 - (100 / (1 + rs));
+            }
+
+            prevClose = close;
+            return out;
+        }
+    }
+
+    /** Импульсная свеча: |close-open|/open >= 3.0 * avg(5 предыдущих), как applyImpulseFlags. */
+    private static final class Impulse {
+        private static final BigDecimal MULT = new BigDecimal("3.0");
+        private static final int WINDOW = 5;
+        private static final int SCALE = 6;
+
+        private final Deque<BigDecimal> win = new ArrayDeque<>(WINDOW);
+        private BigDecimal sum = BigDecimal.ZERO;
+
+        boolean next(double openD, double closeD) {
+            BigDecimal open  = BigDecimal.valueOf(openD);
+            BigDecimal close = BigDecimal.valueOf(closeD);
+            if (open.signum() <= 0) return false;
+
+            boolean isImpulse = false;
+            BigDecimal p = close.subtract(open).abs().divide(open, SCALE, RoundingMode.HALF_UP);
+            if (win.size() == WINDOW) {
+                BigDecimal avg = sum.divide(BigDecimal.valueOf(WINDOW), SCALE, RoundingMode.HALF_UP);
+                isImpulse = p.compareTo(avg.multiply(MULT)) >= 0;
+                sum = sum.subtract(win.removeFirst());
+            }
+            win.addLast(p);
+            sum = sum.add(p);
+            return isImpulse;
+        }
+    }
+}
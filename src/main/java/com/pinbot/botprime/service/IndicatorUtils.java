@@ -1,8 +1,15 @@
 package com.pinbot.botprime.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Индикаторы по ряду значений. Соглашение: пока окно не набрано — -1.
+ *
+ * Основная реализация — на double[] (без боксинга); List-версии оставлены для совместимости и делегируют в неё.
+ * Варианты с out пишут результат в буфер вызывающего (out.length >= series.length) и возвращают его.
+ */
 public final class IndicatorUtils {
 
     private IndicatorUtils() {
@@ -11,71 +18,110 @@ public final class IndicatorUtils {
 
     /* ---------- EMA ---------- */
     public static List<Double> ema(List<Double> series, int period) {
-        int n = series.size();
-        List<Double> out = new ArrayList<>(n);
+        return toList(ema(toArray(series), period));
+    }
+
+    public static double[] ema(double[] series, int period) {
+        return ema(series, period, new double[series.length]);
+    }
+
+    public static double[] ema(double[] series, int period, double[] out) {
+        int n = series.length;
         if (period <= 1 || n == 0) {
-            out.addAll(series);
+            System.arraycopy(series, 0, out, 0, n);
             return out;
         }
 
-        for (int i = 0; i < period - 1 && i < n; i++) out.add(-1.0);
+        for (int i = 0; i < period - 1 && i < n; i++) out[i] = -1.0;
+        if (n < period) return out; // окно не набрано
 
         double alpha = 2.0 / (period + 1.0);
         double sma = 0.0;
-        for (int i = 0; i < period && i < n; i++) sma += series.get(i);
+        for (int i = 0; i < period; i++) sma += series[i];
         sma /= period;
 
         double prev = sma;
-        out.add(prev);
+        out[period - 1] = prev;
 
         for (int i = period; i < n; i++) {
-            prev = alpha * series.get(i) + (1 - alpha) * prev;
-            out.add(prev);
+            prev = alpha * series[i] + (1 - alpha) * prev;
+            out[i] = prev;
         }
         return out;
     }
 
     /* ---------- SMA ---------- */
     public static List<Double> sma(List<Double> series, int period) {
-        List<Double> out = new ArrayList<>(series.size());
-        double sum = 0.0;
+        return toList(sma(toArray(series), period));
+    }
 
-        for (int i = 0; i < series.size(); i++) {
-            sum += series.get(i);
-            if (i >= period) sum -= series.get(i - period);
-            out.add(i >= period - 1 ? sum / period : -1.0);
+    public static double[] sma(double[] series, int period) {
+        return sma(series, period, new double[series.length]);
+    }
+
+    /** out может совпадать с series (считаем «на месте»). period <= 0 → NaN, как у прежнего sum / 0. */
+    public static double[] sma(double[] series, int period, double[] out) {
+        int n = series.length;
+        if (period <= 0) {
+            Arrays.fill(out, 0, n, Double.NaN);
+            return out;
+        }
+
+        double sum = 0.0;
+        // при out == series старое значение series[i - period] уже перезаписано — держим окно отдельно
+        boolean inPlace = out == series;
+        double[] window = inPlace ? new double[period] : null;
+
+        for (int i = 0; i < n; i++) {
+            double x = series[i];
+            sum += x;
+            if (i >= period) sum -= inPlace ? window[i % period] : series[i - period];
+            if (inPlace) window[i % period] = x;
+            out[i] = i >= period - 1 ? sum / period : -1.0;
         }
         return out;
     }
 
     /* ---------- TEMA ---------- */
     public static List<Double> tema(List<Double> series, int period) {
-        List<Double> e1 = ema(series, period);
-        List<Double> e2 = ema(replaceNulls(e1), period);
-        List<Double> e3 = ema(replaceNulls(e2), period);
-
-        List<Double> out = new ArrayList<>(series.size());
-        for (int i = 0; i < series.size(); i++) {
-            double v1 = safe(e1.get(i));
-            double v2 = safe(e2.get(i));
-            double v3 = safe(e3.get(i));
-            out.add(3 * v1 - 3 * v2 + v3);
+        return toList(tema(toArray(series), period));
+    }
+
+    public static double[] tema(double[] series, int period) {
+        return tema(series, period, new double[series.length]);
+    }
+
+    public static double[] tema(double[] series, int period, double[] out) {
+        int n = series.length;
+        double[] e1 = ema(series, period, new double[n]);
+        double[] e2 = ema(e1, period, new double[n]);
+        double[] e3 = ema(e2, period, out);
+
+        for (int i = 0; i < n; i++) {
+            out[i] = 3 * e1[i] - 3 * e2[i] + e3[i];
         }
         return out;
     }
 
     /* ---------- RSI ---------- */
     public static List<Double> rsi(List<Double> series, int period) {
-        List<Double> out = new ArrayList<>(series.size());
+        return toList(rsi(toArray(series), period));
+    }
+
+    public static double[] rsi(double[] series, int period) {
+        return rsi(series, period, new double[series.length]);
+    }
+
+    public static double[] rsi(double[] series, int period, double[] out) {
         double prevClose = -1;
         double avgGain = 0.0, avgLoss = 0.0;
 
-        for (int i = 0; i < series.size(); i++) {
-            double close = series.get(i);
+        for (int i = 0; i < series.length; i++) {
+            double close = series[i];
 
             if (prevClose < 0) {
                 prevClose = close;
-                out.add(-1.0);
+                out[i] = -1.0;
                 continue;
             }
 
@@ -86,17 +132,17 @@ public final class IndicatorUtils {
             if (i < period) {
                 avgGain += gain;
                 avgLoss += loss;
-                out.add(-1.0);
+                out[i] = -1.0;
             } else if (i == period) {
                 avgGain /= period;
                 avgLoss /= period;
                 double rs = avgLoss == 0 ? 100 : avgGain / avgLoss;
-                out.add(100 - (100 / (1 + rs)));
+                out[i] = 100 - (100 / (1 + rs));
             } else {
                 avgGain = (avgGain * (period - 1) + gain) / period;
                 avgLoss = (avgLoss * (period - 1) + loss) / period;
                 double rs = avgLoss == 0 ? 100 : avgGain / avgLoss;
-                out.add(100 - (100 / (1 + rs)));
+                out[i] = 100 - (100 / (1 + rs));
             }
 
             prevClose = close;
@@ -105,13 +151,19 @@ public final class IndicatorUtils {
     }
 
     /* ---------- helpers ---------- */
-    private static List<Double> replaceNulls(List<Double> list) {
-        List<Double> out = new ArrayList<>(list.size());
-        for (Double v : list) out.add(safe(v));
+    private static double[] toArray(List<Double> list) {
+        double[] a = new double[list.size()];
+        for (int i = 0; i < a.length; i++) a[i] = list.get(i);
+        return a;
+    }
+
+    private static List<Double> toList(double[] a) {
+        List<Double> out = new ArrayList<>(a.length);
+        for (double v : a) out.add(v);
         return out;
     }
 
     public static double safe(Double v) {
         return v == null ? 0.0 : v;
     }
-}
\ No newline at end of file
+}
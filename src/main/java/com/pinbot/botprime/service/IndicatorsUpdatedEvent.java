@@ -0,0 +1,8 @@
+package com.pinbot.botprime.service;
+
+/**
+ * Публикуется после записи индикаторов в btc_30m_indicators.
+ * Слушатели (кэши бэктеста и т.п.) сбрасывают свои копии данных.
+ * fromMs — самый ранний перезаписанный open_time: строки до него не менялись.
+ */
+public record IndicatorsUpdatedEvent(String symbol, String timeframe, int rows, long fromMs) {}
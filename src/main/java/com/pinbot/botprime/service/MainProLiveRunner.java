@@ -0,0 +1,111 @@
+package com.pinbot.botprime.service;
+
+import com.pinbot.botprime.backtest.BarSeries;
+import com.pinbot.botprime.backtest.BarSeriesCache;
+import com.pinbot.botprime.service.RecentBarsCache.IndicatorBar;
+import com.pinbot.botprime.strategy.MainProRuntime;
+import com.pinbot.botprime.strategy.SimTradeLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * MainPro на живых барах: после каждого пересчёта индикаторов новые закрытые бары подаются в MainProRuntime.
+ *
+ * Первый раз (и если горячее окно не покрывает бары после последнего поданного) runtime собирается заново:
+ * вся серия BarSeriesCache прогоняется через тот же onBar, затем хвост из RecentBarsCache.
+ * Дальше на событие — только новые бары, O(новых баров).
+ *
+ * Каждый бар подаётся один раз, в момент появления: переписанные позже строки открытой 2h-группы
+ * (rsi2h/sma_rsi2h) не перепрогоняются. Бэктест видит на 2h-границе итоговое значение группы,
+ * live — то, что было известно к закрытию бара, поэтому выход по RSI может отличаться.
+ *
+ * Пока только сигналы и закрытия в лог; ордера не ставятся.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bot.live.mainpro.enabled", havingValue = "true", matchIfMissing = false)
+public class MainProLiveRunner {
+
+    private final BarSeriesCache seriesCache;
+    private final RecentBarsCache recentBars;
+    private final String symbol;
+    private final String timeframe;
+
+    private MainProRuntime runtime;
+
+    public MainProLiveRunner(BarSeriesCache seriesCache,
+                             RecentBarsCache recentBars,
+                             @Value("${bot.compute.symbol:BTCUSDT}") String symbol,
+                             @Value("${bot.compute.timeframe.30m:30}") String timeframe) {
+        this.seriesCache = seriesCache;
+        this.recentBars = recentBars;
+        this.symbol = symbol;
+        this.timeframe = timeframe;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onIndicatorsUpdated(IndicatorsUpdatedEvent e) {
+        if (!symbol.equalsIgnoreCase(e.symbol()) || !timeframe.equals(e.timeframe())) return;
+
+        List<IndicatorBar> tail = runtime == null ? null
+                : recentBars.indicatorsFrom(symbol, timeframe, runtime.lastOpenTimeMs() + 1);
+        if (tail == null) {
+            rebuild();
+            tail = recentBars.indicatorsFrom(symbol, timeframe, runtime.lastOpenTimeMs() + 1);
+            if (tail == null) return;
+        }
+
+        for (IndicatorBar b : tail) {
+            int closed = feed(b);
+            if (closed > 0) logClosed(closed);
+        }
+        if (!tail.isEmpty()) logState();
+    }
+
+    /** Полный прогон истории через onBar: то же состояние, что и у бэктеста на этой серии. */
+    private void rebuild() {
+        long t0 = System.nanoTime();
+        MainProRuntime r = new MainProRuntime();
+        BarSeries s = seriesCache.get();
+        for (int i = 0; i < s.size(); i++) {
+            r.onBar(s.openTimeMs(i), s.openUnits(i), s.highUnits(i), s.lowUnits(i), s.closeUnits(i),
+                    s.ema11(i), s.ema30(i), s.ema110(i), s.ema200(i),
+                    s.tema9(i), s.rsi2h(i), s.smaRsi2h(i), s.isImpulse(i));
+        }
+        runtime = r;
+        log.info("[MAINPRO-LIVE] {} {}: replayed {} bars in {} ms, {} trades",
+                symbol, timeframe, s.size(), (System.nanoTime() - t0) / 1_000_000, r.trades().size());
+    }
+
+    private int feed(IndicatorBar b) {
+        return runtime.onBar(b.openTime(), b.openU(), b.highU(), b.lowU(), b.closeU(),
+                b.ema11(), b.ema30(), b.ema110(), b.ema200(),
+                b.tema9(), b.rsi2h(), b.smaRsi2h(), b.impulse());
+    }
+
+    private void logClosed(int closed) {
+        SimTradeLog t = runtime.trades();
+        for (int j = t.size() - closed; j < t.size(); j++) {
+            log.info("[MAINPRO-LIVE] closed pair {} {} {} pnl={} at {}",
+                    t.pairId(j), t.role(j) == SimTradeLog.HEDGE ? "HEDGE" : "MAIN", t.reasonName(j),
+                    t.pnlCents(j) / 100.0, Instant.ofEpochMilli(t.exitTimeMs(j)));
+        }
+    }
+
+    private void logState() {
+        int signal = runtime.pendingSignal();
+        if (signal != 0) {
+            log.info("[MAINPRO-LIVE] {} signal after bar {}: entry at next open",
+                    signal > 0 ? "LONG" : "SHORT", Instant.ofEpochMilli(runtime.lastOpenTimeMs()));
+        }
+        log.debug("[MAINPRO-LIVE] bar {}: main={}, hedge={}, dayStops={}, equity={}",
+                Instant.ofEpochMilli(runtime.lastOpenTimeMs()), runtime.mainOpen(), runtime.hedgeOpen(),
+                runtime.dayStops(), runtime.equityCents() / 100.0);
+    }
+}
@@ -0,0 +1,205 @@
+package com.pinbot.botprime.service;
+
+import com.pinbot.botprime.backtest.BarSeries;
+import com.pinbot.botprime.dto.CandleDto;
+import com.pinbot.botprime.model.CandleColumns;
+import com.pinbot.botprime.persistence.IndicatorValueEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.pinbot.botprime.model.CandleColumns.numeric8;
+
+/**
+ * Горячее окно последних N закрытых свечей и строк индикаторов на (symbol, timeframe).
+ *
+ * Окно — непрерывный хвост истории: всё, что в БД новее его первого бара, есть и в окне.
+ * Держится это на том, что каждый писатель btc_30m_history / btc_30m_indicators кладёт сюда то же,
+ * что записал (после коммита), а полные чтения из БД пересевают окно.
+ * Читатели (IndicatorComputeService, BarSeriesCache) спрашивают окно первыми; null — промах, идём в БД.
+ *
+ * Размер — bot.hot-window.bars; попадания/промахи — счётчик bot.hot_window.requests{cache, result}.
+ */
+@Component
+public class RecentBarsCache {
+
+    /** Свеча как её вернёт БД (значения уже округлены до NUMERIC(18,8)). */
+    public record CandleBar(long openTime, double open, double high, double low, double close,
+                            double volume, double quoteVolume) { }
+
+    /** Строка btc_30m_indicators в том виде, в каком её держит BarSeries. */
+    public record IndicatorBar(long openTime, long openU, long highU, long lowU, long closeU,
+                               double ema11, double ema30, double ema110, double ema200,
+                               double tema9, double rsi2h, double smaRsi2h, boolean impulse) { }
+
+    private final int capacity;
+    private final Map<String, TimeRing<CandleBar>> candles = new ConcurrentHashMap<>();
+    private final Map<String, TimeRing<IndicatorBar>> indicators = new ConcurrentHashMap<>();
+
+    private final Counter candleHits, candleMisses, indicatorHits, indicatorMisses;
+
+    public RecentBarsCache(MeterRegistry registry, @Value("${bot.hot-window.bars:2000}") int capacity) {
+        this.capacity = Math.max(16, capacity);
+        this.candleHits      = counter(registry, "candles", "hit");
+        this.candleMisses    = counter(registry, "candles", "miss");
+        this.indicatorHits   = counter(registry, "indicators", "hit");
+        this.indicatorMisses = counter(registry, "indicators", "miss");
+    }
+
+    /* ---------- свечи ---------- */
+
+    /** Ingest: свечи, только что записанные в БД. */
+    public void putCandles(String symbol, String timeframe, List<CandleDto> written) {
+        if (written == null || written.isEmpty()) return;
+        List<CandleDto> sorted = written.stream().sorted(Comparator.comparingLong(CandleDto::getStartMs)).toList();
+        afterCommit(() -> {
+            TimeRing<CandleBar> ring = candleRing(symbol, timeframe);
+            synchronized (ring) {
+                for (CandleDto c : sorted) {
+                    ring.put(c.getStartMs(), new CandleBar(c.getStartMs(),
+                            numeric8(c.getOpen()), numeric8(c.getHigh()), numeric8(c.getLow()), numeric8(c.getClose()),
+                            numeric8(c.getVolume()), numeric8(c.getQuoteVolume())));
+                }
+            }
+        });
+    }
+
+    /**
+     * Непрерывный кусок истории, только что прочитанный из БД, — окно заменяется его хвостом.
+     * Как и putCandles, применяется после коммита: откатившийся пересчёт не оставляет окно пересобранным.
+     */
+    public void seedCandles(String symbol, String timeframe, CandleColumns fromDb) {
+        if (fromDb.isEmpty()) return;
+        List<CandleBar> tail = new ArrayList<>(Math.min(capacity, fromDb.size()));
+        for (int i = Math.max(0, fromDb.size() - capacity); i < fromDb.size(); i++) {
+            tail.add(new CandleBar(fromDb.time(i), fromDb.open(i), fromDb.high(i),
+                    fromDb.low(i), fromDb.close(i), fromDb.volume(i), fromDb.quoteVolume(i)));
+        }
+        afterCommit(() -> {
+            TimeRing<CandleBar> ring = candleRing(symbol, timeframe);
+            synchronized (ring) {
+                ring.clear();
+                for (CandleBar b : tail) ring.put(b.openTime(), b);
+            }
+        });
+    }
+
+    /** Свечи строго после afterMs, если окно покрывает этот участок; иначе null. */
+    public CandleColumns candlesAfter(String symbol, String timeframe, long afterMs) {
+        TimeRing<CandleBar> ring = candles.get(key(symbol, timeframe));
+        if (ring != null) {
+            synchronized (ring) {
+                if (!ring.isEmpty() && ring.firstTime() <= afterMs) {
+                    List<CandleBar> bars = ring.from(afterMs + 1);
+                    CandleColumns out = new CandleColumns(bars.size());
+                    for (CandleBar b : bars) {
+                        out.add(b.openTime(), b.open(), b.high(), b.low(), b.close(), b.volume(), b.quoteVolume());
+                    }
+                    candleHits.increment();
+                    return out;
+                }
+            }
+        }
+        candleMisses.increment();
+        return null;
+    }
+
+    /* ---------- индикаторы ---------- */
+
+    /** Строки, только что записанные в btc_30m_indicators (новые и перезаписанные). */
+    public void putIndicators(String symbol, String timeframe, List<IndicatorValueEntity> written) {
+        if (written == null || written.isEmpty()) return;
+        List<IndicatorBar> bars = written.stream()
+                .map(RecentBarsCache::toBar)
+                .sorted(Comparator.comparingLong(IndicatorBar::openTime))
+                .toList();
+        afterCommit(() -> {
+            TimeRing<IndicatorBar> ring = indicatorRing(symbol, timeframe);
+            synchronized (ring) {
+                for (IndicatorBar b : bars) ring.put(b.openTime(), b);
+            }
+        });
+    }
+
+    /** Полный пересчёт переписал всю историю пары — окно заменяется её хвостом. */
+    public void seedIndicators(String symbol, String timeframe, List<IndicatorValueEntity> allRows) {
+        if (allRows.isEmpty()) return;
+        List<IndicatorBar> tail = allRows.subList(Math.max(0, allRows.size() - capacity), allRows.size())
+                .stream().map(RecentBarsCache::toBar).toList();
+        afterCommit(() -> {
+            TimeRing<IndicatorBar> ring = indicatorRing(symbol, timeframe);
+            synchronized (ring) {
+                ring.clear();
+                for (IndicatorBar b : tail) ring.put(b.openTime(), b);
+            }
+        });
+    }
+
+    /** Строки с open_time >= fromMs, если окно покрывает этот участок; иначе null. */
+    public List<IndicatorBar> indicatorsFrom(String symbol, String timeframe, long fromMs) {
+        TimeRing<IndicatorBar> ring = indicators.get(key(symbol, timeframe));
+        if (ring != null) {
+            synchronized (ring) {
+                if (!ring.isEmpty() && ring.firstTime() <= fromMs) {
+                    indicatorHits.increment();
+                    return ring.from(fromMs);
+                }
+            }
+        }
+        indicatorMisses.increment();
+        return null;
+    }
+
+    /* ---------- helpers ---------- */
+
+    private TimeRing<CandleBar> candleRing(String symbol, String timeframe) {
+        return candles.computeIfAbsent(key(symbol, timeframe), k -> new TimeRing<>(capacity));
+    }
+
+    private TimeRing<IndicatorBar> indicatorRing(String symbol, String timeframe) {
+        return indicators.computeIfAbsent(key(symbol, timeframe), k -> new TimeRing<>(capacity));
+    }
+
+    private static String key(String symbol, String timeframe) {
+        return symbol + "|" + timeframe;
+    }
+
+    private static IndicatorBar toBar(IndicatorValueEntity r) {
+        return new IndicatorBar(r.getOpen_time().toEpochMilli(),
+                BarSeries.toUnits(r.getOpen()), BarSeries.toUnits(r.getHigh()),
+                BarSeries.toUnits(r.getLow()), BarSeries.toUnits(r.getClose()),
+                r.getEma11(), r.getEma30(), r.getEma110(), r.getEma200(),
+                r.getTema9(), r.getRsi2h(), r.getSmaRsi2h(), r.isImpulse());
+    }
+
+    /** Окно не должно видеть незакоммиченное: при откате БД его не получит, а окно получило бы. */
+    private static void afterCommit(Runnable r) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            r.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                r.run();
+            }
+        });
+    }
+
+    private static Counter counter(MeterRegistry registry, String cache, String result) {
+        return Counter.builder("bot.hot_window.requests")
+                .description("Hot window lookups of recent bars")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry);
+    }
+}
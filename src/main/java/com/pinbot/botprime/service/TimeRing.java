@@ -0,0 +1,84 @@
+package com.pinbot.botprime.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Кольцевой буфер последних capacity элементов, упорядоченных по open_time (по возрастанию).
+ *
+ * put: новее последнего — в хвост (самый старый вытесняется), тот же open_time — замена на месте,
+ * более старый и отсутствующий — игнорируется (окно покрывает только непрерывный хвост истории).
+ * Не потокобезопасен: синхронизирует владелец (RecentBarsCache).
+ */
+final class TimeRing<T> {
+
+    private final long[] time;
+    private final Object[] items;
+    private int head; // физический индекс самого старого
+    private int size;
+
+    TimeRing(int capacity) {
+        this.time = new long[capacity];
+        this.items = new Object[capacity];
+    }
+
+    int size() { return size; }
+
+    boolean isEmpty() { return size == 0; }
+
+    long firstTime() { return time[head]; }
+
+    long lastTime() { return time[phys(size - 1)]; }
+
+    void clear() {
+        Arrays.fill(items, null);
+        head = 0;
+        size = 0;
+    }
+
+    void put(long t, T item) {
+        if (size > 0 && t <= lastTime()) {
+            int j = find(t);
+            if (j >= 0) items[phys(j)] = item;
+            return;
+        }
+        if (size == time.length) {
+            head = (head + 1) % time.length;
+            size--;
+        }
+        int p = phys(size++);
+        time[p] = t;
+        items[p] = item;
+    }
+
+    /** Элементы с open_time >= t (по возрастанию). */
+    List<T> from(long t) {
+        int j = firstAtOrAfter(t);
+        List<T> out = new ArrayList<>(size - j);
+        for (; j < size; j++) out.add(get(j));
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int j) { return (T) items[phys(j)]; }
+
+    private int find(long t) {
+        int j = firstAtOrAfter(t);
+        return j < size && time[phys(j)] == t ? j : -1;
+    }
+
+    private int firstAtOrAfter(long t) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time[phys(mid)] < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int phys(int j) {
+        return (head + j) % time.length;
+    }
+}
@@ -0,0 +1,193 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.BarColumns;
+import com.pinbot.botprime.backtest.IndicatorDao.Bar;
+import com.pinbot.botprime.strategy.FirstStrategy.Dir;
+import com.pinbot.botprime.trade.BacktestTrade;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pinbot.botprime.strategy.FixedPoint.unitsToDouble;
+import static com.pinbot.botprime.strategy.FixedPoint.unitsToTicksHalfUp;
+
+/**
+ * FirstStrategy на целочисленной арифметике поверх BarColumns — те же сделки, что и FirstStrategy.backtest
+ * (см. FirstSimulatorParityTest).
+ *
+ * В отличие от MainStrategy, стоп здесь не округляется до тика: уровень EMA/TEMA9 сравнивается с low/high
+ * как есть. Поэтому на входе он один раз переводится в порог в единицах 1e-8 (LONG — floor, SHORT — ceil):
+ * для цены бара в 1e-8 {@code low <= stop} ⇔ {@code low <= floor(stop)}, {@code high >= stop} ⇔
+ * {@code high >= ceil(stop)}. Стоп и объём (computeStopForEntry / calcQty) считаются из FirstStrategy
+ * только на барах сигнала и входа; объект создаётся только на закрытии сделки.
+ *
+ * Как и эталон, заглядывает в бар i + 1 (вход, выход по RSI и переворот), поэтому работает по готовой серии.
+ */
+public final class FirstSimulator {
+
+    private static final long TF_MS        = FirstStrategy.TF.toMillis();
+    private static final long TWO_HOURS_MS = 7_200_000L;
+
+    private static final double RSI_HIGH = 75.0;
+    private static final double RSI_LOW  = 25.0;
+
+    private final BarColumns bars;
+    private final List<Bar> barView;
+    private final List<BacktestTrade> out = new ArrayList<>();
+
+    /* ---- отложенный вход на бар pendingIndex ---- */
+    private boolean    pendingActive;
+    private int        pendingIndex;
+    private boolean    pendingLong;
+    private BigDecimal pendingStop;
+
+    /* ---- позиция ---- */
+    private boolean posActive;
+    private boolean posLong;
+    private long    posEntryTime;
+    private long    posEntryUnits;
+    private long    posStopUnits;   // порог стопа в 1e-8 (см. javadoc класса)
+    private long    posStopTicks;   // стоп, округлённый до тика, — для журнала и цены выхода
+    private long    posQty;
+    private boolean armed75, armed25;
+
+    /* ---- окна сигналов ---- */
+    private boolean w1Active;
+    private boolean w1Long;
+    private int     w1Deadline;
+    private boolean w2Active;
+    private int     w2Deadline;
+
+    private FirstSimulator(BarColumns bars) {
+        this.bars = bars;
+        this.barView = new RecentBars(bars);
+    }
+
+    /** Полный прогон серии. */
+    public static List<BacktestTrade> run(BarColumns bars) {
+        FirstSimulator sim = new FirstSimulator(bars);
+        if (bars.size() < 10) return sim.out;
+        for (int i = 0; i < bars.size(); i++) sim.step(i);
+        return sim.out;
+    }
+
+    private void step(int i) {
+        final long t = bars.openTimeMs(i);
+
+        /* 1) pending-вход на open текущего бара */
+        if (pendingActive && pendingIndex == i) {
+            openPosition(i);
+            pendingActive = false;
+        }
+
+        boolean positionClosedThisBar = false;
+
+        /* 2) Управление открытой позицией */
+        if (posActive) {
+            // 2.1) Стоп внутри текущего бара
+            if (posLong ? bars.lowUnits(i) <= posStopUnits : bars.highUnits(i) >= posStopUnits) {
+                close(t + TF_MS, posStopTicks);
+                positionClosedThisBar = true;
+            }
+
+            // 2.2) RSI-выход только после закрытия 2h бара, исполнение на следующем open
+            if (!positionClosedThisBar && i >= 4 && is2hBoundary(t)) {
+                double rPrev = bars.rsi2h(i - 4), sPrev = bars.smaRsi2h(i - 4);
+                double r     = bars.rsi2h(i),     s     = bars.smaRsi2h(i);
+                boolean shouldExit;
+                if (posLong) {
+                    if (r >= RSI_HIGH) armed75 = true;
+                    shouldExit = (rPrev > sPrev && r <= s) || (armed75 && r < RSI_HIGH);
+                } else {
+                    if (r <= RSI_LOW) armed25 = true;
+                    shouldExit = (rPrev < sPrev && r >= s) || (armed25 && r > RSI_LOW);
+                }
+                if (shouldExit && i + 1 < bars.size()) {
+                    close(bars.openTimeMs(i + 1), unitsToTicksHalfUp(bars.openUnits(i + 1)));
+                    positionClosedThisBar = true;
+                }
+            }
+        }
+
+        /* 3) Сигналы на баре i */
+        boolean s1Long = false, s1Short = false;
+        if (i > 0) {
+            double pe11 = bars.ema11(i - 1), pe30 = bars.ema30(i - 1);
+            double e11  = bars.ema11(i),     e30  = bars.ema30(i);
+            s1Long  = pe11 < pe30 && e11 >= e30;
+            s1Short = pe11 > pe30 && e11 <= e30;
+        }
+        double e110 = bars.ema110(i);
+        boolean s2 = unitsToDouble(bars.lowUnits(i)) <= e110 && e110 <= unitsToDouble(bars.highUnits(i));
+
+        /* 4) Окна */
+        if (s1Long)       { w1Active = true; w1Long = true;  w1Deadline = i + 2; }
+        else if (s1Short) { w1Active = true; w1Long = false; w1Deadline = i + 2; }
+        if (s2)           { w2Active = true; w2Deadline = i + 5; }
+
+        /* 5) Совпадение сигналов */
+        int entry = 0; // +1 LONG, -1 SHORT
+        if (w1Active && s2 && i <= w1Deadline) entry = w1Long ? 1 : -1;
+        if (w2Active && i <= w2Deadline && (s1Long || s1Short)) entry = s1Long ? 1 : -1;
+
+        /* 6) Планируем вход на следующий бар */
+        if (entry != 0) {
+            int entryIndex = i + 1;
+            if (entryIndex < bars.size()) {
+                BigDecimal stop = FirstStrategy.computeStopForEntry(barView, entryIndex, entry > 0 ? Dir.LONG : Dir.SHORT);
+                if (stop != null) {
+                    // Переворот (в любую сторону, как в эталоне): решение на close(i), исполнение на open(i+1)
+                    if (posActive && !positionClosedThisBar) {
+                        close(bars.openTimeMs(entryIndex), unitsToTicksHalfUp(bars.openUnits(entryIndex)));
+                    }
+                    pendingActive = true;
+                    pendingIndex  = entryIndex;
+                    pendingLong   = entry > 0;
+                    pendingStop   = stop;
+                }
+            }
+            w1Active = false; w2Active = false;
+        }
+
+        /* 7) Инвалидация окон */
+        if (w1Active && i > w1Deadline) w1Active = false;
+        if (w2Active && i > w2Deadline) w2Active = false;
+    }
+
+    /** Объём по фиксированному риску (BigDecimal из FirstStrategy — только на баре входа). */
+    private void openPosition(int i) {
+        BigDecimal qty = FirstStrategy.calcQty(FixedPoint.units(bars.openUnits(i)), pendingStop, FirstStrategy.FIXED_RISK_USD);
+        if (qty.compareTo(FirstStrategy.MIN_QTY) < 0) return;
+
+        BigDecimal stopUnits = pendingStop.movePointRight(8);
+        posActive     = true;
+        posLong       = pendingLong;
+        posEntryTime  = bars.openTimeMs(i);
+        posEntryUnits = bars.openUnits(i);
+        posStopUnits  = stopUnits.setScale(0, pendingLong ? RoundingMode.FLOOR : RoundingMode.CEILING).longValueExact();
+        posStopTicks  = FixedPoint.toTicks(pendingStop.setScale(2, RoundingMode.HALF_UP));
+        posQty        = FixedPoint.toSteps(qty);
+        armed75 = false; armed25 = false;
+    }
+
+    private void close(long exitTime, long exitTicks) {
+        BacktestTrade tr = new BacktestTrade();
+        tr.setEntryTime(Instant.ofEpochMilli(posEntryTime));
+        tr.setSide(posLong ? "LONG" : "SHORT");
+        tr.setEntryPrice(FixedPoint.ticks(unitsToTicksHalfUp(posEntryUnits)));
+        tr.setStopPrice(FixedPoint.ticks(posStopTicks));
+        tr.setQtyBtc(FixedPoint.steps(posQty));
+        tr.setExitTime(Instant.ofEpochMilli(exitTime));
+        tr.setExitPrice(FixedPoint.ticks(exitTicks));
+        out.add(tr);
+        posActive = false;
+    }
+
+    private static boolean is2hBoundary(long t) {
+        // minute == 0 && hour % 2 == 0 (UTC); секунды не учитываются, как в ZonedDateTime-версии
+        return Math.floorMod(t, TWO_HOURS_MS) < 60_000L;
+    }
+}
@@ -15,12 +15,12 @@ import java.util.List;
 public class FirstStrategy implements Strategy {
 
     private static final BigDecimal FEE_RATE = new BigDecimal("0.00110"); // 0.11% round-trip
-    private static final BigDecimal MIN_QTY = new BigDecimal("0.001");
+    static final BigDecimal MIN_QTY = new BigDecimal("0.001");
     private static final BigDecimal STEP_QTY = new BigDecimal("0.001");
-    private static final Duration TF = Duration.ofMinutes(30);
+    static final Duration TF = Duration.ofMinutes(30);
 
     private static final BigDecimal EQUIV_REL = new BigDecimal("0.0003");
-    private static final BigDecimal FIXED_RISK_USD = new BigDecimal("100.00");
+    static final BigDecimal FIXED_RISK_USD = new BigDecimal("100.00");
 
     private static final BigDecimal RSI_HIGH = new BigDecimal("75");
     private static final BigDecimal RSI_LOW = new BigDecimal("25");
@@ -237,7 +237,7 @@ public class FirstStrategy implements Strategy {
 
     // ===== Stop helpers =====
 
-    private BigDecimal computeStopForEntry(List<Bar> bars, int entryIndex, Dir dir) {
+    static BigDecimal computeStopForEntry(List<Bar> bars, int entryIndex, Dir dir) {
         // Только прошлые данные, без бара входа
         int from = Math.max(0, entryIndex - 5);
         int to = entryIndex - 1;
@@ -307,7 +307,7 @@ public class FirstStrategy implements Strategy {
         return (dir == Dir.LONG) ? min : max;
     }
 
-    private BigDecimal stopByTema9Window(List<Bar> bars, int entryIndex, Dir dir) {
+    private static BigDecimal stopByTema9Window(List<Bar> bars, int entryIndex, Dir dir) {
         // Только прошлые данные, без бара входа
         int from = Math.max(0, entryIndex - 5);
         int to = entryIndex - 1;
@@ -354,7 +354,7 @@ public class FirstStrategy implements Strategy {
         return a.add(b).divide(new BigDecimal("2"), 10, RoundingMode.HALF_UP);
     }
 
-    private Integer findStrongestImpulseInWindow(List<Bar> bars, int from, int to) {
+    private static Integer findStrongestImpulseInWindow(List<Bar> bars, int from, int to) {
         Integer bestIdx = null;
         BigDecimal bestScore = null;
 
@@ -385,7 +385,7 @@ public class FirstStrategy implements Strategy {
         return bestIdx;
     }
 
-    private List<Integer> findCrossIdxInWindow(List<Bar> bars, int from, int to) {
+    private static List<Integer> findCrossIdxInWindow(List<Bar> bars, int from, int to) {
         List<Integer> res = new ArrayList<>();
         int lo = Math.max(1, from);
         int hi = Math.min(to, bars.size() - 1);
@@ -407,7 +407,7 @@ public class FirstStrategy implements Strategy {
         return res;
     }
 
-    private boolean areEquivalent(BigDecimal a, BigDecimal b) {
+    private static boolean areEquivalent(BigDecimal a, BigDecimal b) {
         if (a == null || b == null) return false;
 
         BigDecimal diff = a.subtract(b).abs();
@@ -442,7 +442,7 @@ public class FirstStrategy implements Strategy {
         return b.openTime().plus(tf);
     }
 
-    private static BigDecimal calcQty(BigDecimal entry, BigDecimal stop, BigDecimal riskUsdt) {
+    static BigDecimal calcQty(BigDecimal entry, BigDecimal stop, BigDecimal riskUsdt) {
         if (riskUsdt == null || riskUsdt.compareTo(BigDecimal.ZERO) <= 0) return BigDecimal.ZERO;
 
         BigDecimal delta = entry.subtract(stop).abs();
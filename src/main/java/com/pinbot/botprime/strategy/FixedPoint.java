@@ -0,0 +1,101 @@
+package com.pinbot.botprime.strategy;
+
+import java.math.BigDecimal;
+
+/**
+ * Целочисленная арифметика с фиксированной точкой для симуляции.
+ *
+ * Единицы:
+ *  - цена бара   — 1e-8 (как NUMERIC(18,8) и BarSeries);
+ *  - цена сделки — тик 0.01 (PRICE_STEP);
+ *  - объём       — шаг 0.001 (STEP_QTY);
+ *  - деньги      — центы 0.01 (PnL округляется до 2 знаков, как setScale(2, HALF_UP));
+ *  - ставка комиссии — 1e-6.
+ *
+ * Все операции без аллокаций; переполнение не замалчиваем (Math.*Exact).
+ */
+public final class FixedPoint {
+
+    private FixedPoint() {
+        // utility class
+    }
+
+    /** Единиц 1e-8 в одном тике 0.01. */
+    public static final long UNITS_PER_TICK = 1_000_000L;
+    /** Масштаб ставки комиссии: 0.00055 → 550. */
+    public static final int  FEE_SCALE = 6;
+    public static final long FEE_UNIT  = 1_000_000L;
+
+    /* ---------- округления ---------- */
+
+    /** num/den с округлением HALF_UP (0.5 — от нуля), den > 0. */
+    public static long divHalfUp(long num, long den) {
+        long q = num / den;
+        long r = num % den;
+        if (r == 0) return q;
+        long twice = Math.abs(r) * 2;
+        if (twice >= den) q += (num < 0) ? -1 : 1;
+        return q;
+    }
+
+    /** Цена бара (1e-8) → тик 0.01 по HALF_UP (= setScale(2, HALF_UP)). */
+    public static long unitsToTicksHalfUp(long units) {
+        return divHalfUp(units, UNITS_PER_TICK);
+    }
+
+    public static long ticksToUnits(long ticks) {
+        return Math.multiplyExact(ticks, UNITS_PER_TICK);
+    }
+
+    /** Цена бара (1e-8) → double; для цен NUMERIC(18,8) совпадает с BigDecimal.doubleValue(). */
+    public static double unitsToDouble(long units) {
+        return units / 1e8;
+    }
+
+    /* ---------- PnL ---------- */
+
+    /**
+     * PnL сделки в центах:
+     *   gross = (exit - entry) * qty   (для SHORT — наоборот)
+     *   fee   = entry*qty*feeIn + exit*qty*feeOut
+     *   pnl   = round2(gross - fee)
+     * Цены — в тиках, объём — в шагах 0.001, ставки — в единицах 1e-6.
+     */
+    public static long pnlCents(boolean isLong, long entryTicks, long exitTicks, long qtySteps,
+                                long feeInRate, long feeOutRate) {
+        long diff = isLong ? exitTicks - entryTicks : entryTicks - exitTicks;
+        // тик(1e-2) * шаг(1e-3) = 1e-5; с комиссией 1e-6 → 1e-11
+        long gross = Math.multiplyExact(Math.multiplyExact(diff, qtySteps), FEE_UNIT);
+        long feeIn  = Math.multiplyExact(Math.multiplyExact(entryTicks, qtySteps), feeInRate);
+        long feeOut = Math.multiplyExact(Math.multiplyExact(exitTicks, qtySteps), feeOutRate);
+        long total  = Math.subtractExact(Math.subtractExact(gross, feeIn), feeOut);
+        return divHalfUp(total, 1_000_000_000L); // 1e-11 → 1e-2
+    }
+
+    /* ---------- конвертация ---------- */
+
+    /** Ставка комиссии (например 0.00055) → единицы 1e-6; точность больше 6 знаков не допускаем. */
+    public static long feeRate(BigDecimal rate) {
+        return rate.movePointRight(FEE_SCALE).longValueExact();
+    }
+
+    public static long toTicks(BigDecimal price) {
+        return price.movePointRight(2).longValueExact();
+    }
+
+    public static long toSteps(BigDecimal qty) {
+        return qty.movePointRight(3).longValueExact();
+    }
+
+    public static long toCents(BigDecimal money) {
+        return money.movePointRight(2).longValueExact();
+    }
+
+    public static BigDecimal ticks(long ticks) { return BigDecimal.valueOf(ticks, 2); }
+
+    public static BigDecimal steps(long steps) { return BigDecimal.valueOf(steps, 3); }
+
+    public static BigDecimal cents(long cents) { return BigDecimal.valueOf(cents, 2); }
+
+    public static BigDecimal units(long units) { return BigDecimal.valueOf(units, 8); }
+}
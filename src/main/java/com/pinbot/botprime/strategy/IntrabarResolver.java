@@ -0,0 +1,33 @@
+package com.pinbot.botprime.strategy;
+
+/**
+ * Порядок срабатывания уровней внутри бара, когда по OHLC его не узнать.
+ *
+ * У пары MainPro HEDGE TP стоит ровно на MAIN SL, поэтому неоднозначен один случай: бар задел и MAIN SL,
+ * и HEDGE SL (1R с другой стороны входа). По умолчанию (PRIORITY) первым считается MAIN SL — как в
+ * MainProStrategy: пара закрывается, HEDGE берёт TP. Если на самом деле цена сначала дошла до HEDGE SL,
+ * HEDGE закрывается с убытком, а MAIN — по стопу позже на том же баре.
+ *
+ * Симулятор спрашивает резолвер только на таких барах, поэтому реализация может позволить себе
+ * сходить за минутками (см. MinuteFillResolver).
+ */
+@FunctionalInterface
+public interface IntrabarResolver {
+
+    /** Порядок не определён (нет данных или оба уровня в одной минутке) — действует приоритет MAIN SL. */
+    int UNKNOWN = 0;
+    int MAIN_SL_FIRST = 1;
+    int HEDGE_SL_FIRST = 2;
+
+    /** Только приоритет MAIN SL → HEDGE TP → HEDGE SL, без внутрибарных данных. */
+    IntrabarResolver PRIORITY = (barOpenMs, barMs, mainLong, mainStopUnits, hedgeSlUnits) -> UNKNOWN;
+
+    /**
+     * Какой уровень цена задела первой внутри [barOpenMs, barOpenMs + barMs).
+     * @param mainLong     направление MAIN (HEDGE — противоположное)
+     * @param mainStopUnits MAIN SL в единицах 1e-8 (LONG: ниже входа)
+     * @param hedgeSlUnits  HEDGE SL в единицах 1e-8 (LONG: выше входа)
+     * @return UNKNOWN, MAIN_SL_FIRST или HEDGE_SL_FIRST
+     */
+    int firstHit(long barOpenMs, long barMs, boolean mainLong, long mainStopUnits, long hedgeSlUnits);
+}
@@ -0,0 +1,114 @@
+package com.pinbot.botprime.strategy;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Настраиваемые параметры MainProStrategy (неизменяемые).
+ *
+ * DEFAULTS совпадают с константами MainProStrategy — с ними симулятор даёт ровно эталонные сделки.
+ * Для перебора параметров удобнее toBuilder(): меняем нужные поля, остальное берётся из исходного набора.
+ */
+public record MainProParams(
+        BigDecimal initialDeposit,
+        BigDecimal riskPctPerPair,
+        BigDecimal riskPctPerPairLow,
+        int lossStreakRiskDown,
+        BigDecimal hedgeRatio,
+        int dailyStopLimit,
+        BigDecimal feeMakerInMain,
+        BigDecimal feeTakerOutMain,
+        BigDecimal feeTakerInHedge,
+        BigDecimal feeTakerOutHedge
+) {
+
+    public static final MainProParams DEFAULTS = new MainProParams(
+            MainProStrategy.INITIAL_DEPOSIT,
+            MainProStrategy.RISK_PCT_PER_PAIR,
+            MainProStrategy.RISK_PCT_PER_PAIR_LOW,
+            MainProStrategy.LOSS_STREAK_RISK_DOWN,
+            MainProStrategy.HEDGE_RATIO,
+            MainProStrategy.DAILY_STOP_LIMIT,
+            MainProStrategy.FEE_MAKER_IN_MAIN,
+            MainProStrategy.FEE_TAKER_OUT_MAIN,
+            MainProStrategy.FEE_TAKER_IN_HEDGE,
+            MainProStrategy.FEE_TAKER_OUT_HEDGE
+    );
+
+    public MainProParams {
+        Objects.requireNonNull(initialDeposit, "initialDeposit");
+        Objects.requireNonNull(riskPctPerPair, "riskPctPerPair");
+        Objects.requireNonNull(riskPctPerPairLow, "riskPctPerPairLow");
+        Objects.requireNonNull(hedgeRatio, "hedgeRatio");
+        Objects.requireNonNull(feeMakerInMain, "feeMakerInMain");
+        Objects.requireNonNull(feeTakerOutMain, "feeTakerOutMain");
+        Objects.requireNonNull(feeTakerInHedge, "feeTakerInHedge");
+        Objects.requireNonNull(feeTakerOutHedge, "feeTakerOutHedge");
+        if (initialDeposit.signum() <= 0) throw new IllegalArgumentException("initialDeposit must be > 0");
+        if (riskPctPerPair.signum() < 0 || riskPctPerPairLow.signum() < 0) {
+            throw new IllegalArgumentException("risk pct must be >= 0");
+        }
+        if (hedgeRatio.signum() < 0) throw new IllegalArgumentException("hedgeRatio must be >= 0");
+        if (lossStreakRiskDown < 0) throw new IllegalArgumentException("lossStreakRiskDown must be >= 0");
+        if (dailyStopLimit < 0) throw new IllegalArgumentException("dailyStopLimit must be >= 0");
+        // симулятор переводит депозит в центы, комиссии — в 1e-6 (FixedPoint): более мелкие знаки не представимы
+        requireScale(initialDeposit, 2, "initialDeposit");
+        requireFeeRate(feeMakerInMain, "feeMakerInMain");
+        requireFeeRate(feeTakerOutMain, "feeTakerOutMain");
+        requireFeeRate(feeTakerInHedge, "feeTakerInHedge");
+        requireFeeRate(feeTakerOutHedge, "feeTakerOutHedge");
+    }
+
+    private static void requireFeeRate(BigDecimal v, String name) {
+        if (v.signum() < 0 || v.compareTo(BigDecimal.ONE) >= 0) {
+            throw new IllegalArgumentException(name + " must be in [0, 1): " + v.toPlainString());
+        }
+        requireScale(v, FixedPoint.FEE_SCALE, name);
+    }
+
+    private static void requireScale(BigDecimal v, int maxScale, String name) {
+        if (v.stripTrailingZeros().scale() > maxScale) {
+            throw new IllegalArgumentException(name + " must have at most " + maxScale + " decimal places: "
+                    + v.toPlainString());
+        }
+    }
+
+    public Builder toBuilder() { return new Builder(this); }
+
+    public static Builder builder() { return new Builder(DEFAULTS); }
+
+    public static final class Builder {
+        private BigDecimal initialDeposit, riskPctPerPair, riskPctPerPairLow, hedgeRatio;
+        private BigDecimal feeMakerInMain, feeTakerOutMain, feeTakerInHedge, feeTakerOutHedge;
+        private int lossStreakRiskDown, dailyStopLimit;
+
+        private Builder(MainProParams p) {
+            initialDeposit = p.initialDeposit;
+            riskPctPerPair = p.riskPctPerPair;
+            riskPctPerPairLow = p.riskPctPerPairLow;
+            lossStreakRiskDown = p.lossStreakRiskDown;
+            hedgeRatio = p.hedgeRatio;
+            dailyStopLimit = p.dailyStopLimit;
+            feeMakerInMain = p.feeMakerInMain;
+            feeTakerOutMain = p.feeTakerOutMain;
+            feeTakerInHedge = p.feeTakerInHedge;
+            feeTakerOutHedge = p.feeTakerOutHedge;
+        }
+
+        public Builder initialDeposit(BigDecimal v)     { initialDeposit = v; return this; }
+        public Builder riskPctPerPair(BigDecimal v)     { riskPctPerPair = v; return this; }
+        public Builder riskPctPerPairLow(BigDecimal v)  { riskPctPerPairLow = v; return this; }
+        public Builder lossStreakRiskDown(int v)        { lossStreakRiskDown = v; return this; }
+        public Builder hedgeRatio(BigDecimal v)         { hedgeRatio = v; return this; }
+        public Builder dailyStopLimit(int v)            { dailyStopLimit = v; return this; }
+        public Builder feeMakerInMain(BigDecimal v)     { feeMakerInMain = v; return this; }
+        public Builder feeTakerOutMain(BigDecimal v)    { feeTakerOutMain = v; return this; }
+        public Builder feeTakerInHedge(BigDecimal v)    { feeTakerInHedge = v; return this; }
+        public Builder feeTakerOutHedge(BigDecimal v)   { feeTakerOutHedge = v; return this; }
+
+        public MainProParams build() {
+            return new MainProParams(initialDeposit, riskPctPerPair, riskPctPerPairLow, lossStreakRiskDown,
+                    hedgeRatio, dailyStopLimit, feeMakerInMain, feeTakerOutMain, feeTakerInHedge, feeTakerOutHedge);
+        }
+    }
+}
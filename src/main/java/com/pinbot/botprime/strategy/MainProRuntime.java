@@ -0,0 +1,78 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.IndicatorDao.Bar;
+import com.pinbot.botprime.backtest.RollingBarSeries;
+
+/**
+ * MainPro по одному закрытому бару: onBar(...) → один step симулятора.
+ *
+ * Состояние стратегии (pending-сигнал, открытые MAIN/HEDGE, окна сигналов, дневные стопы, equity)
+ * живёт в MainProSimulator между вызовами, бары — в RollingBarSeries на WINDOW последних
+ * (step смотрит назад не дальше 6 баров). Поэтому бар стоит микросекунды, а не прогон всей истории,
+ * и сделки те же, что у MainProSimulator.run по той же серии (см. MainProRuntimeParityTest).
+ *
+ * Не потокобезопасен: бары подаёт один поток.
+ */
+public final class MainProRuntime {
+
+    /** Сколько последних баров держим (с запасом к глубине просмотра step). */
+    public static final int WINDOW = 64;
+
+    private final RollingBarSeries bars = new RollingBarSeries(WINDOW);
+    private final SimTradeLog out = new SimTradeLog();
+    private final MainProSimulator sim;
+
+    public MainProRuntime() {
+        this(MainProParams.DEFAULTS);
+    }
+
+    public MainProRuntime(MainProParams params) {
+        this.sim = new MainProSimulator(bars, params, out);
+    }
+
+    /**
+     * Следующий закрытый бар (цены в 1e-8). open_time строго больше предыдущего.
+     * @return сколько сделок закрылось на этом баре (последние записи trades())
+     */
+    public int onBar(long openTimeMs,
+                     long openU, long highU, long lowU, long closeU,
+                     double ema11, double ema30, double ema110, double ema200,
+                     double tema9, double rsi2h, double smaRsi2h,
+                     boolean impulse) {
+        bars.append(openTimeMs, openU, highU, lowU, closeU,
+                ema11, ema30, ema110, ema200, tema9, rsi2h, smaRsi2h, impulse);
+        return step();
+    }
+
+    public int onBar(Bar b) {
+        bars.append(b);
+        return step();
+    }
+
+    private int step() {
+        int before = out.size();
+        sim.step(bars.size() - 1);
+        return out.size() - before;
+    }
+
+    /** Все закрытые сделки с начала подачи баров. */
+    public SimTradeLog trades() { return out; }
+
+    /** Сигнал последнего бара: пара откроется по OPEN следующего. +1 LONG, -1 SHORT, 0 — нет. */
+    public int pendingSignal() { return sim.pendingSignal(); }
+
+    public boolean mainOpen() { return sim.mainOpen(); }
+
+    public boolean hedgeOpen() { return sim.hedgeOpen(); }
+
+    public int dayStops() { return sim.dayStops(); }
+
+    public long equityCents() { return sim.equityCents(); }
+
+    public int barsSeen() { return bars.size(); }
+
+    /** open_time последнего поданного бара; Long.MIN_VALUE — баров ещё не было. */
+    public long lastOpenTimeMs() {
+        return bars.size() == 0 ? Long.MIN_VALUE : bars.openTimeMs(bars.size() - 1);
+    }
+}
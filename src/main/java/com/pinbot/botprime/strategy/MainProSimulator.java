@@ -0,0 +1,412 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.BarColumns;
+import com.pinbot.botprime.backtest.BarSeries;
+import com.pinbot.botprime.backtest.IndicatorDao.Bar;
+import com.pinbot.botprime.strategy.MainProStrategy.Dir;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.pinbot.botprime.strategy.FixedPoint.UNITS_PER_TICK;
+import static com.pinbot.botprime.strategy.FixedPoint.unitsToDouble;
+import static com.pinbot.botprime.strategy.FixedPoint.unitsToTicksHalfUp;
+
+/**
+ * MainProStrategy на целочисленной арифметике (fixed-point) поверх BarSeries.
+ *
+ * Даёт те же сделки, что и MainProStrategy.backtest (бит-в-бит, см. MainProSimulatorParityTest), но:
+ *  - цикл по барам не создаёт объектов: цены в long (1e-8 / тики 0.01), объёмы в шагах 0.001,
+ *    equity и PnL в центах, индикаторы сравниваются как double;
+ *  - сделки пишутся в примитивный SimTradeLog.
+ *
+ * Расчёт стопа и объёма на входе (computeStopForEntry / calcQtyForPair) выполняется только на баре сигнала
+ * и берётся из MainProStrategy как есть — это гарантирует те же округления.
+ *
+ * Отличие в порядке: сигнал, найденный на баре i, разрешается в pending на шаге i+1 (когда бар входа уже есть),
+ * а не заглядыванием вперёд на шаге i. Результат тот же, зато симулятору нужны только текущий и прошлые бары:
+ * step(i) читает i, i - 1, i - 4 и (на входе) i - 6..i, поэтому его можно кормить по одному бару (MainProRuntime).
+ *
+ * Бар, задевший и MAIN SL, и HEDGE SL, по умолчанию разрешается приоритетом MAIN SL (как в MainProStrategy);
+ * с intrabar(...) порядок на таких барах берётся из IntrabarResolver.
+ */
+public final class MainProSimulator {
+
+    private static final long TF_MS        = MainProStrategy.TF.toMillis();
+    private static final long DAY_MS       = 86_400_000L;
+    private static final long TWO_HOURS_MS = 7_200_000L;
+
+    private static final double RSI_HIGH = 75.0;
+    private static final double RSI_LOW  = 35.0;
+
+    private final BarColumns bars;
+    private final List<Bar> barView;
+    private final SimTradeLog out;
+    private final MainProParams params;
+
+    /* ставки комиссий в единицах 1e-6 (см. FixedPoint.feeRate) */
+    private final long feeMainIn, feeMainOut, feeHedgeIn, feeHedgeOut;
+
+    /* ---- счёт ---- */
+    private final SimAccount account;
+    private IntrabarResolver intrabar = IntrabarResolver.PRIORITY;
+    private int ambiguousBars;
+    private int hedgeFirstBars;
+    private int  consecutiveLossPairs;
+    private long curDay = Long.MIN_VALUE;
+    private int  dayStops;
+    private long nextPairId = 1L;
+
+    /* ---- сигнал предыдущего бара, ждёт бар входа ---- */
+    private boolean signalActive;
+    private boolean signalLong;
+
+    /* ---- MAIN ---- */
+    private boolean mainActive;
+    private long    mainPairId;
+    private boolean mainLong;
+    private long    mainEntryTime;
+    private long    mainEntryTicks;
+    private long    mainStopTicks;
+    private long    mainQty;
+    private boolean armed75, armed35;
+
+    /* ---- HEDGE ---- */
+    private boolean hedgeActive;
+    private long    hedgePairId;
+    private boolean hedgeLong;
+    private long    hedgeEntryTime;
+    private long    hedgeEntryTicks;
+    private long    hedgeTpTicks;
+    private long    hedgeSlTicks;
+    private long    hedgeQty;
+
+    /* ---- окна сигналов ---- */
+    private boolean w1Active;
+    private boolean w1Long;
+    private int     w1Deadline;
+    private boolean w2Active;
+    private int     w2Deadline;
+
+    public MainProSimulator(BarColumns bars) {
+        this(bars, MainProParams.DEFAULTS, new SimTradeLog());
+    }
+
+    /** @param params параметры стратегии; точность комиссий и депозита проверяет MainProParams */
+    public MainProSimulator(BarColumns bars, MainProParams params, SimTradeLog out) {
+        this(bars, params, out, new SimAccount(FixedPoint.toCents(params.initialDeposit()), 0));
+    }
+
+    /** Симулятор на чужом счёте (портфель: один SimAccount на все символы); params.initialDeposit() не используется. */
+    public MainProSimulator(BarColumns bars, MainProParams params, SimTradeLog out, SimAccount account) {
+        this.bars = bars;
+        this.barView = new RecentBars(bars);
+        this.out = out;
+        this.params = params;
+        this.feeMainIn   = FixedPoint.feeRate(params.feeMakerInMain());
+        this.feeMainOut  = FixedPoint.feeRate(params.feeTakerOutMain());
+        this.feeHedgeIn  = FixedPoint.feeRate(params.feeTakerInHedge());
+        this.feeHedgeOut = FixedPoint.feeRate(params.feeTakerOutHedge());
+        this.account = account;
+    }
+
+    /** Полный прогон серии с параметрами по умолчанию. */
+    public static SimTradeLog run(BarSeries bars) {
+        return run(bars, MainProParams.DEFAULTS);
+    }
+
+    /** Полный прогон серии с заданными параметрами. */
+    public static SimTradeLog run(BarSeries bars, MainProParams params) {
+        return run(bars, params, 0, bars.size());
+    }
+
+    /**
+     * Прогон только баров [from, to) общей серии, без копирования: бары до from видны лишь как история
+     * индикаторов (i - 1, i - 4), счёт стартует с params.initialDeposit() и без открытых позиций.
+     * Пара, не закрытая к бару to - 1, в журнал не попадает.
+     */
+    public static SimTradeLog run(BarSeries bars, MainProParams params, int from, int to) {
+        return run(bars, params, from, to, IntrabarResolver.PRIORITY);
+    }
+
+    /** То же, с разрешением неоднозначных баров через intrabar. */
+    public static SimTradeLog run(BarSeries bars, MainProParams params, int from, int to, IntrabarResolver intrabar) {
+        MainProSimulator sim = new MainProSimulator(bars, params, new SimTradeLog()).intrabar(intrabar);
+        if (to - from < 10) return sim.out;
+        for (int i = from; i < to; i++) sim.step(i);
+        return sim.out;
+    }
+
+    /** Резолвер порядка уровней на неоднозначных барах (по умолчанию PRIORITY). */
+    public MainProSimulator intrabar(IntrabarResolver resolver) {
+        this.intrabar = resolver;
+        return this;
+    }
+
+    public SimTradeLog trades() { return out; }
+
+    public MainProParams params() { return params; }
+
+    public long equityCents() { return account.equityCents(); }
+
+    /** Сигнал, найденный на последнем шаге и ждущий бара входа: +1 LONG, -1 SHORT, 0 — нет. */
+    public int pendingSignal() { return signalActive ? (signalLong ? 1 : -1) : 0; }
+
+    public boolean mainOpen() { return mainActive; }
+
+    public boolean hedgeOpen() { return hedgeActive; }
+
+    public int dayStops() { return dayStops; }
+
+    /** Баров, задевших и MAIN SL, и HEDGE SL. */
+    public int ambiguousBars() { return ambiguousBars; }
+
+    /** Из них — где резолвер поставил HEDGE SL первым. */
+    public int hedgeFirstBars() { return hedgeFirstBars; }
+
+    /* ===================== ШАГ ПО БАРУ ===================== */
+
+    public void step(int i) {
+        final long t = bars.openTimeMs(i);
+
+        // смена дня → сбрасываем счётчик дневных стопов
+        long day = Math.floorDiv(t, DAY_MS);
+        if (day != curDay) {
+            curDay = day;
+            dayStops = 0;
+        }
+
+        /* 1) Сигнал прошлого бара → pending → активация по OPEN(i) */
+        if (signalActive) {
+            signalActive = false;
+            openPair(i, signalLong);
+        }
+
+        /* 2) Управление открытой парой: MAIN SL → HEDGE TP → HEDGE SL → REVERSAL → RSI(2h) */
+        if (mainActive) {
+            final long lowU  = bars.lowUnits(i);
+            final long highU = bars.highUnits(i);
+            final long xt    = t + TF_MS;
+
+            boolean mainClosedThisBar = false;
+            long stopU = mainStopTicks * UNITS_PER_TICK;
+            boolean mainStopHit = mainLong ? lowU <= stopU : highU >= stopU;
+
+            // 2.0 задеты оба стопа: если HEDGE SL был первым — HEDGE закрывается по нему, MAIN — по стопу в 2.1
+            if (mainStopHit && hedgeActive) {
+                long slU = hedgeSlTicks * UNITS_PER_TICK;
+                if (hedgeLong ? lowU <= slU : highU >= slU) {
+                    ambiguousBars++;
+                    if (intrabar.firstHit(t, TF_MS, mainLong, stopU, slU) == IntrabarResolver.HEDGE_SL_FIRST) {
+                        hedgeFirstBars++;
+                        closeHedge(xt, hedgeSlTicks, SimTradeLog.HEDGE_SL_1R);
+                        hedgeActive = false;
+                    }
+                }
+            }
+
+            // 2.1 MAIN SL
+            if (mainStopHit) {
+                long pairPnl = closeMain(xt, mainStopTicks, SimTradeLog.STOP_LOSS);
+                dayStops++;
+                if (hedgeActive) {
+                    pairPnl += closeHedge(xt, mainStopTicks, SimTradeLog.HEDGE_TP_AT_MAIN_SL);
+                }
+                consecutiveLossPairs = pairPnl < 0 ? consecutiveLossPairs + 1 : 0;
+                mainActive = false; hedgeActive = false; mainClosedThisBar = true;
+            }
+
+            // 2.2 HEDGE TP
+            if (!mainClosedThisBar && hedgeActive) {
+                long tpU = hedgeTpTicks * UNITS_PER_TICK;
+                if (hedgeLong ? highU >= tpU : lowU <= tpU) {
+                    closeHedge(xt, hedgeTpTicks, SimTradeLog.HEDGE_TP_AT_MAIN_SL);
+                    hedgeActive = false;
+                }
+            }
+
+            // 2.3 HEDGE SL
+            if (!mainClosedThisBar && hedgeActive) {
+                long slU = hedgeSlTicks * UNITS_PER_TICK;
+                if (hedgeLong ? lowU <= slU : highU >= slU) {
+                    closeHedge(xt, hedgeSlTicks, SimTradeLog.HEDGE_SL_1R);
+                    hedgeActive = false;
+                }
+            }
+
+            // 2.4 REVERSAL
+            if (mainActive) {
+                int rev = pairDirectionOnBar(i);
+                if (rev != 0 && (rev > 0) != mainLong) {
+                    boolean revLong = rev > 0;
+                    closePair(xt, unitsToTicksHalfUp(bars.closeUnits(i)), SimTradeLog.REVERSAL_CLOSE);
+
+                    // новая пара в обратную сторону (если день не заблокирован)
+                    if (dayStops < params.dailyStopLimit() && trendOk(i, revLong)) {
+                        signalActive = true;
+                        signalLong = revLong;
+                    }
+                    return; // к RSI и сигналам не идём
+                }
+            }
+
+            // 2.5 RSI (на 2h)
+            if (mainActive && i >= 4 && is2hBoundary(t)) {
+                double r0 = bars.rsi2h(i - 4), s0 = bars.smaRsi2h(i - 4);
+                double r1 = bars.rsi2h(i),     s1 = bars.smaRsi2h(i);
+                boolean cross, exArmed;
+                if (mainLong) {
+                    if (r1 >= RSI_HIGH) armed75 = true;
+                    cross   = r0 > s0 && r1 <= s1;
+                    exArmed = armed75 && r1 < RSI_HIGH;
+                } else {
+                    if (r1 <= RSI_LOW) armed35 = true;
+                    cross   = r0 < s0 && r1 >= s1;
+                    exArmed = armed35 && r1 > RSI_LOW;
+                }
+                if (cross || exArmed) {
+                    closePair(xt, unitsToTicksHalfUp(bars.closeUnits(i)),
+                            cross ? SimTradeLog.RSI_CROSS : SimTradeLog.RSI_75_35);
+                }
+            }
+        }
+
+        /* 3) Сигналы (если нет открытой пары и день не заблокирован) */
+        if (!mainActive && dayStops < params.dailyStopLimit()) {
+            boolean s1Long = false, s1Short = false;
+            if (i > 0) {
+                double pe11 = bars.ema11(i - 1), pe30 = bars.ema30(i - 1);
+                double e11  = bars.ema11(i),     e30  = bars.ema30(i);
+                s1Long  = pe11 < pe30 && e11 >= e30;
+                s1Short = pe11 > pe30 && e11 <= e30;
+            }
+            double e110 = bars.ema110(i);
+            boolean s2 = unitsToDouble(bars.lowUnits(i)) <= e110 && e110 <= unitsToDouble(bars.highUnits(i));
+
+            if (s1Long)  { w1Active = true; w1Long = true;  w1Deadline = i + 2; }
+            if (s1Short) { w1Active = true; w1Long = false; w1Deadline = i + 2; }
+            if (s2)      { w2Active = true; w2Deadline = i + 5; }
+
+            int entry = 0; // +1 LONG, -1 SHORT
+            if (w1Active && s2 && i <= w1Deadline) {
+                entry = w1Long ? 1 : -1;
+            } else if (w2Active && i <= w2Deadline && (s1Long || s1Short)) {
+                entry = s1Long ? 1 : -1;
+            }
+
+            if (entry != 0 && trendOk(i, entry > 0)) {
+                signalActive = true;
+                signalLong = entry > 0;
+                w1Active = false; w2Active = false;
+            }
+
+            // Истечение окон
+            if (w1Active && i > w1Deadline) w1Active = false;
+            if (w2Active && i > w2Deadline) w2Active = false;
+        }
+    }
+
+    /* ===================== ВХОД ===================== */
+
+    /** Стоп и объём по бару входа i (как pending в MainProStrategy), затем активация пары. */
+    private void openPair(int i, boolean isLong) {
+        Dir dir = isLong ? Dir.LONG : Dir.SHORT;
+        BigDecimal stopRaw = MainProStrategy.computeStopForEntry(barView, i, dir);
+        if (stopRaw == null) return;
+
+        BigDecimal entryPrice = FixedPoint.units(bars.openUnits(i));
+        BigDecimal safeStop   = MainProStrategy.safeStop(stopRaw, dir);
+        BigDecimal riskPct = (consecutiveLossPairs >= params.lossStreakRiskDown())
+                ? params.riskPctPerPairLow() : params.riskPctPerPair();
+        BigDecimal riskUsdt = FixedPoint.cents(Math.max(0L, account.equityCents())).multiply(riskPct);
+
+        MainProStrategy.QtyPair qty = MainProStrategy.calcQtyForPair(entryPrice, safeStop, riskUsdt, params);
+        if (qty.mainQty.compareTo(MainProStrategy.MIN_QTY) < 0) return;
+
+        long pairId = nextPairId++;
+        if (dayStops >= params.dailyStopLimit()) return; // pending сгорает до конца дня
+        if (!account.tryOpenPair()) return;               // бюджет пар счёта исчерпан
+
+        final long t = bars.openTimeMs(i);
+
+        mainActive     = true;
+        mainPairId     = pairId;
+        mainLong       = isLong;
+        mainEntryTime  = t;
+        mainEntryTicks = unitsToTicksHalfUp(bars.openUnits(i));
+        mainStopTicks  = FixedPoint.toTicks(safeStop);
+        mainQty        = FixedPoint.toSteps(qty.mainQty);
+        armed75 = false; armed35 = false;
+
+        long r = Math.abs(mainEntryTicks - mainStopTicks);
+        hedgeActive     = true;
+        hedgePairId     = pairId;
+        hedgeLong       = !isLong;
+        hedgeEntryTime  = t;
+        hedgeEntryTicks = mainEntryTicks;
+        hedgeQty        = FixedPoint.toSteps(qty.hedgeQty);
+        hedgeTpTicks    = mainStopTicks;
+        hedgeSlTicks    = isLong ? mainEntryTicks + r : mainEntryTicks - r;
+    }
+
+    /* ===================== ВЫХОДЫ ===================== */
+
+    /** Закрывает MAIN, возвращает его PnL (центы). */
+    private long closeMain(long exitTime, long exitTicks, byte reason) {
+        long pnl = FixedPoint.pnlCents(mainLong, mainEntryTicks, exitTicks, mainQty, feeMainIn, feeMainOut);
+        out.add(mainPairId, SimTradeLog.MAIN, side(mainLong), mainEntryTime, mainEntryTicks, mainStopTicks,
+                mainQty, exitTime, exitTicks, reason, pnl);
+        account.book(pnl);
+        account.pairClosed(); // HEDGE без MAIN не живёт: закрывается тем же шагом
+        return pnl;
+    }
+
+    /** Закрывает HEDGE, возвращает его PnL (центы). */
+    private long closeHedge(long exitTime, long exitTicks, byte reason) {
+        long pnl = FixedPoint.pnlCents(hedgeLong, hedgeEntryTicks, exitTicks, hedgeQty, feeHedgeIn, feeHedgeOut);
+        out.add(hedgePairId, SimTradeLog.HEDGE, side(hedgeLong), hedgeEntryTime, hedgeEntryTicks, hedgeSlTicks,
+                hedgeQty, exitTime, exitTicks, reason, pnl);
+        account.book(pnl);
+        return pnl;
+    }
+
+    /** Закрытие MAIN + HEDGE по одной цене (REVERSAL / RSI). */
+    private void closePair(long exitTime, long exitTicks, byte mainReason) {
+        long pairPnl = closeMain(exitTime, exitTicks, mainReason);
+        if (hedgeActive) {
+            pairPnl += closeHedge(exitTime, exitTicks, SimTradeLog.PAIR_CLOSE_WITH_MAIN);
+        }
+        consecutiveLossPairs = pairPnl < 0 ? consecutiveLossPairs + 1 : 0;
+        mainActive = false; hedgeActive = false;
+    }
+
+    /* ===================== СИГНАЛЫ / ФИЛЬТРЫ ===================== */
+
+    /** Пара сигналов на баре i (кросс EMA11/EMA30 + касание EMA110): +1 LONG, -1 SHORT, 0 — нет. */
+    private int pairDirectionOnBar(int i) {
+        if (i <= 0) return 0;
+        double pe11 = bars.ema11(i - 1), pe30 = bars.ema30(i - 1);
+        double e11  = bars.ema11(i),     e30  = bars.ema30(i);
+        double e110 = bars.ema110(i);
+        boolean s1Long  = pe11 < pe30 && e11 >= e30;
+        boolean s1Short = pe11 > pe30 && e11 <= e30;
+        boolean s2 = unitsToDouble(bars.lowUnits(i)) <= e110 && e110 <= unitsToDouble(bars.highUnits(i));
+        if (s1Long && s2)  return 1;
+        if (s1Short && s2) return -1;
+        return 0;
+    }
+
+    /** LONG только выше EMA200, SHORT — только ниже. */
+    private boolean trendOk(int i, boolean isLong) {
+        double close = unitsToDouble(bars.closeUnits(i));
+        double ema200 = bars.ema200(i);
+        return isLong ? close >= ema200 : close <= ema200;
+    }
+
+    private static boolean is2hBoundary(long t) {
+        // minute == 0 && hour % 2 == 0 (UTC); секунды не учитываются, как в ZonedDateTime-версии
+        return Math.floorMod(t, TWO_HOURS_MS) < 60_000L;
+    }
+
+    private static byte side(boolean isLong) { return isLong ? SimTradeLog.LONG : SimTradeLog.SHORT; }
+}
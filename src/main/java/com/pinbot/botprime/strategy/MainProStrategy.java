@@ -22,27 +22,27 @@ import java.util.List;
 public class MainProStrategy {
 
     /* ====== БАЗОВЫЕ ПАРАМЕТРЫ РИСКА/ДЕПОЗИТА ====== */
-    private static final BigDecimal INITIAL_DEPOSIT       = new BigDecimal("15000");
-    private static final BigDecimal RISK_PCT_PER_PAIR     = new BigDecimal("0.02"); // 2% от equity
-    private static final BigDecimal RISK_PCT_PER_PAIR_LOW = new BigDecimal("0.01"); // 1% при серии лоссов
-    private static final int        LOSS_STREAK_RISK_DOWN = 4;                      // ↓ риск после 4 убыточных ПАР подряд
+    static final BigDecimal INITIAL_DEPOSIT       = new BigDecimal("15000");
+    static final BigDecimal RISK_PCT_PER_PAIR     = new BigDecimal("0.02"); // 2% от equity
+    static final BigDecimal RISK_PCT_PER_PAIR_LOW = new BigDecimal("0.01"); // 1% при серии лоссов
+    static final int        LOSS_STREAK_RISK_DOWN = 4;                      // ↓ риск после 4 убыточных ПАР подряд
 
     /* ====== КОМИССИИ (подстрой под свой аккаунт) ====== */
-    private static final BigDecimal FEE_MAKER_IN_MAIN   = new BigDecimal("0.0002");
-    private static final BigDecimal FEE_TAKER_OUT_MAIN  = new BigDecimal("0.00055");
-    private static final BigDecimal FEE_TAKER_IN_HEDGE  = new BigDecimal("0.00055");
-    private static final BigDecimal FEE_TAKER_OUT_HEDGE = new BigDecimal("0.00055");
+    static final BigDecimal FEE_MAKER_IN_MAIN   = new BigDecimal("0.0002");
+    static final BigDecimal FEE_TAKER_OUT_MAIN  = new BigDecimal("0.00055");
+    static final BigDecimal FEE_TAKER_IN_HEDGE  = new BigDecimal("0.00055");
+    static final BigDecimal FEE_TAKER_OUT_HEDGE = new BigDecimal("0.00055");
 
     /* ====== ПРОЧИЕ НАСТРОЙКИ ====== */
-    private static final BigDecimal HEDGE_RATIO = new BigDecimal("0.30"); // доля хеджа к MAIN
-    private static final BigDecimal MIN_QTY     = new BigDecimal("0.001");
+    static final BigDecimal HEDGE_RATIO = new BigDecimal("0.30"); // доля хеджа к MAIN
+    static final BigDecimal MIN_QTY     = new BigDecimal("0.001");
     private static final BigDecimal STEP_QTY    = new BigDecimal("0.001");
     private static final BigDecimal PRICE_STEP  = new BigDecimal("0.01");
-    private static final Duration   TF          = Duration.ofMinutes(30);
+    static final Duration   TF          = Duration.ofMinutes(30);
     private static final BigDecimal EQUIV_REL   = new BigDecimal("0.0003"); // 0.03 %
 
     // Дневной лимит стопов MAIN (после достижения новых входов в этот день не делаем)
-    private static final int DAILY_STOP_LIMIT = 3;
+    static final int DAILY_STOP_LIMIT = 3;
 
     public enum Dir  { LONG, SHORT }
     public enum Role { MAIN, HEDGE }
@@ -109,7 +109,7 @@ public class MainProStrategy {
     private static class WindowAfterSignal1 { Dir dir; int s1Index; int deadline; WindowAfterSignal1(Dir d,int s1,int dl){dir=d;s1Index=s1;deadline=dl;} }
     private static class WindowAfterSignal2 { int startedAt; int deadline; WindowAfterSignal2(int s,int d){startedAt=s;deadline=d;} }
 
-    private static final class QtyPair {
+    static final class QtyPair {
         final BigDecimal mainQty, hedgeQty;
         QtyPair(BigDecimal m, BigDecimal h){ this.mainQty=m; this.hedgeQty=h; }
     }
@@ -449,24 +449,29 @@ public class MainProStrategy {
 
     /* ===================== РАСЧЁТ ОБЪЁМОВ (ПАРА) ===================== */
 
-    private QtyPair calcQtyForPair(BigDecimal entry, BigDecimal mainStop, BigDecimal riskUsdt) {
+    static QtyPair calcQtyForPair(BigDecimal entry, BigDecimal mainStop, BigDecimal riskUsdt) {
+        return calcQtyForPair(entry, mainStop, riskUsdt, MainProParams.DEFAULTS);
+    }
+
+    /** То же с параметрами (комиссии и доля хеджа из MainProParams) — для перебора параметров. */
+    static QtyPair calcQtyForPair(BigDecimal entry, BigDecimal mainStop, BigDecimal riskUsdt, MainProParams p) {
         if (entry == null || mainStop == null || riskUsdt == null || riskUsdt.signum() <= 0) {
             return new QtyPair(BigDecimal.ZERO, BigDecimal.ZERO);
         }
         BigDecimal R = entry.subtract(mainStop).abs();
 
         // Комиссии на 1 BTC в худшем сценарии
-        BigDecimal feesMain = entry.multiply(FEE_MAKER_IN_MAIN)
-                .add(mainStop.multiply(FEE_TAKER_OUT_MAIN));
+        BigDecimal feesMain = entry.multiply(p.feeMakerInMain())
+                .add(mainStop.multiply(p.feeTakerOutMain()));
 
         BigDecimal hedgeExitPrice = (entry.compareTo(mainStop) > 0) ? entry.add(R) : entry.subtract(R);
-        BigDecimal feesHedge = entry.multiply(FEE_TAKER_IN_HEDGE)
-                .add(hedgeExitPrice.abs().multiply(FEE_TAKER_OUT_HEDGE));
+        BigDecimal feesHedge = entry.multiply(p.feeTakerInHedge())
+                .add(hedgeExitPrice.abs().multiply(p.feeTakerOutHedge()));
 
         // Худший убыток на 1 BTC (MAIN 1R + HEDGE 1R с комиссиями, hedge по доле)
         BigDecimal worstLossPer1Btc = R
                 .add(feesMain)
-                .add(R.add(feesHedge).multiply(HEDGE_RATIO));
+                .add(R.add(feesHedge).multiply(p.hedgeRatio()));
 
         if (worstLossPer1Btc.signum() <= 0) return new QtyPair(BigDecimal.ZERO, BigDecimal.ZERO);
 
@@ -474,7 +479,7 @@ public class MainProStrategy {
         BigDecimal mainQty = floorToStep(rawMain, STEP_QTY);
         if (mainQty.compareTo(MIN_QTY) < 0) return new QtyPair(BigDecimal.ZERO, BigDecimal.ZERO);
 
-        BigDecimal hedgeQty = floorToStep(mainQty.multiply(HEDGE_RATIO), STEP_QTY);
+        BigDecimal hedgeQty = floorToStep(mainQty.multiply(p.hedgeRatio()), STEP_QTY);
         if (hedgeQty.compareTo(BigDecimal.ZERO) == 0) hedgeQty = MIN_QTY.min(mainQty);
 
         return new QtyPair(mainQty, hedgeQty);
@@ -482,7 +487,7 @@ public class MainProStrategy {
 
     /* ===================== PnL (с комиссиями) ===================== */
 
-    private BigDecimal pnlMain(Dir dir, BigDecimal entry, BigDecimal exit, BigDecimal qty) {
+    static BigDecimal pnlMain(Dir dir, BigDecimal entry, BigDecimal exit, BigDecimal qty) {
         BigDecimal gross = (dir == Dir.LONG) ? exit.subtract(entry) : entry.subtract(exit);
         BigDecimal pnlGross = gross.multiply(qty);
         BigDecimal feeIn  = entry.multiply(qty).multiply(FEE_MAKER_IN_MAIN);
@@ -490,7 +495,7 @@ public class MainProStrategy {
         return pnlGross.subtract(feeIn).subtract(feeOut).setScale(2, RoundingMode.HALF_UP);
     }
 
-    private BigDecimal pnlHedge(Dir dir, BigDecimal entry, BigDecimal exit, BigDecimal qty) {
+    static BigDecimal pnlHedge(Dir dir, BigDecimal entry, BigDecimal exit, BigDecimal qty) {
         BigDecimal gross = (dir == Dir.LONG) ? exit.subtract(entry) : entry.subtract(exit);
         BigDecimal pnlGross = gross.multiply(qty);
         BigDecimal feeIn  = entry.multiply(qty).multiply(FEE_TAKER_IN_HEDGE);
@@ -500,7 +505,7 @@ public class MainProStrategy {
 
     /* ===================== СТОП-ЛОГИКА ===================== */
 
-    private BigDecimal computeStopForEntry(List<Bar> bars, int entryIndex, Dir dir) {
+    static BigDecimal computeStopForEntry(List<Bar> bars, int entryIndex, Dir dir) {
         int from = Math.max(0, entryIndex - 5);
         int to   = entryIndex;
 
@@ -546,7 +551,7 @@ public class MainProStrategy {
     }
 
     /** LONG — минимум TEMA9, SHORT — максимум TEMA9 в окне [entryIndex-5 .. entryIndex]. */
-    private BigDecimal stopByTema9Window(List<Bar> bars, int entryIndex, Dir dir) {
+    private static BigDecimal stopByTema9Window(List<Bar> bars, int entryIndex, Dir dir) {
         int from = Math.max(0, entryIndex - 5);
         int to   = entryIndex;
         BigDecimal best = null;
@@ -584,7 +589,7 @@ public class MainProStrategy {
         return a.add(b).divide(new BigDecimal("2"), 10, RoundingMode.HALF_UP);
     }
 
-    private Integer findStrongestImpulseInWindow(List<Bar> bars, int from, int to) {
+    private static Integer findStrongestImpulseInWindow(List<Bar> bars, int from, int to) {
         Integer bestIdx = null; BigDecimal bestScore = null;
         for (int i = Math.max(0, from); i <= Math.min(to, bars.size()-1); i++) {
             Bar b = bars.get(i);
@@ -604,7 +609,7 @@ public class MainProStrategy {
         return bestIdx;
     }
 
-    private List<Integer> findCrossIdxInWindow(List<Bar> bars, int from, int to) {
+    private static List<Integer> findCrossIdxInWindow(List<Bar> bars, int from, int to) {
         List<Integer> res = new ArrayList<>();
         int lo = Math.max(1, from);
         int hi = Math.min(to, bars.size()-1);
@@ -620,7 +625,7 @@ public class MainProStrategy {
         return res;
     }
 
-    private boolean areEquivalent(BigDecimal a, BigDecimal b) {
+    private static boolean areEquivalent(BigDecimal a, BigDecimal b) {
         if (a == null || b == null) return false;
         BigDecimal diff = a.subtract(b).abs();
         BigDecimal mean = a.add(b).divide(new BigDecimal("2"), 10, RoundingMode.HALF_UP);
@@ -653,7 +658,7 @@ public class MainProStrategy {
         return z.getMinute() == 0 && (z.getHour() % 2 == 0);
     }
 
-    private static BigDecimal safeStop(BigDecimal stop, Dir dir) {
+    static BigDecimal safeStop(BigDecimal stop, Dir dir) {
         if (stop == null) return null;
         BigDecimal steps = stop.divide(PRICE_STEP, 0,
                 (dir == Dir.LONG) ? RoundingMode.FLOOR : RoundingMode.CEILING);
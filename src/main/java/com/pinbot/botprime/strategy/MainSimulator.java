@@ -0,0 +1,226 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.BarColumns;
+import com.pinbot.botprime.backtest.IndicatorDao.Bar;
+import com.pinbot.botprime.strategy.MainStrategy.Dir;
+import com.pinbot.botprime.trade.MainBacktestTrade;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pinbot.botprime.strategy.FixedPoint.UNITS_PER_TICK;
+import static com.pinbot.botprime.strategy.FixedPoint.unitsToDouble;
+import static com.pinbot.botprime.strategy.FixedPoint.unitsToTicksHalfUp;
+
+/**
+ * MainStrategy на целочисленной арифметике поверх BarColumns — те же сделки, что и MainStrategy.backtest
+ * (см. MainSimulatorParityTest).
+ *
+ * Цены позиции — тики 0.01 (в MainStrategy они и так округлены до 2 знаков), объём — шаги 0.001,
+ * индикаторы сравниваются как double. Стоп и объём на входе (computeStopForEntry / calcQty) считаются
+ * только на баре сигнала и берутся из MainStrategy как есть. Объект создаётся только на закрытии сделки.
+ *
+ * Как и эталон, на баре сигнала i заглядывает в бар входа i + 1, поэтому работает по готовой серии.
+ */
+public final class MainSimulator {
+
+    private static final long TF_MS        = MainStrategy.TF.toMillis();
+    private static final long TWO_HOURS_MS = 7_200_000L;
+
+    private static final double RSI_HIGH = 75.0;
+    private static final double RSI_LOW  = 25.0;
+
+    private final BarColumns bars;
+    private final List<Bar> barView;
+    private final List<MainBacktestTrade> out = new ArrayList<>();
+
+    /* ---- отложенный вход на бар pendingIndex ---- */
+    private boolean pendingActive;
+    private int     pendingIndex;
+    private boolean pendingLong;
+    private long    pendingEntryTicks;
+    private long    pendingStopTicks;
+    private long    pendingQty;
+    private String  pendingStopSource;
+    private boolean pendingImpulse;
+
+    /* ---- позиция ---- */
+    private boolean posActive;
+    private boolean posLong;
+    private long    posEntryTime;
+    private long    posEntryTicks;
+    private long    posStopTicks;    // текущий стоп (после TP1 = BE)
+    private long    posInitialStop;  // исходный стоп для отчётности/TP1
+    private long    posQty;
+    private long    posQtyHalf1;     // 0 — TP1 не делаем
+    private boolean tp1Done;
+    private long    tp1Ticks;
+    private boolean armed75, armed25;
+    private String  posStopSource;
+    private boolean posImpulse;
+
+    /* ---- окна сигналов ---- */
+    private boolean w1Active;
+    private boolean w1Long;
+    private int     w1Deadline;
+    private boolean w2Active;
+    private int     w2Deadline;
+
+    private MainSimulator(BarColumns bars) {
+        this.bars = bars;
+        this.barView = new RecentBars(bars);
+    }
+
+    /** Полный прогон серии. */
+    public static List<MainBacktestTrade> run(BarColumns bars) {
+        MainSimulator sim = new MainSimulator(bars);
+        if (bars.size() < 10) return sim.out;
+        for (int i = 0; i < bars.size(); i++) sim.step(i);
+        return sim.out;
+    }
+
+    private void step(int i) {
+        final long t  = bars.openTimeMs(i);
+        final long xt = t + TF_MS;
+
+        /* 1) Активировать отложенный вход (по OPEN текущего бара); открытая позиция заменяется, как в эталоне */
+        if (pendingActive && pendingIndex == i) {
+            posActive      = true;
+            posLong        = pendingLong;
+            posEntryTime   = t;
+            posEntryTicks  = pendingEntryTicks;
+            posStopTicks   = pendingStopTicks;
+            posInitialStop = pendingStopTicks;
+            posQty         = pendingQty;
+            posQtyHalf1    = pendingQty >= 2 ? pendingQty / 2 : 0;
+            tp1Done = false;
+            armed75 = false; armed25 = false;
+            posStopSource  = pendingStopSource;
+            posImpulse     = pendingImpulse;
+            pendingActive  = false;
+        }
+
+        /* 2) Управление позицией: SL → TP1 → RSI (2h) */
+        boolean positionClosedThisBar = false;
+        if (posActive) {
+            final long stopU = posStopTicks * UNITS_PER_TICK;
+            if (posLong ? bars.lowUnits(i) <= stopU : bars.highUnits(i) >= stopU) {
+                close(xt, posStopTicks, tp1Done ? "ONLY_TP_1" : "STOP_LOSS");
+                positionClosedThisBar = true;
+            }
+
+            // TP1 = 2R (для половины), затем стоп остатка = BE
+            if (!positionClosedThisBar && !tp1Done && posQtyHalf1 > 0) {
+                long r = Math.abs(posEntryTicks - posInitialStop);
+                long tp1 = posLong ? posEntryTicks + 2 * r : posEntryTicks - 2 * r;
+                long tp1U = tp1 * UNITS_PER_TICK;
+                if (posLong ? bars.highUnits(i) >= tp1U : bars.lowUnits(i) <= tp1U) {
+                    tp1Done = true;
+                    tp1Ticks = tp1;
+                    posStopTicks = posEntryTicks;
+                }
+            }
+
+            // RSI-выход только на 2h (сравнение i-4 и i), пороги 25/75
+            if (!positionClosedThisBar && i >= 4 && is2hBoundary(t)) {
+                double rPrev = bars.rsi2h(i - 4), sPrev = bars.smaRsi2h(i - 4);
+                double r     = bars.rsi2h(i),     s     = bars.smaRsi2h(i);
+                boolean cross, armedEx;
+                if (posLong) {
+                    if (r >= RSI_HIGH) armed75 = true;
+                    cross   = rPrev > sPrev && r <= s;
+                    armedEx = armed75 && r < RSI_HIGH;
+                } else {
+                    if (r <= RSI_LOW) armed25 = true;
+                    cross   = rPrev < sPrev && r >= s;
+                    armedEx = armed25 && r > RSI_LOW;
+                }
+                if (cross || armedEx) {
+                    close(xt, unitsToTicksHalfUp(bars.closeUnits(i)), cross ? "RSI_CROSS" : "RSI_75_25");
+                    positionClosedThisBar = true;
+                }
+            }
+        }
+
+        /* 3) Сигналы (30m) */
+        boolean s1Long = false, s1Short = false;
+        if (i > 0) {
+            double pe11 = bars.ema11(i - 1), pe30 = bars.ema30(i - 1);
+            double e11  = bars.ema11(i),     e30  = bars.ema30(i);
+            s1Long  = pe11 < pe30 && e11 >= e30;
+            s1Short = pe11 > pe30 && e11 <= e30;
+        }
+        double e110 = bars.ema110(i);
+        boolean s2 = unitsToDouble(bars.lowUnits(i)) <= e110 && e110 <= unitsToDouble(bars.highUnits(i));
+
+        /* 4) Окна */
+        if (s1Long)  { w1Active = true; w1Long = true;  w1Deadline = i + 2; }
+        if (s1Short) { w1Active = true; w1Long = false; w1Deadline = i + 2; }
+        if (s2)      { w2Active = true; w2Deadline = i + 5; }
+
+        /* 5) Пара сформирована? */
+        int entry = 0; // +1 LONG, -1 SHORT
+        if (w1Active && s2 && i <= w1Deadline) entry = w1Long ? 1 : -1;
+        if (w2Active && i <= w2Deadline && (s1Long || s1Short)) entry = s1Long ? 1 : -1;
+
+        /* 6) Переворот */
+        if (posActive && entry != 0 && posLong != (entry > 0)) {
+            close(xt, unitsToTicksHalfUp(bars.closeUnits(i)), "REVERSAL_CLOSE");
+        }
+
+        /* 7) Планируем вход на i+1 */
+        if (entry != 0) {
+            if (i + 1 < bars.size()) planEntry(i + 1, entry > 0);
+            w1Active = false; w2Active = false;
+        }
+
+        /* 8) Истечение окон */
+        if (w1Active && i > w1Deadline) w1Active = false;
+        if (w2Active && i > w2Deadline) w2Active = false;
+    }
+
+    /** Стоп и объём по бару входа (BigDecimal из MainStrategy — только на баре сигнала). */
+    private void planEntry(int entryIndex, boolean isLong) {
+        MainStrategy.StopCalcResult sc = MainStrategy.computeStopForEntry(barView, entryIndex, isLong ? Dir.LONG : Dir.SHORT);
+        if (sc == null || sc.stop == null) return;
+
+        BigDecimal entryPrice = FixedPoint.units(bars.openUnits(entryIndex));
+        BigDecimal qty = MainStrategy.calcQty(entryPrice, sc.stop);
+        if (qty.compareTo(MainStrategy.MIN_QTY) < 0) return;
+
+        pendingActive     = true;
+        pendingIndex      = entryIndex;
+        pendingLong       = isLong;
+        pendingStopTicks  = FixedPoint.toTicks(sc.stop.setScale(2, RoundingMode.HALF_UP));
+        pendingEntryTicks = unitsToTicksHalfUp(bars.openUnits(entryIndex));
+        pendingQty        = FixedPoint.toSteps(qty);
+        pendingStopSource = sc.source != null ? sc.source : "TEMA9";
+        pendingImpulse    = sc.impulse;
+    }
+
+    private void close(long exitTime, long exitTicks, String reason) {
+        MainBacktestTrade tr = new MainBacktestTrade();
+        tr.setEntryTime(Instant.ofEpochMilli(posEntryTime));
+        tr.setSide(posLong ? "LONG" : "SHORT");
+        tr.setEntryPrice(FixedPoint.ticks(posEntryTicks));
+        tr.setStopPrice(FixedPoint.ticks(posInitialStop));
+        tr.setQtyBtc(FixedPoint.steps(posQty));
+        tr.setTp1Price(tp1Done ? FixedPoint.ticks(tp1Ticks) : null);
+        tr.setExitTime(Instant.ofEpochMilli(exitTime));
+        tr.setExitPrice(FixedPoint.ticks(exitTicks));
+        tr.setTp2Price(FixedPoint.ticks(exitTicks));
+        tr.setReason(reason);
+        tr.setStopSource(posStopSource);
+        tr.setImpulse(posImpulse);
+        out.add(tr);
+        posActive = false;
+    }
+
+    private static boolean is2hBoundary(long t) {
+        // minute == 0 && hour % 2 == 0 (UTC); секунды не учитываются, как в ZonedDateTime-версии
+        return Math.floorMod(t, TWO_HOURS_MS) < 60_000L;
+    }
+}
@@ -40,9 +40,9 @@ public class MainStrategy {
     // Риск/комиссия/шаги
     private static final BigDecimal RISK_USDT = new BigDecimal("100");
     private static final BigDecimal FEE_RATE  = new BigDecimal("0.0011"); // 0.055% * 2
-    private static final BigDecimal MIN_QTY   = new BigDecimal("0.001");
+    static final BigDecimal MIN_QTY   = new BigDecimal("0.001");
     private static final BigDecimal STEP_QTY  = new BigDecimal("0.001");
-    private static final Duration   TF        = Duration.ofMinutes(30);
+    static final Duration   TF        = Duration.ofMinutes(30);
 
     // Порог эквивалентности уровней (0.03%)
     private static final BigDecimal EQUIV_REL = new BigDecimal("0.0003");
@@ -91,7 +91,7 @@ public class MainStrategy {
     private static class WindowAfterSignal2 { int startedAt; int deadline; }
 
     /** Результат расчёта стопа */
-    private static class StopCalcResult {
+    static final class StopCalcResult {
         final BigDecimal stop;
         final String source;   // TEMA9 | EMA110 | EMA200 | CROSS
         final boolean impulse; // был ли импульс в окне
@@ -270,7 +270,7 @@ public class MainStrategy {
 
     // ====== ЛОГИКА СТОПА ======
 
-    private StopCalcResult computeStopForEntry(List<Bar> bars, int entryIndex, Dir dir) {
+    static StopCalcResult computeStopForEntry(List<Bar> bars, int entryIndex, Dir dir) {
         // Окно импульсов: [entryIndex-5 .. entryIndex]
         int from = Math.max(0, entryIndex - 5);
         int to   = entryIndex;
@@ -357,7 +357,7 @@ public class MainStrategy {
     }
 
     /** Общее правило: LONG — min(TEMA9), SHORT — max(TEMA9) в окне [entryIndex-5 .. entryIndex]. */
-    private BigDecimal stopByTema9Window(List<Bar> bars, int entryIndex, Dir dir) {
+    private static BigDecimal stopByTema9Window(List<Bar> bars, int entryIndex, Dir dir) {
         int from = Math.max(0, entryIndex - 5);
         int to   = entryIndex;
 
@@ -389,7 +389,7 @@ public class MainStrategy {
     }
 
     /** Самая импульсная свеча в окне [from..to] по |close-open|/open; при равенстве — более свежая. */
-    private Integer findStrongestImpulseInWindow(List<Bar> bars, int from, int to) {
+    private static Integer findStrongestImpulseInWindow(List<Bar> bars, int from, int to) {
         Integer bestIdx = null;
         BigDecimal bestScore = null;
 
@@ -414,7 +414,7 @@ public class MainStrategy {
     }
 
     /** Индексы баров, где есть кросс EMA11/EMA30 в окне [from..to] (включительно). */
-    private List<Integer> findCrossIdxInWindow(List<Bar> bars, int from, int to) {
+    private static List<Integer> findCrossIdxInWindow(List<Bar> bars, int from, int to) {
         List<Integer> res = new ArrayList<>();
         int lo = Math.max(1, from); // нужен prev
         int hi = Math.min(to, bars.size()-1);
@@ -431,7 +431,7 @@ public class MainStrategy {
     }
 
     /** Эквивалентность значений: |a-b| / ((a+b)/2) <= 0.0003 (0.03%) */
-    private boolean areEquivalent(BigDecimal a, BigDecimal b) {
+    private static boolean areEquivalent(BigDecimal a, BigDecimal b) {
         if (a == null || b == null) return false;
         BigDecimal diff = a.subtract(b).abs();
         BigDecimal mean = a.add(b).divide(new BigDecimal("2"), 10, RoundingMode.HALF_UP);
@@ -449,7 +449,7 @@ public class MainStrategy {
         return z.getMinute() == 0 && (z.getHour() % 2 == 0);
     }
 
-    private static BigDecimal calcQty(BigDecimal entry, BigDecimal stop) {
+    static BigDecimal calcQty(BigDecimal entry, BigDecimal stop) {
         BigDecimal delta = entry.subtract(stop).abs();
         BigDecimal denom = delta.add(entry.multiply(FEE_RATE));
         if (denom.signum() == 0) return BigDecimal.ZERO;
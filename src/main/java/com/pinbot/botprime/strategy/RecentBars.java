@@ -0,0 +1,44 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.BarColumns;
+import com.pinbot.botprime.backtest.IndicatorDao.Bar;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * List<Bar> поверх BarColumns, который помнит последние собранные Bar.
+ *
+ * BigDecimal-расчёт стопа на входе (computeStopForEntry) читает окно из 6-7 баров по нескольку раз, а соседние
+ * сигналы — пересекающиеся окна. Сборка Bar (восемь BigDecimal.valueOf(double)) дороже всего остального шага,
+ * поэтому каждый бар окна собирается один раз. Бар по абсолютному индексу не меняется ни в BarSeries,
+ * ни в RollingBarSeries (только append), так что кэш по индексу безопасен.
+ */
+final class RecentBars extends AbstractList<Bar> implements RandomAccess {
+
+    private static final int SLOTS = 16; // степень двойки, больше окна стопа
+
+    private final BarColumns bars;
+    private final int[] index = new int[SLOTS];
+    private final Bar[] cached = new Bar[SLOTS];
+
+    RecentBars(BarColumns bars) {
+        this.bars = bars;
+        Arrays.fill(index, -1);
+    }
+
+    @Override
+    public Bar get(int i) {
+        if (i < 0 || i >= bars.size()) throw new IndexOutOfBoundsException(i);
+        int slot = i & (SLOTS - 1);
+        if (index[slot] != i) {
+            cached[slot] = bars.bar(i);
+            index[slot] = i;
+        }
+        return cached[slot];
+    }
+
+    @Override
+    public int size() { return bars.size(); }
+}
@@ -0,0 +1,36 @@
+package com.pinbot.botprime.strategy;
+
+/**
+ * Счёт симулятора: equity в центах и бюджет одновременно открытых пар.
+ *
+ * У одиночного прогона счёт свой (без лимита пар). В портфеле один счёт делят симуляторы всех символов:
+ * объём считается от общего equity, PnL любого символа сразу меняет его, а maxOpenPairs ограничивает
+ * суммарный риск — сверх лимита новая пара не открывается (сигнал пропускается).
+ * Не потокобезопасен: симуляторы одного счёта шагают в одном потоке (PortfolioBacktestService).
+ */
+public final class SimAccount {
+
+    private long equityCents;
+    private final int maxOpenPairs;
+    private int openPairs;
+
+    /** @param maxOpenPairs лимит открытых пар на счёт; 0 — без лимита */
+    public SimAccount(long initialCents, int maxOpenPairs) {
+        this.equityCents = Math.max(0L, initialCents);
+        this.maxOpenPairs = Math.max(0, maxOpenPairs);
+    }
+
+    public long equityCents() { return equityCents; }
+
+    public int openPairs() { return openPairs; }
+
+    boolean tryOpenPair() {
+        if (maxOpenPairs > 0 && openPairs >= maxOpenPairs) return false;
+        openPairs++;
+        return true;
+    }
+
+    void pairClosed() { openPairs--; }
+
+    void book(long pnlCents) { equityCents += pnlCents; }
+}
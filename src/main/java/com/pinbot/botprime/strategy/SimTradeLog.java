@@ -0,0 +1,110 @@
+package com.pinbot.botprime.strategy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Примитивный журнал сделок симулятора: колонки вместо объектов.
+ * Цены — тики 0.01, объём — шаги 0.001, PnL — центы (с комиссиями стратегии).
+ */
+public final class SimTradeLog {
+
+    public static final byte MAIN  = 0;
+    public static final byte HEDGE = 1;
+
+    public static final byte LONG  = 0;
+    public static final byte SHORT = 1;
+
+    /** Коды причин; индекс = код. */
+    static final String[] REASONS = {
+            "STOP_LOSS", "HEDGE_TP_AT_MAIN_SL", "HEDGE_SL_1R",
+            "REVERSAL_CLOSE", "PAIR_CLOSE_WITH_MAIN", "RSI_CROSS", "RSI_75_35"
+    };
+    public static final byte STOP_LOSS            = 0;
+    public static final byte HEDGE_TP_AT_MAIN_SL  = 1;
+    public static final byte HEDGE_SL_1R          = 2;
+    public static final byte REVERSAL_CLOSE       = 3;
+    public static final byte PAIR_CLOSE_WITH_MAIN = 4;
+    public static final byte RSI_CROSS            = 5;
+    public static final byte RSI_75_35            = 6;
+
+    private int size;
+    private long[] pairId;
+    private byte[] role;
+    private byte[] side;
+    private long[] entryTime;
+    private long[] entryTicks;
+    private long[] stopTicks;
+    private long[] qtySteps;
+    private long[] exitTime;
+    private long[] exitTicks;
+    private byte[] reason;
+    private long[] pnlCents;
+
+    public SimTradeLog() { this(256); }
+
+    public SimTradeLog(int capacity) {
+        int c = Math.max(16, capacity);
+        pairId = new long[c]; role = new byte[c]; side = new byte[c];
+        entryTime = new long[c]; entryTicks = new long[c]; stopTicks = new long[c]; qtySteps = new long[c];
+        exitTime = new long[c]; exitTicks = new long[c]; reason = new byte[c]; pnlCents = new long[c];
+    }
+
+    void add(long pair, byte r, byte s, long eTime, long eTicks, long sTicks, long qty,
+             long xTime, long xTicks, byte why, long pnl) {
+        if (size == pairId.length) grow();
+        int i = size++;
+        pairId[i] = pair; role[i] = r; side[i] = s;
+        entryTime[i] = eTime; entryTicks[i] = eTicks; stopTicks[i] = sTicks; qtySteps[i] = qty;
+        exitTime[i] = xTime; exitTicks[i] = xTicks; reason[i] = why; pnlCents[i] = pnl;
+    }
+
+    public void clear() { size = 0; }
+
+    public int size() { return size; }
+
+    public long pairId(int i)     { return pairId[i]; }
+    public byte role(int i)       { return role[i]; }
+    public byte side(int i)       { return side[i]; }
+    public long entryTimeMs(int i){ return entryTime[i]; }
+    public long entryTicks(int i) { return entryTicks[i]; }
+    public long stopTicks(int i)  { return stopTicks[i]; }
+    public long qtySteps(int i)   { return qtySteps[i]; }
+    public long exitTimeMs(int i) { return exitTime[i]; }
+    public long exitTicks(int i)  { return exitTicks[i]; }
+    public byte reason(int i)     { return reason[i]; }
+    public long pnlCents(int i)   { return pnlCents[i]; }
+
+    public String reasonName(int i) { return REASONS[reason[i]]; }
+
+    /** Конвертация в строки MainProStrategy (для сохранения и сравнения с эталоном). */
+    public List<MainProStrategy.TradeRow> toTradeRows() {
+        List<MainProStrategy.TradeRow> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            out.add(new MainProStrategy.TradeRow(
+                    pairId[i],
+                    role[i] == MAIN ? "MAIN" : "HEDGE",
+                    side[i] == LONG ? "LONG" : "SHORT",
+                    Instant.ofEpochMilli(entryTime[i]),
+                    FixedPoint.ticks(entryTicks[i]),
+                    FixedPoint.ticks(stopTicks[i]),
+                    FixedPoint.steps(qtySteps[i]),
+                    Instant.ofEpochMilli(exitTime[i]),
+                    FixedPoint.ticks(exitTicks[i]),
+                    REASONS[reason[i]]
+            ));
+        }
+        return out;
+    }
+
+    private void grow() {
+        int c = pairId.length * 2;
+        pairId = Arrays.copyOf(pairId, c); role = Arrays.copyOf(role, c); side = Arrays.copyOf(side, c);
+        entryTime = Arrays.copyOf(entryTime, c); entryTicks = Arrays.copyOf(entryTicks, c);
+        stopTicks = Arrays.copyOf(stopTicks, c); qtySteps = Arrays.copyOf(qtySteps, c);
+        exitTime = Arrays.copyOf(exitTime, c); exitTicks = Arrays.copyOf(exitTicks, c);
+        reason = Arrays.copyOf(reason, c); pnlCents = Arrays.copyOf(pnlCents, c);
+    }
+}
@@ -43,6 +43,7 @@ public class BacktestTrade {
 
 
     public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
     public Instant getEntryTime() { return entryTime; }
     public String getSide() { return side; }
     public BigDecimal getEntryPrice() { return entryPrice; }
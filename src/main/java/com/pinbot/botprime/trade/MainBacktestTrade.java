@@ -52,6 +52,7 @@ public class MainBacktestTrade {
 
     // getters/setters
     public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
 
     public Instant getEntryTime() { return entryTime; }
     public void setEntryTime(Instant entryTime) { this.entryTime = entryTime; }
@@ -44,6 +44,7 @@ public class MainProBacktestTrade {
 
     // Getters / Setters
     public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
 
     public Long getPairId() { return pairId; }
     public void setPairId(Long pairId) { this.pairId = pairId; }
@@ -0,0 +1,192 @@
+package com.pinbot.botprime.archive;
+
+import com.pinbot.botprime.model.CandleColumns;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Формат файла архива свечей: запись, дописывание, перезапись последнего бара,
+ * недописанный хвост за count и поиск по времени.
+ */
+class CandleArchiveTest {
+
+    private static final long T0 = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static final long BAR_MS = 30 * 60 * 1000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeAndOpenRoundTrip() throws IOException {
+        Path file = dir.resolve("BTCUSDT_30.candles");
+        CandleColumns bars = bars(0, 5_000);
+
+        CandleArchive.write(file, bars);
+
+        assertEquals(new CandleArchive.Header(5_000, time(0), time(4_999)), CandleArchive.header(file));
+        MappedCandles m = CandleArchive.open(file);
+        assertEquals(5_000, m.size());
+        assertEquals(time(0), m.firstTime());
+        assertEquals(time(4_999), m.lastTime());
+        assertSameBars(bars, m.toColumns());
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")), "временный файл убран");
+    }
+
+    @Test
+    void appendAddsOnlyNewerBars() throws IOException {
+        Path file = dir.resolve("a.candles");
+        CandleArchive.write(file, bars(0, 100));
+
+        // 90..119: 90..98 старше последнего — пропуск, 99 — перезапись последнего, 100..119 — новые
+        int written = CandleArchive.append(file, bars(90, 120));
+
+        assertEquals(21, written);
+        MappedCandles m = CandleArchive.open(file);
+        assertEquals(120, m.size());
+        assertEquals(new CandleArchive.Header(120, time(0), time(119)), CandleArchive.header(file));
+        assertSameBars(bars(0, 120), m.toColumns());
+
+        assertEquals(0, CandleArchive.append(file, bars(10, 20)), "только старые бары — ничего не пишется");
+        assertEquals(120, CandleArchive.open(file).size());
+    }
+
+    @Test
+    void appendReplacesLastBar() throws IOException {
+        Path file = dir.resolve("r.candles");
+        CandleArchive.write(file, bars(0, 10));
+
+        CandleColumns resent = new CandleColumns(1);
+        resent.add(time(9), 1, 2, 0.5, 1.5, 7, 8);
+        assertEquals(1, CandleArchive.append(file, resent));
+
+        MappedCandles m = CandleArchive.open(file);
+        assertEquals(10, m.size());
+        assertEquals(time(9), m.time(9));
+        assertEquals(1.5, m.close(9));
+        assertEquals(8.0, m.quoteVolume(9));
+        assertEquals(close(8), m.close(8), "предыдущий бар не тронут");
+    }
+
+    @Test
+    void appendCreatesMissingFile() throws IOException {
+        Path file = dir.resolve("sub").resolve("new.candles");
+
+        assertEquals(3, CandleArchive.append(file, bars(0, 3)));
+        assertSameBars(bars(0, 3), CandleArchive.open(file).toColumns());
+    }
+
+    @Test
+    void tailPastCountIsIgnoredAndOverwritten() throws IOException {
+        Path file = dir.resolve("t.candles");
+        CandleArchive.write(file, bars(0, 50));
+
+        // «упали» после записи хвоста, но до обновления count: мусорные записи за концом
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer junk = ByteBuffer.allocate(3 * CandleArchive.RECORD_BYTES + 17);
+            while (junk.hasRemaining()) junk.put((byte) 0x7F);
+            junk.flip();
+            ch.write(junk, ch.size());
+        }
+
+        MappedCandles m = CandleArchive.open(file);
+        assertEquals(50, m.size(), "хвост за count не виден");
+        assertSameBars(bars(0, 50), m.toColumns());
+
+        assertEquals(10, CandleArchive.append(file, bars(50, 60)));
+        assertSameBars(bars(0, 60), CandleArchive.open(file).toColumns());
+    }
+
+    @Test
+    void fileShorterThanCountIsRejected() throws IOException {
+        Path file = dir.resolve("s.candles");
+        CandleArchive.write(file, bars(0, 20));
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(CandleArchive.HEADER_BYTES + 19L * CandleArchive.RECORD_BYTES + 5);
+        }
+
+        assertThrows(IOException.class, () -> CandleArchive.open(file));
+    }
+
+    @Test
+    void notAnArchiveIsRejected() throws IOException {
+        Path file = dir.resolve("x.candles");
+        Files.write(file, new byte[CandleArchive.HEADER_BYTES]);
+
+        assertThrows(IOException.class, () -> CandleArchive.open(file));
+        assertThrows(IOException.class, () -> CandleArchive.header(file));
+    }
+
+    @Test
+    void indexOfFindsFirstBarAtOrAfter() throws IOException {
+        Path file = dir.resolve("i.candles");
+        CandleArchive.write(file, bars(0, 1_000));
+        MappedCandles m = CandleArchive.open(file);
+
+        assertEquals(0, m.indexOf(Long.MIN_VALUE));
+        assertEquals(0, m.indexOf(time(0)));
+        assertEquals(1, m.indexOf(time(0) + 1));
+        assertEquals(500, m.indexOf(time(500)));
+        assertEquals(501, m.indexOf(time(500) + BAR_MS / 2));
+        assertEquals(999, m.indexOf(time(999)));
+        assertEquals(1_000, m.indexOf(time(999) + 1));
+
+        CandleColumns slice = m.toColumns(time(100), time(200));
+        assertEquals(100, slice.size());
+        assertEquals(time(100), slice.time(0));
+        assertEquals(time(199), slice.time(99));
+    }
+
+    @Test
+    void emptyArchive() throws IOException {
+        Path file = dir.resolve("e.candles");
+        CandleArchive.write(file, new CandleColumns(0));
+
+        MappedCandles m = CandleArchive.open(file);
+        assertTrue(m.isEmpty());
+        assertEquals(0, m.indexOf(T0));
+        assertEquals(new CandleArchive.Header(0, 0, 0), CandleArchive.header(file));
+
+        assertEquals(5, CandleArchive.append(file, bars(0, 5)));
+        assertEquals(new CandleArchive.Header(5, time(0), time(4)), CandleArchive.header(file));
+    }
+
+    private static CandleColumns bars(int from, int to) {
+        CandleColumns c = new CandleColumns(to - from);
+        for (int i = from; i < to; i++) {
+            double close = close(i);
+            c.add(time(i), close - 5, close + 10, close - 12.5, close, 100 + i * 0.125, close * (100 + i * 0.125));
+        }
+        return c;
+    }
+
+    private static long time(int i) {
+        return T0 + i * BAR_MS;
+    }
+
+    private static double close(int i) {
+        return 42_000 + (i % 97) * 3.25 - (i % 13) * 0.01;
+    }
+
+    private static void assertSameBars(CandleColumns expected, CandleColumns actual) {
+        assertEquals(expected.size(), actual.size(), "size");
+        for (int i = 0; i < expected.size(); i++) {
+            String at = "bar #" + i;
+            assertEquals(expected.time(i), actual.time(i), at);
+            assertEquals(expected.open(i), actual.open(i), at);
+            assertEquals(expected.high(i), actual.high(i), at);
+            assertEquals(expected.low(i), actual.low(i), at);
+            assertEquals(expected.close(i), actual.close(i), at);
+            assertEquals(expected.volume(i), actual.volume(i), at);
+            assertEquals(expected.quoteVolume(i), actual.quoteVolume(i), at);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.pinbot.botprime.backtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Запрошенный parallelism не выходит за размер общего пула; каждый индекс обрабатывается ровно один раз. */
+class BacktestPoolTest {
+
+    @Test
+    void parallelismIsCappedToPoolSize() {
+        BacktestPool pool = new BacktestPool(3);
+        try {
+            assertEquals(3, pool.threads(0));
+            assertEquals(2, pool.threads(2));
+            assertEquals(3, pool.threads(10_000));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void forEachVisitsEveryIndexOnceWithinThreadBudget() {
+        BacktestPool pool = new BacktestPool(4);
+        try {
+            AtomicIntegerArray hits = new AtomicIntegerArray(1_000);
+            Set<Thread> workers = ConcurrentHashMap.newKeySet();
+            int threads = pool.forEach(hits.length(), 1_000_000, i -> {
+                hits.incrementAndGet(i);
+                workers.add(Thread.currentThread());
+            });
+
+            assertEquals(4, threads);
+            assertTrue(workers.size() <= 4, "workers: " + workers.size());
+            for (int i = 0; i < hits.length(); i++) assertEquals(1, hits.get(i), "index " + i);
+
+            Thread caller = Thread.currentThread();
+            assertEquals(1, pool.forEach(5, 1, i -> assertEquals(caller, Thread.currentThread())));
+            assertEquals(1, pool.forEach(1, 0, i -> { }));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.strategy.IntrabarResolver;
+import com.pinbot.botprime.strategy.MainProParams;
+import com.pinbot.botprime.strategy.MainProSimulator;
+import com.pinbot.botprime.strategy.MainProSimulatorParityTest;
+import com.pinbot.botprime.strategy.MainProStrategy.TradeRow;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Прогон окна [from, ...) по серии с разгоном: то же, что прогон полной серии, начатый без позиций с бара from.
+ */
+class MainProBacktesterServiceTest {
+
+    private static final int WARMUP = 300;
+
+    @Test
+    void windowedRunEqualsFullRunStartedFlatAtSameBar() {
+        BarSeries full = MainProSimulatorParityTest.syntheticSeries(42L, 6_000);
+        int start = 3_217;
+        Instant from = Instant.ofEpochMilli(full.openTimeMs(start));
+
+        // как IndicatorDao.fetchSeries: окно плюс разгонные бары перед ним
+        BarSeries.Builder b = BarSeries.builder(full.size() - start + WARMUP);
+        for (int i = start - WARMUP; i < full.size(); i++) b.add(full.bar(i));
+        BarSeries window = b.build();
+
+        int fromIdx = window.indexAtOrAfter(from.toEpochMilli());
+        assertEquals(WARMUP, fromIdx);
+
+        List<TradeRow> actual = MainProBacktesterService
+                .simulate(window, fromIdx, IntrabarResolver.PRIORITY, BacktestProgress.NONE).toTradeRows();
+        List<TradeRow> expected = MainProSimulator
+                .run(full, MainProParams.DEFAULTS, start, full.size()).toTradeRows();
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int k = 0; k < expected.size(); k++) {
+            TradeRow e = expected.get(k), a = actual.get(k);
+            String at = "row " + k;
+            assertEquals(e.pairId, a.pairId, at);
+            assertEquals(e.role, a.role, at);
+            assertEquals(e.side, a.side, at);
+            assertEquals(e.entryTime, a.entryTime, at);
+            assertEquals(e.entryPrice, a.entryPrice, at);
+            assertEquals(e.stopPrice, a.stopPrice, at);
+            assertEquals(e.qtyBtc, a.qtyBtc, at);
+            assertEquals(e.exitTime, a.exitTime, at);
+            assertEquals(e.exitPrice, a.exitPrice, at);
+            assertEquals(e.reason, a.reason, at);
+            assertTrue(!a.entryTime.isBefore(from), at);
+        }
+    }
+
+    @Test
+    void indexAtOrAfterFindsFirstBarNotBeforeTime() {
+        BarSeries s = MainProSimulatorParityTest.syntheticSeries(1L, 50);
+        long t5 = s.openTimeMs(5);
+
+        assertEquals(0, s.indexAtOrAfter(Long.MIN_VALUE));
+        assertEquals(5, s.indexAtOrAfter(t5));
+        assertEquals(6, s.indexAtOrAfter(t5 + 1));
+        assertEquals(50, s.indexAtOrAfter(s.openTimeMs(49) + 1));
+    }
+}
@@ -0,0 +1,54 @@
+package com.pinbot.botprime.backtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Потолок числа наборов: большая сетка без sample и слишком большой sample — отказ до материализации. */
+class MainProParamGridTest {
+
+    private static List<BigDecimal> decimals(int n) {
+        return IntStream.range(0, n).mapToObj(i -> BigDecimal.valueOf(i + 1, 3)).toList();
+    }
+
+    private static List<Integer> ints(int n) {
+        return IntStream.range(0, n).boxed().toList();
+    }
+
+    @Test
+    void gridOverCapNeedsSample() {
+        MainProParamGrid grid = new MainProParamGrid();
+        grid.riskPctPerPair = decimals(30);
+        grid.hedgeRatio = decimals(30);
+        grid.dailyStopLimit = ints(30);
+
+        assertEquals(27_000L, grid.size());
+        assertThrows(IllegalArgumentException.class, () -> grid.select(null, 1L, 10_000));
+        assertThrows(IllegalArgumentException.class, () -> grid.select(20_000, 1L, 10_000));
+        assertEquals(500, grid.select(500, 1L, 10_000).size());
+        assertEquals(27_000, grid.select(null, 1L, 27_000).size());
+    }
+
+    @Test
+    void hugeGridSizeSaturatesInsteadOfOverflowing() {
+        MainProParamGrid grid = new MainProParamGrid();
+        grid.riskPctPerPair = decimals(200);
+        grid.riskPctPerPairLow = decimals(200);
+        grid.lossStreakRiskDown = ints(200);
+        grid.hedgeRatio = decimals(200);
+        grid.dailyStopLimit = ints(200);
+        grid.feeMakerInMain = decimals(200);
+        grid.feeTakerOutMain = decimals(200);
+        grid.feeTakerInHedge = decimals(200);
+        grid.feeTakerOutHedge = decimals(200);
+
+        assertEquals(Long.MAX_VALUE, grid.size());
+        assertThrows(IllegalArgumentException.class, () -> grid.select(null, 1L, 10_000));
+        assertEquals(10, grid.select(10, 1L, 10_000).size());
+    }
+}
@@ -0,0 +1,94 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.backtest.MainProSweepService.SweepResult;
+import com.pinbot.botprime.backtest.MainProWalkForwardService.Result;
+import com.pinbot.botprime.backtest.MainProWalkForwardService.Window;
+import com.pinbot.botprime.strategy.FixedPoint;
+import com.pinbot.botprime.strategy.MainProParams;
+import com.pinbot.botprime.strategy.MainProSimulator;
+import com.pinbot.botprime.strategy.MainProSimulatorParityTest;
+import com.pinbot.botprime.strategy.SimTradeLog;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Walk-forward на синтетической серии: нарезка окон, выбор победителя in-sample, перенос equity между
+ * out-of-sample окнами и остановка на обнулённом счёте.
+ */
+class MainProWalkForwardServiceTest {
+
+    private static final BacktestPool POOL = new BacktestPool(2);
+
+    private final MainProWalkForwardService service = new MainProWalkForwardService(null, POOL, 200_000);
+
+    @Test
+    void windowsAreSlicedAndEquityIsCarriedForward() {
+        BarSeries bars = MainProSimulatorParityTest.syntheticSeries(42L, 6_000);
+        List<MainProParams> sets = IntStream.of(30, 40, 50)
+                .mapToObj(h -> MainProParams.builder().hedgeRatio(BigDecimal.valueOf(h, 2)).build())
+                .toList();
+
+        Result r = service.run(bars, sets, 1_000, 800, 900, 0);
+
+        // старты 0, 900, ..., 3600: последний, для которого IS + OOS ещё помещается в 6000 баров
+        assertEquals(5, r.windows().size());
+        long equity = FixedPoint.toCents(MainProParams.DEFAULTS.initialDeposit());
+        for (int w = 0; w < 5; w++) {
+            Window win = r.windows().get(w);
+            int is = w * 900, oos = is + 1_000, end = oos + 800;
+            assertEquals(time(bars, is), win.inSampleFrom());
+            assertEquals(time(bars, oos - 1), win.inSampleTo());
+            assertEquals(time(bars, oos), win.outOfSampleFrom());
+            assertEquals(time(bars, end - 1), win.outOfSampleTo());
+
+            SweepResult best = sets.stream()
+                    .map(p -> MainProSweepService.evaluate(bars, is, oos, p))
+                    .min(MainProSweepService.BY_NET_PNL_DESC)
+                    .orElseThrow();
+            assertEquals(best.params(), win.best());
+            assertEquals(best.metrics(), win.inSample());
+
+            MainProParams carried = best.params().toBuilder().initialDeposit(BigDecimal.valueOf(equity, 2)).build();
+            SimTradeLog trail = MainProSimulator.run(bars, carried, oos, end);
+            assertEquals(BacktestMetrics.of(trail, equity), win.outOfSample(), "window " + w);
+            for (int i = 0; i < trail.size(); i++) equity += trail.pnlCents(i);
+        }
+        assertEquals(BigDecimal.valueOf(equity, 2), r.equity().get(r.equity().size() - 1).equity());
+        assertEquals(BigDecimal.valueOf(equity, 2), r.outOfSample().finalEquity());
+    }
+
+    @Test
+    void stepShorterThanOutOfSampleIsRejected() {
+        BarSeries bars = MainProSimulatorParityTest.syntheticSeries(1L, 3_000);
+        List<MainProParams> sets = List.of(MainProParams.DEFAULTS);
+
+        assertThrows(IllegalArgumentException.class, () -> service.run(bars, sets, 1_000, 500, 499, 1));
+        // step = 0 → шаг = outOfSample: старты 0, 500, 1000, 1500
+        assertEquals(4, service.run(bars, sets, 1_000, 500, 0, 1).windows().size());
+    }
+
+    @Test
+    void walkStopsOnceEquityIsGone() {
+        BarSeries bars = MainProSimulatorParityTest.syntheticSeries(7L, 6_000);
+        // риск 100% на пару: счёт обнуляется раньше последнего окна
+        BigDecimal all = BigDecimal.ONE;
+        List<MainProParams> sets = List.of(MainProParams.builder().riskPctPerPair(all).riskPctPerPairLow(all).build());
+
+        Result r = service.run(bars, sets, 1_000, 800, 0, 1);
+
+        assertTrue(r.windows().size() < 6, "windows: " + r.windows().size());
+        assertTrue(r.equity().get(r.equity().size() - 1).equity().signum() <= 0);
+    }
+
+    private static Instant time(BarSeries bars, int i) {
+        return Instant.ofEpochMilli(bars.openTimeMs(i));
+    }
+}
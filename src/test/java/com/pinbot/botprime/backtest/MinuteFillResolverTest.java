@@ -0,0 +1,55 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.strategy.IntrabarResolver;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Порядок стопов по минуткам бара: MAIN LONG, MAIN SL = 95.00, HEDGE SL = 105.00 (единицы 1e-8).
+ */
+class MinuteFillResolverTest {
+
+    private static final long U = BarSeries.PRICE_UNIT;
+    private static final long MAIN_SL = 95 * U;
+    private static final long HEDGE_SL = 105 * U;
+
+    @Test
+    void firstMinuteHitsOnlyMain() {
+        long[] high = {101 * U, 106 * U};
+        long[] low  = {94 * U, 99 * U};
+
+        assertEquals(IntrabarResolver.MAIN_SL_FIRST, MinuteFillResolver.firstHit(high, low, 2, true, MAIN_SL, HEDGE_SL));
+    }
+
+    @Test
+    void firstMinuteHitsOnlyHedge() {
+        // до HEDGE SL — минутка без касаний, после — MAIN SL
+        long[] high = {101 * U, 105 * U, 100 * U};
+        long[] low  = {99 * U, 100 * U, 95 * U};
+
+        assertEquals(IntrabarResolver.HEDGE_SL_FIRST, MinuteFillResolver.firstHit(high, low, 3, true, MAIN_SL, HEDGE_SL));
+        // SHORT: MAIN SL сверху (105), HEDGE SL снизу (95) — первой задет нижний
+        long[] shortHigh = {101 * U, 100 * U, 105 * U};
+        long[] shortLow  = {99 * U, 95 * U, 100 * U};
+        assertEquals(IntrabarResolver.HEDGE_SL_FIRST,
+                MinuteFillResolver.firstHit(shortHigh, shortLow, 3, false, HEDGE_SL, MAIN_SL));
+    }
+
+    @Test
+    void oneMinuteHitsBoth() {
+        long[] high = {101 * U, 106 * U, 110 * U};
+        long[] low  = {99 * U, 94 * U, 90 * U};
+
+        assertEquals(IntrabarResolver.UNKNOWN, MinuteFillResolver.firstHit(high, low, 3, true, MAIN_SL, HEDGE_SL));
+    }
+
+    @Test
+    void noMinutes() {
+        long[] high = {106 * U};
+        long[] low  = {94 * U};
+
+        assertEquals(IntrabarResolver.UNKNOWN, MinuteFillResolver.firstHit(new long[0], new long[0], 0, true, MAIN_SL, HEDGE_SL));
+        assertEquals(IntrabarResolver.UNKNOWN, MinuteFillResolver.firstHit(high, low, 0, true, MAIN_SL, HEDGE_SL), "строки за n не читаются");
+    }
+}
@@ -0,0 +1,111 @@
+package com.pinbot.botprime.backtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Движок Monte Carlo на фиксированном массиве PnL, без БД.
+ */
+class MonteCarloServiceTest {
+
+    private static final double[] PAIR_PNL = {100, -50, 200, -120, 35.5, -10, 80};
+
+    private static final BacktestPool POOL = new BacktestPool(4);
+
+    @Test
+    void pairReturnsAreRelativeToEquityBeforeEachPair() {
+        double[] r = MonteCarloService.pairReturns(new double[] {100, -50, 200}, 1_000);
+
+        assertEquals(3, r.length);
+        assertEquals(100 / 1_000.0, r[0], 1e-15);
+        assertEquals(-50 / 1_100.0, r[1], 1e-15);
+        assertEquals(200 / 1_050.0, r[2], 1e-15);
+    }
+
+    @Test
+    void pairReturnsStopAfterAccountIsWipedOut() {
+        double[] r = MonteCarloService.pairReturns(new double[] {-400, -600, 50, 70}, 1_000);
+
+        assertEquals(2, r.length);
+        assertEquals(-0.4, r[0], 1e-15);
+        assertEquals(-1.0, r[1], 1e-15);
+    }
+
+    /** Перестановка не меняет произведение (1 + r): у каждого пути итог initial * Π(1 + r), от какого бы initial ни стартовали. */
+    @Test
+    void shuffleCompoundingEndsAtSameMultipleForAnyStart() {
+        double deposit = 1_000;
+        double[] r = MonteCarloService.pairReturns(PAIR_PNL, deposit);
+        double multiple = (deposit + sum(PAIR_PNL)) / deposit;
+
+        for (double initial : new double[] {deposit, 25_000}) {
+            MonteCarloService.Paths out = MonteCarloService.simulate(r, true, initial,
+                    MonteCarloService.Mode.SHUFFLE, 2_500, r.length, 0, 7L, POOL, 3);
+            for (int p = 0; p < 2_500; p++) {
+                assertEquals(initial * multiple, out.finalEquity()[p], initial * 1e-12, "path " + p);
+                assertTrue(out.minEquity()[p] <= initial, "min <= start");
+                assertTrue(out.maxDdPct()[p] > 0, "в выборке есть убыточные пары");
+            }
+            assertEquals(0L, out.ruined());
+        }
+    }
+
+    @Test
+    void shuffleAdditiveEndsAtInitialPlusTotalPnl() {
+        MonteCarloService.Paths out = MonteCarloService.simulate(PAIR_PNL, false, 500,
+                MonteCarloService.Mode.SHUFFLE, 100, PAIR_PNL.length, 0, 1L, POOL, 1);
+
+        for (int p = 0; p < 100; p++) {
+            assertEquals(500 + sum(PAIR_PNL), out.finalEquity()[p], 1e-9, "path " + p);
+        }
+    }
+
+    @Test
+    void bootstrapIsReproducibleAcrossThreadCounts() {
+        double[] r = MonteCarloService.pairReturns(PAIR_PNL, 1_000);
+
+        MonteCarloService.Paths a = MonteCarloService.simulate(r, true, 1_000,
+                MonteCarloService.Mode.BOOTSTRAP, 3_000, 50, 800, 42L, POOL, 1);
+        MonteCarloService.Paths b = MonteCarloService.simulate(r, true, 1_000,
+                MonteCarloService.Mode.BOOTSTRAP, 3_000, 50, 800, 42L, POOL, 4);
+
+        assertArrayEquals(a.finalEquity(), b.finalEquity());
+        assertArrayEquals(a.maxDdPct(), b.maxDdPct());
+        assertArrayEquals(a.minEquity(), b.minEquity());
+        assertEquals(a.ruined(), b.ruined());
+    }
+
+    @Test
+    void ruinCountsPathsThatTouchTheLevel() {
+        // каждая сделка −30%: после двух equity = 0.49 * initial ≤ уровня 50%
+        double[] losses = {-0.3};
+
+        MonteCarloService.Paths two = MonteCarloService.simulate(losses, true, 1_000,
+                MonteCarloService.Mode.BOOTSTRAP, 10, 2, 500, 1L, POOL, 1);
+        MonteCarloService.Paths one = MonteCarloService.simulate(losses, true, 1_000,
+                MonteCarloService.Mode.BOOTSTRAP, 10, 1, 500, 1L, POOL, 1);
+
+        assertEquals(10L, two.ruined());
+        assertEquals(0L, one.ruined());
+        assertEquals(51.0, two.maxDdPct()[0], 1e-9);
+        assertEquals(490.0, two.minEquity()[0], 1e-9);
+    }
+
+    /** Лимиты проверяются до чтения таблиц (jdbc не нужен). */
+    @Test
+    void pathsAndParallelismOverLimitsAreRejected() {
+        MonteCarloService service = new MonteCarloService(null, POOL, 10_000);
+
+        assertThrows(IllegalArgumentException.class, () -> service.run(MonteCarloService.Source.MAINPRO,
+                MonteCarloService.Mode.BOOTSTRAP, 10_001, 0, null, 50, 1L, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.run(MonteCarloService.Source.MAINPRO,
+                MonteCarloService.Mode.BOOTSTRAP, 10_000, 0, null, 50, 1L, 5));
+    }
+
+    private static double sum(double[] v) {
+        double s = 0;
+        for (double x : v) s += x;
+        return s;
+    }
+}
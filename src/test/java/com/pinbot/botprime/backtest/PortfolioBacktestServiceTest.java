@@ -0,0 +1,71 @@
+package com.pinbot.botprime.backtest;
+
+import com.pinbot.botprime.strategy.FixedPoint;
+import com.pinbot.botprime.strategy.MainProParams;
+import com.pinbot.botprime.strategy.MainProSimulator;
+import com.pinbot.botprime.strategy.MainProSimulatorParityTest;
+import com.pinbot.botprime.strategy.SimTradeLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Портфель по готовым сериям, без БД. */
+class PortfolioBacktestServiceTest {
+
+    private final PortfolioBacktestService service = new PortfolioBacktestService(null);
+
+    @Test
+    void singleSymbolReproducesSimulatorFromStartBar() {
+        BarSeries bars = MainProSimulatorParityTest.syntheticSeries(42L, 6_000);
+        int start = 1_500;
+        Instant from = Instant.ofEpochMilli(bars.openTimeMs(start));
+
+        PortfolioBacktestService.Result r = service.run(List.of("BTCUSDT"), new BarSeries[] {bars}, from,
+                MainProParams.DEFAULTS, 0, BacktestProgress.NONE);
+
+        SimTradeLog expected = MainProSimulator.run(bars, MainProParams.DEFAULTS, start, bars.size());
+        long initial = FixedPoint.toCents(MainProParams.DEFAULTS.initialDeposit());
+        assertTrue(expected.size() > 0);
+        assertEquals(BacktestMetrics.of(expected, initial), r.portfolio());
+        assertEquals(expected.size(), r.symbols().get(0).trades());
+
+        // кривая: старт не пишется, точка на каждую закрытую сделку
+        assertEquals(expected.size(), r.equity().size());
+        long equity = initial;
+        for (int i = 0; i < expected.size(); i++) {
+            equity += expected.pnlCents(i);
+            assertEquals(FixedPoint.cents(equity), r.equity().get(i).equity(), "trade " + i);
+            assertEquals(Instant.ofEpochMilli(expected.exitTimeMs(i)), r.equity().get(i).time());
+        }
+    }
+
+    /**
+     * Два символа с одинаковыми барами: сигналы совпадают, при равном времени первым шагает первый символ
+     * и занимает единственный слот, а совпавшая пара второго пропускается. Второй торгует только там, где
+     * первый пары не открыл (например, после дневного стопа). Без лимита оба торгуют как одиночный прогон.
+     */
+    @Test
+    void maxOpenPairsSkipsSecondSymbolsPair() {
+        BarSeries bars = MainProSimulatorParityTest.syntheticSeries(7L, 4_000);
+        BarSeries[] twins = {bars, bars};
+        List<String> symbols = List.of("AAAUSDT", "BBBUSDT");
+
+        PortfolioBacktestService.Result limited = service.run(symbols, twins, null,
+                MainProParams.DEFAULTS, 1, BacktestProgress.NONE);
+        PortfolioBacktestService.Result unlimited = service.run(symbols, twins, null,
+                MainProParams.DEFAULTS, 0, BacktestProgress.NONE);
+
+        int alone = MainProSimulator.run(bars).size();
+        assertTrue(alone > 0);
+        assertEquals(alone, limited.symbols().get(0).trades());
+        assertTrue(limited.symbols().get(1).trades() < alone / 2,
+                "second symbol trades: " + limited.symbols().get(1).trades() + " of " + alone);
+        assertEquals(limited.symbols().get(0).trades() + limited.symbols().get(1).trades(), limited.portfolio().trades());
+        assertEquals(alone, unlimited.symbols().get(0).trades());
+        assertEquals(alone, unlimited.symbols().get(1).trades());
+    }
+}
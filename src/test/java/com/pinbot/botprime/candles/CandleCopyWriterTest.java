@@ -0,0 +1,114 @@
+package com.pinbot.botprime.candles;
+
+import com.pinbot.botprime.dto.CandleDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Байты PGCOPY: заголовок, строка (число полей + длина перед каждым полем), трейлер и нарезка на куски. */
+class CandleCopyWriterTest {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final int HEADER = SIGNATURE.length + 4 + 4;
+    private static final long T0 = Instant.parse("2024-03-01T10:30:00Z").toEpochMilli();
+
+    @Test
+    void oneRowLayout() throws Exception {
+        CandleDto c = new CandleDto(T0, 100.5, 101.25, 99.75, 100.0, 12.5, 1250.0);
+        List<byte[]> chunks = write(List.of(c), 16);
+
+        assertEquals(1, chunks.size());
+        ByteBuffer b = ByteBuffer.wrap(chunks.get(0));
+        assertEquals(HEADER + CandleCopyWriter.ROW_BYTES + 2, b.remaining());
+
+        byte[] sig = new byte[SIGNATURE.length];
+        b.get(sig);
+        assertArrayEquals(SIGNATURE, sig);
+        assertEquals(0, b.getInt(), "flags");
+        assertEquals(0, b.getInt(), "header extension length");
+
+        assertEquals(CandleCopyWriter.FIELDS, b.getShort());
+        assertEquals(8, b.getInt());
+        assertEquals(0L, b.getLong(), "seq");
+        assertEquals(8, b.getInt());
+        assertEquals(CandleCopyWriter.pgTimestamp(T0), b.getLong());
+        for (double v : new double[] {100.5, 101.25, 99.75, 100.0, 12.5, 1250.0}) {
+            assertEquals(8, b.getInt());
+            assertEquals(v, b.getDouble());
+        }
+
+        assertEquals(-1, b.getShort(), "trailer");
+        assertFalse(b.hasRemaining());
+    }
+
+    /**
+     * Буфер на 2 строки (2 * ROW_BYTES + 2): кусок сбрасывается, как только места меньше ROW_BYTES + 2,
+     * поэтому после заголовка влезает одна строка, дальше по две, и трейлер всегда помещается.
+     */
+    @Test
+    void chunksSplitOnRowBoundariesAndConcatenateToSingleChunkOutput() throws Exception {
+        List<CandleDto> candles = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            candles.add(new CandleDto(T0 + i * 1_800_000L, 100 + i, 101 + i, 99 + i, 100.5 + i, i, 10.0 * i));
+        }
+
+        List<byte[]> chunks = write(candles, 2);
+        int row = CandleCopyWriter.ROW_BYTES;
+        assertArrayEquals(new int[] {HEADER + row, 2 * row, 2 * row + 2},
+                chunks.stream().mapToInt(a -> a.length).toArray());
+        for (int k = 1; k < chunks.size(); k++) {
+            assertEquals(CandleCopyWriter.FIELDS, ByteBuffer.wrap(chunks.get(k)).getShort(), "chunk " + k + " starts a row");
+        }
+
+        byte[] whole = write(candles, 1_000).get(0);
+        assertArrayEquals(whole, concat(chunks));
+
+        // seq идёт подряд через границы кусков
+        ByteBuffer b = ByteBuffer.wrap(whole).position(HEADER);
+        for (int i = 0; i < 5; i++) {
+            b.getShort();
+            b.getInt();
+            assertEquals(i, b.getLong());
+            b.position(b.position() + row - 2 - 12);
+        }
+        assertEquals(-1, b.getShort());
+    }
+
+    /** Колонка timestamp без зоны: та же настенная дата, что Timestamp.from(..) в JVM-зоне. */
+    @Test
+    void pgTimestampFollowsJvmWallClock() {
+        long pgEpochMs = Instant.parse("2000-01-01T00:00:00Z").toEpochMilli();
+        TimeZone saved = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+            assertEquals(0L, CandleCopyWriter.pgTimestamp(pgEpochMs));
+            assertEquals((T0 - pgEpochMs) * 1_000L, CandleCopyWriter.pgTimestamp(T0));
+
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo")); // UTC+9, без перехода на летнее время
+            assertEquals((T0 + 9 * 3_600_000L - pgEpochMs) * 1_000L, CandleCopyWriter.pgTimestamp(T0));
+            assertEquals(((T0 + 9 * 3_600_000L + 123) - pgEpochMs) * 1_000L, CandleCopyWriter.pgTimestamp(T0 + 123));
+        } finally {
+            TimeZone.setDefault(saved);
+        }
+    }
+
+    private static List<byte[]> write(List<CandleDto> candles, int chunkRows) throws Exception {
+        List<byte[]> chunks = new ArrayList<>();
+        CandleCopyWriter.write(candles, chunkRows, (buf, len) -> chunks.add(Arrays.copyOf(buf, len)));
+        return chunks;
+    }
+
+    private static byte[] concat(List<byte[]> chunks) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] c : chunks) out.writeBytes(c);
+        return out.toByteArray();
+    }
+}
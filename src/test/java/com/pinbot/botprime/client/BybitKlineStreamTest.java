@@ -0,0 +1,99 @@
+package com.pinbot.botprime.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BybitKlineStream против локального WS-стаба (Reactor Netty): подписка уходит в формате Bybit,
+ * наружу попадает только закрытая свеча.
+ */
+class BybitKlineStreamTest {
+
+    private static final String PATH = "/v5/public/linear";
+
+    private static final String ACK =
+            "{\"success\":true,\"ret_msg\":\"\",\"conn_id\":\"stub\",\"op\":\"subscribe\"}";
+    private static final String OPEN_BAR =
+            "{\"topic\":\"kline.30.BTCUSDT\",\"type\":\"snapshot\",\"ts\":1718065799000,\"data\":[{"
+                    + "\"start\":1718064000000,\"end\":1718065799999,\"interval\":\"30\","
+                    + "\"open\":\"67000\",\"close\":\"67100.5\",\"high\":\"67150\",\"low\":\"66950\","
+                    + "\"volume\":\"12.5\",\"turnover\":\"838000.25\",\"confirm\":false,\"timestamp\":1718065799000}]}";
+    private static final String CLOSED_BAR =
+            "{\"topic\":\"kline.30.BTCUSDT\",\"type\":\"snapshot\",\"ts\":1718065800010,\"data\":[{"
+                    + "\"start\":1718064000000,\"end\":1718065799999,\"interval\":\"30\","
+                    + "\"open\":\"67000\",\"close\":\"67120.1\",\"high\":\"67150\",\"low\":\"66950\","
+                    + "\"volume\":\"13.25\",\"turnover\":\"888500.75\",\"confirm\":true,\"timestamp\":1718065800010}]}";
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private DisposableServer server;
+
+    @BeforeEach
+    void startStub() {
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.ws(PATH, (in, out) -> out.sendString(
+                        in.receive().asString()
+                                .doOnNext(received::add)
+                                .filter(frame -> frame.contains("\"subscribe\""))
+                                .concatMapIterable(frame -> List.of(ACK, OPEN_BAR, CLOSED_BAR)))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.disposeNow();
+    }
+
+    @Test
+    void emitsOnlyConfirmedCandles() {
+        BybitKlineStream stream = new BybitKlineStream(
+                new ReactorNettyWebSocketClient(),
+                URI.create("ws://localhost:" + server.port() + PATH),
+                Duration.ofSeconds(30));
+
+        List<ClosedKline> closed = stream.stream(List.of(BybitKlineStream.topic("BTCUSDT", "30")))
+                .take(1)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertNotNull(closed);
+        assertEquals(1, closed.size());
+        ClosedKline k = closed.get(0);
+        assertEquals("BTCUSDT", k.symbol());
+        assertEquals("30", k.interval());
+        assertEquals(1718064000000L, k.candle().getStartMs());
+        assertEquals(67000.0, k.candle().getOpen());
+        assertEquals(67150.0, k.candle().getHigh());
+        assertEquals(66950.0, k.candle().getLow());
+        assertEquals(67120.1, k.candle().getClose());
+        assertEquals(13.25, k.candle().getVolume());
+        assertEquals(888500.75, k.candle().getQuoteVolume());
+
+        assertEquals("{\"op\":\"subscribe\",\"args\":[\"kline.30.BTCUSDT\"]}", received.get(0));
+    }
+
+    @Test
+    void subscribeIsSplitIntoChunksOfTen() {
+        List<String> topics = new ArrayList<>();
+        for (int i = 0; i < 25; i++) topics.add(BybitKlineStream.topic("SYM" + i + "USDT", "30"));
+
+        List<String> frames = BybitKlineStream.subscribeFrames(topics);
+
+        assertEquals(3, frames.size());
+        assertTrue(frames.get(0).contains("kline.30.SYM0USDT") && frames.get(0).contains("kline.30.SYM9USDT"));
+        assertTrue(frames.get(2).contains("kline.30.SYM24USDT") && !frames.get(2).contains("SYM19USDT"));
+    }
+}
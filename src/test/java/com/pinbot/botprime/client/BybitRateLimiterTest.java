@@ -0,0 +1,63 @@
+package com.pinbot.botprime.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Арифметика token bucket на ручных часах: 10 запросов/с (токен — раз в 100 ms), burst 3.
+ * Ожидания сравниваются с точностью до 1 ns (скорость в токенах на ns — double).
+ */
+class BybitRateLimiterTest {
+
+    private static final long MS = 1_000_000L;
+
+    private long now = 5_000 * MS;
+    private final BybitRateLimiter limiter = new BybitRateLimiter(10, 3, () -> now);
+
+    @Test
+    void burstIsFreeThenEachReservationQueuesBehindThePrevious() {
+        for (int i = 0; i < 3; i++) assertEquals(0L, limiter.reserve(), "burst token " + i);
+
+        assertEquals(100 * MS, limiter.reserve(), 1.0);
+        assertEquals(200 * MS, limiter.reserve(), 1.0);
+        assertEquals(300 * MS, limiter.reserve(), 1.0);
+    }
+
+    @Test
+    void elapsedTimeRepaysDebtAndRefillIsCappedAtBurst() {
+        for (int i = 0; i < 5; i++) limiter.reserve(); // долг 2 токена
+
+        now += 150 * MS; // +1.5 токена: долг 0.5
+        assertEquals(150 * MS, limiter.reserve(), 1.0);
+
+        now += 60_000 * MS; // минута простоя — но не больше burst
+        for (int i = 0; i < 3; i++) assertEquals(0L, limiter.reserve(), "refilled token " + i);
+        assertEquals(100 * MS, limiter.reserve(), 1.0);
+    }
+
+    @Test
+    void penalizeDropsSavedTokensAndPushesNextSlotByPause() {
+        limiter.penalize(1_000); // полный bucket сгорает, долг = 1 s = 10 токенов
+
+        assertEquals(1_100 * MS, limiter.reserve(), 1.0);
+
+        now += 1_100 * MS;
+        assertEquals(100 * MS, limiter.reserve(), 1.0);
+    }
+
+    @Test
+    void penalizeAddsPauseOnTopOfExistingDebt() {
+        for (int i = 0; i < 5; i++) limiter.reserve(); // долг 2 токена = 200 ms
+
+        limiter.penalize(500);
+
+        assertEquals(800 * MS, limiter.reserve(), 1.0);
+    }
+
+    @Test
+    void nonPositiveRateOrBurstIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BybitRateLimiter(0, 3, () -> 0L));
+        assertThrows(IllegalArgumentException.class, () -> new BybitRateLimiter(10, 0, () -> 0L));
+    }
+}
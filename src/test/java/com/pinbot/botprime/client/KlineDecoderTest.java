@@ -0,0 +1,119 @@
+package com.pinbot.botprime.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pinbot.botprime.dto.CandleDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KlineDecoder против прежнего разбора String → Map → BigDecimal на payload'ах бенчмарка
+ * (src/jmh/resources/bybit): каждое поле должно совпасть до бита.
+ */
+class KlineDecoderTest {
+
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+
+    @ParameterizedTest
+    @ValueSource(strings = {"kline_BTCUSDT_30_200.json", "kline_BTCUSDT_30_1000.json"})
+    void matchesMapAndBigDecimal(String payload) throws IOException {
+        byte[] body;
+        try (InputStream in = getClass().getResourceAsStream("/bybit/" + payload)) {
+            assertNotNull(in, "payload not found: " + payload);
+            body = in.readAllBytes();
+        }
+
+        List<CandleDto> expected = mapAndBigDecimal(new String(body, StandardCharsets.UTF_8));
+        List<CandleDto> actual = KlineDecoder.decode(body);
+
+        assertFalse(expected.isEmpty(), "payload без строк");
+        assertEquals(expected.size(), actual.size(), "число строк");
+        for (int i = 0; i < expected.size(); i++) {
+            CandleDto e = expected.get(i), a = actual.get(i);
+            String at = "row #" + i;
+            assertEquals(e.getStartMs(), a.getStartMs(), at);
+            assertEquals(bits(e.getOpen()), bits(a.getOpen()), at);
+            assertEquals(bits(e.getHigh()), bits(a.getHigh()), at);
+            assertEquals(bits(e.getLow()), bits(a.getLow()), at);
+            assertEquals(bits(e.getClose()), bits(a.getClose()), at);
+            assertEquals(bits(e.getVolume()), bits(a.getVolume()), at);
+            assertEquals(bits(e.getQuoteVolume()), bits(a.getQuoteVolume()), at);
+        }
+    }
+
+    @Test
+    void nonZeroRetCodeThrows() {
+        byte[] body = "{\"retCode\":10006,\"retMsg\":\"Too many visits!\",\"result\":{},\"time\":1}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        BybitApiException e = assertThrows(BybitApiException.class, () -> KlineDecoder.decode(body));
+        assertEquals(10006, e.retCode());
+        assertTrue(e.isRateLimit());
+    }
+
+    @Test
+    void emptyListAndMissingResultGiveNoRows() {
+        byte[] empty = "{\"retCode\":0,\"retMsg\":\"OK\",\"result\":{\"category\":\"linear\",\"list\":[]}}"
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] noResult = "{\"retCode\":0,\"retMsg\":\"OK\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(KlineDecoder.decode(empty).isEmpty());
+        assertTrue(KlineDecoder.decode(noResult).isEmpty());
+    }
+
+    @Test
+    void unquotedNumbersAndExtraFields() {
+        byte[] body = ("{\"retCode\":0,\"result\":{\"list\":["
+                + "[1718064000000,67280.6,\"67284\",\"66994.9\",\"67000\",\"2539.397\",\"170495876.3991\",\"extra\"]]}}")
+                .getBytes(StandardCharsets.UTF_8);
+
+        List<CandleDto> rows = KlineDecoder.decode(body);
+
+        assertEquals(1, rows.size());
+        assertEquals(1718064000000L, rows.get(0).getStartMs());
+        assertEquals(67280.6, rows.get(0).getOpen());
+        assertEquals(170495876.3991, rows.get(0).getQuoteVolume());
+    }
+
+    @Test
+    void malformedJsonIsIllegalState() {
+        assertThrows(IllegalStateException.class,
+                () -> KlineDecoder.decode("[1,2]".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalStateException.class,
+                () -> KlineDecoder.decode("{\"retCode\":0,\"result\":{\"list\":[[\"1718064000000\",\"1".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Прежний путь BybitClient.toCandleDtos: Jackson → Map, BigDecimal на каждое поле. */
+    @SuppressWarnings("unchecked")
+    private static List<CandleDto> mapAndBigDecimal(String json) throws IOException {
+        Map<String, Object> raw = new ObjectMapper().readValue(json, MAP);
+        List<List<String>> rows = (List<List<String>>) ((Map<?, ?>) raw.get("result")).get("list");
+        List<CandleDto> out = new ArrayList<>(rows.size());
+        for (List<String> r : rows) {
+            out.add(new CandleDto(
+                    Long.parseLong(r.get(0)),
+                    new BigDecimal(r.get(1)).doubleValue(),
+                    new BigDecimal(r.get(2)).doubleValue(),
+                    new BigDecimal(r.get(3)).doubleValue(),
+                    new BigDecimal(r.get(4)).doubleValue(),
+                    new BigDecimal(r.get(5)).doubleValue(),
+                    new BigDecimal(r.get(6)).doubleValue()));
+        }
+        return out;
+    }
+
+    private static long bits(double v) {
+        return Double.doubleToLongBits(v);
+    }
+}
@@ -0,0 +1,112 @@
+package com.pinbot.botprime.service;
+
+import com.pinbot.botprime.model.CandleColumns;
+import com.pinbot.botprime.persistence.IndicatorValueEntity;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IndicatorState, которому бары приходят кусками случайной длины, обязан дать те же строки,
+ * что и полный пересчёт массивами (IndicatorComputeService.computeRows). Без БД: свечи синтетические,
+ * с редкими пропусками баров, чтобы встречались неполные 2h-группы.
+ */
+class IndicatorStateParityTest {
+
+    private static final long BAR_MS = 30 * 60 * 1000L;
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 7L, 42L, 2024L, 31337L})
+    void chunkedAdvanceMatchesFullRecompute(long seed) {
+        CandleColumns candles = syntheticCandles(seed, 3_000);
+        List<IndicatorValueEntity> expected = IndicatorComputeService.computeRows("BTCUSDT", "30", candles);
+
+        Random rnd = new Random(seed * 31 + 1);
+        IndicatorState state = new IndicatorState("BTCUSDT", "30");
+
+        // часть истории, затем reset на месте — дальше всё заново, как при пересборке состояния
+        feed(state, candles, 0, 1 + rnd.nextInt(candles.size() / 2), rnd);
+        state.reset();
+        assertEquals(0L, state.bars(), "bars после reset");
+
+        Map<Long, IndicatorValueEntity> written = feed(state, candles, 0, candles.size(), rnd);
+
+        assertEquals((long) candles.size(), state.bars(), "bars");
+        assertEquals(candles.time(0), state.firstTime(), "firstTime");
+        assertEquals(candles.time(candles.size() - 1), state.lastTime(), "lastTime");
+        assertEquals(expected.size(), written.size(), "число строк");
+
+        int incomplete = 0;
+        for (IndicatorValueEntity e : expected) {
+            IndicatorValueEntity a = written.get(e.getOpen_time().toEpochMilli());
+            String at = "bar " + e.getOpen_time();
+            assertEquals(e.getOpen(), a.getOpen(), at);
+            assertEquals(e.getHigh(), a.getHigh(), at);
+            assertEquals(e.getLow(), a.getLow(), at);
+            assertEquals(e.getClose(), a.getClose(), at);
+            assertEquals(e.getVolume(), a.getVolume(), at);
+            assertEquals(e.getQuoteVolume(), a.getQuoteVolume(), at);
+            assertEquals(e.getEma11(), a.getEma11(), at);
+            assertEquals(e.getEma30(), a.getEma30(), at);
+            assertEquals(e.getEma110(), a.getEma110(), at);
+            assertEquals(e.getEma200(), a.getEma200(), at);
+            assertEquals(e.getTema9(), a.getTema9(), at);
+            assertEquals(e.getRsi2h(), a.getRsi2h(), at);
+            assertEquals(e.getSmaRsi2h(), a.getSmaRsi2h(), at);
+            assertEquals(e.isImpulse(), a.isImpulse(), at);
+            if (e.getRsi2h() == -1.0) incomplete++;
+        }
+        assertTrue(incomplete > 0 && incomplete < expected.size(), "должны быть и полные, и неполные 2h-группы");
+    }
+
+    /** Подаёт бары [from, to) кусками по 1..50; результат — последняя записанная строка на каждый open_time. */
+    private static Map<Long, IndicatorValueEntity> feed(IndicatorState state, CandleColumns candles,
+                                                        int from, int to, Random rnd) {
+        Map<Long, IndicatorValueEntity> written = new LinkedHashMap<>();
+        int i = from;
+        while (i < to) {
+            int end = Math.min(to, i + 1 + rnd.nextInt(50));
+            CandleColumns chunk = new CandleColumns(end - i);
+            for (int j = i; j < end; j++) {
+                chunk.add(candles.time(j), candles.open(j), candles.high(j), candles.low(j), candles.close(j),
+                        candles.volume(j), candles.quoteVolume(j));
+            }
+            for (IndicatorValueEntity row : state.advance(chunk)) {
+                written.put(row.getOpen_time().toEpochMilli(), row);
+            }
+            i = end;
+        }
+        return written;
+    }
+
+    /** Случайное блуждание с 8 знаками; примерно каждый 40-й 30m-бар пропущен. */
+    private static CandleColumns syntheticCandles(long seed, int n) {
+        Random rnd = new Random(seed);
+        long t = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+        CandleColumns out = new CandleColumns(n);
+        double price = 42_000.0;
+        while (out.size() < n) {
+            double open = price;
+            double close = CandleColumns.numeric8(Math.max(1.0, open + rnd.nextGaussian() * 150));
+            // редкие сильные бары — чтобы срабатывал флаг импульса
+            if (rnd.nextInt(25) == 0) close = CandleColumns.numeric8(Math.max(1.0, open + rnd.nextGaussian() * 900));
+            double high = CandleColumns.numeric8(Math.max(open, close) + Math.abs(rnd.nextGaussian()) * 60);
+            double low = CandleColumns.numeric8(Math.max(0.5, Math.min(open, close) - Math.abs(rnd.nextGaussian()) * 60));
+            double volume = CandleColumns.numeric8(10 + rnd.nextDouble() * 500);
+            if (rnd.nextInt(40) != 0) {
+                out.add(t, open, high, low, close, volume, CandleColumns.numeric8(volume * close));
+            }
+            t += BAR_MS;
+            price = close;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,97 @@
+package com.pinbot.botprime.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Кольцо горячего окна: вытеснение самого старого, замена по open_time после переполнения,
+ * игнор старых и отсутствующих, выборка from.
+ */
+class TimeRingTest {
+
+    @Test
+    void appendsInOrderUntilFull() {
+        TimeRing<String> ring = new TimeRing<>(4);
+        assertTrue(ring.isEmpty());
+
+        ring.put(10, "a");
+        ring.put(20, "b");
+        ring.put(30, "c");
+
+        assertEquals(3, ring.size());
+        assertEquals(10L, ring.firstTime());
+        assertEquals(30L, ring.lastTime());
+        assertEquals(List.of("a", "b", "c"), ring.from(Long.MIN_VALUE));
+    }
+
+    @Test
+    void evictsOldestAcrossWrapAround() {
+        TimeRing<Integer> ring = new TimeRing<>(4);
+        for (int i = 1; i <= 11; i++) ring.put(i * 100L, i);
+
+        assertEquals(4, ring.size());
+        assertEquals(800L, ring.firstTime());
+        assertEquals(1100L, ring.lastTime());
+        assertEquals(List.of(8, 9, 10, 11), ring.from(0));
+    }
+
+    @Test
+    void sameTimeReplacesInPlace() {
+        TimeRing<String> ring = new TimeRing<>(3);
+        for (int i = 1; i <= 5; i++) ring.put(i, "v" + i); // кольцо уже переполнялось: 3, 4, 5
+
+        ring.put(5, "last");
+        ring.put(3, "first");
+        ring.put(4, "mid");
+
+        assertEquals(3, ring.size());
+        assertEquals(List.of("first", "mid", "last"), ring.from(0));
+        assertEquals(3L, ring.firstTime());
+        assertEquals(5L, ring.lastTime());
+    }
+
+    @Test
+    void olderOrMissingTimesAreIgnored() {
+        TimeRing<String> ring = new TimeRing<>(4);
+        ring.put(100, "a");
+        ring.put(300, "c");
+
+        ring.put(50, "before");  // старше окна
+        ring.put(200, "gap");    // внутри окна, но такого бара нет
+
+        assertEquals(2, ring.size());
+        assertEquals(List.of("a", "c"), ring.from(0));
+    }
+
+    @Test
+    void fromReturnsTailAtOrAfter() {
+        TimeRing<Integer> ring = new TimeRing<>(5);
+        for (int i = 0; i < 8; i++) ring.put(i * 10L, i); // 30..70
+
+        assertEquals(List.of(3, 4, 5, 6, 7), ring.from(0));
+        assertEquals(List.of(3, 4, 5, 6, 7), ring.from(30));
+        assertEquals(List.of(4, 5, 6, 7), ring.from(31));
+        assertEquals(List.of(7), ring.from(70));
+        assertTrue(ring.from(71).isEmpty());
+    }
+
+    @Test
+    void clearAllowsRefill() {
+        TimeRing<String> ring = new TimeRing<>(2);
+        ring.put(1, "a");
+        ring.put(2, "b");
+        ring.put(3, "c");
+
+        ring.clear();
+        assertTrue(ring.isEmpty());
+        assertTrue(ring.from(0).isEmpty());
+
+        ring.put(1, "x"); // после clear допустимо снова начать с любого времени
+        ring.put(2, "y");
+        assertEquals(List.of("x", "y"), ring.from(0));
+        assertEquals(1L, ring.firstTime());
+    }
+}
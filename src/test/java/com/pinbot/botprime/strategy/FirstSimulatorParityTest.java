@@ -0,0 +1,41 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.BarSeries;
+import com.pinbot.botprime.trade.BacktestTrade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FirstSimulator обязан давать те же сделки, что и эталонный FirstStrategy на BigDecimal
+ * (серии те же, что в MainProSimulatorParityTest).
+ */
+class FirstSimulatorParityTest {
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 7L, 42L, 2024L, 31337L})
+    void simulatorMatchesBigDecimalReference(long seed) {
+        BarSeries series = MainProSimulatorParityTest.syntheticSeries(seed, 6_000);
+
+        List<BacktestTrade> expected = new FirstStrategy().backtest(series.asBars());
+        List<BacktestTrade> actual = FirstSimulator.run(series);
+
+        assertTrue(expected.size() > 0, "на синтетике должны быть сделки");
+        assertEquals(expected.size(), actual.size(), "число сделок");
+        for (int i = 0; i < expected.size(); i++) {
+            BacktestTrade e = expected.get(i), a = actual.get(i);
+            String at = "trade #" + i;
+            assertEquals(e.getEntryTime(), a.getEntryTime(), at);
+            assertEquals(e.getSide(), a.getSide(), at);
+            assertEquals(e.getEntryPrice(), a.getEntryPrice(), at);
+            assertEquals(e.getStopPrice(), a.getStopPrice(), at);
+            assertEquals(e.getQtyBtc(), a.getQtyBtc(), at);
+            assertEquals(e.getExitTime(), a.getExitTime(), at);
+            assertEquals(e.getExitPrice(), a.getExitPrice(), at);
+        }
+    }
+}
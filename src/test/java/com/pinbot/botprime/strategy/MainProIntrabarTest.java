@@ -0,0 +1,103 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.BarSeries;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Разрешение бара, задевшего и MAIN SL, и HEDGE SL, на ручной серии из восьми баров:
+ *  - бар 3: EMA11 пересекает EMA30 вверх, EMA110 внутри бара, close выше EMA200 — сигнал LONG;
+ *  - бар 4: вход по open 100.00, импульсов нет — стоп по минимуму TEMA9 = 95.00, HEDGE SL = 105.00;
+ *  - бар 5: high 106 / low 94 — задеты оба стопа.
+ */
+class MainProIntrabarTest {
+
+    private static final long U = BarSeries.PRICE_UNIT;
+    private static final long T0 = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final long TF_MS = MainProStrategy.TF.toMillis();
+    private static final int STRADDLE = 5;
+
+    @Test
+    void priorityClosesHedgeAtMainStop() {
+        MainProSimulator sim = runWith(IntrabarResolver.PRIORITY);
+        SimTradeLog log = sim.trades();
+
+        assertEquals(1, sim.ambiguousBars());
+        assertEquals(0, sim.hedgeFirstBars());
+        assertEquals(2, log.size());
+        assertTrade(log, 0, SimTradeLog.MAIN, SimTradeLog.STOP_LOSS, 9_500);
+        assertTrade(log, 1, SimTradeLog.HEDGE, SimTradeLog.HEDGE_TP_AT_MAIN_SL, 9_500);
+    }
+
+    @Test
+    void hedgeFirstClosesHedgeAtOneR() {
+        long[] asked = new long[4];
+        MainProSimulator sim = runWith((barOpenMs, barMs, mainLong, mainStopUnits, hedgeSlUnits) -> {
+            asked[0] = barOpenMs;
+            asked[1] = barMs;
+            asked[2] = mainStopUnits;
+            asked[3] = mainLong ? hedgeSlUnits : -1;
+            return IntrabarResolver.HEDGE_SL_FIRST;
+        });
+        SimTradeLog log = sim.trades();
+
+        assertEquals(T0 + STRADDLE * TF_MS, asked[0], "резолвер спрошен про бар 5");
+        assertEquals(TF_MS, asked[1]);
+        assertEquals(95 * U, asked[2], "MAIN SL");
+        assertEquals(105 * U, asked[3], "HEDGE SL, MAIN — LONG");
+
+        assertEquals(1, sim.ambiguousBars());
+        assertEquals(1, sim.hedgeFirstBars());
+        assertEquals(2, log.size());
+        assertTrade(log, 0, SimTradeLog.HEDGE, SimTradeLog.HEDGE_SL_1R, 10_500);
+        assertTrade(log, 1, SimTradeLog.MAIN, SimTradeLog.STOP_LOSS, 9_500);
+        assertEquals(log.stopTicks(0), log.exitTicks(0), "HEDGE закрыт по своему SL");
+        assertEquals(log.pairId(0), log.pairId(1));
+    }
+
+    @Test
+    void mainFirstAndUnknownKeepPriorityTrades() {
+        SimTradeLog base = runWith(IntrabarResolver.PRIORITY).trades();
+
+        for (int answer : new int[] {IntrabarResolver.MAIN_SL_FIRST, IntrabarResolver.UNKNOWN}) {
+            MainProSimulator sim = runWith((barOpenMs, barMs, mainLong, mainStopUnits, hedgeSlUnits) -> answer);
+            assertEquals(0, sim.hedgeFirstBars());
+            assertEquals(base.size(), sim.trades().size());
+            for (int j = 0; j < base.size(); j++) {
+                assertEquals(base.reason(j), sim.trades().reason(j), "trade #" + j);
+                assertEquals(base.pnlCents(j), sim.trades().pnlCents(j), "trade #" + j);
+            }
+        }
+    }
+
+    private static MainProSimulator runWith(IntrabarResolver resolver) {
+        BarSeries series = series();
+        MainProSimulator sim = new MainProSimulator(series).intrabar(resolver);
+        for (int i = 0; i < series.size(); i++) sim.step(i);
+        return sim;
+    }
+
+    private static void assertTrade(SimTradeLog log, int j, byte role, byte reason, long exitTicks) {
+        String at = "trade #" + j;
+        assertEquals(role, log.role(j), at);
+        assertEquals(reason, log.reason(j), at);
+        assertEquals(exitTicks, log.exitTicks(j), at);
+        assertEquals(T0 + (STRADDLE + 1) * TF_MS, log.exitTimeMs(j), at + ": выход в конце бара 5");
+    }
+
+    /** Плоская цена 100.00; EMA110 = 100 на всех барах, EMA200 = 90, RSI = SMA(RSI) = 50. */
+    private static BarSeries series() {
+        BarSeries.Builder b = BarSeries.builder(8);
+        for (int i = 0; i < 8; i++) {
+            double ema11 = i < 3 ? 99 : 101;
+            long high = i == STRADDLE ? 106 * U : 101 * U;
+            long low  = i == STRADDLE ? 94 * U : 99 * U + U / 2;
+            b.add(T0 + i * TF_MS, 100 * U, high, low, 100 * U,
+                    ema11, 100, 100, 90, 95, 50, 50, false);
+        }
+        return b.build();
+    }
+}
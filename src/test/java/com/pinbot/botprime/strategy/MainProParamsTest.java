@@ -0,0 +1,51 @@
+package com.pinbot.botprime.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Параметры, которые симулятор не может перевести в fixed-point, отклоняются при сборке (400, а не 500). */
+class MainProParamsTest {
+
+    @Test
+    void feeFinerThanMicroIsRejected() {
+        MainProParams.Builder b = MainProParams.builder().feeTakerOutMain(new BigDecimal("0.0005501"));
+
+        assertThrows(IllegalArgumentException.class, b::build);
+    }
+
+    @Test
+    void feeOutsideUnitIntervalIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> MainProParams.builder().feeMakerInMain(new BigDecimal("-0.0001")).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> MainProParams.builder().feeTakerInHedge(BigDecimal.ONE).build());
+    }
+
+    @Test
+    void depositFinerThanCentIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> MainProParams.builder().initialDeposit(new BigDecimal("1000.005")).build());
+    }
+
+    @Test
+    void nonPositiveDepositIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> MainProParams.builder().initialDeposit(BigDecimal.ZERO).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> MainProParams.builder().initialDeposit(new BigDecimal("-0.01")).build());
+    }
+
+    @Test
+    void trailingZerosDoNotCountAsPrecision() {
+        assertDoesNotThrow(() -> MainProParams.builder()
+                .initialDeposit(new BigDecimal("1000.0000"))
+                .feeTakerOutMain(new BigDecimal("0.000550000"))
+                .build());
+        assertDoesNotThrow(() -> new MainProSimulator(MainProSimulatorParityTest.syntheticSeries(1L, 20),
+                MainProParams.builder().feeMakerInMain(new BigDecimal("0.000123")).build(), new SimTradeLog()));
+    }
+}
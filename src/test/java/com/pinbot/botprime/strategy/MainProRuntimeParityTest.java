@@ -0,0 +1,53 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.BarSeries;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Подача баров по одному через MainProRuntime (окно на 64 бара) обязана давать те же сделки,
+ * что и прогон MainProSimulator по всей серии.
+ */
+class MainProRuntimeParityTest {
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 7L, 42L, 2024L, 31337L})
+    void barByBarMatchesFullRun(long seed) {
+        BarSeries series = MainProSimulatorParityTest.syntheticSeries(seed, 6_000);
+
+        List<MainProStrategy.TradeRow> expected = MainProSimulator.run(series).toTradeRows();
+
+        MainProRuntime runtime = new MainProRuntime();
+        int closed = 0;
+        for (int i = 0; i < series.size(); i++) {
+            closed += runtime.onBar(series.openTimeMs(i),
+                    series.openUnits(i), series.highUnits(i), series.lowUnits(i), series.closeUnits(i),
+                    series.ema11(i), series.ema30(i), series.ema110(i), series.ema200(i),
+                    series.tema9(i), series.rsi2h(i), series.smaRsi2h(i), series.isImpulse(i));
+        }
+        List<MainProStrategy.TradeRow> actual = runtime.trades().toTradeRows();
+
+        assertTrue(expected.size() > 0, "на синтетике должны быть сделки");
+        assertEquals(expected.size(), closed, "сумма onBar");
+        assertEquals(expected.size(), actual.size(), "число сделок");
+        for (int i = 0; i < expected.size(); i++) {
+            MainProStrategy.TradeRow e = expected.get(i), a = actual.get(i);
+            String at = "trade #" + i;
+            assertEquals(e.pairId, a.pairId, at);
+            assertEquals(e.role, a.role, at);
+            assertEquals(e.side, a.side, at);
+            assertEquals(e.entryTime, a.entryTime, at);
+            assertEquals(e.entryPrice, a.entryPrice, at);
+            assertEquals(e.stopPrice, a.stopPrice, at);
+            assertEquals(e.qtyBtc, a.qtyBtc, at);
+            assertEquals(e.exitTime, a.exitTime, at);
+            assertEquals(e.exitPrice, a.exitPrice, at);
+            assertEquals(e.reason, a.reason, at);
+        }
+    }
+}
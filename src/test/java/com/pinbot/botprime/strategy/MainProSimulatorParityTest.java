@@ -0,0 +1,101 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.BarSeries;
+import com.pinbot.botprime.service.IndicatorUtils;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Симулятор на fixed-point обязан давать те же сделки, что и эталонный MainProStrategy на BigDecimal.
+ * Данные синтетические (случайное блуждание), индикаторы считаются тем же IndicatorUtils.
+ */
+public class MainProSimulatorParityTest {
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 7L, 42L, 2024L, 31337L})
+    void simulatorMatchesBigDecimalReference(long seed) {
+        BarSeries series = syntheticSeries(seed, 6_000);
+
+        List<MainProStrategy.TradeRow> expected = new MainProStrategy().backtest(series.asBars());
+        MainProSimulator sim = new MainProSimulator(series);
+        for (int i = 0; i < series.size(); i++) sim.step(i);
+        SimTradeLog log = sim.trades();
+        List<MainProStrategy.TradeRow> actual = log.toTradeRows();
+
+        assertTrue(expected.size() > 0, "на синтетике должны быть сделки");
+        assertEquals(expected.size(), actual.size(), "число сделок");
+        for (int i = 0; i < expected.size(); i++) {
+            MainProStrategy.TradeRow e = expected.get(i), a = actual.get(i);
+            String at = "trade #" + i;
+            assertEquals(e.pairId, a.pairId, at);
+            assertEquals(e.role, a.role, at);
+            assertEquals(e.side, a.side, at);
+            assertEquals(e.entryTime, a.entryTime, at);
+            assertEquals(e.entryPrice, a.entryPrice, at);
+            assertEquals(e.stopPrice, a.stopPrice, at);
+            assertEquals(e.qtyBtc, a.qtyBtc, at);
+            assertEquals(e.exitTime, a.exitTime, at);
+            assertEquals(e.exitPrice, a.exitPrice, at);
+            assertEquals(e.reason, a.reason, at);
+        }
+
+        // PnL в центах против BigDecimal pnlMain/pnlHedge эталона (округление setScale(2, HALF_UP) на каждой сделке)
+        BigDecimal equity = MainProStrategy.INITIAL_DEPOSIT;
+        for (int i = 0; i < expected.size(); i++) {
+            MainProStrategy.TradeRow e = expected.get(i);
+            MainProStrategy.Dir dir = MainProStrategy.Dir.valueOf(e.side);
+            BigDecimal pnl = "MAIN".equals(e.role)
+                    ? MainProStrategy.pnlMain(dir, e.entryPrice, e.exitPrice, e.qtyBtc)
+                    : MainProStrategy.pnlHedge(dir, e.entryPrice, e.exitPrice, e.qtyBtc);
+            assertEquals(pnl, FixedPoint.cents(log.pnlCents(i)), "pnl trade #" + i);
+            equity = equity.add(pnl);
+        }
+        assertEquals(equity.setScale(2), FixedPoint.cents(sim.equityCents()), "итоговый equity");
+    }
+
+    /** Случайное блуждание BTC-подобной цены с 8 знаками и индикаторами как в IndicatorComputeService. */
+    public static BarSeries syntheticSeries(long seed, int n) {
+        Random rnd = new Random(seed);
+        long t0 = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+        long step = MainProStrategy.TF.toMillis();
+
+        long[] o = new long[n], h = new long[n], l = new long[n], c = new long[n];
+        List<Double> closes = new ArrayList<>(n);
+        long price = 42_000L * BarSeries.PRICE_UNIT;
+        for (int i = 0; i < n; i++) {
+            long open = price;
+            long close = Math.max(BarSeries.PRICE_UNIT, open + (long) (rnd.nextGaussian() * 150 * BarSeries.PRICE_UNIT));
+            long high = Math.max(open, close) + (long) (rnd.nextDouble() * 80 * BarSeries.PRICE_UNIT);
+            long low  = Math.max(1, Math.min(open, close) - (long) (rnd.nextDouble() * 80 * BarSeries.PRICE_UNIT));
+            o[i] = open; h[i] = high; l[i] = low; c[i] = close;
+            closes.add(close / 1e8);
+            price = close;
+        }
+
+        List<Double> ema11  = IndicatorUtils.ema(closes, 11);
+        List<Double> ema30  = IndicatorUtils.ema(closes, 30);
+        List<Double> ema110 = IndicatorUtils.ema(closes, 110);
+        List<Double> ema200 = IndicatorUtils.ema(closes, 200);
+        List<Double> tema9  = IndicatorUtils.tema(closes, 9);
+        List<Double> rsi    = IndicatorUtils.rsi(closes, 14);
+        List<Double> smaRsi = IndicatorUtils.sma(rsi, 14);
+
+        BarSeries.Builder b = BarSeries.builder(n);
+        for (int i = 0; i < n; i++) {
+            b.add(t0 + i * step, o[i], h[i], l[i], c[i],
+                    ema11.get(i), ema30.get(i), ema110.get(i), ema200.get(i),
+                    tema9.get(i), rsi.get(i), smaRsi.get(i),
+                    rnd.nextInt(12) == 0);
+        }
+        return b.build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.pinbot.botprime.strategy;
+
+import com.pinbot.botprime.backtest.BarSeries;
+import com.pinbot.botprime.trade.MainBacktestTrade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MainSimulator обязан давать те же сделки, что и эталонный MainStrategy на BigDecimal
+ * (серии те же, что в MainProSimulatorParityTest).
+ */
+class MainSimulatorParityTest {
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 7L, 42L, 2024L, 31337L})
+    void simulatorMatchesBigDecimalReference(long seed) {
+        BarSeries series = MainProSimulatorParityTest.syntheticSeries(seed, 6_000);
+
+        List<MainBacktestTrade> expected = new MainStrategy().backtest(series.asBars());
+        List<MainBacktestTrade> actual = MainSimulator.run(series);
+
+        assertTrue(expected.size() > 0, "на синтетике должны быть сделки");
+        assertTrue(expected.stream().anyMatch(t -> t.getTp1Price() != null), "должны быть сделки с TP1");
+        assertEquals(expected.size(), actual.size(), "число сделок");
+        for (int i = 0; i < expected.size(); i++) {
+            MainBacktestTrade e = expected.get(i), a = actual.get(i);
+            String at = "trade #" + i;
+            assertEquals(e.getEntryTime(), a.getEntryTime(), at);
+            assertEquals(e.getSide(), a.getSide(), at);
+            assertEquals(e.getEntryPrice(), a.getEntryPrice(), at);
+            assertEquals(e.getStopPrice(), a.getStopPrice(), at);
+            assertEquals(e.getQtyBtc(), a.getQtyBtc(), at);
+            assertEquals(e.getTp1Price(), a.getTp1Price(), at);
+            assertEquals(e.getExitTime(), a.getExitTime(), at);
+            assertEquals(e.getExitPrice(), a.getExitPrice(), at);
+            assertEquals(e.getTp2Price(), a.getTp2Price(), at);
+            assertEquals(e.getReason(), a.getReason(), at);
+            assertEquals(e.getStopSource(), a.getStopSource(), at);
+            assertEquals(e.getImpulse(), a.getImpulse(), at);
+        }
+    }
+}